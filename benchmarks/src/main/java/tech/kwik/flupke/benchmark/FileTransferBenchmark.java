@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import tech.kwik.flupke.server.HttpRequestHandler;
+import tech.kwik.flupke.server.impl.Http3ServerConnectionImpl;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Measures the throughput of serving a large file, comparing copying a FileInputStream to the response output stream
+ * (as the sample file server used to do) with HttpServerResponse.sendFile. Responses are written to a stubbed QUIC
+ * stream that copies all data into a buffer, like Kwik does when data is written to a stream.
+ * Run with "gradle :flupke-benchmarks:fileTransfer", optionally passing the file size in MB (default 2048) and the
+ * number of iterations (default 5) with --args.
+ */
+public class FileTransferBenchmark {
+
+    private static final ExecutorService directExecutor = new DirectExecutorService();
+
+    public static void main(String[] args) throws Exception {
+        int sizeInMB = args.length > 0? Integer.parseInt(args[0]): 2048;
+        int iterations = args.length > 1? Integer.parseInt(args[1]): 5;
+
+        Path file = Files.createTempFile("flupke-benchmark", ".bin");
+        try {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+                randomAccessFile.setLength(sizeInMB * 1024L * 1024L);
+            }
+            HttpRequestHandler streamCopy = (request, response) -> {
+                response.setStatus(200);
+                try (FileInputStream fileIn = new FileInputStream(file.toFile()); OutputStream out = response.getOutputStream()) {
+                    fileIn.transferTo(out);
+                }
+            };
+            HttpRequestHandler sendFile = (request, response) -> response.sendFile(file);
+
+            System.out.printf("File size %d MB, best of %d iterations%n", sizeInMB, iterations);
+            // First round warms up, including the file system cache.
+            for (int round = 0; round < 2; round++) {
+                double streamThroughput = measure(streamCopy, iterations);
+                double sendFileThroughput = measure(sendFile, iterations);
+                if (round > 0) {
+                    System.out.printf("transferTo(getOutputStream()): %8.1f MB/s%n", streamThroughput);
+                    System.out.printf("sendFile:                      %8.1f MB/s%n", sendFileThroughput);
+                }
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    private static double measure(HttpRequestHandler handler, int iterations) {
+        byte[] request = QuicStubs.requestStreamData();
+        double best = 0;
+        for (int i = 0; i < iterations; i++) {
+            CopyingOutputStream output = new CopyingOutputStream();
+            Http3ServerConnectionImpl connection = new Http3ServerConnectionImpl(QuicStubs.serverConnection(), handler, directExecutor, Map.of());
+            long start = System.nanoTime();
+            connection.acceptPeerInitiatedStream(QuicStubs.stream(request, output, () -> {}));
+            long elapsed = System.nanoTime() - start;
+            best = Math.max(best, (output.count / (1024.0 * 1024.0)) / (elapsed / 1_000_000_000.0));
+        }
+        return best;
+    }
+
+    /**
+     * Copies all data into a (reused) buffer, like a QUIC stream copies data into its send buffer.
+     */
+    private static class CopyingOutputStream extends OutputStream {
+
+        private final byte[] buffer = new byte[64 * 1024];
+        private long count;
+
+        @Override
+        public void write(int b) {
+            buffer[(int) (count++ % buffer.length)] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int position = (int) (count % buffer.length);
+                int chunk = Math.min(len, buffer.length - position);
+                System.arraycopy(b, off, buffer, position, chunk);
+                off += chunk;
+                len -= chunk;
+                count += chunk;
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import tech.kwik.core.QuicStream;
+import tech.kwik.core.server.ServerConnection;
+import tech.kwik.flupke.server.HttpRequestHandler;
+import tech.kwik.flupke.server.HttpServerRequest;
+import tech.kwik.flupke.server.HttpServerResponse;
+import tech.kwik.flupke.server.impl.Http3ServerConnectionImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reports the retained heap size of an idle server connection and of an open request stream (the request and response
+ * objects a handler holds on to). Connections and streams run on stubbed QUIC connections and streams, which are
+ * created before measuring, so only objects created by Flupke are counted.
+ * Run with "gradle :flupke-benchmarks:footprint", optionally passing the number of connections/streams to create with
+ * --args.
+ */
+public class FootprintBenchmark {
+
+    private static final ExecutorService directExecutor = new DirectExecutorService();
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0? Integer.parseInt(args[0]): 20_000;
+
+        // Warm up, to get classes loaded and static state initialized.
+        measureConnections(1_000);
+        measureStreams(1_000);
+
+        System.out.printf("Retained bytes per idle server connection: %d%n", measureConnections(count));
+        System.out.printf("Retained bytes per open request stream:    %d%n", measureStreams(count));
+    }
+
+    private static long measureConnections(int count) {
+        ServerConnection[] quicConnections = new ServerConnection[count];
+        for (int i = 0; i < count; i++) {
+            quicConnections[i] = QuicStubs.serverConnection();
+        }
+        Object[] connections = new Object[count];
+        HttpRequestHandler handler = (request, response) -> response.setStatus(200);
+
+        long before = usedHeap();
+        for (int i = 0; i < count; i++) {
+            connections[i] = new Http3ServerConnectionImpl(quicConnections[i], handler, directExecutor, Map.of());
+        }
+        long after = usedHeap();
+        reachabilityFence(connections);
+        reachabilityFence(quicConnections);
+        return (after - before) / count;
+    }
+
+    private static long measureStreams(int count) {
+        byte[] request = QuicStubs.requestStreamData();
+        List<Object> retained = new ArrayList<>(2 * count);
+        HttpRequestHandler handler = new HttpRequestHandler() {
+            @Override
+            public void handleRequest(HttpServerRequest request, HttpServerResponse response) {
+                response.setStatus(200);
+                retained.add(request);
+                retained.add(response);
+            }
+        };
+        Http3ServerConnectionImpl connection = new Http3ServerConnectionImpl(QuicStubs.serverConnection(), handler, directExecutor, Map.of());
+        QuicStream[] streams = new QuicStream[count];
+        for (int i = 0; i < count; i++) {
+            streams[i] = QuicStubs.stream(request);
+        }
+
+        long before = usedHeap();
+        for (int i = 0; i < count; i++) {
+            connection.acceptPeerInitiatedStream(streams[i]);
+        }
+        long after = usedHeap();
+        reachabilityFence(retained);
+        reachabilityFence(streams);
+        reachabilityFence(connection);
+        return (after - before) / count;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static volatile Object sink;
+
+    private static void reachabilityFence(Object object) {
+        sink = object;
+        sink = null;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.kwik.flupke.impl.DataFrame;
+import tech.kwik.flupke.impl.SettingsFrame;
+import tech.kwik.flupke.impl.VariableLengthIntegerUtil;
+import tech.kwik.flupke.server.impl.DataFrameWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding of variable length integers and frame headers; run with "-prof gc" to see the
+ * allocation rate, which should be zero for all but the benchmarks that create a frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameCodecBenchmark {
+
+    private final byte[] payload = new byte[1200];
+    private final byte[] scratch = new byte[VariableLengthIntegerUtil.MAX_FRAME_HEADER_LENGTH];
+    private final DataFrameWriter dataFrameWriter = new DataFrameWriter(OutputStream.nullOutputStream());
+    private final ByteBuffer encodedHeader = ByteBuffer.wrap(new byte[] { 0x00, 0x44, (byte) 0xb0 });
+    private final ByteArrayInputStream input = new ByteArrayInputStream(new byte[] { (byte) 0x9d, (byte) 0x7f, (byte) 0x3e, (byte) 0x7d });
+    private final PushbackInputStream pushbackInput = new PushbackInputStream(input, 8);
+    private final SettingsFrame settingsFrame = new SettingsFrame(0, 0, true);
+
+    @Benchmark
+    public int encodeFrameHeader() {
+        return VariableLengthIntegerUtil.encodeFrameHeader(0x00, payload.length, scratch, 0);
+    }
+
+    @Benchmark
+    public long decodeFrameHeader() {
+        encodedHeader.rewind();
+        return VariableLengthIntegerUtil.decode(encodedHeader) + VariableLengthIntegerUtil.decode(encodedHeader);
+    }
+
+    @Benchmark
+    public long peekVarInt() throws IOException {
+        long value = VariableLengthIntegerUtil.peekLong(pushbackInput);
+        input.reset();
+        return value;
+    }
+
+    @Benchmark
+    public void writeDataFrame() throws IOException {
+        dataFrameWriter.write(payload, 0, payload.length);
+    }
+
+    @Benchmark
+    public byte[] dataFrameToBytes() {
+        return new DataFrame(payload).toBytes();
+    }
+
+    @Benchmark
+    public ByteBuffer settingsFrameToBytes() {
+        return settingsFrame.getBytes();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.kwik.flupke.impl.QpackDecoder;
+import tech.kwik.flupke.impl.QpackEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the number of header bytes per request (encoded field section plus encoder stream instructions) for a
+ * sequence of typical browser requests, with and without the QPACK dynamic table (table capacity 0 means no dynamic
+ * table) and with and without Huffman encoding of string literals. The "headerBytesPerRequest" secondary result gives
+ * the average number of bytes per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeaderCompressionBenchmark {
+
+    @Param({ "0", "4096" })
+    public long tableCapacity;
+
+    @Param({ "0", "16" })
+    public int blockedStreams;
+
+    @Param({ "false", "true" })
+    public boolean huffman;
+
+    private QpackEncoder encoder;
+    private QpackDecoder decoder;
+    private ByteArrayOutputStream encoderStream;
+    private ByteArrayOutputStream decoderStream;
+    private long streamId;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class HeaderBytes {
+        public long headerBytes;
+        public long requests;
+
+        public double headerBytesPerRequest() {
+            return requests == 0? 0: (double) headerBytes / requests;
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            headerBytes = 0;
+            requests = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        encoderStream = new ByteArrayOutputStream();
+        decoderStream = new ByteArrayOutputStream();
+        encoder = new QpackEncoder(tableCapacity, huffman, encoderStream);
+        encoder.setPeerSettings(tableCapacity, blockedStreams);
+        decoder = new QpackDecoder(tableCapacity, blockedStreams, decoderStream);
+        streamId = 0;
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, String>> encodeAndDecodeRequestHeaders(HeaderBytes counters) throws IOException {
+        List<Map.Entry<String, String>> headers = requestHeaders("/assets/image-" + (streamId % 100) + ".png");
+        ByteBuffer fieldSection = encoder.compressHeaders(headers, streamId);
+        fieldSection.flip();
+        byte[] encoded = new byte[fieldSection.remaining()];
+        fieldSection.get(encoded);
+
+        counters.headerBytes += encoded.length + encoderStream.size();
+        counters.requests++;
+
+        // Simulate the peer: process encoder instructions, decode the field section and return decoder instructions.
+        decoder.processEncoderStream(new ByteArrayInputStream(encoderStream.toByteArray()));
+        encoderStream.reset();
+        List<Map.Entry<String, String>> decoded = decoder.decode(encoded, streamId);
+        encoder.processDecoderStream(new ByteArrayInputStream(decoderStream.toByteArray()));
+        decoderStream.reset();
+        streamId += 4;
+        return decoded;
+    }
+
+    private static List<Map.Entry<String, String>> requestHeaders(String path) {
+        return List.of(
+                Map.entry(":method", "GET"),
+                Map.entry(":scheme", "https"),
+                Map.entry(":authority", "www.example.com"),
+                Map.entry(":path", path),
+                Map.entry("user-agent", "Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0"),
+                Map.entry("accept", "image/avif,image/webp,image/png,image/svg+xml,image/*;q=0.8,*/*;q=0.5"),
+                Map.entry("accept-language", "en-US,en;q=0.5"),
+                Map.entry("accept-encoding", "gzip, deflate, br, zstd"),
+                Map.entry("referer", "https://www.example.com/index.html"),
+                Map.entry("cookie", "session=7f3c2a9e4b1d4e8f9a6b5c3d2e1f0a9b; theme=dark"),
+                Map.entry("sec-fetch-dest", "image"),
+                Map.entry("sec-fetch-mode", "no-cors"),
+                Map.entry("sec-fetch-site", "same-origin"));
+    }
+}
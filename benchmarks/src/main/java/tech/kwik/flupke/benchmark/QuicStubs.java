@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import tech.kwik.core.QuicStream;
+import tech.kwik.core.server.ServerConnection;
+import tech.kwik.qpack.Encoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stubbed QUIC connections and streams, for running server connections in benchmarks without networking.
+ */
+class QuicStubs {
+
+    private static final InetSocketAddress clientAddress = new InetSocketAddress("127.0.0.1", 4433);
+
+    private QuicStubs() {
+    }
+
+    static ServerConnection serverConnection() {
+        QuicStream controlStream = stream(new byte[0]);
+        return (ServerConnection) Proxy.newProxyInstance(QuicStubs.class.getClassLoader(), new Class<?>[] { ServerConnection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "createStream":
+                            return controlStream;
+                        case "getInitialRemoteAddress":
+                            return clientAddress;
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    static QuicStream stream(byte[] input) {
+        return stream(input, OutputStream.nullOutputStream(), () -> {});
+    }
+
+    /**
+     * Creates a (client initiated bidirectional) stream stub.
+     * @param input  the data the peer sent on the stream
+     * @param output  the output stream receiving the data written to the stream
+     * @param onReset  called when the stream is reset
+     * @return  the stream
+     */
+    static QuicStream stream(byte[] input, OutputStream output, Runnable onReset) {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(input);
+        return (QuicStream) Proxy.newProxyInstance(QuicStubs.class.getClassLoader(), new Class<?>[] { QuicStream.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getInputStream":
+                            return inputStream;
+                        case "getOutputStream":
+                            return output;
+                        case "isBidirectional":
+                        case "isClientInitiatedBidirectional":
+                            return true;
+                        case "resetStream":
+                            onReset.run();
+                            return null;
+                        default:
+                            return defaultValue(method);
+                    }
+                });
+    }
+
+    /**
+     * @return  the data of a request stream containing a GET request (a single HEADERS frame)
+     */
+    static byte[] requestStreamData() {
+        ByteBuffer fieldSection = Encoder.newBuilder().build().compressHeaders(List.of(
+                Map.entry(":method", "GET"),
+                Map.entry(":scheme", "https"),
+                Map.entry(":authority", "www.example.com"),
+                Map.entry(":path", "/index.html"),
+                Map.entry("user-agent", "benchmark")));
+        fieldSection.flip();
+        byte[] data = new byte[2 + fieldSection.remaining()];
+        data[0] = 0x01;  // HEADERS frame
+        data[1] = (byte) fieldSection.remaining();
+        fieldSection.get(data, 2, fieldSection.remaining());
+        return data;
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        else if (type == int.class) {
+            return 0;
+        }
+        else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
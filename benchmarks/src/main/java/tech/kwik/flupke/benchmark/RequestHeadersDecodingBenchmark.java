@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tech.kwik.flupke.impl.HeaderBlock;
+import tech.kwik.flupke.impl.HeadersFrame;
+import tech.kwik.qpack.Decoder;
+import tech.kwik.qpack.Encoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures parsing the payload of a typical request headers frame and reading the request line, comparing the
+ * header block (with and without creating the HttpHeaders) with eagerly collecting all fields into HttpHeaders, as
+ * HeadersFrame did before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestHeadersDecodingBenchmark {
+
+    private Decoder decoder;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        List<Map.Entry<String, String>> fields = List.of(
+                Map.entry(":method", "GET"),
+                Map.entry(":scheme", "https"),
+                Map.entry(":authority", "www.example.com"),
+                Map.entry(":path", "/static/css/site.css"),
+                Map.entry("user-agent", "Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0"),
+                Map.entry("accept", "text/css,*/*;q=0.1"),
+                Map.entry("accept-language", "en-US,en;q=0.5"),
+                Map.entry("accept-encoding", "gzip, deflate, br"),
+                Map.entry("referer", "https://www.example.com/index.html"),
+                Map.entry("cookie", "session=8f14e45fceea167a5a36dedd4bea2543"),
+                Map.entry("cookie", "theme=dark"));
+        ByteBuffer encoded = Encoder.newBuilder().build().compressHeaders(fields);
+        encoded.flip();
+        payload = new byte[encoded.remaining()];
+        encoded.get(payload);
+        decoder = Decoder.newBuilder().build();
+    }
+
+    @Benchmark
+    public void headerBlock(Blackhole blackhole) throws IOException {
+        HeaderBlock headers = new HeadersFrame().parsePayload(payload, decoder).headerBlock();
+        blackhole.consume(headers.pseudoHeader(HeaderBlock.METHOD));
+        blackhole.consume(headers.pseudoHeader(HeaderBlock.PATH));
+        blackhole.consume(headers.pseudoHeader(HeaderBlock.AUTHORITY));
+    }
+
+    @Benchmark
+    public void headerBlockWithHttpHeaders(Blackhole blackhole) throws IOException {
+        HeaderBlock headers = new HeadersFrame().parsePayload(payload, decoder).headerBlock();
+        blackhole.consume(headers.pseudoHeader(HeaderBlock.METHOD));
+        blackhole.consume(headers.pseudoHeader(HeaderBlock.PATH));
+        blackhole.consume(headers.pseudoHeader(HeaderBlock.AUTHORITY));
+        blackhole.consume(headers.httpHeaders());
+    }
+
+    @Benchmark
+    public void eagerHttpHeaders(Blackhole blackhole) throws IOException {
+        List<Map.Entry<String, String>> fields = decoder.decodeStream(new ByteArrayInputStream(payload));
+        Map<String, List<String>> headersMap = fields.stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> List.of(entry.getValue()), (value1, value2) -> {
+                    List<String> result = new ArrayList<>(value1);
+                    result.addAll(value2);
+                    return result;
+                }));
+        Map<String, String> pseudoHeaders = new HashMap<>();
+        headersMap.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(":"))
+                .forEach(entry -> pseudoHeaders.put(entry.getKey(), entry.getValue().get(0)));
+        HttpHeaders httpHeaders = HttpHeaders.of(headersMap, (key, value) -> !key.startsWith(":"));
+        blackhole.consume(pseudoHeaders.get(HeadersFrame.PSEUDO_HEADER_METHOD));
+        blackhole.consume(pseudoHeaders.get(HeadersFrame.PSEUDO_HEADER_PATH));
+        blackhole.consume(pseudoHeaders.get(HeadersFrame.PSEUDO_HEADER_AUTHORITY));
+        blackhole.consume(httpHeaders);
+    }
+}
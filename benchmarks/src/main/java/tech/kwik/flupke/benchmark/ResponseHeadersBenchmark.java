@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.kwik.flupke.PreEncodedHeaders;
+import tech.kwik.flupke.impl.HeadersFrame;
+import tech.kwik.flupke.impl.QpackEncoder;
+
+import java.io.OutputStream;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing a response headers frame with a typical set of constant headers: added one by one, or added
+ * as pre-encoded headers. The "errorStatus" benchmark measures a status-only response (as sent by the server for
+ * errors), which is served from the field section cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseHeadersBenchmark {
+
+    private static final Map<String, List<String>> CONSTANT_HEADERS = Map.of(
+            "server", List.of("flupke"),
+            "content-type", List.of("text/html; charset=utf-8"),
+            "cache-control", List.of("public, max-age=3600"),
+            "strict-transport-security", List.of("max-age=31536000; includeSubDomains"),
+            "x-content-type-options", List.of("nosniff"));
+
+    @Param({"false", "true"})
+    private boolean huffman;
+
+    private QpackEncoder encoder;
+    private PreEncodedHeaders preEncodedHeaders;
+    private int contentLength;
+
+    @Setup
+    public void setup() {
+        encoder = new QpackEncoder(0, huffman, OutputStream.nullOutputStream());
+        encoder.setPeerSettings(0, 0);
+        preEncodedHeaders = PreEncodedHeaders.of(CONSTANT_HEADERS);
+    }
+
+    @Benchmark
+    public byte[] headersAddedOneByOne() {
+        Map<String, List<String>> headers = new java.util.HashMap<>(CONSTANT_HEADERS);
+        headers.put("content-length", List.of(Integer.toString(nextContentLength())));
+        HeadersFrame frame = new HeadersFrame(HttpHeaders.of(headers, (a, b) -> true), Map.of(":status", "200"));
+        return frame.toBytes(encoder, 0);
+    }
+
+    @Benchmark
+    public byte[] preEncodedHeaders() {
+        HttpHeaders headers = HttpHeaders.of(Map.of("content-length", List.of(Integer.toString(nextContentLength()))), (a, b) -> true);
+        HeadersFrame frame = new HeadersFrame(headers, Map.of(":status", "200"));
+        frame.addPreEncodedHeaders(preEncodedHeaders);
+        return frame.toBytes(encoder, 0);
+    }
+
+    @Benchmark
+    public byte[] errorStatus() {
+        return new HeadersFrame(":status", "404").toBytes(encoder, 0);
+    }
+
+    private int nextContentLength() {
+        // Varying content length, so the field section cache cannot be used for the complete section
+        contentLength = (contentLength + 1) % 100_000;
+        return contentLength;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.benchmark;
+
+import tech.kwik.core.QuicStream;
+import tech.kwik.core.concurrent.DaemonThreadFactory;
+import tech.kwik.flupke.impl.VirtualThreads;
+import tech.kwik.flupke.server.Http3ApplicationProtocolFactory;
+import tech.kwik.flupke.server.HttpRequestHandler;
+import tech.kwik.flupke.server.impl.Http3ServerConnectionImpl;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the server thread modes when handling many concurrent slow requests, i.e. requests whose handler blocks for
+ * some time (e.g. waiting for a backend): a cached pool of platform threads (one thread per concurrent request), the
+ * default bounded pool of platform threads (which rejects requests when overloaded) and virtual threads. For each mode,
+ * it reports the time until all requests are either completed or rejected, the number of rejected requests and the
+ * peak number of platform threads that were started. Requests are delivered on stubbed QUIC streams, so no networking
+ * is involved.
+ * Run with "gradle :flupke-benchmarks:threadModes", which uses Java 21 (required for virtual threads), optionally
+ * passing the number of concurrent requests and the handler duration in milliseconds with --args.
+ */
+public class ThreadModeBenchmark {
+
+    enum ThreadMode { PLATFORM_CACHED, PLATFORM_BOUNDED, VIRTUAL }
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0? Integer.parseInt(args[0]): 10_000;
+        int handlerMillis = args.length > 1? Integer.parseInt(args[1]): 500;
+
+        System.out.printf("%d concurrent requests, handler blocks for %d ms%n", requests, handlerMillis);
+        for (ThreadMode mode: ThreadMode.values()) {
+            if (mode == ThreadMode.VIRTUAL && !VirtualThreads.isSupported()) {
+                System.out.printf("%-16s not supported by this JVM (requires Java 21)%n", mode);
+                continue;
+            }
+            // Warm up, to get classes loaded and static state initialized.
+            run(mode, 100, 1);
+            run(mode, requests, handlerMillis);
+        }
+    }
+
+    private static void run(ThreadMode mode, int requests, int handlerMillis) throws InterruptedException {
+        HttpRequestHandler handler = (request, response) -> {
+            try {
+                Thread.sleep(handlerMillis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setStatus(200);
+        };
+        Http3ApplicationProtocolFactory factory;
+        switch (mode) {
+            case PLATFORM_CACHED:
+                factory = new Http3ApplicationProtocolFactory(handler, Map.of(), Executors.newCachedThreadPool(new DaemonThreadFactory("benchmark")));
+                break;
+            case VIRTUAL:
+                factory = new Http3ApplicationProtocolFactory(handler, Map.of());
+                factory.setVirtualThreads(true);
+                break;
+            default:
+                factory = new Http3ApplicationProtocolFactory(handler, Map.of());
+        }
+        Http3ServerConnectionImpl connection = (Http3ServerConnectionImpl) factory.createConnection("h3", QuicStubs.serverConnection());
+
+        CountDownLatch finished = new CountDownLatch(requests);
+        AtomicInteger rejected = new AtomicInteger();
+        byte[] request = QuicStubs.requestStreamData();
+        QuicStream[] streams = new QuicStream[requests];
+        for (int i = 0; i < requests; i++) {
+            streams[i] = QuicStubs.stream(request, new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void close() {
+                    finished.countDown();
+                }
+            }, () -> {
+                rejected.incrementAndGet();
+                finished.countDown();
+            });
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        for (QuicStream stream: streams) {
+            connection.acceptPeerInitiatedStream(stream);
+        }
+        boolean completed = finished.await(10, TimeUnit.MINUTES);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        if (handlerMillis > 1) {
+            System.out.printf("%-16s %6d ms%s, %5d rejected, %5d additional platform threads (peak)%n", mode, elapsedMillis,
+                    completed? "": " (timed out)", rejected.get(), threads.getPeakThreadCount() - threadsBefore);
+        }
+    }
+}
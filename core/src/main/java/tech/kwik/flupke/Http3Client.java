@@ -22,14 +22,20 @@ import tech.kwik.core.DatagramSocketFactory;
 import tech.kwik.core.Statistics;
 import tech.kwik.core.concurrent.DaemonThreadFactory;
 import tech.kwik.core.log.Logger;
+import tech.kwik.flupke.impl.Http3ClientConnectionImpl;
 import tech.kwik.flupke.impl.Http3ConnectionFactory;
 import tech.kwik.flupke.impl.InterfaceBoundDatagramSocketFactory;
+import tech.kwik.flupke.impl.MetricsRegistry;
+import tech.kwik.flupke.impl.RequestTimingsRecorder;
+import tech.kwik.flupke.impl.ResponseBodyMemoryBudget;
+import tech.kwik.flupke.impl.ThreadExecutors;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
 import javax.net.ssl.X509ExtendedKeyManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.Authenticator;
 import java.net.CookieHandler;
 import java.net.InetAddress;
@@ -38,11 +44,15 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 public class Http3Client extends HttpClient implements Http3ConnectionSettings {
@@ -55,14 +65,26 @@ public class Http3Client extends HttpClient implements Http3ConnectionSettings {
     private final DatagramSocketFactory datagramSocketFactory;
     private final X509TrustManager trustManager;
     private final X509ExtendedKeyManager keyManager;
+    private final Duration bodyIdleTimeout;
+    private final Duration expectContinueTimeout;
+    private final ResponseBodyMemoryBudget bodyMemoryBudget;
+    private final RequestTimingsListener requestTimingsListener;
+    private final MetricsRegistry metricsRegistry;
+    private final long qpackMaxTableCapacity;
+    private final int qpackBlockedStreams;
+    private final boolean qpackHuffmanEncoding;
     private final Logger logger;
-    private Http3ClientConnection http3Connection;
+    private volatile Http3ClientConnection http3Connection;
     protected Http3ConnectionFactory http3ConnectionFactory;
     private final ExecutorService executorService;
 
     Http3Client(Duration connectTimeout, Long receiveBufferSize, boolean disableCertificateCheck,
                 int maxAdditionalPeerInitiatedUnidirectionalStreams, int maxAdditionalPeerInitiatedBidirectionalStreams,
-                InetAddress inetAddress, X509TrustManager trustManager, X509ExtendedKeyManager keyManager, Logger logger) {
+                InetAddress inetAddress, X509TrustManager trustManager, X509ExtendedKeyManager keyManager, Duration bodyIdleTimeout,
+                Duration expectContinueTimeout,
+                ResponseBodyMemoryBudget bodyMemoryBudget, RequestTimingsListener requestTimingsListener,
+                MetricsListener metricsListener, Duration metricsInterval, long qpackMaxTableCapacity, int qpackBlockedStreams,
+                boolean qpackHuffmanEncoding, boolean virtualThreads, Logger logger) {
         this.connectTimeout = connectTimeout;
         this.receiveBufferSize = receiveBufferSize;
         this.disableCertificateCheck = disableCertificateCheck;
@@ -70,11 +92,27 @@ public class Http3Client extends HttpClient implements Http3ConnectionSettings {
         this.maxAdditionalPeerInitiatedBidirectionalStreams = maxAdditionalPeerInitiatedBidirectionalStreams;
         this.trustManager = trustManager;
         this.keyManager = keyManager;
+        this.bodyIdleTimeout = bodyIdleTimeout;
+        this.expectContinueTimeout = expectContinueTimeout;
+        this.bodyMemoryBudget = bodyMemoryBudget != null? bodyMemoryBudget: ResponseBodyMemoryBudget.unlimited();
+        this.requestTimingsListener = requestTimingsListener;
+        this.metricsRegistry = new MetricsRegistry();
+        this.qpackMaxTableCapacity = qpackMaxTableCapacity;
+        this.qpackBlockedStreams = qpackBlockedStreams;
+        this.qpackHuffmanEncoding = qpackHuffmanEncoding;
         this.logger = logger;
 
-        executorService = Executors.newCachedThreadPool(new DaemonThreadFactory("http3"));
-        this.http3ConnectionFactory = new Http3ConnectionFactory(this, executorService);
+        executorService = ThreadExecutors.newCachedExecutor("http3", virtualThreads);
+        this.http3ConnectionFactory = new Http3ConnectionFactory(this, executorService, bodyMemoryBudget, metricsRegistry);
         this.datagramSocketFactory = new InterfaceBoundDatagramSocketFactory(inetAddress);
+        if (metricsListener != null) {
+            reportMetricsPeriodically(metricsListener, metricsInterval);
+        }
+    }
+
+    private void reportMetricsPeriodically(MetricsListener metricsListener, Duration interval) {
+        MetricsReporter reporter = new MetricsReporter(this, metricsListener);
+        reporter.future = MetricsScheduler.INSTANCE.scheduleAtFixedRate(reporter, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     public static HttpClient newHttpClient() {
@@ -89,6 +127,67 @@ public class Http3Client extends HttpClient implements Http3ConnectionSettings {
         return Optional.ofNullable(receiveBufferSize);
     }
 
+    /**
+     * Returns the maximum time a response body may stay idle (without demand from the body subscriber) before the
+     * response stream is aborted.
+     * @return  the body idle timeout, or an empty optional if no body idle timeout is set
+     */
+    public Optional<Duration> bodyIdleTimeout() {
+        return Optional.ofNullable(bodyIdleTimeout);
+    }
+
+    /**
+     * Returns the maximum time to wait for a 100 (Continue) response before sending the content of a request that
+     * expects it.
+     * @return  the expect continue timeout, or an empty optional if the default is used
+     */
+    public Optional<Duration> expectContinueTimeout() {
+        return Optional.ofNullable(expectContinueTimeout);
+    }
+
+    /**
+     * Returns the maximum capacity of the QPACK dynamic table; 0 means the dynamic table is not used.
+     * @return  the maximum capacity in bytes
+     */
+    public long qpackMaxTableCapacity() {
+        return qpackMaxTableCapacity;
+    }
+
+    public int qpackBlockedStreams() {
+        return qpackBlockedStreams;
+    }
+
+    public boolean qpackHuffmanEncoding() {
+        return qpackHuffmanEncoding;
+    }
+
+    /**
+     * Returns the maximum number of response body bytes this client buffers in memory, shared by all in-flight responses.
+     * @return  the memory budget in bytes, {@link Long#MAX_VALUE} when unlimited
+     */
+    public long bodyMemoryBudget() {
+        return bodyMemoryBudget.getMaxBufferedBytes();
+    }
+
+    /**
+     * Returns the maximum number of bytes a single response body may buffer in memory.
+     * @return  the per-response limit in bytes, {@link Long#MAX_VALUE} when unlimited
+     */
+    public long bodyBufferLimit() {
+        return bodyMemoryBudget.getPerResponseLimit();
+    }
+
+    /**
+     * Returns the number of response body bytes that are currently buffered in memory, for all in-flight responses
+     * of this client. Only bodies of responses whose body subscriber requests all data at once (e.g.
+     * {@link HttpResponse.BodyHandlers#ofString()} or {@link HttpResponse.BodyHandlers#ofByteArray()}) are considered
+     * to be buffered.
+     * @return  number of buffered response body bytes
+     */
+    public long getBufferedResponseBodyBytes() {
+        return bodyMemoryBudget.getBufferedBytes();
+    }
+
     @Override
     public Optional<CookieHandler> cookieHandler() {
         return Optional.empty();
@@ -174,19 +273,66 @@ public class Http3Client extends HttpClient implements Http3ConnectionSettings {
 
     @Override
     public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException {
-        http3Connection = http3ConnectionFactory.getConnection(request);
-        http3Connection.connect();
-        return http3Connection.send(request, responseBodyHandler);
+        RequestTimingsRecorder timings = RequestTimingsRecorder.create(request, requestTimingsListener);
+        try {
+            timings.record(RequestTimings.Phase.DISPATCHED);
+            http3Connection = http3ConnectionFactory.getConnection(request);
+            timings.record(RequestTimings.Phase.CONNECTION_ACQUIRED);
+            http3Connection.connect();
+            timings.record(RequestTimings.Phase.CONNECTED);
+            Http3ClientConnection connection = http3Connection;
+            if (timings != RequestTimingsRecorder.disabled() && connection instanceof Http3ClientConnectionImpl) {
+                return ((Http3ClientConnectionImpl) connection).send(request, responseBodyHandler, timings);
+            }
+            else {
+                return connection.send(request, responseBodyHandler);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            timings.finish();
+            throw e;
+        }
     }
 
     @Override
     public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        return sendAsync(request, responseBodyHandler, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
         CompletableFuture<HttpResponse<T>> response = new CompletableFuture<>();
+        RequestTimingsRecorder timings = RequestTimingsRecorder.create(request, requestTimingsListener);
+        if (timings != RequestTimingsRecorder.disabled()) {
+            response.whenComplete((r, error) -> {
+                if (error != null) {
+                    timings.finish();
+                }
+            });
+        }
         executorService.submit(() -> {
             try {
+                if (response.isCancelled()) {
+                    return;
+                }
+                timings.record(RequestTimings.Phase.DISPATCHED);
                 http3Connection = http3ConnectionFactory.getConnection(request);
+                timings.record(RequestTimings.Phase.CONNECTION_ACQUIRED);
                 http3Connection.connect();
-                http3Connection.sendAsync(request, responseBodyHandler, response);
+                timings.record(RequestTimings.Phase.CONNECTED);
+                if (response.isCancelled()) {
+                    // No stream created yet, so nothing to cancel on the wire.
+                    return;
+                }
+                Http3ClientConnection connection = http3Connection;
+                boolean plainRequest = pushPromiseHandler == null && timings == RequestTimingsRecorder.disabled();
+                if (!plainRequest && connection instanceof Http3ClientConnectionImpl) {
+                    // Timings and server push are only supported by the built-in connection implementation.
+                    ((Http3ClientConnectionImpl) connection).sendAsync(request, responseBodyHandler, pushPromiseHandler, response, timings);
+                }
+                else {
+                    connection.sendAsync(request, responseBodyHandler, response);
+                }
             }
             catch (Exception e) {
                 response.completeExceptionally(e);
@@ -195,11 +341,6 @@ public class Http3Client extends HttpClient implements Http3ConnectionSettings {
         return response;
     }
 
-    @Override
-    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
-        throw new UnsupportedOperationException("server push is not (yet) supported");
-    }
-
     /**
      * Sends a CONNECT request (that creates a tunnel to a remote host) and returns a HttpStream object that can be used
      * to send/receive data to/from remote host.
@@ -248,12 +389,81 @@ public class Http3Client extends HttpClient implements Http3ConnectionSettings {
         return http3ConnectionFactory.getConnection(request, true, true);
     }
 
+    /**
+     * Returns the request metrics, aggregated per origin (host:port), for all connections this client created.
+     * @return  metrics per origin
+     */
+    public Map<String, MetricsSnapshot> getOriginMetrics() {
+        return metricsRegistry.originMetrics();
+    }
+
+    /**
+     * Returns the request metrics for each connection this client created, grouped by origin (host:port).
+     * @return  metrics per connection, grouped by origin
+     */
+    public Map<String, List<MetricsSnapshot>> getConnectionMetrics() {
+        return metricsRegistry.connectionMetrics();
+    }
+
+    /**
+     * Returns the QUIC statistics of the connection that was used by the most recent request.
+     * @return
+     * @deprecated  with concurrent requests to different origins, the result is arbitrary; use {@link #getOriginMetrics()}
+     * or {@link #getConnectionMetrics()} instead.
+     */
+    @Deprecated
     public Statistics getConnectionStatistics() {
-        if (http3Connection != null) {
-            return http3Connection.getConnectionStats();
+        Http3ClientConnection connection = http3Connection;
+        if (connection != null) {
+            return connection.getConnectionStats();
         }
         else {
             return null;
         }
     }
+
+    /**
+     * Scheduler shared by all clients for reporting metrics; created when the first client with a metrics listener is
+     * created.
+     */
+    private static class MetricsScheduler {
+        static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("http3-metrics"));
+
+        static {
+            INSTANCE.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * Reports the metrics of a client; only weakly references the client, so that the (shared) scheduler does not keep
+     * the client alive. Cancels itself once the client is garbage collected.
+     */
+    private static class MetricsReporter implements Runnable {
+        private final WeakReference<Http3Client> clientReference;
+        private final MetricsListener metricsListener;
+        volatile ScheduledFuture<?> future;
+
+        MetricsReporter(Http3Client client, MetricsListener metricsListener) {
+            this.clientReference = new WeakReference<>(client);
+            this.metricsListener = metricsListener;
+        }
+
+        @Override
+        public void run() {
+            Http3Client client = clientReference.get();
+            if (client == null) {
+                ScheduledFuture<?> scheduled = future;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                return;
+            }
+            try {
+                metricsListener.metricsReported(client.metricsRegistry.originMetrics());
+            }
+            catch (RuntimeException e) {
+                // Listener must not stop the reporting
+            }
+        }
+    }
 }
@@ -19,6 +19,7 @@
 package tech.kwik.flupke;
 
 import tech.kwik.core.log.Logger;
+import tech.kwik.flupke.impl.ResponseBodyMemoryBudget;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
@@ -54,6 +55,17 @@ public class Http3ClientBuilder implements HttpClient.Builder {
     private InetAddress address;
     private X509TrustManager trustManager;
     private X509ExtendedKeyManager keyManager;
+    private Duration bodyIdleTimeout;
+    private Duration expectContinueTimeout;
+    private RequestTimingsListener requestTimingsListener;
+    private MetricsListener metricsListener;
+    private Duration metricsInterval;
+    private long bodyMemoryBudget = ResponseBodyMemoryBudget.UNLIMITED;
+    private long bodyBufferLimit = ResponseBodyMemoryBudget.UNLIMITED;
+    private long qpackMaxTableCapacity;
+    private int qpackBlockedStreams;
+    private boolean qpackHuffmanEncoding = true;
+    private boolean virtualThreads;
 
     public Http3ClientBuilder receiveBufferSize(long bufferSize) {
         receiveBufferSize = bufferSize;
@@ -156,6 +168,160 @@ public class Http3ClientBuilder implements HttpClient.Builder {
         return this;
     }
 
+    /**
+     * Sets the maximum time a response body may stay idle, i.e. without any outstanding demand from the body subscriber
+     * (which, for a body handler like {@link java.net.http.HttpResponse.BodyHandlers#ofInputStream()}, means the input
+     * stream is not being read). When this time is exceeded, the response stream is aborted and the body subscriber is
+     * completed exceptionally with a {@link java.net.http.HttpTimeoutException}, so that abandoned response bodies do
+     * not keep holding resources. The number of abandoned response bodies is reported in the client's metrics, see
+     * {@link MetricsSnapshot#abandonedResponseBodies()}.
+     * By default, there is no body idle timeout.
+     * @param timeout  the body idle timeout, must be positive
+     * @return this builder
+     */
+    public Http3ClientBuilder bodyIdleTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        bodyIdleTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for a 100 (Continue) response before sending the content of a request that expects
+     * it (see {@link java.net.http.HttpRequest.Builder#expectContinue(boolean)}). When the server sends a final response
+     * before that, the content is not sent at all.
+     * By default, the client waits at most one second.
+     * @param timeout  the expect continue timeout, must be positive
+     * @return this builder
+     */
+    public Http3ClientBuilder expectContinueTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        expectContinueTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of response body bytes the client buffers in memory, shared by all in-flight responses.
+     * Only bodies of responses whose body subscriber requests all data at once (e.g.
+     * {@link java.net.http.HttpResponse.BodyHandlers#ofString()}) are considered to be buffered; such a response body
+     * that does not fit in the budget is aborted and its subscriber receives an {@link java.io.IOException}. Use a
+     * streaming body handler (e.g. {@link java.net.http.HttpResponse.BodyHandlers#ofFile(java.nio.file.Path)} or
+     * {@link java.net.http.HttpResponse.BodyHandlers#ofInputStream()}) for large response bodies.
+     * By default, the budget is unlimited.
+     * @param maxBufferedBytes  the memory budget in bytes
+     * @return this builder
+     */
+    public Http3ClientBuilder bodyMemoryBudget(long maxBufferedBytes) {
+        if (maxBufferedBytes < 0) {
+            throw new IllegalArgumentException("budget must not be negative");
+        }
+        bodyMemoryBudget = maxBufferedBytes;
+        return this;
+    }
+
+    /**
+     * Sets the number of bytes of a single response body that may be buffered in memory; a response body exceeding the
+     * limit is aborted, see {@link #bodyMemoryBudget(long)}.
+     * By default, there is no per-response limit.
+     * @param limit  the per-response limit in bytes
+     * @return this builder
+     */
+    public Http3ClientBuilder bodyBufferLimit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        bodyBufferLimit = limit;
+        return this;
+    }
+
+    /**
+     * Sets a listener that receives the timings of the phases (connection setup, waiting for stream credit, time to
+     * first byte, etc.) of each request sent by the client. When no listener is set, timings are not recorded.
+     * @param listener  the listener
+     * @return this builder
+     */
+    public Http3ClientBuilder requestTimingsListener(RequestTimingsListener listener) {
+        requestTimingsListener = listener;
+        return this;
+    }
+
+    /**
+     * Sets a listener that periodically receives the request metrics per origin, e.g. to export them to a monitoring
+     * system. Metrics can also be retrieved on demand, see {@link Http3Client#getOriginMetrics()}.
+     * Reporting stops when the client is garbage collected; note that this requires the listener not to (strongly)
+     * reference the client.
+     * @param listener  the listener
+     * @param interval  the interval at which the listener is called
+     * @return this builder
+     */
+    public Http3ClientBuilder metricsListener(MetricsListener listener, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        metricsListener = listener;
+        metricsInterval = interval;
+        return this;
+    }
+
+    /**
+     * Sets the maximum capacity of the QPACK dynamic table. The value is announced to the server, allowing it to use a
+     * dynamic table (of at most this size) for compressing response headers, and also limits the dynamic table the
+     * client uses for compressing request headers (if the server allows). Using the dynamic table significantly reduces
+     * the size of headers that are repeated in successive requests or responses, at the cost of some memory.
+     * By default, the capacity is 0, i.e. the dynamic table is not used.
+     * @param capacity  the maximum capacity in bytes
+     * @return this builder
+     */
+    public Http3ClientBuilder qpackMaxTableCapacity(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        qpackMaxTableCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of response streams that may be blocked waiting for QPACK dynamic table updates. Only
+     * relevant when the dynamic table is enabled, see {@link #qpackMaxTableCapacity(long)}.
+     * By default, no stream may be blocked.
+     * @param blockedStreams  the maximum number of blocked streams
+     * @return this builder
+     */
+    public Http3ClientBuilder qpackBlockedStreams(int blockedStreams) {
+        if (blockedStreams < 0) {
+            throw new IllegalArgumentException("blockedStreams must not be negative");
+        }
+        qpackBlockedStreams = blockedStreams;
+        return this;
+    }
+
+    /**
+     * Sets whether the QPACK encoder uses Huffman encoding for string literals in request headers. When enabled (the
+     * default), Huffman encoding is used for each string literal for which it results in fewer bytes, which typically
+     * saves 20-30% on header bytes.
+     * @param enabled  whether to use Huffman encoding
+     * @return this builder
+     */
+    public Http3ClientBuilder qpackHuffmanEncoding(boolean enabled) {
+        qpackHuffmanEncoding = enabled;
+        return this;
+    }
+
+    /**
+     * Sets whether the client uses virtual threads (instead of a cached pool of platform threads) for the tasks it
+     * executes, like handling server-initiated streams and delivering async responses. Virtual threads require Java 21
+     * or later; on older JVMs this setting is ignored and platform threads are used.
+     * @param enabled  whether to use virtual threads
+     * @return this builder
+     */
+    public Http3ClientBuilder virtualThreads(boolean enabled) {
+        virtualThreads = enabled;
+        return this;
+    }
+
     public Http3ClientBuilder logger(Logger logger) {
         this.logger = logger;
         return this;
@@ -173,6 +339,9 @@ public class Http3ClientBuilder implements HttpClient.Builder {
 
     @Override
     public HttpClient build() {
-        return new Http3Client(connectTimeout, receiveBufferSize, disableCertificateCheck, additionalUnidirectionalStreams, additionalBidirectionalStreams, address, trustManager, keyManager, logger);
+        return new Http3Client(connectTimeout, receiveBufferSize, disableCertificateCheck, additionalUnidirectionalStreams, additionalBidirectionalStreams, address, trustManager, keyManager, bodyIdleTimeout,
+                expectContinueTimeout,
+                new ResponseBodyMemoryBudget(bodyMemoryBudget, bodyBufferLimit), requestTimingsListener,
+                metricsListener, metricsInterval, qpackMaxTableCapacity, qpackBlockedStreams, qpackHuffmanEncoding, virtualThreads, logger);
     }
 }
@@ -43,6 +43,19 @@ public interface Http3ClientConnection extends Http3Connection {
 
     void setReceiveBufferSize(long receiveBufferSize);
 
+    /**
+     * Sets the maximum time a response body may stay idle, i.e. without outstanding demand from the body subscriber.
+     * When exceeded, the response stream is aborted and the body subscriber is completed exceptionally.
+     * @param timeout  the body idle timeout, or null for no timeout
+     */
+    void setBodyIdleTimeout(Duration timeout);
+
+    /**
+     * Returns the number of response bodies that were abandoned, i.e. that were aborted because of the body idle timeout.
+     * @return  the number of abandoned response bodies
+     */
+    long getAbandonedResponseBodiesCount();
+
     void connect() throws IOException;
 
     <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException;
@@ -86,4 +99,10 @@ public interface Http3ClientConnection extends Http3Connection {
     void registerBidirectionalStreamHandler(Consumer<HttpStream> streamHandler);
 
     Statistics getConnectionStats();
+
+    /**
+     * Returns the request metrics (active and queued streams, request rate, errors, etc.) of this connection.
+     * @return  snapshot of the metrics
+     */
+    MetricsSnapshot getMetrics();
 }
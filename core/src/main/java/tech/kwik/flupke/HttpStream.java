@@ -19,8 +19,12 @@
 
 package tech.kwik.flupke;
 
+import tech.kwik.flupke.impl.ByteBufferStreams;
+
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A generic stream that runs over HTTP.
@@ -31,6 +35,39 @@ public interface HttpStream {
 
     InputStream getInputStream();
 
+    /**
+     * Reads data from this stream into the given buffer, which may be a direct buffer. Like
+     * {@link java.nio.channels.ReadableByteChannel#read(ByteBuffer)}, but blocks until at least one byte is available.
+     * @param buffer  the buffer to read into
+     * @return  the number of bytes read, or -1 when the end of the stream has been reached
+     * @throws IOException  when reading fails
+     */
+    default int read(ByteBuffer buffer) throws IOException {
+        return ByteBufferStreams.read(getInputStream(), buffer, null);
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffer to this stream.
+     * @param buffer  the data to write
+     * @return  the number of bytes written
+     * @throws IOException  when writing fails
+     */
+    default int write(ByteBuffer buffer) throws IOException {
+        return (int) write(new ByteBuffer[] { buffer });
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffers to this stream, like
+     * {@link java.nio.channels.GatheringByteChannel#write(ByteBuffer[])}. On streams that carry HTTP/3 frames, the
+     * data of all buffers is sent in a single DATA frame.
+     * @param buffers  the data to write
+     * @return  the number of bytes written
+     * @throws IOException  when writing fails
+     */
+    default long write(ByteBuffer[] buffers) throws IOException {
+        return ByteBufferStreams.write(getOutputStream(), buffers, null);
+    }
+
     long getStreamId();
 
     default boolean isUnidirectional() {
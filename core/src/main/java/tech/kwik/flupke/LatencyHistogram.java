@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a latency histogram with fixed buckets. Each bucket counts the requests with a latency less than
+ * or equal to its upper bound (and greater than the upper bound of the previous bucket); the last bucket has no upper
+ * bound.
+ */
+public final class LatencyHistogram {
+
+    private final long[] upperBoundsMillis;
+    private final long[] counts;
+
+    public LatencyHistogram(long[] upperBoundsMillis, long[] counts) {
+        if (counts.length != upperBoundsMillis.length + 1) {
+            throw new IllegalArgumentException("there must be exactly one more count than upper bounds");
+        }
+        this.upperBoundsMillis = upperBoundsMillis.clone();
+        this.counts = counts.clone();
+    }
+
+    /**
+     * @return the upper bounds (in milliseconds) of all buckets except the last
+     */
+    public long[] upperBoundsMillis() {
+        return upperBoundsMillis.clone();
+    }
+
+    /**
+     * @return the count per bucket, the last count is for the bucket without upper bound
+     */
+    public long[] counts() {
+        return counts.clone();
+    }
+
+    public long totalCount() {
+        return Arrays.stream(counts).sum();
+    }
+
+    /**
+     * Returns an estimate of the given percentile, i.e. the upper bound of the bucket that contains the percentile.
+     * @param percentile  value between 0 and 100
+     * @return  the upper bound of the bucket containing the percentile, or null when the histogram is empty or the
+     * percentile is in the last bucket (that has no upper bound)
+     */
+    public Duration percentile(double percentile) {
+        long total = totalCount();
+        if (total == 0) {
+            return null;
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long cumulative = 0;
+        for (int i = 0; i < upperBoundsMillis.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= threshold) {
+                return Duration.ofMillis(upperBoundsMillis[i]);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < counts.length; i++) {
+            builder.append(i < upperBoundsMillis.length? "<=" + upperBoundsMillis[i] + "ms": ">" + upperBoundsMillis[i - 1] + "ms")
+                    .append(": ").append(counts[i]).append(i < counts.length - 1? ", ": "");
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke;
+
+import java.util.Map;
+
+/**
+ * Listener that periodically receives the request metrics of all origins the client has connected to.
+ * The listener is called on a dedicated (timer) thread, so it should not block.
+ */
+@FunctionalInterface
+public interface MetricsListener {
+
+    /**
+     * @param originMetrics  metrics per origin (host:port)
+     */
+    void metricsReported(Map<String, MetricsSnapshot> originMetrics);
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke;
+
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the request metrics of a single connection or of all connections to one origin.
+ */
+public final class MetricsSnapshot {
+
+    private final String origin;
+    private final long activeStreams;
+    private final long queuedStreams;
+    private final long requestCount;
+    private final double requestsPerSecond;
+    private final Map<Long, Long> errorCounts;
+    private final long abandonedResponseBodies;
+    private final long bytesReceived;
+    private final long bytesSent;
+    private final int smoothedRtt;
+    private final LatencyHistogram latencyHistogram;
+
+    public MetricsSnapshot(String origin, long activeStreams, long queuedStreams, long requestCount, double requestsPerSecond,
+                           Map<Long, Long> errorCounts, long abandonedResponseBodies, long bytesReceived, long bytesSent,
+                           int smoothedRtt, LatencyHistogram latencyHistogram) {
+        this.origin = origin;
+        this.activeStreams = activeStreams;
+        this.queuedStreams = queuedStreams;
+        this.requestCount = requestCount;
+        this.requestsPerSecond = requestsPerSecond;
+        this.errorCounts = Map.copyOf(errorCounts);
+        this.abandonedResponseBodies = abandonedResponseBodies;
+        this.bytesReceived = bytesReceived;
+        this.bytesSent = bytesSent;
+        this.smoothedRtt = smoothedRtt;
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    /**
+     * @return the origin (host:port) the metrics apply to
+     */
+    public String origin() {
+        return origin;
+    }
+
+    /**
+     * @return the number of request streams that are open, i.e. requests in progress
+     */
+    public long activeStreams() {
+        return activeStreams;
+    }
+
+    /**
+     * @return the number of requests that are waiting for a request stream to be opened, i.e. waiting for stream credit
+     */
+    public long queuedStreams() {
+        return queuedStreams;
+    }
+
+    /**
+     * @return the number of requests finished (successfully or not)
+     */
+    public long requestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the average number of requests finished per second, measured over the last few seconds
+     */
+    public double requestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * @return the number of errors per HTTP/3 error code
+     */
+    public Map<Long, Long> errorCounts() {
+        return errorCounts;
+    }
+
+    /**
+     * @return the number of response bodies that were abandoned, i.e. that were aborted because of the body idle timeout
+     */
+    public long abandonedResponseBodies() {
+        return abandonedResponseBodies;
+    }
+
+    /**
+     * @return the number of request and response content (DATA frame payload) bytes received
+     */
+    public long bytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return the number of request and response content (DATA frame payload) bytes sent
+     */
+    public long bytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return the smoothed RTT in milliseconds (for an origin, the average of its connections), or -1 if unknown
+     */
+    public int smoothedRtt() {
+        return smoothedRtt;
+    }
+
+    /**
+     * @return the histogram of request latencies, i.e. time between sending the request and receiving the complete
+     * response
+     */
+    public LatencyHistogram latencyHistogram() {
+        return latencyHistogram;
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics[" + origin + ": active=" + activeStreams + ", queued=" + queuedStreams +
+                ", requests=" + requestCount + ", rps=" + String.format("%.1f", requestsPerSecond) +
+                ", errors=" + errorCounts + ", abandoned=" + abandonedResponseBodies + ", in=" + bytesReceived + ", out=" + bytesSent + ", rtt=" + smoothedRtt +
+                ", latency=" + latencyHistogram + "]";
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke;
+
+import tech.kwik.flupke.impl.QpackEncoder;
+import tech.kwik.flupke.impl.QpackOutputBuffer;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable set of header fields that is QPACK encoded only once and of which the encoded bytes are reused each
+ * time it is sent. Intended for header fields that are the same on many messages, like "server", "content-type" or
+ * "cache-control"; create an instance once (e.g. in a static field) and add it to each response.
+ * As the encoded field lines only reference the static table, using pre-encoded headers does not benefit from the
+ * QPACK dynamic table.
+ */
+public final class PreEncodedHeaders {
+
+    private final Map<String, List<String>> headers;
+    private final List<Map.Entry<String, String>> fields;
+    private volatile byte[] plainFieldLines;
+    private volatile byte[] huffmanFieldLines;
+
+    private PreEncodedHeaders(Map<String, List<String>> headers) {
+        Map<String, List<String>> normalized = new LinkedHashMap<>();
+        headers.forEach((name, values) -> {
+            if (name.isEmpty() || name.startsWith(":")) {
+                throw new IllegalArgumentException("invalid header name: '" + name + "'");
+            }
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-http-fields
+            // "Characters in field names MUST be converted to lowercase prior to their encoding."
+            normalized.computeIfAbsent(name.toLowerCase(Locale.ROOT), n -> new ArrayList<>()).addAll(values);
+        });
+        this.headers = Collections.unmodifiableMap(normalized);
+        List<Map.Entry<String, String>> fieldList = new ArrayList<>();
+        normalized.forEach((name, values) -> fieldList.add(new AbstractMap.SimpleImmutableEntry<>(name, String.join(",", values))));
+        fields = Collections.unmodifiableList(fieldList);
+    }
+
+    /**
+     * Creates pre-encoded headers from the given names and values, e.g.
+     * <code>PreEncodedHeaders.of("server", "flupke", "cache-control", "max-age=3600")</code>.
+     * @param namesAndValues  alternating names and values
+     */
+    public static PreEncodedHeaders of(String... namesAndValues) {
+        if (namesAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Even number of arguments expected");
+        }
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.computeIfAbsent(namesAndValues[i], n -> new ArrayList<>()).add(namesAndValues[i + 1]);
+        }
+        return new PreEncodedHeaders(headers);
+    }
+
+    public static PreEncodedHeaders of(Map<String, List<String>> headers) {
+        return new PreEncodedHeaders(headers);
+    }
+
+    /**
+     * Returns the headers, with names converted to lowercase.
+     */
+    public Map<String, List<String>> map() {
+        return headers;
+    }
+
+    /**
+     * Returns the header fields as they are encoded: one field per name, multiple values joined by a comma.
+     */
+    public List<Map.Entry<String, String>> fields() {
+        return fields;
+    }
+
+    /**
+     * Returns the QPACK encoded field lines (without field section prefix); these only reference the static table,
+     * so they can be appended to any field section. Encoded on first use.
+     * The returned array is shared and must not be modified.
+     * @param huffman  whether string literals should be Huffman encoded (when that is shorter)
+     */
+    public byte[] encodedFieldLines(boolean huffman) {
+        byte[] encoded = huffman? huffmanFieldLines: plainFieldLines;
+        if (encoded == null) {
+            QpackOutputBuffer buffer = new QpackOutputBuffer();
+            fields.forEach(field -> QpackEncoder.encodeFieldLine(field.getKey(), field.getValue(), huffman, buffer));
+            encoded = buffer.toByteArray();
+            if (huffman) {
+                huffmanFieldLines = encoded;
+            }
+            else {
+                plainFieldLines = encoded;
+            }
+        }
+        return encoded;
+    }
+}
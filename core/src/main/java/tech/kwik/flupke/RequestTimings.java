@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * High-resolution timestamps of the phases of a single request. Timestamps are values of {@link System#nanoTime()},
+ * so they are only meaningful relative to each other.
+ * Phases that were not reached (e.g. because the request failed) have no timestamp.
+ */
+public interface RequestTimings {
+
+    enum Phase {
+        /** The request was passed to the client. */
+        QUEUED,
+        /** Processing of the request started (for asynchronous requests, when the executor picks up the request). */
+        DISPATCHED,
+        /** A connection for the request was obtained (either existing or newly created). */
+        CONNECTION_ACQUIRED,
+        /** The connection is connected (i.e. the QUIC handshake has completed). */
+        CONNECTED,
+        /** A request stream was opened (which may have to wait for stream credit from the peer). */
+        STREAM_OPENED,
+        /** The request headers are written to the request stream. */
+        HEADERS_SENT,
+        /** The response headers are received. */
+        RESPONSE_HEADERS_RECEIVED,
+        /** The response body is received completely. */
+        BODY_COMPLETE
+    }
+
+    /**
+     * Returns the timestamp of the given phase.
+     * @param phase
+     * @return  the {@link System#nanoTime()} value when the phase was reached, or empty if the phase was not reached
+     */
+    Optional<Long> timestamp(Phase phase);
+
+    /**
+     * Returns the time between two phases.
+     * @param from
+     * @param to
+     * @return  the duration, or empty if one of the phases was not reached
+     */
+    default Optional<Duration> between(Phase from, Phase to) {
+        Optional<Long> start = timestamp(from);
+        Optional<Long> end = timestamp(to);
+        if (start.isPresent() && end.isPresent()) {
+            return Optional.of(Duration.ofNanos(end.get() - start.get()));
+        }
+        else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Time spent waiting: for a thread to process the request and for stream credit to open the request stream.
+     */
+    default Optional<Duration> queueTime() {
+        Optional<Duration> dispatch = between(Phase.QUEUED, Phase.DISPATCHED);
+        Optional<Duration> streamCredit = between(Phase.CONNECTED, Phase.STREAM_OPENED);
+        if (dispatch.isPresent() && streamCredit.isPresent()) {
+            return Optional.of(dispatch.get().plus(streamCredit.get()));
+        }
+        else {
+            return dispatch;
+        }
+    }
+
+    /**
+     * Time spent obtaining a connection (for a new connection this includes creating it, e.g. resolving the host name).
+     */
+    default Optional<Duration> connectTime() {
+        return between(Phase.DISPATCHED, Phase.CONNECTION_ACQUIRED);
+    }
+
+    /**
+     * Time spent waiting for the connection to be connected, i.e. the QUIC handshake (zero for an existing connection).
+     */
+    default Optional<Duration> handshakeTime() {
+        return between(Phase.CONNECTION_ACQUIRED, Phase.CONNECTED);
+    }
+
+    /**
+     * Time between opening the request stream and sending the request headers.
+     */
+    default Optional<Duration> headersSentTime() {
+        return between(Phase.STREAM_OPENED, Phase.HEADERS_SENT);
+    }
+
+    /**
+     * Time to first byte: time between sending the request headers and receiving the response headers.
+     */
+    default Optional<Duration> timeToFirstByte() {
+        return between(Phase.HEADERS_SENT, Phase.RESPONSE_HEADERS_RECEIVED);
+    }
+
+    /**
+     * Time spent receiving the response body.
+     */
+    default Optional<Duration> bodyTime() {
+        return between(Phase.RESPONSE_HEADERS_RECEIVED, Phase.BODY_COMPLETE);
+    }
+
+    /**
+     * Total time from passing the request to the client until the response body was received completely.
+     */
+    default Optional<Duration> totalTime() {
+        return between(Phase.QUEUED, Phase.BODY_COMPLETE);
+    }
+}
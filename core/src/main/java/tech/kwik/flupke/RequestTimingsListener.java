@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke;
+
+import java.net.http.HttpRequest;
+
+/**
+ * Listener that is notified with the timings of each request when the request is finished, i.e. when the response body
+ * is received completely or when the request failed or was cancelled.
+ * The listener is called on one of the client's threads, so it should not block.
+ */
+@FunctionalInterface
+public interface RequestTimingsListener {
+
+    void requestFinished(HttpRequest request, RequestTimings timings);
+}
@@ -18,7 +18,7 @@
  */
 package tech.kwik.flupke.core;
 
-import tech.kwik.core.generic.VariableLengthInteger;
+import tech.kwik.flupke.impl.VariableLengthIntegerUtil;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -39,8 +39,8 @@ public class GenericCapsule implements Capsule {
     @Override
     public int write(OutputStream outputStream) throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(8 + 8 + value.length);
-        VariableLengthInteger.encode(type, buffer);
-        VariableLengthInteger.encode(length, buffer);
+        VariableLengthIntegerUtil.encode(type, buffer);
+        VariableLengthIntegerUtil.encode(length, buffer);
         buffer.put(value);
         // Write to output stream in one operation, to avoid multiple data frames.
         outputStream.write(buffer.array(), 0, buffer.position());
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Moves data between byte buffers and (blocking) streams. Buffers backed by an accessible array are read into and
+ * written from directly; for other buffers (such as direct buffers) the data is copied via a scratch array.
+ */
+public final class ByteBufferStreams {
+
+    public static final int SCRATCH_SIZE = 8192;
+
+    private ByteBufferStreams() {
+    }
+
+    /**
+     * Reads from the input stream into the buffer; blocks until at least one byte is read or end of stream is reached.
+     * @param input  the stream to read from
+     * @param buffer  the buffer to read into
+     * @param scratch  array used when the buffer has no accessible array; may be null, in which case one is allocated
+     *                 when needed
+     * @return  the number of bytes read, or -1 when the end of the stream is reached
+     * @throws IOException  when reading from the stream fails
+     */
+    public static int read(InputStream input, ByteBuffer buffer, byte[] scratch) throws IOException {
+        if (!buffer.hasRemaining()) {
+            return 0;
+        }
+        if (buffer.hasArray()) {
+            int read = input.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (read > 0) {
+                buffer.position(buffer.position() + read);
+            }
+            return read;
+        }
+        if (scratch == null) {
+            scratch = new byte[Math.min(buffer.remaining(), SCRATCH_SIZE)];
+        }
+        int read = input.read(scratch, 0, Math.min(buffer.remaining(), scratch.length));
+        if (read > 0) {
+            buffer.put(scratch, 0, read);
+        }
+        return read;
+    }
+
+    /**
+     * Writes all remaining bytes of the buffer to the output stream.
+     * @param output  the stream to write to
+     * @param buffer  the buffer to write
+     * @param scratch  array used when the buffer has no accessible array; may be null, in which case one is allocated
+     *                 when needed
+     * @throws IOException  when writing to the stream fails
+     */
+    public static void write(OutputStream output, ByteBuffer buffer, byte[] scratch) throws IOException {
+        if (buffer.hasArray()) {
+            output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (scratch == null && buffer.hasRemaining()) {
+            scratch = new byte[Math.min(buffer.remaining(), SCRATCH_SIZE)];
+        }
+        while (buffer.hasRemaining()) {
+            int count = Math.min(buffer.remaining(), scratch.length);
+            buffer.get(scratch, 0, count);
+            output.write(scratch, 0, count);
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of the buffers to the output stream, in order.
+     * @return  the number of bytes written
+     */
+    public static long write(OutputStream output, ByteBuffer[] buffers, byte[] scratch) throws IOException {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+            write(output, buffer, scratch);
+        }
+        return total;
+    }
+
+    /**
+     * @return  the total number of remaining bytes in the given buffers
+     */
+    public static long remaining(ByteBuffer[] buffers) {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+        return total;
+    }
+}
@@ -18,7 +18,6 @@
  */
 package tech.kwik.flupke.impl;
 
-import tech.kwik.core.generic.VariableLengthInteger;
 import tech.kwik.flupke.HttpStream;
 import tech.kwik.flupke.core.Capsule;
 import tech.kwik.flupke.core.CapsuleProtocolStream;
@@ -89,8 +88,8 @@ public class CapsuleProtocolStreamImpl implements CapsuleProtocolStream {
     }
 
     private Capsule parseGenericCapsule() throws IOException {
-        long type = VariableLengthInteger.parseLong(inputStream);
-        long length = VariableLengthInteger.parseLong(inputStream);
+        long type = VariableLengthIntegerUtil.read(inputStream);
+        long length = VariableLengthIntegerUtil.read(inputStream);
         byte[] data = new byte[(int) length];
         httpStream.getInputStream().read(data);
         return new GenericCapsule(type, data);
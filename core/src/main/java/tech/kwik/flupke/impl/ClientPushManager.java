@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.core.QuicStream;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_ID_ERROR;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_REQUEST_CANCELLED;
+
+/**
+ * Keeps track of the server pushes of one client connection: the push IDs the server is allowed to use, the pushes
+ * that are promised and the push streams that are opened. As the server may open a push stream before the client has
+ * received the corresponding push promise (and vice versa), a push is only started when both have been received.
+ * Pushes that are finished or cancelled are "resolved"; resolved push IDs are remembered (as a low-water mark plus the
+ * set of resolved IDs above it), so that a push stream the server opens for a cancelled push can still be aborted
+ * without keeping an entry per cancelled push.
+ */
+class ClientPushManager {
+
+    /**
+     * The maximum number of pushes that can be in progress at the same time; each finished (or cancelled) push allows
+     * the server to promise another.
+     */
+    static final int MAX_OUTSTANDING_PUSHES = 16;
+
+    /**
+     * The maximum number of push IDs, starting at the lowest unresolved one, the server is allowed to use. Bounds the
+     * state kept for resolved pushes when the server leaves a push ID unresolved (e.g. by never opening the stream of
+     * a push that is cancelled by the client).
+     */
+    static final int MAX_TRACKED_PUSH_IDS = 4 * MAX_OUTSTANDING_PUSHES;
+
+    private final Consumer<byte[]> controlFrameSender;
+    private final Executor executor;
+    private final Object lock = new Object();
+    // Guarded by lock; -1 as long as pushes are not enabled.
+    private long maxPushId = -1;
+    private final Map<Long, Push> pushes = new HashMap<>();
+    // Guarded by lock; all push IDs below this value are resolved.
+    private long resolvedBelow = 0;
+    // Guarded by lock; the resolved push IDs at or above resolvedBelow.
+    private final Set<Long> resolved = new HashSet<>();
+    // Guarded by lock; the number of push IDs that would be allowed when there would be no limit on tracked push IDs.
+    private long allowedPushes = 0;
+
+    /**
+     * @param controlFrameSender  sends a (serialized) frame on the client's control stream
+     * @param executor  the executor on which pushed responses are read
+     */
+    ClientPushManager(Consumer<byte[]> controlFrameSender, Executor executor) {
+        this.controlFrameSender = controlFrameSender;
+        this.executor = executor;
+    }
+
+    /**
+     * Allows the server to push, by sending the initial MAX_PUSH_ID frame; has no effect when already enabled.
+     */
+    void enable() {
+        synchronized (lock) {
+            if (maxPushId < 0) {
+                // https://www.rfc-editor.org/rfc/rfc9114.html#name-server-push
+                // "The push ID space begins at zero and ends at a maximum value set by the MAX_PUSH_ID frame. In
+                //  particular, a server is not able to push until after the client sends a MAX_PUSH_ID frame."
+                allowedPushes = MAX_OUTSTANDING_PUSHES;
+                maxPushId = MAX_OUTSTANDING_PUSHES - 1;
+                controlFrameSender.accept(new MaxPushIdFrame(maxPushId).getBytes());
+            }
+        }
+    }
+
+    /**
+     * Registers a push promise; the acceptor is called (once per push ID) to determine whether the push is wanted.
+     * @param pushId  the push ID of the promise
+     * @param acceptor  provides the reader for the push stream, or null when the push must be cancelled
+     * @throws ConnectionError  when the push ID exceeds the maximum push ID
+     */
+    void promised(long pushId, Supplier<Consumer<QuicStream>> acceptor) throws ConnectionError {
+        Push push;
+        synchronized (lock) {
+            checkPushId(pushId);
+            if (isResolved(pushId)) {
+                // Additional promise for a push that is already finished or cancelled.
+                return;
+            }
+            push = pushes.computeIfAbsent(pushId, id -> new Push());
+            if (push.promised) {
+                // https://www.rfc-editor.org/rfc/rfc9114.html#name-server-push
+                // "The same server push can be associated with additional client requests using a PUSH_PROMISE frame."
+                return;
+            }
+            push.promised = true;
+        }
+
+        Consumer<QuicStream> reader = acceptor.get();
+        QuicStream stream;
+        synchronized (lock) {
+            push.decided = true;
+            push.reader = reader;
+            stream = push.stream;
+            if (reader == null) {
+                // https://www.rfc-editor.org/rfc/rfc9114.html#name-cancel_push
+                // "When a client sends a CANCEL_PUSH frame, it is indicating that it does not wish to receive the
+                //  promised resource."
+                controlFrameSender.accept(new CancelPushFrame(pushId).getBytes());
+                // Should the server (still) open the push stream, it is aborted because the push ID is resolved.
+                resolve(pushId);
+            }
+        }
+        if (stream != null) {
+            start(stream, reader);
+        }
+    }
+
+    /**
+     * Registers a push stream opened by the server.
+     * @param pushId  the push ID read from the push stream
+     * @param stream  the push stream, positioned after the push ID
+     * @throws ConnectionError  when the push ID exceeds the maximum push ID or a push stream for it was already opened
+     */
+    void streamOpened(long pushId, QuicStream stream) throws ConnectionError {
+        Consumer<QuicStream> reader;
+        synchronized (lock) {
+            checkPushId(pushId);
+            if (isResolved(pushId)) {
+                reader = null;
+            }
+            else {
+                Push push = pushes.computeIfAbsent(pushId, id -> new Push());
+                if (push.stream != null) {
+                    // https://www.rfc-editor.org/rfc/rfc9114.html#name-push-streams
+                    // "Each push ID MUST only be used once in a push stream header. If a client detects that a push
+                    //  stream header includes a push ID that was used in another push stream header, the client MUST
+                    //  treat this as a connection error of type H3_ID_ERROR."
+                    throw new ConnectionError(H3_ID_ERROR);
+                }
+                push.stream = stream;
+                if (!push.decided) {
+                    // Wait for the push promise.
+                    return;
+                }
+                reader = push.reader;
+            }
+        }
+        start(stream, reader);
+    }
+
+    /**
+     * Signals that the push with the given ID is finished (successfully or not), allowing the server to promise another.
+     */
+    void finished(long pushId) {
+        synchronized (lock) {
+            if (pushes.containsKey(pushId)) {
+                resolve(pushId);
+            }
+        }
+    }
+
+    private void start(QuicStream stream, Consumer<QuicStream> reader) {
+        if (reader == null) {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-cancel_push
+            // "If the push stream has been opened by the server, the client SHOULD abort reading the stream with an
+            //  error code of H3_REQUEST_CANCELLED."
+            stream.abortReading(H3_REQUEST_CANCELLED);
+        }
+        else {
+            executor.execute(() -> reader.accept(stream));
+        }
+    }
+
+    private void checkPushId(long pushId) throws ConnectionError {
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-push_promise
+        // "A server MUST NOT use a push ID greater than the maximum push ID (...). A client MUST treat receipt of a
+        //  PUSH_PROMISE frame that contains a larger push ID than the client has advertised as a connection error of
+        //  H3_ID_ERROR."
+        if (pushId > maxPushId) {
+            throw new ConnectionError(H3_ID_ERROR);
+        }
+    }
+
+    private boolean isResolved(long pushId) {
+        return pushId < resolvedBelow || resolved.contains(pushId);
+    }
+
+    private void resolve(long pushId) {
+        pushes.remove(pushId);
+        if (pushId == resolvedBelow) {
+            resolvedBelow++;
+            while (resolved.remove(resolvedBelow)) {
+                resolvedBelow++;
+            }
+        }
+        else {
+            resolved.add(pushId);
+        }
+        allowedPushes++;
+        increaseMaxPushId();
+    }
+
+    private void increaseMaxPushId() {
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-max_push_id
+        // "The MAX_PUSH_ID frame (type=0x0d) is used by clients to control the number of server pushes that the server
+        //  can initiate."
+        long newMaxPushId = Long.min(allowedPushes, resolvedBelow + MAX_TRACKED_PUSH_IDS) - 1;
+        if (newMaxPushId > maxPushId) {
+            maxPushId = newMaxPushId;
+            controlFrameSender.accept(new MaxPushIdFrame(maxPushId).getBytes());
+        }
+    }
+
+    long getMaxPushId() {
+        synchronized (lock) {
+            return maxPushId;
+        }
+    }
+
+    /**
+     * @return  the number of push IDs for which state is kept, i.e. the pushes in progress and the resolved push IDs
+     *          above the lowest unresolved one
+     */
+    int getTrackedPushCount() {
+        synchronized (lock) {
+            return pushes.size() + resolved.size();
+        }
+    }
+
+    private static class Push {
+        boolean promised;
+        // Whether the acceptor has been called, after which the reader is known.
+        boolean decided;
+        // Set when decided; never null, as cancelled pushes are resolved immediately.
+        Consumer<QuicStream> reader;
+        QuicStream stream;
+    }
+}
@@ -19,12 +19,13 @@
 package tech.kwik.flupke.impl;
 
 import tech.kwik.core.generic.InvalidIntegerEncodingException;
-import tech.kwik.core.generic.VariableLengthInteger;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_DATA;
+
 
 // https://www.rfc-editor.org/rfc/rfc9114.html#name-data
 public class DataFrame extends Http3Frame {
@@ -45,23 +46,26 @@ public class DataFrame extends Http3Frame {
 
     public byte[] toBytes() {
         int payloadLength = payload.limit() - payload.position();
-        ByteBuffer lengthBuffer = ByteBuffer.allocate(8);
-        int varIntLength = VariableLengthInteger.encode(payloadLength, lengthBuffer);
-        int dataLength = 1 + varIntLength + payloadLength;
-        byte[] data = new byte[dataLength];
-        data[0] = 0x00;
-        lengthBuffer.flip();  // Prepare for reading length.
-        lengthBuffer.get(data, 1, varIntLength);
-        payload.get(data, 1 + varIntLength, payloadLength);
-        payload.rewind();
+        int headerLength = VariableLengthIntegerUtil.frameHeaderLength(FRAME_TYPE_DATA, payloadLength);
+        byte[] data = new byte[headerLength + payloadLength];
+        VariableLengthIntegerUtil.encodeFrameHeader(FRAME_TYPE_DATA, payloadLength, data, 0);
+        payload.mark();
+        payload.get(data, headerLength, payloadLength);
+        payload.reset();
         return data;
     }
 
     public void writeTo(OutputStream stream) throws IOException {
-        stream.write(0x00);
+        writeTo(stream, new byte[VariableLengthIntegerUtil.MAX_FRAME_HEADER_LENGTH]);
+    }
+
+    /**
+     * Writes the frame to the given stream, using the given (reusable) scratch array for the frame header.
+     */
+    public void writeTo(OutputStream stream, byte[] scratch) throws IOException {
         int payloadLength = payload.limit() - payload.position();
-        VariableLengthIntegerUtil.write(payloadLength, stream);
-        stream.write(payload.array(), payload.position(), payloadLength);
+        VariableLengthIntegerUtil.writeFrameHeader(FRAME_TYPE_DATA, payloadLength, stream, scratch);
+        stream.write(payload.array(), payload.arrayOffset() + payload.position(), payloadLength);
     }
 
     public DataFrame parsePayload(byte[] payload) {
@@ -74,7 +78,10 @@ public class DataFrame extends Http3Frame {
         if (buffer.get() != 0x00) {
             throw new IllegalArgumentException("Type mismatch: not a data frame");
         }
-        int payloadLength = VariableLengthInteger.parse(buffer);
+        long payloadLength = VariableLengthIntegerUtil.decode(buffer);
+        if (payloadLength == VariableLengthIntegerUtil.INCOMPLETE) {
+            throw new InvalidIntegerEncodingException();
+        }
         if (buffer.remaining() <= payloadLength) {
             payload = buffer.slice();
         }
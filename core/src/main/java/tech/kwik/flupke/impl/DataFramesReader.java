@@ -18,7 +18,6 @@
  */
 package tech.kwik.flupke.impl;
 
-import tech.kwik.core.generic.VariableLengthInteger;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -70,12 +69,12 @@ public class DataFramesReader extends InputStream {
                     }
                     dataFramesStream.unread(read);
 
-                    frameType = VariableLengthInteger.parseLong(dataFramesStream);
+                    frameType = VariableLengthIntegerUtil.read(dataFramesStream);
                     if (frameType != FRAME_TYPE_DATA) {
                         nonDataFrameHandler.accept(frameType, dataFramesStream);
                     }
                     else {
-                        frameLength = VariableLengthInteger.parseLong(dataFramesStream);
+                        frameLength = VariableLengthIntegerUtil.read(dataFramesStream);
                     }
                 }
                 while (frameType != FRAME_TYPE_DATA || frameLength == 0);
@@ -101,7 +100,7 @@ public class DataFramesReader extends InputStream {
 
     private void handleNonDataFrame(long frameType, PushbackInputStream dataFramesStream) {
         try {
-            long frameLength = VariableLengthInteger.parseLong(dataFramesStream);
+            long frameLength = VariableLengthIntegerUtil.read(dataFramesStream);
             // https://www.rfc-editor.org/rfc/rfc9114.html#section-7.2.8
             // "These frames have no semantics, and they MAY be sent on any stream where frames are allowed to be sent. "
             // https://www.rfc-editor.org/rfc/rfc9114.html#section-9
@@ -141,6 +140,14 @@ public class DataFramesReader extends InputStream {
         }
     }
 
+    @Override
+    public int available() throws IOException {
+        if (remainingDataFrameContent > 0) {
+            return (int) Long.min(remainingDataFrameContent, dataFramesStream.available());
+        }
+        return 0;
+    }
+
     @Override
     public int read(byte[] b) throws IOException {
         return read(b, 0, b.length);
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded (least recently used) cache of encoded field lines, keyed by field name and value. Only field lines that do
+ * not reference the dynamic table can be cached, as these do not depend on the encoder state. Each encoder has its own
+ * cache, so the cache is not thread safe; it is only accessed while holding the encoder's lock.
+ */
+public class FieldLineCache {
+
+    private final int maxEntries;
+    private final int maxLineSize;
+    private final Map<Map.Entry<String, String>, byte[]> lines;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxEntries  maximum number of field lines kept
+     * @param maxLineSize  maximum size of an encoded field line to be kept, larger lines are not cached
+     */
+    public FieldLineCache(int maxEntries, int maxLineSize) {
+        this.maxEntries = maxEntries;
+        this.maxLineSize = maxLineSize;
+        lines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Map.Entry<String, String>, byte[]> eldest) {
+                return size() > FieldLineCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached encoded field line for the given field, or null when not present.
+     * The returned array is shared and must not be modified.
+     */
+    public byte[] get(String name, String value) {
+        byte[] line = lines.get(Map.entry(name, value));
+        if (line != null) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        return line;
+    }
+
+    public void put(String name, String value, byte[] line) {
+        if (line.length <= maxLineSize && maxEntries > 0) {
+            lines.put(Map.entry(name, value), line);
+        }
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.net.http.HttpHeaders;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compact representation of a decoded field section: the known pseudo-header fields are kept in fixed slots and the
+ * other fields in a flat array of names and values. The {@link HttpHeaders} view is only created when requested.
+ */
+public final class HeaderBlock {
+
+    // Indexes of the known pseudo-header fields.
+    public static final int METHOD = 0;
+    public static final int SCHEME = 1;
+    public static final int AUTHORITY = 2;
+    public static final int PATH = 3;
+    public static final int STATUS = 4;
+    public static final int PROTOCOL = 5;
+
+    private static final String[] PSEUDO_HEADER_NAMES = {
+            HeadersFrame.PSEUDO_HEADER_METHOD,
+            HeadersFrame.PSEUDO_HEADER_SCHEME,
+            HeadersFrame.PSEUDO_HEADER_AUTHORITY,
+            HeadersFrame.PSEUDO_HEADER_PATH,
+            HeadersFrame.PSEUDO_HEADER_STATUS,
+            HeadersFrame.PSEUDO_HEADER_PROTOCOL
+    };
+    private static final HttpHeaders EMPTY_HEADERS = HttpHeaders.of(Map.of(), (name, value) -> true);
+
+    private final String[] pseudoHeaders = new String[PSEUDO_HEADER_NAMES.length];
+    // Pseudo-header fields not defined by RFC 9114 or RFC 9220; rare, so only created when needed.
+    private Map<String, String> otherPseudoHeaders;
+    // Names at even, values at odd positions.
+    private final String[] fields;
+    private final int fieldCount;
+    private final long size;
+    private HttpHeaders httpHeaders;
+
+    private HeaderBlock(List<Map.Entry<String, String>> fieldList) {
+        String[] regularFields = new String[fieldList.size() * 2];
+        int count = 0;
+        long totalSize = 0;
+        for (Map.Entry<String, String> field : fieldList) {
+            String name = field.getKey();
+            String value = field.getValue();
+            totalSize += name.length() + value.length();
+            if (name.startsWith(":")) {
+                addPseudoHeader(name, value);
+            }
+            else {
+                regularFields[2 * count] = name;
+                regularFields[2 * count + 1] = value;
+                count++;
+            }
+        }
+        fields = regularFields;
+        fieldCount = count;
+        size = totalSize;
+    }
+
+    /**
+     * Creates a header block from the fields of a decoded field section.
+     */
+    public static HeaderBlock of(List<Map.Entry<String, String>> fields) {
+        return new HeaderBlock(fields);
+    }
+
+    /**
+     * Creates a header block from pseudo-header fields and (regular) HTTP headers.
+     */
+    public static HeaderBlock of(Map<String, String> pseudoHeaders, HttpHeaders headers) {
+        List<Map.Entry<String, String>> fieldList = new ArrayList<>(pseudoHeaders.entrySet());
+        headers.map().forEach((name, values) -> values.forEach(value -> fieldList.add(Map.entry(name, value))));
+        HeaderBlock block = new HeaderBlock(fieldList);
+        block.httpHeaders = headers;
+        return block;
+    }
+
+    private void addPseudoHeader(String name, String value) {
+        for (int i = 0; i < PSEUDO_HEADER_NAMES.length; i++) {
+            if (PSEUDO_HEADER_NAMES[i].equals(name)) {
+                // When a pseudo-header field occurs more than once, the first value is used.
+                if (pseudoHeaders[i] == null) {
+                    pseudoHeaders[i] = value;
+                }
+                return;
+            }
+        }
+        if (otherPseudoHeaders == null) {
+            otherPseudoHeaders = new HashMap<>();
+        }
+        otherPseudoHeaders.putIfAbsent(name, value);
+    }
+
+    /**
+     * Returns the value of the pseudo-header field with the given index (e.g. {@link #METHOD}), or null when absent.
+     */
+    public String pseudoHeader(int index) {
+        return pseudoHeaders[index];
+    }
+
+    /**
+     * Returns the value of the given pseudo-header field, or null when absent.
+     */
+    public String pseudoHeader(String name) {
+        for (int i = 0; i < PSEUDO_HEADER_NAMES.length; i++) {
+            if (PSEUDO_HEADER_NAMES[i].equals(name)) {
+                return pseudoHeaders[i];
+            }
+        }
+        return otherPseudoHeaders != null? otherPseudoHeaders.get(name): null;
+    }
+
+    public Map<String, String> pseudoHeaders() {
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < PSEUDO_HEADER_NAMES.length; i++) {
+            if (pseudoHeaders[i] != null) {
+                result.put(PSEUDO_HEADER_NAMES[i], pseudoHeaders[i]);
+            }
+        }
+        if (otherPseudoHeaders != null) {
+            result.putAll(otherPseudoHeaders);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of (regular, i.e. non pseudo-header) fields.
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public String name(int index) {
+        return fields[2 * index];
+    }
+
+    public String value(int index) {
+        return fields[2 * index + 1];
+    }
+
+    /**
+     * Returns the first value of the given (regular) field; names are compared case-insensitively.
+     */
+    public Optional<String> firstValue(String name) {
+        for (int i = 0; i < fieldCount; i++) {
+            if (fields[2 * i].equalsIgnoreCase(name)) {
+                return Optional.of(fields[2 * i + 1]);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the size of the uncompressed fields, i.e. the sum of the lengths of all names and values.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the (regular) fields as HttpHeaders; created on first call.
+     */
+    public HttpHeaders httpHeaders() {
+        if (httpHeaders == null) {
+            if (fieldCount == 0) {
+                httpHeaders = EMPTY_HEADERS;
+            }
+            else {
+                Map<String, List<String>> headersMap = new LinkedHashMap<>();
+                for (int i = 0; i < fieldCount; i++) {
+                    headersMap.computeIfAbsent(fields[2 * i], name -> new ArrayList<>(1)).add(fields[2 * i + 1]);
+                }
+                httpHeaders = HttpHeaders.of(headersMap, (name, value) -> true);
+            }
+        }
+        return httpHeaders;
+    }
+}
@@ -18,7 +18,7 @@
  */
 package tech.kwik.flupke.impl;
 
-import tech.kwik.core.generic.VariableLengthInteger;
+import tech.kwik.flupke.PreEncodedHeaders;
 import tech.kwik.qpack.Decoder;
 import tech.kwik.qpack.Encoder;
 
@@ -27,7 +27,8 @@ import java.io.IOException;
 import java.net.http.HttpHeaders;
 import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_HEADERS;
 
 
 // https://www.rfc-editor.org/rfc/rfc9114.html#section-7.2.2
@@ -43,18 +44,23 @@ public class HeadersFrame extends Http3Frame {
     // https://www.rfc-editor.org/rfc/rfc9220.html#name-websockets-upgrade-over-htt
     public static final String PSEUDO_HEADER_PROTOCOL = ":protocol";
 
+    private static final HttpHeaders EMPTY_HEADERS = HttpHeaders.of(Collections.emptyMap(), (a,b) -> true);
+
     protected HttpHeaders httpHeaders;
     protected Map<String, String> pseudoHeaders;
+    // For a parsed frame, the decoded fields; pseudo headers and http headers are taken from it when needed.
+    private HeaderBlock headerBlock;
+    private List<PreEncodedHeaders> preEncodedHeaders = Collections.emptyList();
 
     public HeadersFrame() {
         pseudoHeaders = new HashMap<>();
-        httpHeaders = HttpHeaders.of(Collections.emptyMap(), (a,b) -> true);
+        httpHeaders = EMPTY_HEADERS;
     }
 
     public HeadersFrame(String pseudoHeader, String value) {
         pseudoHeaders = new HashMap<>();
         pseudoHeaders.put(pseudoHeader, value);
-        httpHeaders = HttpHeaders.of(Collections.emptyMap(), (a,b) -> true);
+        httpHeaders = EMPTY_HEADERS;
     }
 
     public HeadersFrame(String... keyOrValues) {
@@ -69,7 +75,7 @@ public class HeadersFrame extends Http3Frame {
                 pseudoHeaders.put(key, value);
             }
         }
-        httpHeaders = HttpHeaders.of(Collections.emptyMap(), (a,b) -> true);
+        httpHeaders = EMPTY_HEADERS;
     }
 
     public HeadersFrame(HttpHeaders headers, Map<String, String> pseudoHeaders) {
@@ -81,84 +87,140 @@ public class HeadersFrame extends Http3Frame {
             this.httpHeaders = headers;
         }
         else {
-            httpHeaders = HttpHeaders.of(Collections.emptyMap(), (a,b) -> true);
+            httpHeaders = EMPTY_HEADERS;
         }
     }
 
+    /**
+     * Adds headers of which the encoded field lines are reused; these are sent after the other headers.
+     */
+    public HeadersFrame addPreEncodedHeaders(PreEncodedHeaders headers) {
+        if (preEncodedHeaders.isEmpty()) {
+            preEncodedHeaders = new ArrayList<>();
+        }
+        preEncodedHeaders.add(headers);
+        return this;
+    }
+
     public byte[] toBytes(Encoder encoder) {
+        return toBytes(encoder, -1);
+    }
+
+    /**
+     * Serializes the frame for sending on the given stream; the stream id is needed when the encoder uses the
+     * QPACK dynamic table.
+     */
+    public byte[] toBytes(Encoder encoder, long streamId) {
         List<Map.Entry<String, String>> qpackHeaders = new ArrayList<>();
         addPseudoHeaders(qpackHeaders);
         addHeaders(qpackHeaders);
 
-        ByteBuffer compressedHeaders = encoder.compressHeaders(qpackHeaders);
+        ByteBuffer compressedHeaders;
+        if (encoder instanceof QpackEncoder) {
+            compressedHeaders = ((QpackEncoder) encoder).compressHeaders(qpackHeaders, streamId, preEncodedHeaders);
+        }
+        else {
+            preEncodedHeaders.forEach(headerSet -> qpackHeaders.addAll(headerSet.fields()));
+            compressedHeaders = encoder.compressHeaders(qpackHeaders);
+        }
         compressedHeaders.flip();
 
-        ByteBuffer payloadLength = ByteBuffer.allocate(4);
-        VariableLengthInteger.encode(compressedHeaders.limit(), payloadLength);
-        payloadLength.flip();
-
-        byte[] data = new byte[1 + payloadLength.limit() + compressedHeaders.limit()];
-        data[0] = 0x01;  // Header frame
-        payloadLength.get(data, 1, payloadLength.limit());
-        compressedHeaders.get(data, 1 + payloadLength.limit(), compressedHeaders.limit());
+        int payloadLength = compressedHeaders.limit();
+        int headerLength = VariableLengthIntegerUtil.frameHeaderLength(FRAME_TYPE_HEADERS, payloadLength);
+        byte[] data = new byte[headerLength + payloadLength];
+        VariableLengthIntegerUtil.encodeFrameHeader(FRAME_TYPE_HEADERS, payloadLength, data, 0);
+        compressedHeaders.get(data, headerLength, payloadLength);
 
         return data;
     }
 
     public HeadersFrame parsePayload(byte[] headerBlock, Decoder decoder) throws IOException {
-        List<Map.Entry<String, String>> headersList = decoder.decodeStream(new ByteArrayInputStream(headerBlock));
-        Map<String, List<String>> headersMap = headersList.stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, this::mapValue, this::mergeValues));
+        return parsePayload(headerBlock, decoder, -1);
+    }
+
+    /**
+     * Parses the frame payload received on the given stream; the stream id is needed for acknowledging field sections
+     * that reference the QPACK dynamic table.
+     */
+    public HeadersFrame parsePayload(byte[] headerBlock, Decoder decoder, long streamId) throws IOException {
+        List<Map.Entry<String, String>> headersList;
+        if (decoder instanceof QpackDecoder && streamId >= 0) {
+            headersList = ((QpackDecoder) decoder).decode(headerBlock, streamId);
+        }
+        else {
+            headersList = decoder.decodeStream(new ByteArrayInputStream(headerBlock));
+        }
         // https://www.rfc-editor.org/rfc/rfc9114#name-http-control-data
         // "Pseudo-header fields are not HTTP fields."
-        extractPseudoHeaders(headersMap);
-        httpHeaders = HttpHeaders.of(headersMap, (key, value) -> ! key.startsWith(":"));
+        this.headerBlock = HeaderBlock.of(headersList);
+        pseudoHeaders = null;
+        httpHeaders = null;
         return this;
     }
 
-    private void extractPseudoHeaders(Map<String, List<String>> headersMap) {
-        headersMap.entrySet().stream()
-                .filter(entry -> entry.getKey().startsWith(":"))
-                .forEach(entry -> pseudoHeaders.put(entry.getKey(), entry.getValue().get(0)));
+    /**
+     * Returns the fields of this frame as a header block; for a parsed frame, this is the decoded representation.
+     */
+    public HeaderBlock headerBlock() {
+        if (headerBlock == null) {
+            headerBlock = HeaderBlock.of(pseudoHeaders, httpHeaders);
+        }
+        return headerBlock;
     }
 
     private void addPseudoHeaders(List<Map.Entry<String, String>> qpackHeaders) {
-        pseudoHeaders.entrySet().forEach(entry -> qpackHeaders.add(entry));
+        pseudoHeaders().entrySet().forEach(entry -> qpackHeaders.add(entry));
     }
 
     private void addHeaders(List<Map.Entry<String, String>> qpackHeaders) {
-        httpHeaders.map().entrySet().forEach(entry -> {
-            String value = entry.getValue().stream().collect(Collectors.joining(","));
+        headers().map().entrySet().forEach(entry -> {
+            List<String> values = entry.getValue();
+            String value = values.size() == 1? values.get(0): String.join(",", values);
             // https://tools.ietf.org/html/draft-ietf-quic-http-28#4.1.1
             // "As in HTTP/2, characters in field names MUST be converted to lowercase prior to their encoding."
-            qpackHeaders.add(new AbstractMap.SimpleEntry<>(entry.getKey().toLowerCase(), value));
+            qpackHeaders.add(new AbstractMap.SimpleEntry<>(toLowerCase(entry.getKey()), value));
         });
     }
 
-    private List<String> mapValue(Map.Entry<String, String> entry) {
-        return List.of(entry.getValue());
-    }
-
-    private List<String> mergeValues(List<String> value1, List<String> value2) {
-        List<String> result = new ArrayList<>();
-        result.addAll(value1);
-        result.addAll(value2);
-        return result;
+    private static String toLowerCase(String name) {
+        // Field names are usually lowercase already, avoid creating a copy in that case.
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isUpperCase(name.charAt(i))) {
+                return name.toLowerCase();
+            }
+        }
+        return name;
     }
 
     public String getPseudoHeader(String header) {
+        if (pseudoHeaders == null) {
+            return headerBlock.pseudoHeader(header);
+        }
         return pseudoHeaders.get(header);
     }
 
     public HttpHeaders headers() {
+        if (httpHeaders == null) {
+            httpHeaders = headerBlock.httpHeaders();
+        }
         return httpHeaders;
     }
 
+    private Map<String, String> pseudoHeaders() {
+        if (pseudoHeaders == null) {
+            pseudoHeaders = headerBlock.pseudoHeaders();
+        }
+        return pseudoHeaders;
+    }
+
     /**
      * Returns the size of the uncompressed headers.
      * @return
      */
     public long getHeadersSize() {
+        if (headerBlock != null) {
+            return headerBlock.size();
+        }
         return pseudoHeaders.entrySet().stream()
                 .mapToLong(entry -> entry.getKey().length() + entry.getValue().length())
                 .sum() +
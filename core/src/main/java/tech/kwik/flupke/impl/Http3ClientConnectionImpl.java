@@ -23,13 +23,16 @@ import tech.kwik.core.QuicClientConnection;
 import tech.kwik.core.QuicConnection;
 import tech.kwik.core.QuicStream;
 import tech.kwik.core.Statistics;
-import tech.kwik.core.generic.VariableLengthInteger;
 import tech.kwik.core.log.Logger;
 import tech.kwik.core.log.NullLogger;
+import tech.kwik.core.concurrent.DaemonThreadFactory;
 import tech.kwik.flupke.Http3ClientConnection;
 import tech.kwik.flupke.Http3ConnectionSettings;
 import tech.kwik.flupke.HttpError;
 import tech.kwik.flupke.HttpStream;
+import tech.kwik.flupke.MetricsSnapshot;
+import tech.kwik.flupke.PreEncodedHeaders;
+import tech.kwik.flupke.RequestTimings;
 import tech.kwik.qpack.Encoder;
 
 import javax.net.ssl.X509ExtendedKeyManager;
@@ -44,6 +47,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.HashMap;
@@ -51,6 +55,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import static tech.kwik.flupke.impl.SettingsFrame.SETTINGS_ENABLE_CONNECT_PROTOCOL;
@@ -61,14 +68,24 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
     public static final int MAX_DATA_FRAME_READ_CHUNK_SIZE = 8192;
     public static long MAX_RECEIVED_HEADER_SIZE = Long.MAX_VALUE;
     public static long MAX_RECEIVED_DATA_SIZE = Long.MAX_VALUE;
+    public static final Duration DEFAULT_EXPECT_CONTINUE_TIMEOUT = Duration.ofSeconds(1);
+    private static final PreEncodedHeaders EXPECT_CONTINUE = PreEncodedHeaders.of("expect", "100-continue");
 
-    private InputStream serverPushStream;
     private Statistics connectionStats;
     private boolean initialized;
     private Consumer<HttpStream> bidirectionalStreamHandler;
     private ExecutorService executorService;
     private long maxReceivedHeaderSize = MAX_RECEIVED_HEADER_SIZE;
     private long maxReceivedDataSize = MAX_RECEIVED_DATA_SIZE;
+    private volatile Duration bodyIdleTimeout;
+    private volatile Duration expectContinueTimeout = DEFAULT_EXPECT_CONTINUE_TIMEOUT;
+    private final AtomicLong abandonedResponseBodies = new AtomicLong();
+    private volatile ResponseBodyMemoryBudget bodyMemoryBudget = ResponseBodyMemoryBudget.unlimited();
+    private volatile MetricsRecorder metrics = new MetricsRecorder(null, null);
+    private final ClientPushManager pushManager;
+    // For requests without push promise handler, any push promised in response is cancelled.
+    private final PushPromiseReceiver cancellingPushReceiver = this::cancelPush;
+    private final AtomicReference<Runnable> terminationListener = new AtomicReference<>();
 
     public Http3ClientConnectionImpl(String host, int port, Duration connectTimeout, Http3ConnectionSettings connectionSettings, DatagramSocketFactory datagramSocketFactory, ExecutorService executorService, Logger logger) throws IOException {
         this(createQuicConnection(host, port, connectTimeout, connectionSettings, datagramSocketFactory, logger), executorService);
@@ -77,6 +94,7 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
     public Http3ClientConnectionImpl(QuicConnection quicConnection, ExecutorService executorService) {
         super(quicConnection);
         this.executorService = Objects.requireNonNull(executorService);
+        pushManager = new ClientPushManager(this::sendControlFrame, executorService);
 
         quicConnection.setPeerInitiatedStreamCallback(stream -> doAsync(() -> handleIncomingStream(stream)));
     }
@@ -94,7 +112,13 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
     public void connect() throws IOException {
         synchronized (this) {
             if (! ((QuicClientConnection) quicConnection).isConnected()) {
-                ((QuicClientConnection) quicConnection).connect();
+                try {
+                    ((QuicClientConnection) quicConnection).connect();
+                }
+                catch (IOException e) {
+                    connectionTerminated();
+                    throw e;
+                }
             }
             if (!initialized) {
                 startControlStream();
@@ -105,17 +129,32 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
 
     @Override
     public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException {
-        QuicStream httpStream = quicConnection.createStream(true);
-        sendRequest(request, httpStream);
+        return send(request, responseBodyHandler, RequestTimingsRecorder.disabled());
+    }
+
+    /**
+     * Same as {@link #send(HttpRequest, HttpResponse.BodyHandler)}, recording the timings of the request phases.
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, RequestTimingsRecorder timings) throws IOException {
+        QuicStream httpStream = openRequestStream(timings);
+        Runnable requestFinished = requestFinishedAction(timings);
         try {
+            ResponseFramesSequenceChecker frameSequenceChecker = new ResponseFramesSequenceChecker(httpStream, cancellingPushReceiver);
+            CompletableFuture<HeadersFrame> earlyResponse = sendRequest(request, httpStream, frameSequenceChecker, timings);
             CompletableFuture<HttpResponse<T>> response = new CompletableFuture<>();
-            receiveResponse(request, responseBodyHandler, httpStream, response);
+            receiveResponse(request, responseBodyHandler, httpStream, response, timings, requestFinished, frameSequenceChecker, earlyResponse);
             return response.get();
         }
+        catch (IOException | RuntimeException e) {
+            requestFinished.run();
+            throw e;
+        }
         catch (InterruptedException e) {
+            requestFinished.run();
             throw new IOException("Interrupted while waiting for response", e);
         }
         catch (ExecutionException e) {
+            requestFinished.run();
             Throwable cause = e.getCause();
             if (cause instanceof IOException) {
                 throw (IOException) cause;
@@ -125,45 +164,261 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
             }
         }
         catch (ConnectionError e) {
+            requestFinished.run();
             connectionError(e.getHttp3ErrorCode());
             throw new ProtocolException("H3 connection error: " + e.getHttp3ErrorCode());
         }
         catch (MalformedResponseException e) {
+            requestFinished.run();
             // https://www.rfc-editor.org/rfc/rfc9114.html#name-malformed-requests-and-resp
             // "Malformed requests or responses that are detected MUST be treated as a stream error of type H3_MESSAGE_ERROR."
             streamError(H3_MESSAGE_ERROR, httpStream);
             throw new ProtocolException("H3 stream error: H3_MESSAGE_ERROR");
         }
         catch (HttpError e) {
+            requestFinished.run();
             return new Http3Response<>(request, e.getStatusCode(), HttpHeaders.of(Map.of(), (a,b) -> true), null);
         }
     }
 
     public <T> void sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, CompletableFuture<HttpResponse<T>> result) {
-        QuicStream httpStream = null;
+        sendAsync(request, responseBodyHandler, result, RequestTimingsRecorder.disabled());
+    }
+
+    /**
+     * Same as {@link #sendAsync(HttpRequest, HttpResponse.BodyHandler, CompletableFuture)}, recording the timings of
+     * the request phases.
+     */
+    public <T> void sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, CompletableFuture<HttpResponse<T>> result, RequestTimingsRecorder timings) {
+        sendAsync(request, responseBodyHandler, result, timings, cancellingPushReceiver);
+    }
+
+    /**
+     * Same as {@link #sendAsync(HttpRequest, HttpResponse.BodyHandler, CompletableFuture, RequestTimingsRecorder)},
+     * accepting server pushes with the given push promise handler; when the handler is null, server pushes are
+     * refused.
+     */
+    public <T> void sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler,
+                              CompletableFuture<HttpResponse<T>> result, RequestTimingsRecorder timings) {
+        if (pushPromiseHandler == null) {
+            sendAsync(request, responseBodyHandler, result, timings, cancellingPushReceiver);
+            return;
+        }
+        pushManager.enable();
+        sendAsync(request, responseBodyHandler, result, timings,
+                pushPromise -> pushManager.promised(pushPromise.getPushId(), () -> acceptPush(request, pushPromise, pushPromiseHandler)));
+    }
+
+    private <T> void sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, CompletableFuture<HttpResponse<T>> result,
+                               RequestTimingsRecorder timings, PushPromiseReceiver pushPromiseReceiver) {
+        QuicStream httpStream;
         try {
-            httpStream = quicConnection.createStream(true);
-            sendRequest(request, httpStream);
-            receiveResponse(request, responseBodyHandler, httpStream, result);
+            httpStream = openRequestStream(timings);
         }
         catch (IOException e) {
             result.completeExceptionally(e);
+            return;
+        }
+        Runnable requestFinished = requestFinishedAction(timings);
+        try {
+            propagateCancellation(result, httpStream);
+            ResponseFramesSequenceChecker frameSequenceChecker = new ResponseFramesSequenceChecker(httpStream, pushPromiseReceiver);
+            CompletableFuture<HeadersFrame> earlyResponse = sendRequest(request, httpStream, frameSequenceChecker, timings);
+            receiveResponse(request, responseBodyHandler, httpStream, result, timings, requestFinished, frameSequenceChecker, earlyResponse);
+        }
+        catch (IOException e) {
+            requestFinished.run();
+            result.completeExceptionally(e);
+        }
+        catch (RuntimeException e) {
+            requestFinished.run();
+            throw e;
         }
         catch (ConnectionError e) {
+            requestFinished.run();
             connectionError(e.getHttp3ErrorCode());
             result.completeExceptionally(new ProtocolException("H3 connection error: " + e.getHttp3ErrorCode()));
         }
         catch (MalformedResponseException e) {
+            requestFinished.run();
             // https://www.rfc-editor.org/rfc/rfc9114.html#name-malformed-requests-and-resp
             // "Malformed requests or responses that are detected MUST be treated as a stream error of type H3_MESSAGE_ERROR."
             streamError(H3_MESSAGE_ERROR, httpStream);
             result.completeExceptionally(new ProtocolException("H3 stream error: " + H3_MESSAGE_ERROR));
         }
         catch (HttpError e) {
+            requestFinished.run();
             result.complete(new Http3Response<>(request, e.getStatusCode(), HttpHeaders.of(Map.of(), (a,b) -> true), null));
         }
     }
 
+    /**
+     * Lets the push promise handler decide whether the promised push is wanted.
+     * @return  the reader for the push stream, or null when the push should be cancelled
+     */
+    private <T> Consumer<QuicStream> acceptPush(HttpRequest initiatingRequest, PushPromiseFrame pushPromise, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        HttpRequest pushRequest = createPushRequest(initiatingRequest, pushPromise);
+        if (pushRequest == null) {
+            return null;
+        }
+        long pushId = pushPromise.getPushId();
+        AtomicReference<Consumer<QuicStream>> reader = new AtomicReference<>();
+        try {
+            pushPromiseHandler.applyPushPromise(initiatingRequest, pushRequest, bodyHandler -> {
+                CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+                if (!reader.compareAndSet(null, stream -> receivePushedResponse(pushId, pushRequest, bodyHandler, stream, result))) {
+                    throw new IllegalStateException("push promise already accepted");
+                }
+                return result;
+            });
+        }
+        catch (RuntimeException handlerError) {
+            return null;
+        }
+        return reader.get();
+    }
+
+    private HttpRequest createPushRequest(HttpRequest initiatingRequest, PushPromiseFrame pushPromise) {
+        String method = pushPromise.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_METHOD);
+        String scheme = pushPromise.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_SCHEME);
+        String authority = pushPromise.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_AUTHORITY);
+        String path = pushPromise.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_PATH);
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-server-push
+        // "The client SHOULD send a CANCEL_PUSH frame upon receipt of a PUSH_PROMISE frame carrying a request that is
+        //  not cacheable, is not known to be safe, that indicates the presence of request content, or for which it
+        //  does not consider the server authoritative."
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return null;
+        }
+        if (authority != null && !authority.equals(extractAuthority(initiatingRequest.uri()))) {
+            return null;
+        }
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+        try {
+            URI uri = new URI((scheme != null? scheme: "https") + "://" + extractAuthority(initiatingRequest.uri()) + path);
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri).method(method, HttpRequest.BodyPublishers.noBody());
+            pushPromise.headers().map().forEach((name, values) -> {
+                try {
+                    values.forEach(value -> builder.header(name, value));
+                }
+                catch (IllegalArgumentException restrictedHeader) {
+                    // Ignore, headers like "host" cannot be set on a request.
+                }
+            });
+            return builder.build();
+        }
+        catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private <T> void receivePushedResponse(long pushId, HttpRequest pushRequest, HttpResponse.BodyHandler<T> responseBodyHandler,
+                                           QuicStream pushStream, CompletableFuture<HttpResponse<T>> result) {
+        Runnable pushFinished = () -> pushManager.finished(pushId);
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                abortReading(pushStream, H3_REQUEST_CANCELLED);
+                pushFinished.run();
+            }
+        });
+        try {
+            receiveResponse(pushRequest, responseBodyHandler, pushStream, result, RequestTimingsRecorder.disabled(), pushFinished,
+                    new ResponseFramesSequenceChecker(pushStream, null), null);
+        }
+        catch (IOException | RuntimeException e) {
+            pushFinished.run();
+            result.completeExceptionally(e);
+        }
+        catch (ConnectionError e) {
+            pushFinished.run();
+            connectionError(e.getHttp3ErrorCode());
+            result.completeExceptionally(new ProtocolException("H3 connection error: " + e.getHttp3ErrorCode()));
+        }
+        catch (MalformedResponseException e) {
+            pushFinished.run();
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-malformed-requests-and-resp
+            // "Malformed requests or responses that are detected MUST be treated as a stream error of type H3_MESSAGE_ERROR."
+            metrics.error(H3_MESSAGE_ERROR);
+            abortReading(pushStream, H3_MESSAGE_ERROR);
+            result.completeExceptionally(new ProtocolException("H3 stream error: " + H3_MESSAGE_ERROR));
+        }
+        catch (HttpError e) {
+            pushFinished.run();
+            result.complete(new Http3Response<>(pushRequest, e.getStatusCode(), HttpHeaders.of(Map.of(), (a,b) -> true), null));
+        }
+    }
+
+    private void cancelPush(PushPromiseFrame pushPromise) throws ConnectionError {
+        pushManager.promised(pushPromise.getPushId(), () -> null);
+    }
+
+    @Override
+    protected void handlePushStream(QuicStream quicStream) {
+        long pushId;
+        try {
+            pushId = VariableLengthIntegerUtil.read(quicStream.getInputStream());
+        }
+        catch (IOException e) {
+            // Closed or reset before the push ID was received, so there is nothing to do.
+            return;
+        }
+        try {
+            pushManager.streamOpened(pushId, quicStream);
+        }
+        catch (ConnectionError e) {
+            connectionError(e.getHttp3ErrorCode());
+        }
+    }
+
+    private QuicStream openRequestStream(RequestTimingsRecorder timings) throws IOException {
+        metrics.requestQueued();
+        try {
+            QuicStream httpStream = quicConnection.createStream(true);
+            metrics.requestDequeued(true);
+            timings.record(RequestTimings.Phase.STREAM_OPENED);
+            return httpStream;
+        }
+        catch (IOException | RuntimeException e) {
+            metrics.requestDequeued(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the action to execute when the request is finished (successfully or not); the action is executed only once.
+     */
+    private Runnable requestFinishedAction(RequestTimingsRecorder timings) {
+        long start = System.nanoTime();
+        AtomicBoolean finished = new AtomicBoolean();
+        return () -> {
+            if (finished.compareAndSet(false, true)) {
+                metrics.requestFinished(System.nanoTime() - start);
+                timings.finish();
+            }
+        };
+    }
+
+    /**
+     * Ensures that when the caller cancels the (future) result, the request is cancelled on the wire, so that both
+     * peer and client resources are released immediately.
+     * @param result
+     * @param httpStream
+     */
+    private void propagateCancellation(CompletableFuture<?> result, QuicStream httpStream) {
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                // https://www.rfc-editor.org/rfc/rfc9114.html#name-request-cancellation-and-re
+                // "Clients can cancel requests by resetting and aborting the request stream with an error code of
+                //  H3_REQUEST_CANCELLED"
+                metrics.error(H3_REQUEST_CANCELLED);
+                abortReading(httpStream, H3_REQUEST_CANCELLED);
+                httpStream.resetStream(H3_REQUEST_CANCELLED);
+            }
+        });
+    }
+
     private static QuicConnection createQuicConnection(String host, int port, Duration connectTimeout, Http3ConnectionSettings connectionSettings, DatagramSocketFactory datagramSocketFactory, Logger logger) throws SocketException, UnknownHostException {
         QuicClientConnection.Builder builder = QuicClientConnection.newBuilder();
         try {
@@ -200,7 +455,61 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
         return builder.build();
     }
 
-    private void sendRequest(HttpRequest request, QuicStream httpStream) throws IOException {
+    /**
+     * Sends the request; when the request expects a 100 (Continue) response, the request content is only sent after
+     * the 100 (Continue) response is received or the expect continue timeout has passed, and not at all when a final
+     * response is received before that.
+     * @return  the response headers received before the request content was sent (when the request expects a
+     *          100 (Continue) response), or null
+     */
+    private CompletableFuture<HeadersFrame> sendRequest(HttpRequest request, QuicStream httpStream, ResponseFramesSequenceChecker frameSequenceChecker,
+                                                        RequestTimingsRecorder timings) throws IOException {
+        // https://www.rfc-editor.org/rfc/rfc9110.html#name-expect
+        // "A client that sends a 100-continue expectation is not required to wait for any specific length of time;
+        //  such a client MAY proceed to send the content even if it has not yet received a response. Furthermore,
+        //  since 100 (Continue) responses cannot be sent through an HTTP/1.0 intermediary, such a client SHOULD NOT
+        //  wait for an indefinite period before sending the content."
+        boolean expectContinue = request.expectContinue() && request.bodyPublisher().isPresent() && request.bodyPublisher().get().contentLength() != 0;
+        sendRequestHeaders(request, httpStream, expectContinue, timings);
+        if (!expectContinue) {
+            sendRequestBody(request, httpStream);
+            return null;
+        }
+
+        CompletableFuture<HeadersFrame> earlyResponse = new CompletableFuture<>();
+        executorService.execute(() -> {
+            try {
+                earlyResponse.complete(readResponseHeadersFrame(httpStream.getInputStream(), frameSequenceChecker, true));
+            }
+            catch (Exception e) {
+                earlyResponse.completeExceptionally(e);
+            }
+        });
+        try {
+            HeadersFrame headersFrame = earlyResponse.get(expectContinueTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (!isInterimResponse(headersFrame)) {
+                // A final response before the content is sent means the server does not want the content (e.g. 413 or
+                // 401), so the request is terminated without it; the response is still received as usual.
+                httpStream.resetStream(H3_NO_ERROR);
+                return earlyResponse;
+            }
+        }
+        catch (TimeoutException noResponseYet) {
+            // Send content anyway.
+        }
+        catch (ExecutionException readError) {
+            // Will be reported when the response is received.
+            return earlyResponse;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for 100 (Continue) response");
+        }
+        sendRequestBody(request, httpStream);
+        return earlyResponse;
+    }
+
+    private void sendRequestHeaders(HttpRequest request, QuicStream httpStream, boolean expectContinue, RequestTimingsRecorder timings) throws IOException {
         OutputStream requestStream = httpStream.getOutputStream();
 
         // https://www.rfc-editor.org/rfc/rfc9114.html#name-request-pseudo-header-field
@@ -215,12 +524,21 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
                 ":path", extractPath(request.uri())
         );
         HeadersFrame headersFrame = new HeadersFrame(request.headers(), pseudoHeaders);
-        requestStream.write(headersFrame.toBytes(qpackEncoder));
+        if (expectContinue) {
+            // The expect header is restricted, so it cannot be part of the request headers.
+            headersFrame.addPreEncodedHeaders(EXPECT_CONTINUE);
+        }
+        requestStream.write(headersFrame.toBytes(qpackEncoder, httpStream.getStreamId()));
+        timings.record(RequestTimings.Phase.HEADERS_SENT);
+    }
 
+    private void sendRequestBody(HttpRequest request, QuicStream httpStream) throws IOException {
+        OutputStream requestStream = httpStream.getOutputStream();
         if (request.bodyPublisher().isPresent()) {
             Flow.Subscriber<ByteBuffer> subscriber = new Flow.Subscriber<>() {
 
                 private Flow.Subscription subscription;
+                private final byte[] frameHeader = new byte[VariableLengthIntegerUtil.MAX_FRAME_HEADER_LENGTH];
 
                 @Override
                 public void onSubscribe(Flow.Subscription subscription) {
@@ -232,7 +550,8 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
                 public void onNext(ByteBuffer item) {
                     try {
                         DataFrame dataFrame = new DataFrame(item);
-                        dataFrame.writeTo(requestStream);
+                        dataFrame.writeTo(requestStream, frameHeader);
+                        metrics.bytesSent(dataFrame.getDataLength());
                     }
                     catch (IOException e) {
                         // Stop receiving data from publisher.
@@ -263,20 +582,31 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
     }
 
     private <T> void receiveResponse(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, QuicStream httpStream,
-                                     CompletableFuture<HttpResponse<T>> response) throws IOException, MalformedResponseException, HttpError, ConnectionError {
+                                     CompletableFuture<HttpResponse<T>> response, RequestTimingsRecorder timings,
+                                     Runnable requestFinished, ResponseFramesSequenceChecker frameSequenceChecker,
+                                     CompletableFuture<HeadersFrame> earlyResponse) throws IOException, MalformedResponseException, HttpError, ConnectionError {
         InputStream responseStream = httpStream.getInputStream();
-        ResponseFramesSequenceChecker frameSequenceChecker = new ResponseFramesSequenceChecker(httpStream);
 
-        HeadersFrame headersFrame = readHeadersFrame(responseStream, frameSequenceChecker);
+        HeadersFrame headersFrame = earlyResponse != null? awaitHeadersFrame(earlyResponse): null;
+        if (headersFrame == null || isInterimResponse(headersFrame)) {
+            headersFrame = readResponseHeadersFrame(responseStream, frameSequenceChecker, false);
+        }
+        timings.record(RequestTimings.Phase.RESPONSE_HEADERS_RECEIVED);
         HttpResponseInfo responseInfo = new HttpResponseInfo(headersFrame);
 
         HttpResponse.BodySubscriber<T> bodySubscriber = responseBodyHandler.apply(responseInfo);
         if (bodySubscriber == null) {
-            httpStream.abortReading(H3_REQUEST_CANCELLED);
+            abortReading(httpStream, H3_REQUEST_CANCELLED);
             throw new IllegalArgumentException("Body handler returned null body subscriber.");
         }
-        BodySubscriptionHandler bodySubscriptionHandler = new BodySubscriptionHandler(httpStream, frameSequenceChecker, bodySubscriber, responseInfo);
+        BodySubscriptionHandler bodySubscriptionHandler = new BodySubscriptionHandler(httpStream, frameSequenceChecker, bodySubscriber, responseInfo, bodyMemoryBudget, timings, requestFinished);
         bodySubscriber.onSubscribe(bodySubscriptionHandler);
+        bodySubscriptionHandler.startIdleTimer(bodyIdleTimeout);
+        response.whenComplete((r, error) -> {
+            if (response.isCancelled()) {
+                bodySubscriptionHandler.abort();
+            }
+        });
 
         CompletionStage<T> bodyCompletion = bodySubscriber.getBody();
         bodyCompletion.whenComplete((body, error) -> {
@@ -293,12 +623,70 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
         });
     }
 
+    /**
+     * Reads the headers of the final response, skipping interim responses.
+     * @param returnContinue  whether to return a 100 (Continue) response instead of skipping it
+     */
+    private HeadersFrame readResponseHeadersFrame(InputStream responseStream, ResponseFramesSequenceChecker frameSequenceChecker,
+                                                  boolean returnContinue) throws IOException, HttpError, ConnectionError {
+        while (true) {
+            HeadersFrame headersFrame = readHeadersFrame(responseStream, frameSequenceChecker);
+            if (!isInterimResponse(headersFrame)) {
+                return headersFrame;
+            }
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-http-message-framing
+            // "An HTTP response on the same stream as a request consists of: zero or more interim responses (...), one
+            //  final HTTP response"
+            frameSequenceChecker.gotInterimHeader();
+            if (returnContinue && "100".equals(headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_STATUS))) {
+                return headersFrame;
+            }
+        }
+    }
+
+    private static boolean isInterimResponse(HeadersFrame headersFrame) {
+        String status = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_STATUS);
+        return status != null && status.length() == 3 && status.charAt(0) == '1';
+    }
+
+    private HeadersFrame awaitHeadersFrame(CompletableFuture<HeadersFrame> headersFrame) throws IOException, HttpError, ConnectionError {
+        try {
+            return headersFrame.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof HttpError) {
+                throw (HttpError) cause;
+            }
+            else if (cause instanceof ConnectionError) {
+                throw (ConnectionError) cause;
+            }
+            else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
     private HeadersFrame readHeadersFrame(InputStream responseStream, ResponseFramesSequenceChecker frameSequenceChecker) throws IOException, HttpError, ConnectionError {
         try {
-            Http3Frame frame = readFrame(responseStream, maxReceivedHeaderSize, maxReceivedDataSize);
+            Http3Frame frame = readFrame(responseStream, maxReceivedHeaderSize, maxReceivedDataSize, frameSequenceChecker.streamId);
             if (frame == null) {
                 throw new EOFException("end of stream");
             }
+            else if (frame instanceof PushPromiseFrame) {
+                frameSequenceChecker.gotPushPromise((PushPromiseFrame) frame);
+                return readHeadersFrame(responseStream, frameSequenceChecker);
+            }
             else if (frame instanceof HeadersFrame) {
                 frameSequenceChecker.gotHeader();
                 return (HeadersFrame) frame;
@@ -327,16 +715,6 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
         bidirectionalStreamHandler = streamHandler;
     }
     
-    @Override
-    protected void registerStandardStreamHandlers() {
-        super.registerStandardStreamHandlers();
-        unidirectionalStreamHandler.put((long) STREAM_TYPE_PUSH_STREAM, httpStream -> setServerPushStream(httpStream.getInputStream()));
-    }
-
-    private void setServerPushStream(InputStream stream) {
-        serverPushStream = stream;
-    }
-
     private void doAsync(Runnable task) {
         executorService.submit(task);
     }
@@ -368,6 +746,71 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
         quicConnection.setDefaultBidirectionalStreamReceiveBufferSize(receiveBufferSize);
     }
 
+    @Override
+    public void setBodyIdleTimeout(Duration timeout) {
+        bodyIdleTimeout = timeout;
+    }
+
+    /**
+     * Sets the maximum time to wait for a 100 (Continue) response before sending the content of a request that expects
+     * it.
+     * @param timeout  the expect continue timeout
+     */
+    public void setExpectContinueTimeout(Duration timeout) {
+        expectContinueTimeout = Objects.requireNonNull(timeout);
+    }
+
+    @Override
+    public long getAbandonedResponseBodiesCount() {
+        return abandonedResponseBodies.get();
+    }
+
+    /**
+     * Sets the memory budget for buffering response bodies; the budget may be shared with other connections.
+     * @param budget  the memory budget
+     */
+    public void setBodyMemoryBudget(ResponseBodyMemoryBudget budget) {
+        bodyMemoryBudget = Objects.requireNonNull(budget);
+    }
+
+    public void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        metrics = Objects.requireNonNull(metricsRecorder);
+    }
+
+    /**
+     * Sets the action to run (once) when this connection is terminated, or fails to connect.
+     * @param listener  the action to run
+     */
+    public void setTerminationListener(Runnable listener) {
+        terminationListener.set(Objects.requireNonNull(listener));
+    }
+
+    @Override
+    protected void connectionTerminated() {
+        super.connectionTerminated();
+        Runnable listener = terminationListener.getAndSet(null);
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() {
+        return metrics.snapshot(getConnectionStats().smoothedRtt());
+    }
+
+    @Override
+    protected void connectionError(long http3ErrorCode) {
+        metrics.error(http3ErrorCode);
+        super.connectionError(http3ErrorCode);
+    }
+
+    @Override
+    protected void streamError(long http3ErrorCode, QuicStream quicStream) {
+        metrics.error(http3ErrorCode);
+        super.streamError(http3ErrorCode, quicStream);
+    }
+
     @Override
     public Statistics getConnectionStats() {
         return quicConnection.getStats();
@@ -431,10 +874,10 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
 
     private QuicStream createHttpStream(HeadersFrame headersFrame) throws IOException, HttpError {
         QuicStream httpStream = quicConnection.createStream(true);
-        httpStream.getOutputStream().write(headersFrame.toBytes(qpackEncoder));
+        httpStream.getOutputStream().write(headersFrame.toBytes(qpackEncoder, httpStream.getStreamId()));
 
-        Http3Frame responseFrame = readFrame(httpStream.getInputStream());
-        if (responseFrame instanceof HeadersFrame) {
+        Http3Frame responseFrame = readFrame(httpStream.getInputStream(), Long.MAX_VALUE, Long.MAX_VALUE, httpStream.getStreamId());
+        if (responseFrame instanceof HeadersFrame && !(responseFrame instanceof PushPromiseFrame)) {
             HttpResponseInfo responseInfo;
             try {
                 responseInfo = new HttpResponseInfo((HeadersFrame) responseFrame);
@@ -567,9 +1010,27 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
 
         private ResponseStatus status = ResponseStatus.INITIAL;
         private final long streamId;
+        // Null for push streams, which cannot carry push promises.
+        private final PushPromiseReceiver pushPromiseReceiver;
 
-        public ResponseFramesSequenceChecker(QuicStream httpStream) {
+        public ResponseFramesSequenceChecker(QuicStream httpStream, PushPromiseReceiver pushPromiseReceiver) {
             streamId = httpStream.getStreamId();
+            this.pushPromiseReceiver = pushPromiseReceiver;
+        }
+
+        void gotPushPromise(PushPromiseFrame pushPromise) throws ConnectionError {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-push-streams
+            // "A push stream (...) fulfills a promised server push by zero or more interim HTTP responses followed by a
+            //  single final HTTP response" (so, no push promises)
+            if (pushPromiseReceiver == null) {
+                invalidFrameSequence("Push promise frame is not allowed on push stream.");
+            }
+            pushPromiseReceiver.pushPromised(pushPromise);
+        }
+
+        void gotInterimHeader() {
+            // An interim response is followed by another (interim or final) response header.
+            status = ResponseStatus.INITIAL;
         }
 
         void gotHeader() throws ConnectionError {
@@ -635,10 +1096,28 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
         private final DataFramesReader dataFramesReader;
         private final ExecutorService executor;
         private volatile IOException bodyReadException;
+        private volatile boolean disposed;
+        // Only accessed from the executor thread
+        private boolean terminated;
+        // Demand requested by the subscriber that has not yet been satisfied
+        private final AtomicLong outstandingDemand = new AtomicLong();
+        private volatile long lastActivity = System.nanoTime();
+        private volatile ScheduledFuture<?> idleCheck;
+        // Subscribers requesting unbounded demand are assumed to aggregate the body, so delivered bytes count as buffered
+        private volatile boolean unboundedDemand;
+        private final ResponseBodyMemoryBudget memoryBudget;
+        private final RequestTimingsRecorder timings;
+        private final Runnable requestFinished;
+        private final AtomicLong reservedBytes = new AtomicLong();
 
         public BodySubscriptionHandler(QuicStream httpStream, ResponseFramesSequenceChecker frameSequenceChecker,
-                                       HttpResponse.BodySubscriber bodySubscriber, HttpResponseInfo responseInfo) {
+                                       HttpResponse.BodySubscriber bodySubscriber, HttpResponseInfo responseInfo,
+                                       ResponseBodyMemoryBudget memoryBudget, RequestTimingsRecorder timings,
+                                       Runnable requestFinished) {
             this.httpStream = httpStream;
+            this.memoryBudget = memoryBudget;
+            this.timings = timings;
+            this.requestFinished = requestFinished;
             this.frameSequenceChecker = frameSequenceChecker;
             this.bodySubscriber = bodySubscriber;
             this.responseInfo = responseInfo;
@@ -649,52 +1128,149 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
 
         @Override
         public void request(long n) {
-            executor.submit(() -> sendData(n));
+            lastActivity = System.nanoTime();
+            if (n == Long.MAX_VALUE) {
+                unboundedDemand = true;
+            }
+            outstandingDemand.accumulateAndGet(n, (current, added) -> current + added < 0? Long.MAX_VALUE: current + added);
+            if (!disposed) {
+                try {
+                    executor.submit(() -> sendData(n));
+                }
+                catch (RejectedExecutionException alreadyDisposed) {
+                    // Subscription is terminated, so request can be ignored.
+                }
+            }
         }
 
         private void sendData(long n) {
+            if (terminated) {
+                return;
+            }
             try {
                 int bytesRead;
                 do {
                     byte[] buffer = new byte[MAX_DATA_FRAME_READ_CHUNK_SIZE];
                     bytesRead = dataFramesReader.read(buffer);
+                    if (bytesRead > 0 && unboundedDemand && !reserve(bytesRead)) {
+                        // Subscriber would keep the whole body in memory, which does not fit in the budget.
+                        metrics.error(H3_REQUEST_CANCELLED);
+                        abortReading(httpStream, H3_REQUEST_CANCELLED);
+                        throw new IOException("response body exceeds memory budget");
+                    }
                     if (bytesRead > 0) {
                         n--;
+                        outstandingDemand.decrementAndGet();
+                        lastActivity = System.nanoTime();
+                        metrics.bytesReceived(bytesRead);
                         bodySubscriber.onNext(List.of(ByteBuffer.wrap(buffer, 0, bytesRead)));
                     }
-                } while (n > 0 && bytesRead > 0);
+                } while (n > 0 && bytesRead > 0 && !disposed);
 
                 dataFramesReader.checkForConnectionError();
 
                 if (bytesRead < 0) {
                     // End of stream
                     frameSequenceChecker.done();
-                    bodySubscriber.onComplete();
-                    dispose();
+                    timings.record(RequestTimings.Phase.BODY_COMPLETE);
+                    terminate(() -> bodySubscriber.onComplete());
                 }
             }
             catch (IOException e) {
                 bodyReadException = e;
-                bodySubscriber.onError(e);
-                dispose();
+                terminate(() -> bodySubscriber.onError(e));
             }
             catch (ConnectionError e) {
                 connectionError(e.getHttp3ErrorCode());
                 bodyReadException = new EOFException();
-                bodySubscriber.onError(bodyReadException);
-                dispose();
+                terminate(() -> bodySubscriber.onError(bodyReadException));
             }
         }
 
         @Override
         public void cancel() {
-            httpStream.abortReading(H3_REQUEST_CANCELLED);
+            abortReading(httpStream, H3_REQUEST_CANCELLED);
             bodySubscriber.onComplete();
             dispose();
         }
 
+        /**
+         * Aborts the subscription because the request was cancelled by the caller (and not by the body subscriber).
+         * Signals an error to the body subscriber (unless it is already completed) and releases the body reader thread.
+         */
+        void abort() {
+            abort(new IOException("request cancelled"));
+        }
+
+        /**
+         * Starts checking whether the body subscriber is still interested in the response body, i.e. whether it
+         * requests data within the given timeout (when it has no outstanding demand).
+         * @param timeout  the body idle timeout, if null, no check is done
+         */
+        void startIdleTimer(Duration timeout) {
+            if (timeout != null && !disposed) {
+                long timeoutNanos = timeout.toNanos();
+                long checkInterval = Long.max(timeout.toMillis() / 4, 1);
+                idleCheck = IdleTimer.scheduler.scheduleAtFixedRate(() -> checkIdle(timeoutNanos), checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+                if (disposed) {
+                    idleCheck.cancel(false);
+                }
+            }
+        }
+
+        private void checkIdle(long timeoutNanos) {
+            if (!disposed && outstandingDemand.get() <= 0 && System.nanoTime() - lastActivity >= timeoutNanos) {
+                // Subscriber did not request data in time, so it is considered to have abandoned the response body.
+                abandonedResponseBodies.incrementAndGet();
+                metrics.responseBodyAbandoned();
+                metrics.error(H3_REQUEST_CANCELLED);
+                abortReading(httpStream, H3_REQUEST_CANCELLED);
+                abort(new HttpTimeoutException("response body idle timeout"));
+            }
+        }
+
+        private void abort(IOException reason) {
+            try {
+                // Signal on the executor thread to guarantee signals to the subscriber are not concurrent.
+                executor.execute(() -> terminate(() -> bodySubscriber.onError(reason)));
+            }
+            catch (RejectedExecutionException alreadyDisposed) {
+                // Subscription is already terminated, nothing to signal.
+            }
+            dispose();
+        }
+
+        private void terminate(Runnable signal) {
+            if (!terminated) {
+                terminated = true;
+                signal.run();
+            }
+            dispose();
+        }
+
+        private boolean reserve(int count) {
+            if (memoryBudget.tryReserve(reservedBytes.get(), count)) {
+                reservedBytes.addAndGet(count);
+                return true;
+            }
+            return false;
+        }
+
         private void dispose() {
+            disposed = true;
+            requestFinished.run();
+            try {
+                // Release on the executor thread, after any pending read that might still reserve bytes.
+                executor.execute(() -> memoryBudget.release(reservedBytes.getAndSet(0)));
+            }
+            catch (RejectedExecutionException alreadyDisposed) {
+                // Reservation already released (or will be by the first dispose)
+            }
             executor.shutdown();
+            ScheduledFuture<?> check = idleCheck;
+            if (check != null) {
+                check.cancel(false);
+            }
         }
 
         private void handleNonDataFrame(Long frameType, PushbackInputStream inputStream) {
@@ -716,11 +1292,31 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
                     bodySubscriber.onError(bodyReadException);
                 }
             }
+            else if (frameType == FRAME_TYPE_PUSH_PROMISE) {
+                try {
+                    inputStream.unread(FRAME_TYPE_PUSH_PROMISE);
+                    Http3Frame frame = readFrame(inputStream, maxReceivedHeaderSize, maxReceivedDataSize, frameSequenceChecker.streamId);
+                    if (frame == null) {
+                        throw new EOFException("end of stream");
+                    }
+                    frameSequenceChecker.gotPushPromise((PushPromiseFrame) frame);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                catch (ConnectionError e) {
+                    throw new UncheckedConnectionError(e);
+                }
+                catch (HttpError e) {
+                    bodyReadException = new IOException(e);
+                    bodySubscriber.onError(bodyReadException);
+                }
+            }
             else {
                 try {
                     frameSequenceChecker.gotOther(frameType);
                     // If it gets here, the frame can and should be ignored.
-                    long frameLength = VariableLengthInteger.parseLong(inputStream);
+                    long frameLength = VariableLengthIntegerUtil.read(inputStream);
                     inputStream.skip(frameLength);
                 }
                 catch (IOException e) {
@@ -745,4 +1341,13 @@ public class Http3ClientConnectionImpl extends Http3ConnectionImpl implements Ht
             responseInfo.add(headersFrame);
         }
     }
-}
\ No newline at end of file
+
+    private static class IdleTimer {
+        // Lazily created (on first use of a body idle timeout), shared by all connections
+        static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("http3-body-idle-timer"));
+    }
+
+    private interface PushPromiseReceiver {
+        void pushPromised(PushPromiseFrame pushPromise) throws ConnectionError;
+    }
+}
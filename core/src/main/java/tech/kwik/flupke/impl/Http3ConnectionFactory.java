@@ -37,12 +37,27 @@ public class Http3ConnectionFactory {
 
     private final Http3Client http3Client;
     private final Map<UdpAddress, Http3ClientConnection> connections;
+    private final ResponseBodyMemoryBudget bodyMemoryBudget;
+    private final MetricsRegistry metricsRegistry;
     protected ExecutorService executorService;
 
     public Http3ConnectionFactory(Http3Client http3Client, ExecutorService executorService) {
+        this(http3Client, executorService, ResponseBodyMemoryBudget.unlimited(), new MetricsRegistry());
+    }
+
+    /**
+     * @param http3Client  the client the connections are created for
+     * @param executorService  executor used by the connections
+     * @param bodyMemoryBudget  the memory budget for response bodies, shared by all connections created by this factory
+     * @param metricsRegistry  the registry the connections created by this factory record their metrics in
+     */
+    public Http3ConnectionFactory(Http3Client http3Client, ExecutorService executorService, ResponseBodyMemoryBudget bodyMemoryBudget,
+                                  MetricsRegistry metricsRegistry) {
         this.http3Client = http3Client;
         connections = new ConcurrentHashMap<>();
         this.executorService = Objects.requireNonNull(executorService);
+        this.bodyMemoryBudget = Objects.requireNonNull(bodyMemoryBudget);
+        this.metricsRegistry = Objects.requireNonNull(metricsRegistry);
     }
 
     public Http3ClientConnection getConnection(HttpRequest request) throws IOException {
@@ -100,7 +115,7 @@ public class Http3ConnectionFactory {
     }
     
     private Http3ClientConnection createConnection(UdpAddress address) {
-        Http3ClientConnection http3Connection;
+        Http3ClientConnectionImpl http3Connection;
         try {
             Duration connectTimeout = http3Client.connectTimeout().orElse(DEFAULT_CONNECT_TIMEOUT);
             http3Connection = new Http3ClientConnectionImpl(address.host, address.port, connectTimeout, http3Client, http3Client.getDatagramSocketFactory(), executorService, http3Client.getLogger());
@@ -111,6 +126,17 @@ public class Http3ConnectionFactory {
         if (http3Client.receiveBufferSize().isPresent()) {
             http3Connection.setReceiveBufferSize(http3Client.receiveBufferSize().get());
         }
+        if (http3Client.bodyIdleTimeout().isPresent()) {
+            http3Connection.setBodyIdleTimeout(http3Client.bodyIdleTimeout().get());
+        }
+        if (http3Client.expectContinueTimeout().isPresent()) {
+            http3Connection.setExpectContinueTimeout(http3Client.expectContinueTimeout().get());
+        }
+        http3Connection.setBodyMemoryBudget(bodyMemoryBudget);
+        http3Connection.setQpackSettings(http3Client.qpackMaxTableCapacity(), http3Client.qpackBlockedStreams(), http3Client.qpackHuffmanEncoding());
+        String origin = address.host + ":" + address.port;
+        http3Connection.setMetricsRecorder(metricsRegistry.registerConnection(origin, http3Connection));
+        http3Connection.setTerminationListener(() -> metricsRegistry.deregisterConnection(origin, http3Connection));
         return http3Connection;
     }
 
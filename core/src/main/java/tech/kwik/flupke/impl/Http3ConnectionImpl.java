@@ -28,10 +28,12 @@ import tech.kwik.qpack.Decoder;
 import tech.kwik.qpack.Encoder;
 
 import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
+import java.net.ProtocolException;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.List;
@@ -106,31 +108,62 @@ public class Http3ConnectionImpl implements Http3Connection {
     protected int peerQpackBlockedStreams;
     protected int peerQpackMaxTableCapacity;
     protected Map<Long, Consumer<HttpStream>> unidirectionalStreamHandler = new HashMap<>();
-    protected final Decoder qpackDecoder;
+    protected Decoder qpackDecoder;
     protected final Map<Long, Long> settingsParameters;
     protected final Map<Long, Long> peerSettingsParameters;
     protected final CountDownLatch settingsFrameReceived;
-    private final List<Long> internalSettingsParameterIds = List.of(
+    private static final List<Long> internalSettingsParameterIds = List.of(
             (long) QPACK_MAX_TABLE_CAPACITY,
             (long) QPACK_BLOCKED_STREAMS,
             (long) SETTINGS_ENABLE_CONNECT_PROTOCOL
     );
     protected Encoder qpackEncoder;
+    // Guarded by itself; null until the control stream is started.
+    private OutputStream controlStreamOutput;
+    private final Object controlStreamLock = new Object();
 
 
     public Http3ConnectionImpl(QuicConnection quicConnection) {
+        this(quicConnection, 0, 0, true);
+    }
+
+    protected Http3ConnectionImpl(QuicConnection quicConnection, long qpackMaxTableCapacity, int qpackBlockedStreams, boolean qpackHuffmanEncoding) {
         this.quicConnection = quicConnection;
-        qpackDecoder = Decoder.newBuilder().build();
         settingsParameters = new HashMap<>();
-        settingsParameters.put((long) QPACK_MAX_TABLE_CAPACITY, 0L);
-        settingsParameters.put((long) QPACK_BLOCKED_STREAMS, 0L);
-
         peerSettingsParameters = new HashMap<>();
 
         settingsFrameReceived = new CountDownLatch(1);
 
         registerStandardStreamHandlers();
-        qpackEncoder = Encoder.newBuilder().build();
+        setQpackSettings(qpackMaxTableCapacity, qpackBlockedStreams, qpackHuffmanEncoding);
+        quicConnection.setConnectionListener(event -> connectionTerminated());
+    }
+
+    /**
+     * Called when the QUIC connection is terminated.
+     */
+    protected void connectionTerminated() {
+        if (qpackDecoder instanceof QpackDecoder) {
+            ((QpackDecoder) qpackDecoder).close();
+        }
+    }
+
+    /**
+     * Sets the QPACK dynamic table parameters; must be called before the SETTINGS frame is sent.
+     * @param maxTableCapacity  the maximum capacity of the dynamic table; this value is announced to the peer (so it
+     *                          limits the table used by the peer's encoder) and also limits the capacity used by the
+     *                          local encoder. When 0, the dynamic table is not used at all.
+     * @param blockedStreams  the maximum number of streams that can be blocked waiting for dynamic table updates
+     * @param huffmanEncoding  whether the encoder uses Huffman encoding for string literals (when that is shorter)
+     */
+    public void setQpackSettings(long maxTableCapacity, int blockedStreams, boolean huffmanEncoding) {
+        if (maxTableCapacity < 0 || blockedStreams < 0) {
+            throw new IllegalArgumentException("QPACK settings must not be negative");
+        }
+        settingsParameters.put((long) QPACK_MAX_TABLE_CAPACITY, maxTableCapacity);
+        settingsParameters.put((long) QPACK_BLOCKED_STREAMS, (long) blockedStreams);
+        qpackDecoder = new QpackDecoder(maxTableCapacity, blockedStreams, new LazyUnidirectionalStream(STREAM_TYPE_QPACK_DECODER));
+        qpackEncoder = new QpackEncoder(maxTableCapacity, huffmanEncoding, new LazyUnidirectionalStream(STREAM_TYPE_QPACK_ENCODER));
     }
 
     @Override
@@ -231,9 +264,9 @@ public class Http3ConnectionImpl implements Http3Connection {
         // "[QPACK] defines two additional stream types. Other stream types can be defined by extensions to HTTP/3;..."
         // https://www.rfc-editor.org/rfc/rfc9204.html#name-encoder-and-decoder-streams
         // "An encoder stream is a unidirectional stream of type 0x02."
-        unidirectionalStreamHandler.put((long) STREAM_TYPE_QPACK_ENCODER, httpStream -> setPeerEncoderStream(httpStream.getInputStream()));
-
-        unidirectionalStreamHandler.put((long) STREAM_TYPE_QPACK_DECODER, httpStream -> {});
+        unidirectionalStreamHandler.put((long) STREAM_TYPE_QPACK_ENCODER, httpStream -> processPeerEncoderStream(httpStream.getInputStream()));
+        // "A decoder stream is a unidirectional stream of type 0x03."
+        unidirectionalStreamHandler.put((long) STREAM_TYPE_QPACK_DECODER, httpStream -> processPeerDecoderStream(httpStream.getInputStream()));
     }
 
     protected void handleUnidirectionalStream(QuicStream quicStream) {
@@ -243,7 +276,7 @@ public class Http3ConnectionImpl implements Http3Connection {
         // "Unidirectional streams, in either direction, are used for a range of purposes. The purpose is indicated by
         //  a stream type, which is sent as a variable-length integer at the start of the stream."
         try {
-            streamType = VariableLengthInteger.parseLong(stream);
+            streamType = VariableLengthIntegerUtil.read(stream);
         }
         catch (IOException ioError) {
             // https://www.rfc-editor.org/rfc/rfc9114.html#name-unidirectional-streams
@@ -251,6 +284,10 @@ public class Http3ConnectionImpl implements Http3Connection {
             //  unidirectional stream header."
             return;
         }
+        if (streamType == STREAM_TYPE_PUSH_STREAM) {
+            handlePushStream(quicStream);
+            return;
+        }
         Consumer<HttpStream> streamHandler = unidirectionalStreamHandler.get(streamType);
         if (streamHandler != null) {
             streamHandler.accept(wrap(quicStream));
@@ -310,12 +347,15 @@ public class Http3ConnectionImpl implements Http3Connection {
             //  frame as the first frame on this stream."
             QuicStream clientControlStream = quicConnection.createStream(false);
             OutputStream clientControlOutput = clientControlStream.getOutputStream();
-            clientControlOutput.write(STREAM_TYPE_CONTROL_STREAM);
-
-            SettingsFrame settingsFrame = new SettingsFrame();
-            settingsFrame.addParameters(settingsParameters);
-            ByteBuffer serializedSettings = settingsFrame.getBytes();
-            clientControlStream.getOutputStream().write(serializedSettings.array(), 0, serializedSettings.limit());
+            synchronized (controlStreamLock) {
+                clientControlOutput.write(STREAM_TYPE_CONTROL_STREAM);
+
+                SettingsFrame settingsFrame = new SettingsFrame();
+                settingsFrame.addParameters(settingsParameters);
+                ByteBuffer serializedSettings = settingsFrame.getBytes();
+                clientControlOutput.write(serializedSettings.array(), 0, serializedSettings.limit());
+                controlStreamOutput = clientControlOutput;
+            }
             // https://www.rfc-editor.org/rfc/rfc9114.html#name-control-streams
             // "The sender MUST NOT close the control stream, and the receiver MUST NOT request that the sender close
             //  the control stream."
@@ -329,12 +369,31 @@ public class Http3ConnectionImpl implements Http3Connection {
         }
     }
 
+    /**
+     * Sends the given (serialized) frame on the control stream.
+     */
+    protected void sendControlFrame(byte[] frame) {
+        synchronized (controlStreamLock) {
+            if (controlStreamOutput == null) {
+                throw new IllegalStateException("control stream not started");
+            }
+            try {
+                controlStreamOutput.write(frame);
+            }
+            catch (IOException e) {
+                // "If either control stream is closed at any point, this MUST be treated as a connection error of
+                //  type H3_CLOSED_CRITICAL_STREAM."
+                connectionError(H3_CLOSED_CRITICAL_STREAM);
+            }
+        }
+    }
+
     protected void processControlStream(InputStream controlStream) {
         try {
             // https://www.rfc-editor.org/rfc/rfc9114.html#name-control-streams
             // "Each side MUST initiate a single control stream at the beginning of the connection and send its SETTINGS
             //  frame as the first frame on this stream."
-            long frameType = VariableLengthInteger.parseLong(controlStream);
+            long frameType = VariableLengthIntegerUtil.read(controlStream);
             // "If the first frame of the control stream is any other frame type, this MUST be treated as a connection error
             //  of type H3_MISSING_SETTINGS."
             if (frameType != (long) FRAME_TYPE_SETTINGS) {
@@ -347,12 +406,136 @@ public class Http3ConnectionImpl implements Http3Connection {
             peerQpackMaxTableCapacity = settingsFrame.getQpackMaxTableCapacity();
             peerQpackBlockedStreams = settingsFrame.getQpackBlockedStreams();
             peerSettingsParameters.putAll(settingsFrame.getAllParameters());
+            if (qpackEncoder instanceof QpackEncoder) {
+                ((QpackEncoder) qpackEncoder).setPeerSettings(peerQpackMaxTableCapacity, peerQpackBlockedStreams);
+            }
             settingsFrameReceived.countDown();
         }
         catch (IOException e) {
             // "If either control stream is closed at any point, this MUST be treated as a connection error of type
             //  H3_CLOSED_CRITICAL_STREAM."
             connectionError(H3_CLOSED_CRITICAL_STREAM);
+            return;
+        }
+        processControlFrames(controlStream);
+    }
+
+    /**
+     * Processes the frames that follow the SETTINGS frame on the peer's control stream, until the stream ends.
+     */
+    private void processControlFrames(InputStream controlStream) {
+        while (true) {
+            long frameType;
+            long frameLength;
+            try {
+                frameType = VariableLengthIntegerUtil.read(controlStream);
+                frameLength = VariableLengthIntegerUtil.read(controlStream);
+            }
+            catch (IOException e) {
+                // The control stream is closed or reset, which (in practice) only happens when the connection is
+                // closed, so there is no point in signalling a connection error.
+                return;
+            }
+            try {
+                // Frame type is a 62-bit integer, so it is compared as a long: casting it to an int could turn a
+                // reserved (grease) frame type into a known one.
+                if (frameType == FRAME_TYPE_CANCEL_PUSH) {
+                    handleCancelPush(new CancelPushFrame().parsePayload(readPushIdPayload(controlStream, frameLength)).getPushId());
+                }
+                else if (frameType == FRAME_TYPE_MAX_PUSH_ID) {
+                    handleMaxPushId(new MaxPushIdFrame().parsePayload(readPushIdPayload(controlStream, frameLength)).getPushId());
+                }
+                else if (frameType == FRAME_TYPE_SETTINGS || frameType == FRAME_TYPE_DATA || frameType == FRAME_TYPE_HEADERS
+                        || frameType == FRAME_TYPE_PUSH_PROMISE || isReservedHttp2FrameType(frameType)) {
+                    // https://www.rfc-editor.org/rfc/rfc9114.html#name-settings
+                    // "If an endpoint receives a second SETTINGS frame on the control stream, the endpoint MUST
+                    //  respond with a connection error of type H3_FRAME_UNEXPECTED."
+                    // https://www.rfc-editor.org/rfc/rfc9114.html#name-frame-definitions
+                    // "If a DATA frame is received on a control stream, the recipient MUST respond with a
+                    //  connection error of type H3_FRAME_UNEXPECTED." (and likewise for HEADERS and PUSH_PROMISE)
+                    connectionError(H3_FRAME_UNEXPECTED);
+                    return;
+                }
+                else {
+                    // GOAWAY is not (yet) acted upon; unknown frame types must be ignored.
+                    skipExact(controlStream, frameLength);
+                }
+            }
+            catch (ProtocolException invalidPayload) {
+                // https://www.rfc-editor.org/rfc/rfc9114.html#name-frame-definitions
+                // "If an endpoint receives a frame ... with a length that does not match, it MUST treat this as a
+                //  connection error of type H3_FRAME_ERROR."
+                connectionError(H3_FRAME_ERROR);
+                return;
+            }
+            catch (ConnectionError error) {
+                connectionError(error.getHttp3ErrorCode());
+                return;
+            }
+            catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // https://www.rfc-editor.org/rfc/rfc9114.html#name-reserved-frame-types
+    // "Frame types that were used in HTTP/2 where there is no corresponding HTTP/3 frame have also been reserved
+    //  (Section 11.2.1). These frame types MUST NOT be sent, and their receipt MUST be treated as a connection error
+    //  of type H3_FRAME_UNEXPECTED."
+    static boolean isReservedHttp2FrameType(long frameType) {
+        return frameType == 0x02 || frameType == 0x06 || frameType == 0x08 || frameType == 0x09;
+    }
+
+    /**
+     * Handles a CANCEL_PUSH frame received on the control stream.
+     * @param pushId  the push ID of the push that is cancelled
+     * @throws ConnectionError  when the frame is not valid for this connection
+     */
+    protected void handleCancelPush(long pushId) throws ConnectionError {
+    }
+
+    /**
+     * Handles a MAX_PUSH_ID frame received on the control stream.
+     * @param pushId  the maximum push ID the peer allows
+     * @throws ConnectionError  when the frame is not valid for this connection
+     */
+    protected void handleMaxPushId(long pushId) throws ConnectionError {
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-max_push_id
+        // "The MAX_PUSH_ID frame is always sent on the control stream. Receipt of a MAX_PUSH_ID frame on any other
+        //  stream MUST be treated as a connection error of type H3_FRAME_UNEXPECTED."
+        // "A server MUST NOT send a MAX_PUSH_ID frame. A client MUST treat the receipt of a MAX_PUSH_ID frame as a
+        //  connection error of type H3_FRAME_UNEXPECTED."
+        throw new ConnectionError(H3_FRAME_UNEXPECTED);
+    }
+
+    /**
+     * Handles a push stream opened by the peer; the stream type has already been read from the stream.
+     */
+    protected void handlePushStream(QuicStream quicStream) {
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-push-streams
+        // "Only servers can push; if a server receives a client-initiated push stream, this MUST be treated as a
+        //  connection error of type H3_STREAM_CREATION_ERROR."
+        connectionError(H3_STREAM_CREATION_ERROR);
+    }
+
+    private byte[] readPushIdPayload(InputStream inputStream, long frameLength) throws IOException {
+        // Payload is a single variable-length integer, which is never longer than 8 bytes.
+        if (frameLength > 8) {
+            throw new ProtocolException("invalid frame length");
+        }
+        return readExact(inputStream, (int) frameLength);
+    }
+
+    private void skipExact(InputStream inputStream, long length) throws IOException {
+        while (length > 0) {
+            long skipped = inputStream.skip(length);
+            if (skipped <= 0) {
+                if (inputStream.read() < 0) {
+                    throw new EOFException("Stream closed by peer");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
         }
     }
 
@@ -360,6 +543,35 @@ public class Http3ConnectionImpl implements Http3Connection {
         peerEncoderStream = stream;
     }
 
+    protected void processPeerEncoderStream(InputStream stream) {
+        setPeerEncoderStream(stream);
+        if (qpackDecoder instanceof QpackDecoder) {
+            try {
+                ((QpackDecoder) qpackDecoder).processEncoderStream(stream);
+            }
+            catch (QpackException qpackError) {
+                connectionError(qpackError.getErrorCode());
+            }
+            catch (IOException e) {
+                // Stream (or connection) is closed, nothing to process anymore.
+            }
+        }
+    }
+
+    protected void processPeerDecoderStream(InputStream stream) {
+        if (qpackEncoder instanceof QpackEncoder) {
+            try {
+                ((QpackEncoder) qpackEncoder).processDecoderStream(stream);
+            }
+            catch (QpackException qpackError) {
+                connectionError(qpackError.getErrorCode());
+            }
+            catch (IOException e) {
+                // Stream (or connection) is closed, nothing to process anymore.
+            }
+        }
+    }
+
     protected Http3Frame readFrame(InputStream input) throws IOException, HttpError {
         return readFrame(input, Long.MAX_VALUE, Long.MAX_VALUE);
     }
@@ -373,6 +585,15 @@ public class Http3ConnectionImpl implements Http3Connection {
      * @throws IOException
      */
     protected Http3Frame readFrame(InputStream input, long maxHeadersSize, long maxDataSize) throws IOException, HttpError {
+        return readFrame(input, maxHeadersSize, maxDataSize, -1);
+    }
+
+    /**
+     * Reads one HTTP3 frame from the given input stream (if any).
+     * @param streamId the id of the stream the input is read from, needed for acknowledging header sections that
+     *                 use the QPACK dynamic table.
+     */
+    protected Http3Frame readFrame(InputStream input, long maxHeadersSize, long maxDataSize, long streamId) throws IOException, HttpError {
         // PushbackInputStream only buffers the unread bytes, so it's safe to use it as a temporary wrapper for the input stream.
         PushbackInputStream inputStream = new PushbackInputStream(input, 1);
         int firstByte = inputStream.read();
@@ -381,16 +602,36 @@ public class Http3ConnectionImpl implements Http3Connection {
         }
         inputStream.unread(firstByte);
 
-        long frameType = VariableLengthInteger.parseLong(inputStream);
+        long frameType = VariableLengthIntegerUtil.read(inputStream);
         int payloadLength = VariableLengthInteger.parse(inputStream);
 
+        Http3Frame frame;
+        try {
+            frame = readFramePayload(inputStream, frameType, payloadLength, maxHeadersSize, maxDataSize, streamId);
+        }
+        catch (QpackException qpackError) {
+            // A field section that cannot be decoded is a connection error of type QPACK_DECOMPRESSION_FAILED, see
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-error-handling
+            connectionError(qpackError.getErrorCode());
+            throw qpackError;
+        }
+        return frame;
+    }
+
+    private Http3Frame readFramePayload(PushbackInputStream inputStream, long frameType, int payloadLength, long maxHeadersSize,
+                                        long maxDataSize, long streamId) throws IOException, HttpError {
+        if (frameType > Integer.MAX_VALUE) {
+            // Not a known frame type; the value must not be cast to an int, as that could turn it into a known type.
+            inputStream.skip(payloadLength);
+            return new UnknownFrame();
+        }
         Http3Frame frame;
         switch ((int) frameType) {
             case FRAME_TYPE_HEADERS:
                 if (payloadLength > maxHeadersSize) {
                     throw new HttpError("max header size exceeded", 414);
                 }
-                frame = new HeadersFrame().parsePayload(readExact(inputStream, payloadLength), qpackDecoder);
+                frame = new HeadersFrame().parsePayload(readExact(inputStream, payloadLength), qpackDecoder, streamId);
                 break;
             case FRAME_TYPE_DATA:
                 if (payloadLength > maxDataSize) {
@@ -401,10 +642,19 @@ public class Http3ConnectionImpl implements Http3Connection {
             case FRAME_TYPE_SETTINGS:
                 frame = new SettingsFrame().parsePayload(ByteBuffer.wrap(readExact(inputStream, payloadLength)));
                 break;
-            case FRAME_TYPE_GOAWAY:
+            case FRAME_TYPE_PUSH_PROMISE:
+                if (payloadLength > maxHeadersSize) {
+                    throw new HttpError("max header size exceeded", 414);
+                }
+                frame = new PushPromiseFrame().parsePayload(readExact(inputStream, payloadLength), qpackDecoder, streamId);
+                break;
             case FRAME_TYPE_CANCEL_PUSH:
+                frame = new CancelPushFrame().parsePayload(readExact(inputStream, payloadLength));
+                break;
             case FRAME_TYPE_MAX_PUSH_ID:
-            case FRAME_TYPE_PUSH_PROMISE:
+                frame = new MaxPushIdFrame().parsePayload(readExact(inputStream, payloadLength));
+                break;
+            case FRAME_TYPE_GOAWAY:
                 throw new NotYetImplementedException("Frame type " + frameType + " not yet implemented");
             default:
                 // https://www.rfc-editor.org/rfc/rfc9114.html#extensions
@@ -416,6 +666,19 @@ public class Http3ConnectionImpl implements Http3Connection {
         return frame;
     }
 
+    /**
+     * Stops reading from the given stream. As the peer's encoder may still hold references to the dynamic table for
+     * field sections on this stream, the QPACK decoder cancels the stream.
+     * @param quicStream  the stream to stop reading from
+     * @param http3ErrorCode  the error code to send to the peer
+     */
+    protected void abortReading(QuicStream quicStream, long http3ErrorCode) {
+        quicStream.abortReading(http3ErrorCode);
+        if (qpackDecoder instanceof QpackDecoder) {
+            ((QpackDecoder) qpackDecoder).cancelStream(quicStream.getStreamId());
+        }
+    }
+
     protected void connectionError(long http3ErrorCode) {
         // https://www.rfc-editor.org/rfc/rfc9114.html#name-error-handling
         // "If an entire connection needs to be terminated, QUIC similarly provides mechanisms to communicate a reason;
@@ -441,6 +704,46 @@ public class Http3ConnectionImpl implements Http3Connection {
         return data;
     }
 
+    /**
+     * Unidirectional stream that is only opened when it is written to, used for the QPACK encoder and decoder streams
+     * that are only needed when the dynamic table is used.
+     */
+    private class LazyUnidirectionalStream extends OutputStream {
+
+        private final int streamType;
+        private OutputStream output;
+
+        LazyUnidirectionalStream(int streamType) {
+            this.streamType = streamType;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            open().write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            open().write(b, off, len);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (output != null) {
+                output.flush();
+            }
+        }
+
+        private OutputStream open() throws IOException {
+            if (output == null) {
+                OutputStream streamOutput = quicConnection.createStream(false).getOutputStream();
+                streamOutput.write(streamType);
+                output = streamOutput;
+            }
+            return output;
+        }
+    }
+
     protected void handleIncomingStream(QuicStream quicStream) {
         if (quicStream.isUnidirectional()) {
             handleUnidirectionalStream(quicStream);
@@ -470,6 +773,9 @@ public class Http3ConnectionImpl implements Http3Connection {
         private final QuicStream quicStream;
         private final OutputStream outputStream;
         private final InputStream inputStream;
+        private final byte[] frameHeader = new byte[VariableLengthIntegerUtil.MAX_FRAME_HEADER_LENGTH];
+        private byte[] readScratch;
+        private byte[] writeScratch;
 
         public HttpStreamImpl(QuicStream quicStream) {
             this.quicStream = quicStream;
@@ -477,18 +783,19 @@ public class Http3ConnectionImpl implements Http3Connection {
             outputStream = new OutputStream() {
                 @Override
                 public void write(int b) throws IOException {
-                    new DataFrame(new byte[] { (byte) b }).writeTo(quicStream.getOutputStream());
+                    VariableLengthIntegerUtil.writeFrameHeader(FRAME_TYPE_DATA, 1, quicStream.getOutputStream(), frameHeader);
+                    quicStream.getOutputStream().write(b);
                 }
 
                 @Override
                 public void write(byte[] b) throws IOException {
-                    new DataFrame(b).writeTo(quicStream.getOutputStream());
+                    write(b, 0, b.length);
                 }
 
                 @Override
                 public void write(byte[] b, int off, int len) throws IOException {
-                    ByteBuffer data = ByteBuffer.wrap(b, off, len);
-                    new DataFrame(data).writeTo(quicStream.getOutputStream());
+                    VariableLengthIntegerUtil.writeFrameHeader(FRAME_TYPE_DATA, len, quicStream.getOutputStream(), frameHeader);
+                    quicStream.getOutputStream().write(b, off, len);
                 }
 
                 @Override
@@ -502,81 +809,30 @@ public class Http3ConnectionImpl implements Http3Connection {
                 }
             };
 
-            inputStream = new InputStream() {
-
-                private ByteBuffer dataBuffer;
-
-                @Override
-                public int available() throws IOException {
-                    if (checkData()) {
-                        return dataBuffer.remaining();
-                    }
-                    else {
-                        return 0;
-                    }
-                }
-
+            // DATA frame payloads are consumed incrementally, so memory use does not depend on the size of the frames.
+            DataFramesReader dataFramesReader = new DataFramesReader(quicStream.getInputStream(), Long.MAX_VALUE);
+            inputStream = new FilterInputStream(dataFramesReader) {
                 @Override
                 public int read() throws IOException {
-                    if (checkData()) {
-                        return dataBuffer.get();
-                    }
-                    else {
-                        return -1;
-                    }
-                }
-
-                @Override
-                public int read(byte[] b) throws IOException {
-                    if (checkData()) {
-                        int count = Integer.min(dataBuffer.remaining(), b.length);
-                        dataBuffer.get(b, 0, count);
-                        return count;
-                    }
-                    else {
-                        return -1;
-                    }
+                    return checkEnd(super.read());
                 }
 
                 @Override
                 public int read(byte[] b, int off, int len) throws IOException {
-                    if (checkData()) {
-                        int count = Integer.min(dataBuffer.remaining(), len);
-                        dataBuffer.get(b, off, count);
-                        return count;
-                    }
-                    else {
-                        return -1;
-                    }
-
-                }
-
-                private boolean checkData() throws IOException {
-                    if (dataBuffer == null || dataBuffer.position() == dataBuffer.limit()) {
-                        return readData();
-                    }
-                    else {
-                        return dataBuffer.position() < dataBuffer.limit();
-                    }
+                    return checkEnd(super.read(b, off, len));
                 }
 
-                private boolean readData() throws IOException {
-                    Http3Frame frame = null;
-                    try {
-                        frame = readFrame(quicStream.getInputStream());
-                    }
-                    catch (HttpError e) {
-                        throw new IOException(e);
-                    }
-                    if (frame instanceof DataFrame) {
-                        dataBuffer = ByteBuffer.wrap(((DataFrame) frame).getPayload());
-                        return true;
+                private int checkEnd(int result) throws IOException {
+                    if (result == -1) {
+                        try {
+                            dataFramesReader.checkForConnectionError();
+                        }
+                        catch (ConnectionError error) {
+                            connectionError(error.getHttp3ErrorCode());
+                            throw new IOException(error);
+                        }
                     }
-                    else if (frame == null) {
-                        // End of stream
-                        return false;
-                    }
-                    return false;
+                    return result;
                 }
             };
         }
@@ -589,6 +845,33 @@ public class Http3ConnectionImpl implements Http3Connection {
             return inputStream;
         }
 
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            if (!buffer.hasArray() && readScratch == null) {
+                readScratch = new byte[ByteBufferStreams.SCRATCH_SIZE];
+            }
+            return ByteBufferStreams.read(inputStream, buffer, readScratch);
+        }
+
+        /**
+         * Writes the remaining bytes of all given buffers in one DATA frame.
+         */
+        @Override
+        public long write(ByteBuffer[] buffers) throws IOException {
+            long total = ByteBufferStreams.remaining(buffers);
+            if (total == 0) {
+                return 0;
+            }
+            for (ByteBuffer buffer : buffers) {
+                if (!buffer.hasArray() && writeScratch == null) {
+                    writeScratch = new byte[ByteBufferStreams.SCRATCH_SIZE];
+                }
+            }
+            OutputStream output = quicStream.getOutputStream();
+            VariableLengthIntegerUtil.writeFrameHeader(FRAME_TYPE_DATA, total, output, frameHeader);
+            return ByteBufferStreams.write(output, buffers, writeScratch);
+        }
+
         @Override
         public long getStreamId() {
             return quicStream.getStreamId();
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.flupke.HttpError;
+
+import java.nio.ByteBuffer;
+
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_CANCEL_PUSH;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_DATA;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_GOAWAY;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_HEADERS;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_MAX_PUSH_ID;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_PUSH_PROMISE;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_SETTINGS;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_EXCESSIVE_LOAD;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_FRAME_ERROR;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_FRAME_UNEXPECTED;
+
+/**
+ * Incremental decoder for the sequence of HTTP/3 frames on a stream. Input is pushed in buffers of arbitrary size,
+ * as it arrives; frames can be split over any number of buffers. The decoder never blocks: it consumes all input it
+ * is given and reports frames to its listener as soon as they are complete. DATA frame payloads are not buffered, but
+ * passed on in slices of the input.
+ * The decoder is not thread safe; input of one stream must be pushed sequentially.
+ */
+public class Http3FrameDecoder {
+
+    // Maximum payload size for frames other than HEADERS, PUSH_PROMISE and DATA; these frames are small by nature.
+    public static final int MAX_CONTROL_FRAME_SIZE = 16 * 1024;
+
+    public interface Listener {
+
+        /**
+         * Called when a HEADERS frame is received completely.
+         * @param payload  the encoded field section
+         */
+        void headersFrame(byte[] payload) throws ConnectionError;
+
+        /**
+         * Called when the header of a DATA frame is received; the payload (if not empty) is passed to data() in one
+         * or more slices.
+         */
+        default void dataFrameStart(long payloadLength) throws ConnectionError {}
+
+        /**
+         * Called with (part of) the payload of a DATA frame. The buffer shares its content with the input and is only
+         * valid during the call.
+         */
+        void data(ByteBuffer payload) throws ConnectionError;
+
+        /**
+         * Called when a frame of one of the other known types (e.g. SETTINGS or GOAWAY) is received completely.
+         */
+        default void frame(long frameType, byte[] payload) throws ConnectionError {}
+
+        /**
+         * Called when a frame of an unknown type is received; its payload is skipped.
+         */
+        default void unknownFrame(long frameType, long payloadLength) {}
+    }
+
+    private enum State {
+        FRAME_TYPE,
+        FRAME_LENGTH,
+        BUFFERED_PAYLOAD,
+        DATA_PAYLOAD,
+        SKIPPED_PAYLOAD
+    }
+
+    private final Listener listener;
+    private final long maxHeadersSize;
+    private final byte[] varIntBytes;
+    private int varIntRead;
+    private State state;
+    private long frameType;
+    private long remaining;
+    private byte[] payload;
+
+    /**
+     * @param listener  the listener that is notified of the decoded frames
+     * @param maxHeadersSize  maximum payload size of a HEADERS or PUSH_PROMISE frame
+     */
+    public Http3FrameDecoder(Listener listener, long maxHeadersSize) {
+        this.listener = listener;
+        this.maxHeadersSize = maxHeadersSize;
+        varIntBytes = new byte[VariableLengthIntegerUtil.MAX_LENGTH];
+        state = State.FRAME_TYPE;
+    }
+
+    /**
+     * Decodes the given input; all remaining bytes of the buffer are consumed.
+     * @throws ConnectionError  when the input contains a frame that is not allowed or malformed
+     * @throws HttpError  when a HEADERS or PUSH_PROMISE frame exceeds the maximum headers size
+     */
+    public void decode(ByteBuffer input) throws ConnectionError, HttpError {
+        while (input.hasRemaining()) {
+            switch (state) {
+                case FRAME_TYPE:
+                    frameType = readVarInt(input);
+                    if (frameType != VariableLengthIntegerUtil.INCOMPLETE) {
+                        state = State.FRAME_LENGTH;
+                    }
+                    break;
+                case FRAME_LENGTH:
+                    long length = readVarInt(input);
+                    if (length != VariableLengthIntegerUtil.INCOMPLETE) {
+                        startFrame(length);
+                    }
+                    break;
+                case BUFFERED_PAYLOAD:
+                    int count = (int) Long.min(remaining, input.remaining());
+                    input.get(payload, payload.length - (int) remaining, count);
+                    remaining -= count;
+                    if (remaining == 0) {
+                        completeBufferedFrame();
+                    }
+                    break;
+                case DATA_PAYLOAD:
+                    int sliceLength = (int) Long.min(remaining, input.remaining());
+                    ByteBuffer slice = input.slice();
+                    slice.limit(sliceLength);
+                    input.position(input.position() + sliceLength);
+                    remaining -= sliceLength;
+                    if (remaining == 0) {
+                        state = State.FRAME_TYPE;
+                    }
+                    listener.data(slice);
+                    break;
+                case SKIPPED_PAYLOAD:
+                    int skipped = (int) Long.min(remaining, input.remaining());
+                    input.position(input.position() + skipped);
+                    remaining -= skipped;
+                    if (remaining == 0) {
+                        state = State.FRAME_TYPE;
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Signals the end of the input.
+     * @throws ConnectionError  when the input ends within a frame
+     */
+    public void endOfInput() throws ConnectionError {
+        if (!isAtFrameBoundary()) {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#section-7.1
+            // "A frame payload that contains additional bytes after the identified fields or a frame payload that
+            //  terminates before the end of the identified fields MUST be treated as a connection error of type
+            //  H3_FRAME_ERROR."
+            throw new ConnectionError(H3_FRAME_ERROR);
+        }
+    }
+
+    /**
+     * Returns whether all input pushed so far consists of complete frames.
+     */
+    public boolean isAtFrameBoundary() {
+        return state == State.FRAME_TYPE && varIntRead == 0;
+    }
+
+    private void startFrame(long length) throws ConnectionError, HttpError {
+        remaining = length;
+        if (frameType == FRAME_TYPE_DATA) {
+            state = length > 0? State.DATA_PAYLOAD: State.FRAME_TYPE;
+            listener.dataFrameStart(length);
+        }
+        else if (frameType == FRAME_TYPE_HEADERS || frameType == FRAME_TYPE_PUSH_PROMISE) {
+            // Like a HEADERS frame, a PUSH_PROMISE frame carries a field section, so it can be just as large.
+            if (length > maxHeadersSize) {
+                throw new HttpError("max header size exceeded", 431);
+            }
+            startBufferedPayload(length);
+        }
+        else if (isKnownControlFrame(frameType)) {
+            if (length > MAX_CONTROL_FRAME_SIZE) {
+                throw new ConnectionError(H3_EXCESSIVE_LOAD);
+            }
+            startBufferedPayload(length);
+        }
+        else if (isReservedHttp2FrameType(frameType)) {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-reserved-frame-types
+            // "Frame types that were used in HTTP/2 where there is no corresponding HTTP/3 frame have also been
+            //  reserved (Section 11.2.1). These frame types MUST NOT be sent, and their receipt MUST be treated as a connection error of
+            //  type H3_FRAME_UNEXPECTED."
+            throw new ConnectionError(H3_FRAME_UNEXPECTED);
+        }
+        else {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#extensions
+            // "Implementations MUST ignore unknown or unsupported values in all extensible protocol elements."
+            state = length > 0? State.SKIPPED_PAYLOAD: State.FRAME_TYPE;
+            listener.unknownFrame(frameType, length);
+        }
+    }
+
+    private void startBufferedPayload(long length) throws ConnectionError {
+        payload = new byte[(int) length];
+        state = State.BUFFERED_PAYLOAD;
+        if (length == 0) {
+            completeBufferedFrame();
+        }
+    }
+
+    private void completeBufferedFrame() throws ConnectionError {
+        byte[] framePayload = payload;
+        payload = null;
+        state = State.FRAME_TYPE;
+        if (frameType == FRAME_TYPE_HEADERS) {
+            listener.headersFrame(framePayload);
+        }
+        else {
+            listener.frame(frameType, framePayload);
+        }
+    }
+
+    private long readVarInt(ByteBuffer input) {
+        if (varIntRead == 0) {
+            long value = VariableLengthIntegerUtil.decode(input);
+            if (value != VariableLengthIntegerUtil.INCOMPLETE) {
+                return value;
+            }
+        }
+        // Integer is split over multiple input buffers.
+        while (input.hasRemaining()) {
+            varIntBytes[varIntRead++] = input.get();
+            if (varIntRead == VariableLengthIntegerUtil.encodedLength(varIntBytes[0])) {
+                varIntRead = 0;
+                return VariableLengthIntegerUtil.decode(varIntBytes, 0);
+            }
+        }
+        return VariableLengthIntegerUtil.INCOMPLETE;
+    }
+
+    private static boolean isKnownControlFrame(long frameType) {
+        return frameType == FRAME_TYPE_SETTINGS || frameType == FRAME_TYPE_GOAWAY || frameType == FRAME_TYPE_CANCEL_PUSH
+                || frameType == FRAME_TYPE_MAX_PUSH_ID;
+    }
+
+    private static boolean isReservedHttp2FrameType(long frameType) {
+        // HTTP/2 PRIORITY, PING, WINDOW_UPDATE and CONTINUATION, see https://www.rfc-editor.org/rfc/rfc9114.html#section-11.2.1
+        return frameType == 0x02 || frameType == 0x06 || frameType == 0x08 || frameType == 0x09;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_MAX_PUSH_ID;
+
+// https://www.rfc-editor.org/rfc/rfc9114.html#name-max_push_id
+public class MaxPushIdFrame extends Http3Frame {
+
+    private long pushId;
+
+    public MaxPushIdFrame() {
+    }
+
+    /**
+     * @param pushId  the maximum push ID the server can use
+     */
+    public MaxPushIdFrame(long pushId) {
+        this.pushId = pushId;
+    }
+
+    /**
+     * Parses the frame payload, which consists of a single push ID.
+     * @throws ProtocolException  when the payload does not consist of exactly one variable-length integer
+     */
+    public MaxPushIdFrame parsePayload(byte[] payload) throws IOException {
+        if (payload.length == 0 || VariableLengthIntegerUtil.encodedLength(payload[0]) != payload.length) {
+            throw new ProtocolException("invalid frame length");
+        }
+        pushId = VariableLengthIntegerUtil.decode(payload, 0);
+        return this;
+    }
+
+    public byte[] getBytes() {
+        int payloadLength = VariableLengthIntegerUtil.encodedLength(pushId);
+        byte[] data = new byte[VariableLengthIntegerUtil.frameHeaderLength(FRAME_TYPE_MAX_PUSH_ID, payloadLength) + payloadLength];
+        int offset = VariableLengthIntegerUtil.encodeFrameHeader(FRAME_TYPE_MAX_PUSH_ID, payloadLength, data, 0);
+        VariableLengthIntegerUtil.encode(pushId, data, offset);
+        return data;
+    }
+
+    public long getPushId() {
+        return pushId;
+    }
+}
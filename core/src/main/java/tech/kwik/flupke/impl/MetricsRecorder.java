@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.flupke.LatencyHistogram;
+import tech.kwik.flupke.MetricsSnapshot;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Thread-safe recorder of request metrics. A recorder can have a parent (e.g. connection recorder having an origin
+ * recorder as parent), to which all recorded values are forwarded.
+ */
+public class MetricsRecorder {
+
+    static final long[] LATENCY_BUCKETS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+    private static final int RATE_WINDOW_SECONDS = 10;
+
+    private final String origin;
+    private final MetricsRecorder parent;
+    private final AtomicLong activeStreams = new AtomicLong();
+    private final AtomicLong queuedStreams = new AtomicLong();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final Map<Long, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final LongAdder abandonedResponseBodies = new LongAdder();
+    private final LongAdder[] latencyBuckets;
+    // Ring of per-second request counters, each slot tagged with the (epoch) second it counts for.
+    private final AtomicLongArray rateSeconds = new AtomicLongArray(RATE_WINDOW_SECONDS + 1);
+    private final AtomicLongArray rateCounts = new AtomicLongArray(RATE_WINDOW_SECONDS + 1);
+
+    public MetricsRecorder(String origin, MetricsRecorder parent) {
+        this.origin = origin;
+        this.parent = parent;
+        latencyBuckets = new LongAdder[LATENCY_BUCKETS_MILLIS.length + 1];
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    public void requestQueued() {
+        queuedStreams.incrementAndGet();
+        if (parent != null) {
+            parent.requestQueued();
+        }
+    }
+
+    /**
+     * Request stream is opened (or failed to be opened), so request is not queued anymore.
+     * @param opened  whether the stream was opened
+     */
+    public void requestDequeued(boolean opened) {
+        queuedStreams.decrementAndGet();
+        if (opened) {
+            activeStreams.incrementAndGet();
+        }
+        if (parent != null) {
+            parent.requestDequeued(opened);
+        }
+    }
+
+    public void requestFinished(long latencyNanos) {
+        activeStreams.decrementAndGet();
+        requestCount.increment();
+        latencyBuckets[bucketIndex(latencyNanos / 1_000_000)].increment();
+        countForRate(System.currentTimeMillis() / 1000);
+        if (parent != null) {
+            parent.requestFinished(latencyNanos);
+        }
+    }
+
+    public void error(long http3ErrorCode) {
+        errorCounts.computeIfAbsent(http3ErrorCode, code -> new LongAdder()).increment();
+        if (parent != null) {
+            parent.error(http3ErrorCode);
+        }
+    }
+
+    public void responseBodyAbandoned() {
+        abandonedResponseBodies.increment();
+        if (parent != null) {
+            parent.responseBodyAbandoned();
+        }
+    }
+
+    public void bytesReceived(long count) {
+        bytesReceived.add(count);
+        if (parent != null) {
+            parent.bytesReceived(count);
+        }
+    }
+
+    public void bytesSent(long count) {
+        bytesSent.add(count);
+        if (parent != null) {
+            parent.bytesSent(count);
+        }
+    }
+
+    public MetricsSnapshot snapshot(int smoothedRtt) {
+        long[] counts = new long[latencyBuckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencyBuckets[i].sum();
+        }
+        Map<Long, Long> errors = errorCounts.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+        return new MetricsSnapshot(origin, activeStreams.get(), queuedStreams.get(), requestCount.sum(),
+                requestsPerSecond(System.currentTimeMillis() / 1000), errors, abandonedResponseBodies.sum(),
+                bytesReceived.sum(), bytesSent.sum(),
+                smoothedRtt, new LatencyHistogram(LATENCY_BUCKETS_MILLIS, counts));
+    }
+
+    private static int bucketIndex(long latencyMillis) {
+        for (int i = 0; i < LATENCY_BUCKETS_MILLIS.length; i++) {
+            if (latencyMillis <= LATENCY_BUCKETS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BUCKETS_MILLIS.length;
+    }
+
+    private void countForRate(long second) {
+        int slot = (int) (second % rateSeconds.length());
+        long slotSecond = rateSeconds.get(slot);
+        if (slotSecond != second && rateSeconds.compareAndSet(slot, slotSecond, second)) {
+            // Slot is reused for a new second; a concurrent increment for the old second may get lost, which is acceptable.
+            rateCounts.set(slot, 0);
+        }
+        rateCounts.incrementAndGet(slot);
+    }
+
+    /**
+     * Computes the request rate over the last RATE_WINDOW_SECONDS complete seconds.
+     */
+    private double requestsPerSecond(long currentSecond) {
+        long total = 0;
+        for (int slot = 0; slot < rateSeconds.length(); slot++) {
+            long slotSecond = rateSeconds.get(slot);
+            if (slotSecond < currentSecond && slotSecond >= currentSecond - RATE_WINDOW_SECONDS) {
+                total += rateCounts.get(slot);
+            }
+        }
+        return total / (double) RATE_WINDOW_SECONDS;
+    }
+}
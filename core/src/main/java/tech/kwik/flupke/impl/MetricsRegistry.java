@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.core.Statistics;
+import tech.kwik.flupke.Http3ClientConnection;
+import tech.kwik.flupke.MetricsSnapshot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of request metrics per origin and per connection.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, Origin> origins = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a metrics recorder for the given connection, that also records the metrics for the given origin.
+     * @param origin  the origin (host:port)
+     * @param connection  the connection
+     * @return  the metrics recorder the connection should use
+     */
+    public MetricsRecorder registerConnection(String origin, Http3ClientConnection connection) {
+        Origin entry = origins.computeIfAbsent(origin, Origin::new);
+        MetricsRecorder connectionRecorder = new MetricsRecorder(origin, entry.recorder);
+        entry.connections.add(connection);
+        return connectionRecorder;
+    }
+
+    /**
+     * Removes the given (closed) connection from the registry; the metrics it recorded remain part of the origin metrics.
+     * @param origin  the origin (host:port)
+     * @param connection  the connection
+     */
+    public void deregisterConnection(String origin, Http3ClientConnection connection) {
+        Origin entry = origins.get(origin);
+        if (entry != null) {
+            entry.connections.remove(connection);
+        }
+    }
+
+    public Map<String, MetricsSnapshot> originMetrics() {
+        return origins.values().stream()
+                .collect(Collectors.toMap(origin -> origin.name, Origin::snapshot, (a, b) -> a, TreeMap::new));
+    }
+
+    public Map<String, List<MetricsSnapshot>> connectionMetrics() {
+        return origins.values().stream()
+                .collect(Collectors.toMap(origin -> origin.name,
+                        origin -> origin.connections.stream().map(Http3ClientConnection::getMetrics).collect(Collectors.toList()),
+                        (a, b) -> a, TreeMap::new));
+    }
+
+    private static class Origin {
+        final String name;
+        final MetricsRecorder recorder;
+        final Set<Http3ClientConnection> connections = ConcurrentHashMap.newKeySet();
+
+        Origin(String name) {
+            this.name = name;
+            recorder = new MetricsRecorder(name, null);
+        }
+
+        MetricsSnapshot snapshot() {
+            int rtt = (int) connections.stream()
+                    .map(Http3ClientConnection::getConnectionStats)
+                    .filter(Objects::nonNull)
+                    .mapToInt(Statistics::smoothedRtt)
+                    .average()
+                    .orElse(-1);
+            return recorder.snapshot(rtt);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.qpack.Decoder;
+import tech.kwik.qpack.Encoder;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.http.HttpHeaders;
+import java.util.Arrays;
+import java.util.Map;
+
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_PUSH_PROMISE;
+
+// https://www.rfc-editor.org/rfc/rfc9114.html#name-push_promise
+// "The PUSH_PROMISE frame (type=0x05) is used to carry a promised request header section from server to client on a
+//  request stream."
+public class PushPromiseFrame extends HeadersFrame {
+
+    private long pushId;
+
+    public PushPromiseFrame() {
+    }
+
+    public PushPromiseFrame(long pushId, HttpHeaders headers, Map<String, String> pseudoHeaders) {
+        super(headers, pseudoHeaders);
+        this.pushId = pushId;
+    }
+
+    @Override
+    public byte[] toBytes(Encoder encoder, long streamId) {
+        // The encoded field section is the same as in a HEADERS frame; it is preceded by the push ID.
+        byte[] headersFrame = super.toBytes(encoder, streamId);
+        int typeLength = VariableLengthIntegerUtil.encodedLength(headersFrame[0]);
+        int lengthLength = VariableLengthIntegerUtil.encodedLength(headersFrame[typeLength]);
+        int fieldSectionLength = headersFrame.length - typeLength - lengthLength;
+        int payloadLength = VariableLengthIntegerUtil.encodedLength(pushId) + fieldSectionLength;
+
+        byte[] data = new byte[VariableLengthIntegerUtil.frameHeaderLength(FRAME_TYPE_PUSH_PROMISE, payloadLength) + payloadLength];
+        int offset = VariableLengthIntegerUtil.encodeFrameHeader(FRAME_TYPE_PUSH_PROMISE, payloadLength, data, 0);
+        offset += VariableLengthIntegerUtil.encode(pushId, data, offset);
+        System.arraycopy(headersFrame, typeLength + lengthLength, data, offset, fieldSectionLength);
+        return data;
+    }
+
+    @Override
+    public PushPromiseFrame parsePayload(byte[] payload, Decoder decoder, long streamId) throws IOException {
+        if (payload.length == 0 || VariableLengthIntegerUtil.encodedLength(payload[0]) > payload.length) {
+            throw new ProtocolException("invalid frame length");
+        }
+        pushId = VariableLengthIntegerUtil.decode(payload, 0);
+        int pushIdLength = VariableLengthIntegerUtil.encodedLength(payload[0]);
+        super.parsePayload(Arrays.copyOfRange(payload, pushIdLength, payload.length), decoder, streamId);
+        return this;
+    }
+
+    public long getPushId() {
+        return pushId;
+    }
+}
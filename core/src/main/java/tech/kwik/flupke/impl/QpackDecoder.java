@@ -0,0 +1,438 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.qpack.Decoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static tech.kwik.flupke.impl.QpackException.QPACK_DECOMPRESSION_FAILED;
+import static tech.kwik.flupke.impl.QpackException.QPACK_ENCODER_STREAM_ERROR;
+
+/**
+ * QPACK decoder supporting the dynamic table. Field sections that do not reference the dynamic table are decoded by
+ * the (static table only) decoder of the qpack library.
+ * https://www.rfc-editor.org/rfc/rfc9204.html#name-encoding-and-decoding
+ */
+public class QpackDecoder implements Decoder {
+
+    // The qpack library decoder is stateless when only the static table is used, but each instance holds its own copy of
+    // the static table, so it is shared by all decoders.
+    private static final Decoder staticTableDecoder = Decoder.newBuilder().build();
+
+    private final long maxTableCapacity;
+    private final int maxBlockedStreams;
+    private final OutputStream decoderStream;
+    private final QpackDynamicTable table;
+    private long acknowledgedInsertCount;
+    private int blockedStreams;
+    private boolean encoderStreamClosed;
+    private boolean closed;
+    // Ids of the streams that are waiting for dynamic table updates, and of those that got cancelled while waiting.
+    private final Set<Long> blockedStreamIds = new HashSet<>();
+    private final Set<Long> cancelledStreamIds = new HashSet<>();
+
+    /**
+     * @param maxTableCapacity  the maximum dynamic table capacity, as announced in SETTINGS_QPACK_MAX_TABLE_CAPACITY
+     * @param maxBlockedStreams  the maximum number of blocked streams, as announced in SETTINGS_QPACK_BLOCKED_STREAMS
+     * @param decoderStream  the stream decoder instructions are written to; only written to when the peer uses the
+     *                       dynamic table
+     */
+    public QpackDecoder(long maxTableCapacity, int maxBlockedStreams, OutputStream decoderStream) {
+        this.maxTableCapacity = maxTableCapacity;
+        this.maxBlockedStreams = maxBlockedStreams;
+        this.decoderStream = decoderStream;
+        table = new QpackDynamicTable();
+    }
+
+    @Override
+    public List<Map.Entry<String, String>> decodeStream(InputStream inputStream) throws IOException {
+        // Without a stream id no section acknowledgement can be sent.
+        return decode(inputStream.readAllBytes(), -1);
+    }
+
+    /**
+     * Decodes the given encoded field section, that was received on the given stream. If the field section references
+     * dynamic table entries that have not yet been received, this method blocks until they are, or until the stream
+     * is cancelled or the decoder is closed.
+     * @param fieldSection  the encoded field section
+     * @param streamId  the id of the stream the field section was received on
+     * @return  the decoded fields
+     * @throws QpackException  when the field section cannot be decoded
+     */
+    public List<Map.Entry<String, String>> decode(byte[] fieldSection, long streamId) throws IOException {
+        try {
+            return decodeFieldSection(fieldSection, streamId);
+        }
+        catch (QpackException | BlockedStreamAbortedException | InterruptedIOException e) {
+            throw e;
+        }
+        catch (IOException | RuntimeException e) {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-error-handling
+            // "QPACK_DECOMPRESSION_FAILED: The decoder failed to interpret an encoded field section and is not able to
+            //  continue decoding that field section."
+            throw new QpackException("invalid field section", QPACK_DECOMPRESSION_FAILED);
+        }
+    }
+
+    private List<Map.Entry<String, String>> decodeFieldSection(byte[] fieldSection, long streamId) throws IOException {
+        InputStream input = new ByteArrayInputStream(fieldSection);
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-encoded-field-section-prefi
+        long encodedInsertCount = QpackPrimitives.readInteger(QpackPrimitives.readByte(input), 8, input);
+        if (encodedInsertCount == 0) {
+            return staticTableDecoder.decodeStream(new ByteArrayInputStream(fieldSection));
+        }
+        long requiredInsertCount = decodeRequiredInsertCount(encodedInsertCount);
+        int firstByte = QpackPrimitives.readByte(input);
+        long deltaBase = QpackPrimitives.readInteger(firstByte, 7, input);
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-base
+        long base = (firstByte & 0x80) == 0? requiredInsertCount + deltaBase: requiredInsertCount - deltaBase - 1;
+        if (base < 0) {
+            throw new QpackException("invalid base", QPACK_DECOMPRESSION_FAILED);
+        }
+        awaitInsertCount(requiredInsertCount, streamId);
+
+        List<Map.Entry<String, String>> fields = new ArrayList<>();
+        while (input.available() > 0) {
+            firstByte = QpackPrimitives.readByte(input);
+            String name;
+            String value;
+            if ((firstByte & 0x80) != 0) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-indexed-field-line
+                long index = QpackPrimitives.readInteger(firstByte, 6, input);
+                if ((firstByte & 0x40) != 0) {
+                    name = staticName(index);
+                    value = QpackStaticTable.value((int) index);
+                }
+                else {
+                    long absoluteIndex = dynamicIndex(base - 1 - index, requiredInsertCount);
+                    name = dynamicName(absoluteIndex);
+                    value = dynamicValue(absoluteIndex);
+                }
+            }
+            else if ((firstByte & 0x40) != 0) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-literal-field-line-with-nam
+                long index = QpackPrimitives.readInteger(firstByte, 4, input);
+                name = (firstByte & 0x10) != 0?
+                        staticName(index):
+                        dynamicName(dynamicIndex(base - 1 - index, requiredInsertCount));
+                value = QpackPrimitives.readString(QpackPrimitives.readByte(input), 7, input, fieldSection.length);
+            }
+            else if ((firstByte & 0x20) != 0) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-literal-field-line-with-lit
+                name = QpackPrimitives.readString(firstByte, 3, input, fieldSection.length);
+                value = QpackPrimitives.readString(QpackPrimitives.readByte(input), 7, input, fieldSection.length);
+            }
+            else if ((firstByte & 0x10) != 0) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-indexed-field-line-with-pos
+                long absoluteIndex = dynamicIndex(base + QpackPrimitives.readInteger(firstByte, 4, input), requiredInsertCount);
+                name = dynamicName(absoluteIndex);
+                value = dynamicValue(absoluteIndex);
+            }
+            else {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-literal-field-line-with-pos
+                long absoluteIndex = dynamicIndex(base + QpackPrimitives.readInteger(firstByte, 3, input), requiredInsertCount);
+                name = dynamicName(absoluteIndex);
+                value = QpackPrimitives.readString(QpackPrimitives.readByte(input), 7, input, fieldSection.length);
+            }
+            fields.add(new AbstractMap.SimpleEntry<>(name, value));
+        }
+
+        if (streamId >= 0) {
+            sendSectionAcknowledgement(streamId, requiredInsertCount);
+        }
+        return fields;
+    }
+
+    private synchronized long decodeRequiredInsertCount(long encodedInsertCount) throws QpackException {
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-required-insert-count
+        long maxEntries = maxTableCapacity / QpackDynamicTable.ENTRY_OVERHEAD;
+        long fullRange = 2 * maxEntries;
+        if (encodedInsertCount > fullRange) {
+            throw new QpackException("invalid required insert count", QPACK_DECOMPRESSION_FAILED);
+        }
+        long maxValue = table.getInsertCount() + maxEntries;
+        long maxWrapped = (maxValue / fullRange) * fullRange;
+        long requiredInsertCount = maxWrapped + encodedInsertCount - 1;
+        if (requiredInsertCount > maxValue) {
+            if (requiredInsertCount <= fullRange) {
+                throw new QpackException("invalid required insert count", QPACK_DECOMPRESSION_FAILED);
+            }
+            requiredInsertCount -= fullRange;
+        }
+        if (requiredInsertCount == 0) {
+            throw new QpackException("invalid required insert count", QPACK_DECOMPRESSION_FAILED);
+        }
+        return requiredInsertCount;
+    }
+
+    private synchronized void awaitInsertCount(long requiredInsertCount, long streamId) throws IOException {
+        if (table.getInsertCount() >= requiredInsertCount) {
+            return;
+        }
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-blocked-streams
+        // "If the decoder encounters more blocked streams than it promised to support, it MUST treat this as a
+        //  connection error of type QPACK_DECOMPRESSION_FAILED."
+        if (blockedStreams >= maxBlockedStreams) {
+            throw new QpackException("too many blocked streams", QPACK_DECOMPRESSION_FAILED);
+        }
+        blockedStreams++;
+        blockedStreamIds.add(streamId);
+        boolean cancelled;
+        try {
+            while (table.getInsertCount() < requiredInsertCount && !encoderStreamClosed && !closed && !cancelledStreamIds.contains(streamId)) {
+                wait();
+            }
+        }
+        catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        finally {
+            blockedStreams--;
+            blockedStreamIds.remove(streamId);
+            cancelled = cancelledStreamIds.remove(streamId);
+        }
+        if (cancelled) {
+            throw new BlockedStreamAbortedException("stream cancelled");
+        }
+        if (closed) {
+            throw new BlockedStreamAbortedException("connection closed");
+        }
+        if (table.getInsertCount() < requiredInsertCount) {
+            throw new QpackException("encoder stream closed", QPACK_DECOMPRESSION_FAILED);
+        }
+    }
+
+    private long dynamicIndex(long absoluteIndex, long requiredInsertCount) throws QpackException {
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-invalid-references
+        // "If the decoder encounters a reference in a field line representation to a dynamic table entry that has
+        //  already been evicted or that has an absolute index greater than or equal to the declared Required Insert
+        //  Count, it MUST treat this as a connection error of type QPACK_DECOMPRESSION_FAILED."
+        if (absoluteIndex < 0 || absoluteIndex >= requiredInsertCount) {
+            throw new QpackException("invalid dynamic table reference", QPACK_DECOMPRESSION_FAILED);
+        }
+        return absoluteIndex;
+    }
+
+    private synchronized String dynamicName(long absoluteIndex) throws QpackException {
+        if (!table.contains(absoluteIndex)) {
+            throw new QpackException("invalid dynamic table reference", QPACK_DECOMPRESSION_FAILED);
+        }
+        return table.name(absoluteIndex);
+    }
+
+    private synchronized String dynamicValue(long absoluteIndex) throws QpackException {
+        if (!table.contains(absoluteIndex)) {
+            throw new QpackException("invalid dynamic table reference", QPACK_DECOMPRESSION_FAILED);
+        }
+        return table.value(absoluteIndex);
+    }
+
+    private String staticName(long index) throws QpackException {
+        // "If the decoder encounters a reference in a field line representation to a static table entry that does
+        //  not exist, it MUST treat this as a connection error of type QPACK_DECOMPRESSION_FAILED."
+        if (index >= QpackStaticTable.size()) {
+            throw new QpackException("invalid static table reference", QPACK_DECOMPRESSION_FAILED);
+        }
+        return QpackStaticTable.name((int) index);
+    }
+
+    /**
+     * Processes the instructions received on the peer's encoder stream, until the stream is closed.
+     * https://www.rfc-editor.org/rfc/rfc9204.html#name-encoder-instructions
+     */
+    public void processEncoderStream(InputStream input) throws IOException {
+        try {
+            int firstByte;
+            while ((firstByte = input.read()) != -1) {
+                processEncoderInstruction(firstByte, input);
+                if (input.available() == 0) {
+                    sendInsertCountIncrement();
+                }
+            }
+        }
+        finally {
+            synchronized (this) {
+                encoderStreamClosed = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private void processEncoderInstruction(int firstByte, InputStream input) throws IOException {
+        if ((firstByte & 0x80) != 0) {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-insert-with-name-reference
+            long index = QpackPrimitives.readInteger(firstByte, 6, input);
+            String value = QpackPrimitives.readString(QpackPrimitives.readByte(input), 7, input, maxTableCapacity);
+            synchronized (this) {
+                String name;
+                if ((firstByte & 0x40) != 0) {
+                    if (index >= QpackStaticTable.size()) {
+                        throw new QpackException("invalid static table reference", QPACK_ENCODER_STREAM_ERROR);
+                    }
+                    name = QpackStaticTable.name((int) index);
+                }
+                else {
+                    name = table.name(relativeToAbsolute(index));
+                }
+                insert(name, value);
+            }
+        }
+        else if ((firstByte & 0x40) != 0) {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-insert-with-literal-name
+            String name = QpackPrimitives.readString(firstByte, 5, input, maxTableCapacity);
+            String value = QpackPrimitives.readString(QpackPrimitives.readByte(input), 7, input, maxTableCapacity);
+            synchronized (this) {
+                insert(name, value);
+            }
+        }
+        else if ((firstByte & 0x20) != 0) {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-set-dynamic-table-capacity
+            long capacity = QpackPrimitives.readInteger(firstByte, 5, input);
+            // "The decoder MUST treat a new dynamic table capacity value that exceeds this limit as a connection error
+            //  of type QPACK_ENCODER_STREAM_ERROR."
+            if (capacity > maxTableCapacity) {
+                throw new QpackException("dynamic table capacity exceeds maximum", QPACK_ENCODER_STREAM_ERROR);
+            }
+            synchronized (this) {
+                table.setCapacity(capacity);
+            }
+        }
+        else {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-duplicate
+            long index = QpackPrimitives.readInteger(firstByte, 5, input);
+            synchronized (this) {
+                long absoluteIndex = relativeToAbsolute(index);
+                insert(table.name(absoluteIndex), table.value(absoluteIndex));
+            }
+        }
+    }
+
+    private long relativeToAbsolute(long relativeIndex) throws QpackException {
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-relative-indexing
+        // "In encoder instructions, a relative index of 0 refers to the most recently inserted value in the dynamic table."
+        long absoluteIndex = table.getInsertCount() - 1 - relativeIndex;
+        if (!table.contains(absoluteIndex)) {
+            throw new QpackException("invalid dynamic table reference", QPACK_ENCODER_STREAM_ERROR);
+        }
+        return absoluteIndex;
+    }
+
+    private void insert(String name, String value) throws QpackException {
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-dynamic-table-insertion-and
+        // "It is an error if the encoder attempts to add an entry that is larger than the dynamic table capacity; the
+        //  decoder MUST treat this as a connection error of type QPACK_ENCODER_STREAM_ERROR."
+        if (QpackDynamicTable.entrySize(name, value) > table.getCapacity()) {
+            throw new QpackException("entry larger than dynamic table capacity", QPACK_ENCODER_STREAM_ERROR);
+        }
+        table.insert(name, value);
+        notifyAll();
+    }
+
+    /**
+     * Cancels decoding of the given stream, because the stream is reset or reading from it is abandoned: a field section
+     * of this stream that is waiting for dynamic table updates fails and the peer's encoder is informed.
+     * @param streamId  the id of the stream
+     */
+    public void cancelStream(long streamId) {
+        synchronized (this) {
+            if (blockedStreamIds.contains(streamId)) {
+                cancelledStreamIds.add(streamId);
+                notifyAll();
+            }
+        }
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-stream-cancellation
+        // "A decoder with a maximum dynamic table capacity (Section 3.2.3) equal to zero MAY omit sending Stream
+        //  Cancellations, because the encoder cannot have any dynamic table references in encoded field sections."
+        if (maxTableCapacity > 0) {
+            QpackOutputBuffer instruction = new QpackOutputBuffer(8);
+            QpackPrimitives.writeInteger(instruction, 0x40, 6, streamId);
+            try {
+                writeInstruction(instruction);
+            }
+            catch (IOException e) {
+                // Decoder stream (or connection) is closed, so there is no encoder to inform anymore.
+            }
+        }
+    }
+
+    /**
+     * Closes this decoder because the connection is closed; field sections waiting for dynamic table updates fail.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    private void sendSectionAcknowledgement(long streamId, long requiredInsertCount) throws IOException {
+        QpackOutputBuffer instruction = new QpackOutputBuffer(8);
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-section-acknowledgment
+        QpackPrimitives.writeInteger(instruction, 0x80, 7, streamId);
+        synchronized (this) {
+            acknowledgedInsertCount = Long.max(acknowledgedInsertCount, requiredInsertCount);
+        }
+        writeInstruction(instruction);
+    }
+
+    private void sendInsertCountIncrement() throws IOException {
+        long increment;
+        synchronized (this) {
+            increment = table.getInsertCount() - acknowledgedInsertCount;
+            acknowledgedInsertCount = table.getInsertCount();
+        }
+        if (increment > 0) {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-insert-count-increment
+            QpackOutputBuffer instruction = new QpackOutputBuffer(8);
+            QpackPrimitives.writeInteger(instruction, 0x00, 6, increment);
+            writeInstruction(instruction);
+        }
+    }
+
+    private void writeInstruction(ByteArrayOutputStream instruction) throws IOException {
+        synchronized (decoderStream) {
+            instruction.writeTo(decoderStream);
+            decoderStream.flush();
+        }
+    }
+
+    public synchronized long getInsertCount() {
+        return table.getInsertCount();
+    }
+
+    /**
+     * Signals that decoding a field section waiting for dynamic table updates was aborted, because its stream was
+     * cancelled or the connection was closed; this is not a decoding error.
+     */
+    private static class BlockedStreamAbortedException extends IOException {
+        BlockedStreamAbortedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QPACK dynamic table. Entries are addressed by their absolute index; the first entry inserted has absolute index 0.
+ * https://www.rfc-editor.org/rfc/rfc9204.html#name-dynamic-table
+ */
+public class QpackDynamicTable {
+
+    // https://www.rfc-editor.org/rfc/rfc9204.html#name-dynamic-table-size
+    // "The size of an entry is the sum of its name's length in bytes, its value's length in bytes, and 32 additional
+    //  bytes."
+    public static final int ENTRY_OVERHEAD = 32;
+
+    private final List<String[]> entries = new ArrayList<>();
+    // Created on first insert, as most connections never use the dynamic table.
+    private Map<String, Long> exactMatches;
+    private Map<String, Long> nameMatches;
+    private long insertCount;
+    private long droppedCount;
+    private long size;
+    private long capacity;
+
+    public static long entrySize(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+
+    public void insert(String name, String value) {
+        long entrySize = entrySize(name, value);
+        evictUntil(capacity - entrySize);
+        if (exactMatches == null) {
+            exactMatches = new HashMap<>();
+            nameMatches = new HashMap<>();
+        }
+        entries.add(new String[] { name, value });
+        exactMatches.put(QpackStaticTable.key(name, value), insertCount);
+        nameMatches.put(name, insertCount);
+        size += entrySize;
+        insertCount++;
+    }
+
+    /**
+     * Sets the capacity, evicting entries that no longer fit.
+     */
+    public void setCapacity(long capacity) {
+        this.capacity = capacity;
+        evictUntil(capacity);
+    }
+
+    /**
+     * Evicts the oldest entries until the table size is not larger than the given size.
+     */
+    public void evictUntil(long targetSize) {
+        int evicted = 0;
+        while (size > targetSize && evicted < entries.size()) {
+            String[] entry = entries.get(evicted);
+            long absoluteIndex = droppedCount + evicted;
+            exactMatches.remove(QpackStaticTable.key(entry[0], entry[1]), absoluteIndex);
+            nameMatches.remove(entry[0], absoluteIndex);
+            size -= entrySize(entry[0], entry[1]);
+            evicted++;
+        }
+        entries.subList(0, evicted).clear();
+        droppedCount += evicted;
+    }
+
+    /**
+     * Returns whether an entry of the given size can be inserted, given that entries with an absolute index equal to or
+     * larger than the given index may not be evicted.
+     */
+    public boolean canInsert(long entrySize, long firstNonEvictable) {
+        long available = capacity - size;
+        for (long index = droppedCount; index < firstNonEvictable && index < insertCount && available < entrySize; index++) {
+            String[] entry = entries.get((int) (index - droppedCount));
+            available += entrySize(entry[0], entry[1]);
+        }
+        return available >= entrySize;
+    }
+
+    public boolean contains(long absoluteIndex) {
+        return absoluteIndex >= droppedCount && absoluteIndex < insertCount;
+    }
+
+    public String name(long absoluteIndex) {
+        return entries.get((int) (absoluteIndex - droppedCount))[0];
+    }
+
+    public String value(long absoluteIndex) {
+        return entries.get((int) (absoluteIndex - droppedCount))[1];
+    }
+
+    /**
+     * Returns the absolute index of the most recent entry with the given name and value, or -1 if there is none.
+     */
+    public long findExact(String name, String value) {
+        return exactMatches != null? exactMatches.getOrDefault(QpackStaticTable.key(name, value), -1L): -1;
+    }
+
+    /**
+     * Returns the absolute index of the most recent entry with the given name, or -1 if there is none.
+     */
+    public long findName(String name) {
+        return nameMatches != null? nameMatches.getOrDefault(name, -1L): -1;
+    }
+
+    public long getInsertCount() {
+        return insertCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.flupke.PreEncodedHeaders;
+import tech.kwik.qpack.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static tech.kwik.flupke.impl.QpackException.QPACK_DECODER_STREAM_ERROR;
+
+/**
+ * QPACK encoder that uses the dynamic table when the peer allows it and Huffman encoding for string literals when
+ * that is shorter. When the dynamic table is not used, encoded field lines are cached per encoder.
+ * https://www.rfc-editor.org/rfc/rfc9204.html#name-encoding-and-decoding
+ */
+public class QpackEncoder implements Encoder {
+
+    // Fields of which the value is (nearly) unique for each message, inserting them would only pollute the table.
+    private static final Set<String> NOT_INDEXED = Set.of(
+            ":path", "content-length", "content-range", "date", "etag", "last-modified", "age",
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-never-indexed-literals
+            "authorization", "proxy-authorization");
+
+    private static final int FIELD_LINE_CACHE_SIZE = 128;
+    private static final int MAX_CACHED_FIELD_LINE_SIZE = 256;
+
+    private final long maxTableCapacity;
+    private final boolean huffmanEncoding;
+    private final OutputStream encoderStream;
+    private final QpackDynamicTable table;
+    // Per encoder, so no lock is shared between connections; only fields with stable values are cached.
+    private final FieldLineCache fieldLineCache;
+    // For each stream, the field sections that have not yet been acknowledged; each section is represented by its
+    // required insert count and the lowest absolute index it references.
+    private final Map<Long, Deque<long[]>> outstandingSections;
+    private long peerMaxTableCapacity;
+    private int peerBlockedStreams;
+    private long knownReceivedCount;
+    private boolean capacityInstructionSent;
+    private boolean encoderStreamFailed;
+
+    public QpackEncoder(long maxTableCapacity, OutputStream encoderStream) {
+        this(maxTableCapacity, true, encoderStream);
+    }
+
+    /**
+     * @param maxTableCapacity  the maximum dynamic table capacity this encoder is willing to use
+     * @param huffmanEncoding  whether string literals are Huffman encoded (when that is shorter)
+     * @param encoderStream  the stream encoder instructions are written to; written to only when the dynamic table is used
+     */
+    public QpackEncoder(long maxTableCapacity, boolean huffmanEncoding, OutputStream encoderStream) {
+        this.maxTableCapacity = maxTableCapacity;
+        this.huffmanEncoding = huffmanEncoding;
+        this.encoderStream = encoderStream;
+        table = new QpackDynamicTable();
+        outstandingSections = new HashMap<>();
+        fieldLineCache = new FieldLineCache(FIELD_LINE_CACHE_SIZE, MAX_CACHED_FIELD_LINE_SIZE);
+    }
+
+    /**
+     * Applies the QPACK settings received from the peer.
+     * @param maxTableCapacity  the value of the peer's SETTINGS_QPACK_MAX_TABLE_CAPACITY
+     * @param blockedStreams  the value of the peer's SETTINGS_QPACK_BLOCKED_STREAMS
+     */
+    public synchronized void setPeerSettings(long maxTableCapacity, int blockedStreams) {
+        peerMaxTableCapacity = maxTableCapacity;
+        peerBlockedStreams = blockedStreams;
+        table.setCapacity(Long.min(this.maxTableCapacity, maxTableCapacity));
+    }
+
+    @Override
+    public ByteBuffer compressHeaders(List<Map.Entry<String, String>> headers) {
+        // Without a stream id, section acknowledgements cannot be matched, so the dynamic table cannot be used.
+        return compressHeaders(headers, -1);
+    }
+
+    /**
+     * Encodes the given fields into a field section for the given stream.
+     * @return  buffer containing the encoded field section, positioned at the end of the encoded data
+     */
+    public ByteBuffer compressHeaders(List<Map.Entry<String, String>> headers, long streamId) {
+        return compressHeaders(headers, streamId, Collections.emptyList());
+    }
+
+    /**
+     * Encodes the given fields into a field section for the given stream, followed by the field lines of the given
+     * pre-encoded headers.
+     * @return  buffer containing the encoded field section, positioned at the end of the encoded data
+     */
+    public synchronized ByteBuffer compressHeaders(List<Map.Entry<String, String>> headers, long streamId, List<PreEncodedHeaders> preEncoded) {
+        boolean useDynamicTable = table.getCapacity() > 0 && !encoderStreamFailed && streamId >= 0;
+        byte[] section;
+        if (useDynamicTable) {
+            section = encodeWithDynamicTable(headers, streamId);
+        }
+        else {
+            section = encodeWithStaticTable(headers);
+        }
+        if (!preEncoded.isEmpty()) {
+            // Pre-encoded field lines only reference the static table, so they do not affect the section prefix.
+            QpackOutputBuffer buffer = new QpackOutputBuffer(section.length + 256);
+            buffer.writeBytes(section);
+            preEncoded.forEach(headerSet -> buffer.writeBytes(headerSet.encodedFieldLines(huffmanEncoding)));
+            section = buffer.toByteArray();
+        }
+        return ByteBuffer.wrap(section).position(section.length);
+    }
+
+    /**
+     * Encodes a single field line that only references the static table.
+     */
+    public static void encodeFieldLine(String name, String value, boolean huffman, ByteArrayOutputStream output) {
+        int staticIndex = QpackStaticTable.findExact(name, value);
+        if (staticIndex >= 0) {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-indexed-field-line
+            QpackPrimitives.writeInteger(output, 0xc0, 6, staticIndex);
+            return;
+        }
+        int staticNameIndex = QpackStaticTable.findName(name);
+        if (staticNameIndex >= 0) {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-literal-field-line-with-nam
+            QpackPrimitives.writeInteger(output, 0x50, 4, staticNameIndex);
+        }
+        else {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-literal-field-line-with-lit
+            QpackPrimitives.writeString(output, 0x20, 3, name, huffman);
+        }
+        QpackPrimitives.writeString(output, 0x00, 7, value, huffman);
+    }
+
+    FieldLineCache getFieldLineCache() {
+        return fieldLineCache;
+    }
+
+    private byte[] encodeWithStaticTable(List<Map.Entry<String, String>> headers) {
+        QpackOutputBuffer section = new QpackOutputBuffer();
+        writeSectionPrefix(section, 0, 0);
+        for (Map.Entry<String, String> field : headers) {
+            String name = field.getKey();
+            String value = field.getValue();
+            if (NOT_INDEXED.contains(name)) {
+                // Value is (nearly) unique for each message, caching it would only evict useful lines.
+                encodeFieldLine(name, value, huffmanEncoding, section);
+                continue;
+            }
+            // Without references to the dynamic table, the encoded field line only depends on the field, so it can
+            // be cached.
+            byte[] line = fieldLineCache.get(name, value);
+            if (line == null) {
+                QpackOutputBuffer lineBuffer = new QpackOutputBuffer();
+                encodeFieldLine(name, value, huffmanEncoding, lineBuffer);
+                line = lineBuffer.toByteArray();
+                fieldLineCache.put(name, value, line);
+            }
+            section.writeBytes(line);
+        }
+        return section.toByteArray();
+    }
+
+    private byte[] encodeWithDynamicTable(List<Map.Entry<String, String>> headers, long streamId) {
+        insertEntries(headers);
+
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-blocked-streams
+        // "An encoder MUST limit the number of streams that could become blocked to the value of
+        //  SETTINGS_QPACK_BLOCKED_STREAMS at all times."
+        boolean mayBlock = isBlocking(streamId) || countBlockedStreams() < peerBlockedStreams;
+        long acknowledged = knownReceivedCount;
+        long base = table.getInsertCount();
+        long requiredInsertCount = 0;
+        long lowestReference = Long.MAX_VALUE;
+        QpackOutputBuffer fieldLines = new QpackOutputBuffer();
+        for (Map.Entry<String, String> field : headers) {
+            String name = field.getKey();
+            String value = field.getValue();
+            if (QpackStaticTable.findExact(name, value) < 0) {
+                long dynamicIndex = table.findExact(name, value);
+                if (dynamicIndex >= 0 && (dynamicIndex < acknowledged || mayBlock)) {
+                    // https://www.rfc-editor.org/rfc/rfc9204.html#name-indexed-field-line
+                    QpackPrimitives.writeInteger(fieldLines, 0x80, 6, base - 1 - dynamicIndex);
+                    requiredInsertCount = Long.max(requiredInsertCount, dynamicIndex + 1);
+                    lowestReference = Long.min(lowestReference, dynamicIndex);
+                    continue;
+                }
+                long dynamicNameIndex = table.findName(name);
+                if (QpackStaticTable.findName(name) < 0 && dynamicNameIndex >= 0 && (dynamicNameIndex < acknowledged || mayBlock)) {
+                    // https://www.rfc-editor.org/rfc/rfc9204.html#name-literal-field-line-with-nam
+                    QpackPrimitives.writeInteger(fieldLines, 0x40, 4, base - 1 - dynamicNameIndex);
+                    requiredInsertCount = Long.max(requiredInsertCount, dynamicNameIndex + 1);
+                    lowestReference = Long.min(lowestReference, dynamicNameIndex);
+                    QpackPrimitives.writeString(fieldLines, 0x00, 7, value, huffmanEncoding);
+                    continue;
+                }
+            }
+            encodeFieldLine(name, value, huffmanEncoding, fieldLines);
+        }
+
+        QpackOutputBuffer section = new QpackOutputBuffer(fieldLines.size() + 4);
+        writeSectionPrefix(section, requiredInsertCount, base);
+        section.writeBytes(fieldLines.toByteArray());
+        if (requiredInsertCount > 0) {
+            outstandingSections.computeIfAbsent(streamId, id -> new ArrayDeque<>()).add(new long[] { requiredInsertCount, lowestReference });
+        }
+        return section.toByteArray();
+    }
+
+    private void insertEntries(List<Map.Entry<String, String>> headers) {
+        QpackOutputBuffer instructions = new QpackOutputBuffer();
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-avoiding-prohibited-inserti
+        // "The encoder MUST NOT evict a dynamic table entry unless it has first been acknowledged by the decoder."
+        long firstNonEvictable = Math.min(lowestOutstandingReference(), knownReceivedCount);
+        for (Map.Entry<String, String> field : headers) {
+            String name = field.getKey();
+            String value = field.getValue();
+            if (NOT_INDEXED.contains(name) || QpackStaticTable.findExact(name, value) >= 0 || table.findExact(name, value) >= 0) {
+                continue;
+            }
+            long entrySize = QpackDynamicTable.entrySize(name, value);
+            // Never let a single entry take more than a quarter of the table, to keep the table useful for other fields.
+            if (entrySize > table.getCapacity() / 4 || !table.canInsert(entrySize, firstNonEvictable)) {
+                continue;
+            }
+            if (!capacityInstructionSent) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-set-dynamic-table-capacity
+                QpackPrimitives.writeInteger(instructions, 0x20, 5, table.getCapacity());
+                capacityInstructionSent = true;
+            }
+            int staticNameIndex = QpackStaticTable.findName(name);
+            if (staticNameIndex >= 0) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-insert-with-name-reference
+                QpackPrimitives.writeInteger(instructions, 0xc0, 6, staticNameIndex);
+            }
+            else {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-insert-with-literal-name
+                QpackPrimitives.writeString(instructions, 0x40, 5, name, huffmanEncoding);
+            }
+            QpackPrimitives.writeString(instructions, 0x00, 7, value, huffmanEncoding);
+            table.insert(name, value);
+        }
+        if (instructions.size() > 0) {
+            try {
+                instructions.writeTo(encoderStream);
+                encoderStream.flush();
+            }
+            catch (IOException e) {
+                // The encoder stream is a critical stream, so the connection will be closed anyway; just make sure
+                // that no more references to the dynamic table are sent.
+                encoderStreamFailed = true;
+                table.setCapacity(0);
+            }
+        }
+    }
+
+    private void writeSectionPrefix(ByteArrayOutputStream output, long requiredInsertCount, long base) {
+        // https://www.rfc-editor.org/rfc/rfc9204.html#name-encoded-field-section-prefi
+        if (requiredInsertCount == 0) {
+            output.write(0x00);
+            output.write(0x00);
+        }
+        else {
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-required-insert-count
+            // "EncodedInsertCount = (ReqInsertCount mod (2 * MaxEntries)) + 1"
+            long maxEntries = peerMaxTableCapacity / QpackDynamicTable.ENTRY_OVERHEAD;
+            QpackPrimitives.writeInteger(output, 0x00, 8, requiredInsertCount % (2 * maxEntries) + 1);
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-base
+            // "If the Base is greater than or equal to the value of the Required Insert Count, the encoder sets the sign
+            //  bit to 0 and encodes the difference"
+            QpackPrimitives.writeInteger(output, 0x00, 7, base - requiredInsertCount);
+        }
+    }
+
+    /**
+     * Processes the instructions received on the peer's decoder stream, until the stream is closed.
+     * https://www.rfc-editor.org/rfc/rfc9204.html#name-decoder-instructions
+     */
+    public void processDecoderStream(InputStream input) throws IOException {
+        int firstByte;
+        while ((firstByte = input.read()) != -1) {
+            if ((firstByte & 0x80) != 0) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-section-acknowledgment
+                sectionAcknowledged(QpackPrimitives.readInteger(firstByte, 7, input));
+            }
+            else if ((firstByte & 0x40) != 0) {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-stream-cancellation
+                streamCancelled(QpackPrimitives.readInteger(firstByte, 6, input));
+            }
+            else {
+                // https://www.rfc-editor.org/rfc/rfc9204.html#name-insert-count-increment
+                insertCountIncrement(QpackPrimitives.readInteger(firstByte, 6, input));
+            }
+        }
+    }
+
+    synchronized void sectionAcknowledged(long streamId) throws QpackException {
+        Deque<long[]> sections = outstandingSections.get(streamId);
+        // "If an encoder receives a Section Acknowledgment instruction referring to a stream on which every encoded
+        //  field section with a non-zero Required Insert Count has already been acknowledged, this MUST be treated as
+        //  a connection error of type QPACK_DECODER_STREAM_ERROR."
+        if (sections == null) {
+            throw new QpackException("unexpected section acknowledgement", QPACK_DECODER_STREAM_ERROR);
+        }
+        long[] section = sections.removeFirst();
+        if (sections.isEmpty()) {
+            outstandingSections.remove(streamId);
+        }
+        knownReceivedCount = Long.max(knownReceivedCount, section[0]);
+    }
+
+    synchronized void streamCancelled(long streamId) {
+        outstandingSections.remove(streamId);
+    }
+
+    synchronized void insertCountIncrement(long increment) throws QpackException {
+        // "An encoder that receives an Increment field equal to zero, or one that increases the Known Received Count
+        //  beyond what the encoder has sent, MUST treat this as a connection error of type QPACK_DECODER_STREAM_ERROR."
+        if (increment == 0 || knownReceivedCount + increment > table.getInsertCount()) {
+            throw new QpackException("invalid insert count increment", QPACK_DECODER_STREAM_ERROR);
+        }
+        knownReceivedCount += increment;
+    }
+
+    private boolean isBlocking(long streamId) {
+        Deque<long[]> sections = outstandingSections.get(streamId);
+        return sections != null && sections.stream().anyMatch(section -> section[0] > knownReceivedCount);
+    }
+
+    private int countBlockedStreams() {
+        return (int) outstandingSections.values().stream()
+                .filter(sections -> sections.stream().anyMatch(section -> section[0] > knownReceivedCount))
+                .count();
+    }
+
+    private long lowestOutstandingReference() {
+        return outstandingSections.values().stream()
+                .flatMap(Deque::stream)
+                .mapToLong(section -> section[1])
+                .min()
+                .orElse(Long.MAX_VALUE);
+    }
+
+    public synchronized long getInsertCount() {
+        return table.getInsertCount();
+    }
+
+    public synchronized long getKnownReceivedCount() {
+        return knownReceivedCount;
+    }
+}
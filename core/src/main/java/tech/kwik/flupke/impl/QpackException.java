@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.io.IOException;
+
+/**
+ * Signals a QPACK error, carrying the QPACK error code that should be used to close the connection.
+ */
+public class QpackException extends IOException {
+
+    // https://www.rfc-editor.org/rfc/rfc9204.html#name-error-handling
+    // "The decoder failed to interpret an encoded field section and is not able to continue decoding that field section."
+    public static final int QPACK_DECOMPRESSION_FAILED = 0x0200;
+    // "The decoder failed to interpret an encoder instruction received on the encoder stream."
+    public static final int QPACK_ENCODER_STREAM_ERROR = 0x0201;
+    // "The encoder failed to interpret a decoder instruction received on the decoder stream."
+    public static final int QPACK_DECODER_STREAM_ERROR = 0x0202;
+
+    private final int errorCode;
+
+    public QpackException(String message, int errorCode) {
+        super(message);
+        this.errorCode = errorCode;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+}
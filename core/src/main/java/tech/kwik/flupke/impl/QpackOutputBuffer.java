@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * ByteArrayOutputStream without synchronization, for writing QPACK field sections and instructions byte by byte,
+ * which is always done by a single thread.
+ */
+public class QpackOutputBuffer extends ByteArrayOutputStream {
+
+    public QpackOutputBuffer() {
+        super(256);
+    }
+
+    public QpackOutputBuffer(int size) {
+        super(size);
+    }
+
+    @Override
+    public void write(int b) {
+        if (count == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (count + len > buf.length) {
+            buf = Arrays.copyOf(buf, Integer.max(buf.length * 2, count + len));
+        }
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding and decoding of the QPACK primitives: prefixed integers and string literals.
+ * https://www.rfc-editor.org/rfc/rfc9204.html#name-primitives
+ */
+public class QpackPrimitives {
+
+    /**
+     * Writes a prefixed integer; the bits above the prefix of the first byte are taken from the given flags.
+     * https://www.rfc-editor.org/rfc/rfc7541.html#section-5.1
+     */
+    public static void writeInteger(ByteArrayOutputStream output, int flags, int prefixBits, long value) {
+        int maxPrefix = (1 << prefixBits) - 1;
+        if (value < maxPrefix) {
+            output.write(flags | (int) value);
+        }
+        else {
+            output.write(flags | maxPrefix);
+            value -= maxPrefix;
+            while (value >= 0x80) {
+                output.write((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            output.write((int) value);
+        }
+    }
+
+    /**
+     * Reads a prefixed integer of which the first byte has already been read.
+     */
+    public static long readInteger(int firstByte, int prefixBits, InputStream input) throws IOException {
+        int maxPrefix = (1 << prefixBits) - 1;
+        long value = firstByte & maxPrefix;
+        if (value < maxPrefix) {
+            return value;
+        }
+        int shift = 0;
+        int next;
+        do {
+            next = readByte(input);
+            value += (long) (next & 0x7f) << shift;
+            shift += 7;
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-prefixed-integers
+            // "QPACK implementations MUST be able to decode integers up to and including 62 bits long."
+            if (shift > 63 || value < 0) {
+                throw new QpackException("integer overflow", QpackException.QPACK_DECOMPRESSION_FAILED);
+            }
+        }
+        while ((next & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Writes a string literal without Huffman encoding; the Huffman flag is the bit just above the prefix.
+     * https://www.rfc-editor.org/rfc/rfc9204.html#name-string-literals
+     */
+    public static void writeString(ByteArrayOutputStream output, int flags, int prefixBits, String value) {
+        writeString(output, flags, prefixBits, value, false);
+    }
+
+    /**
+     * Writes a string literal; when huffman is true, the string is Huffman encoded if that is shorter than the raw
+     * string. The Huffman flag is the bit just above the prefix.
+     * https://www.rfc-editor.org/rfc/rfc9204.html#name-string-literals
+     */
+    public static void writeString(ByteArrayOutputStream output, int flags, int prefixBits, String value, boolean huffman) {
+        int huffmanLength = huffman? QpackHuffman.encodedLength(value): Integer.MAX_VALUE;
+        if (huffmanLength < value.length()) {
+            writeInteger(output, flags | (1 << prefixBits), prefixBits, huffmanLength);
+            QpackHuffman.encode(value, output);
+        }
+        else {
+            writeInteger(output, flags, prefixBits, value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                output.write(c < 256? c: '?');
+            }
+        }
+    }
+
+    /**
+     * Reads a string literal of which the first byte has already been read; the Huffman flag is the bit just above
+     * the prefix.
+     */
+    public static String readString(int firstByte, int prefixBits, InputStream input, long maxLength) throws IOException {
+        boolean huffman = (firstByte & (1 << prefixBits)) != 0;
+        long length = readInteger(firstByte, prefixBits, input);
+        if (length > maxLength) {
+            throw new QpackException("string literal too long", QpackException.QPACK_DECOMPRESSION_FAILED);
+        }
+        byte[] bytes = input.readNBytes((int) length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        if (huffman) {
+            return QpackHuffman.decode(bytes, 0, bytes.length);
+        }
+        else {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    public static int readByte(InputStream input) throws IOException {
+        int b = input.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+}
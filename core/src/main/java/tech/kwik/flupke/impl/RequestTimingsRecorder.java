@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2021, 2022, 2023, 2024, 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.flupke.RequestTimings;
+import tech.kwik.flupke.RequestTimingsListener;
+
+import java.net.http.HttpRequest;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the timestamps of the phases of a request and notifies the listener when the request is finished.
+ * When timings are not enabled, the shared {@link #disabled()} instance is used, which does not record anything.
+ */
+public class RequestTimingsRecorder implements RequestTimings {
+
+    private static final RequestTimingsRecorder DISABLED = new RequestTimingsRecorder();
+
+    private final HttpRequest request;
+    private final RequestTimingsListener listener;
+    private final AtomicLongArray timestamps;
+    private final AtomicBoolean finished;
+
+    public RequestTimingsRecorder(HttpRequest request, RequestTimingsListener listener) {
+        this.request = request;
+        this.listener = listener;
+        timestamps = new AtomicLongArray(Phase.values().length);
+        finished = new AtomicBoolean();
+        record(Phase.QUEUED);
+    }
+
+    private RequestTimingsRecorder() {
+        request = null;
+        listener = null;
+        timestamps = null;
+        finished = null;
+    }
+
+    public static RequestTimingsRecorder disabled() {
+        return DISABLED;
+    }
+
+    public static RequestTimingsRecorder create(HttpRequest request, RequestTimingsListener listener) {
+        return listener != null? new RequestTimingsRecorder(request, listener): DISABLED;
+    }
+
+    public void record(Phase phase) {
+        if (timestamps != null) {
+            // Only first occurrence counts.
+            timestamps.compareAndSet(phase.ordinal(), 0, System.nanoTime());
+        }
+    }
+
+    /**
+     * Marks the request as finished and notifies the listener (only once).
+     */
+    public void finish() {
+        if (listener != null && finished.compareAndSet(false, true)) {
+            listener.requestFinished(request, this);
+        }
+    }
+
+    @Override
+    public Optional<Long> timestamp(Phase phase) {
+        long value = timestamps != null? timestamps.get(phase.ordinal()): 0;
+        return value != 0? Optional.of(value): Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RequestTimings[");
+        for (Phase phase: Phase.values()) {
+            Optional<Long> start = timestamp(Phase.QUEUED);
+            Optional<Long> value = timestamp(phase);
+            if (start.isPresent() && value.isPresent()) {
+                builder.append(phase.name().toLowerCase()).append("=").append((value.get() - start.get()) / 1000).append("us ");
+            }
+        }
+        return builder.toString().trim() + "]";
+    }
+}
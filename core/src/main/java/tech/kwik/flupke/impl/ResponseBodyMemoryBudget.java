@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the number of response body bytes that are buffered in memory, shared by all in-flight responses of
+ * one client. Response bodies that would exceed the budget, or the per-response limit, are aborted.
+ */
+public class ResponseBodyMemoryBudget {
+
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long maxBufferedBytes;
+    private final long perResponseLimit;
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    public ResponseBodyMemoryBudget(long maxBufferedBytes, long perResponseLimit) {
+        if (maxBufferedBytes < 0 || perResponseLimit < 0) {
+            throw new IllegalArgumentException("budget and limit must not be negative");
+        }
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.perResponseLimit = perResponseLimit;
+    }
+
+    public static ResponseBodyMemoryBudget unlimited() {
+        return new ResponseBodyMemoryBudget(UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Tries to reserve the given number of bytes for a response that has already buffered responseBufferedBytes bytes.
+     * @param responseBufferedBytes  the number of bytes the response already has reserved
+     * @param count  number of bytes to reserve
+     * @return  true if the bytes are reserved, false if the reservation would exceed the budget or the per-response limit
+     */
+    public boolean tryReserve(long responseBufferedBytes, int count) {
+        if (responseBufferedBytes + count > perResponseLimit) {
+            return false;
+        }
+        long current;
+        do {
+            current = bufferedBytes.get();
+            if (current + count > maxBufferedBytes) {
+                return false;
+            }
+        }
+        while (!bufferedBytes.compareAndSet(current, current + count));
+        return true;
+    }
+
+    public void release(long count) {
+        if (count > 0) {
+            bufferedBytes.addAndGet(-count);
+        }
+    }
+
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    public long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    public long getPerResponseLimit() {
+        return perResponseLimit;
+    }
+}
@@ -18,11 +18,10 @@
  */
 package tech.kwik.flupke.impl;
 
-import tech.kwik.core.generic.InvalidIntegerEncodingException;
-import tech.kwik.core.generic.VariableLengthInteger;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -67,56 +66,57 @@ public class SettingsFrame extends Http3Frame {
             // https://www.rfc-editor.org/rfc/rfc9114.html#name-settings
             // "The payload of a SETTINGS frame consists of zero or more parameters. Each parameter consists of
             //  a setting identifier and a value, both encoded as QUIC variable-length integers."
-            try {
-                long identifier = VariableLengthInteger.parseLong(buffer);
-                long value = VariableLengthInteger.parseLong(buffer);
-                if (identifier == QPACK_MAX_TABLE_CAPACITY) {
-                    qpackMaxTableCapacity = (int) value;
-                }
-                else if (identifier == QPACK_BLOCKED_STREAMS) {
-                    qpackBlockedStreams = (int) value;
-                }
-                else if (identifier == SETTINGS_ENABLE_CONNECT_PROTOCOL) {
-                    // https://www.rfc-editor.org/rfc/rfc9220#name-iana-considerations
-                    // "Value: 0x08
-                    //  Setting Name: SETTINGS_ENABLE_CONNECT_PROTOCOL"
-                    if (value == 1L) {
-                        // https://www.rfc-editor.org/rfc/rfc8441#section-3
-                        // "The value of the parameter MUST be 0 or 1."
-                        // "Upon receipt of SETTINGS_ENABLE_CONNECT_PROTOCOL with a value of 1, a client MAY use the
-                        //  Extended CONNECT as defined in this document when creating new streams."
-                        settingsEnableConnectProtocol = true;
-                    }
-                }
-                settings.put(identifier, value);
+            long identifier = VariableLengthIntegerUtil.decode(buffer);
+            long value = VariableLengthIntegerUtil.decode(buffer);
+            if (identifier == VariableLengthIntegerUtil.INCOMPLETE || value == VariableLengthIntegerUtil.INCOMPLETE) {
+                throw new IOException("incomplete settings parameter");
             }
-            catch (InvalidIntegerEncodingException e) {
-                throw new IOException(e);
+            if (identifier == QPACK_MAX_TABLE_CAPACITY) {
+                qpackMaxTableCapacity = (int) value;
+            }
+            else if (identifier == QPACK_BLOCKED_STREAMS) {
+                qpackBlockedStreams = (int) value;
+            }
+            else if (identifier == SETTINGS_ENABLE_CONNECT_PROTOCOL) {
+                // https://www.rfc-editor.org/rfc/rfc9220#name-iana-considerations
+                // "Value: 0x08
+                //  Setting Name: SETTINGS_ENABLE_CONNECT_PROTOCOL"
+                if (value == 1L) {
+                    // https://www.rfc-editor.org/rfc/rfc8441#section-3
+                    // "The value of the parameter MUST be 0 or 1."
+                    // "Upon receipt of SETTINGS_ENABLE_CONNECT_PROTOCOL with a value of 1, a client MAY use the
+                    //  Extended CONNECT as defined in this document when creating new streams."
+                    settingsEnableConnectProtocol = true;
+                }
             }
+            settings.put(identifier, value);
         }
         return this;
     }
 
     public ByteBuffer getBytes() {
-        int nrOfParams = settings.size();
-        int maxPossibleSize = nrOfParams * 2 * 8;
-        ByteBuffer serializedParams = ByteBuffer.allocate(maxPossibleSize);
-
-        settings.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> {
-                    // Only write the SETTINGS_ENABLE_CONNECT_PROTOCOL parameter if it is set to 1.
-                    if (entry.getKey() != SETTINGS_ENABLE_CONNECT_PROTOCOL || entry.getValue() == 1) {
-                        VariableLengthInteger.encode(entry.getKey(), serializedParams);
-                        VariableLengthInteger.encode(entry.getValue(), serializedParams);
-                    }
-                });
-
-        int paramLength = serializedParams.position();
-        ByteBuffer buffer = ByteBuffer.allocate(1 + VariableLengthInteger.bytesNeeded(paramLength) + paramLength);
-        buffer.put((byte) SETTINGS_FRAME_TYPE);
-        VariableLengthInteger.encode(paramLength, buffer);
-        buffer.put(serializedParams.array(), 0, paramLength);
+        long[] identifiers = new long[settings.size()];
+        int count = 0;
+        for (Map.Entry<Long, Long> entry : settings.entrySet()) {
+            // Only write the SETTINGS_ENABLE_CONNECT_PROTOCOL parameter if it is set to 1.
+            if (entry.getKey() != SETTINGS_ENABLE_CONNECT_PROTOCOL || entry.getValue() == 1) {
+                identifiers[count++] = entry.getKey();
+            }
+        }
+        Arrays.sort(identifiers, 0, count);
+
+        int paramLength = 0;
+        for (int i = 0; i < count; i++) {
+            paramLength += VariableLengthIntegerUtil.encodedLength(identifiers[i]) + VariableLengthIntegerUtil.encodedLength(settings.get(identifiers[i]));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(VariableLengthIntegerUtil.frameHeaderLength(SETTINGS_FRAME_TYPE, paramLength) + paramLength);
+        byte[] data = buffer.array();
+        int offset = VariableLengthIntegerUtil.encodeFrameHeader(SETTINGS_FRAME_TYPE, paramLength, data, 0);
+        for (int i = 0; i < count; i++) {
+            offset += VariableLengthIntegerUtil.encode(identifiers[i], data, offset);
+            offset += VariableLengthIntegerUtil.encode(settings.get(identifiers[i]), data, offset);
+        }
+        buffer.position(offset);
         return buffer;
     }
 
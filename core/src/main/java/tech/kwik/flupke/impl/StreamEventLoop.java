@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.core.QuicStream;
+import tech.kwik.core.concurrent.DaemonThreadFactory;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads from QUIC streams with a small, fixed number of event loop threads, instead of a (blocked) thread per stream.
+ * Kwik does not notify when a stream becomes readable, so readability is detected by polling the non-blocking
+ * {@link InputStream#available()} of each registered stream; when none of the streams of a loop has data, the loop
+ * backs off (up to the maximum poll interval) to avoid busy waiting. Streams without data are polled less often, with
+ * an interval that grows to the maximum poll interval, and the number of streams polled per loop iteration is bounded.
+ * So, an idle stream costs at most one available() call per maximum poll interval, which is the price paid for not
+ * having a thread per stream; a larger maximum poll interval costs less CPU but adds latency.
+ * Handlers are called on the event loop thread, so they must never block.
+ * The event loop is only suited for reading a bounded prefix of a stream (like the request headers): as available()
+ * returns 0 both when no data has arrived yet and when the stream is finished or reset, the end of a stream can only
+ * be detected by a (possibly blocking) read, so reading a stream until its end (like a request or response body) is
+ * not supported.
+ */
+public class StreamEventLoop implements AutoCloseable {
+
+    public static final Duration DEFAULT_MAX_POLL_INTERVAL = Duration.ofMillis(2);
+    private static final long MIN_PARK_NANOS = 20_000;
+    private static final int READ_BUFFER_SIZE = 4096;
+    // Limits the work done in one loop iteration, so newly registered streams are picked up in time.
+    private static final int MAX_POLLS_PER_ITERATION = 256;
+
+    public interface ReadHandler {
+
+        /**
+         * Called on the event loop thread when data has been read from the stream. The buffer is only valid during
+         * the call.
+         * @param data  the data read
+         * @return  true when the handler is done (and the stream should be deregistered), false to keep on reading
+         */
+        boolean dataRead(ByteBuffer data);
+
+        /**
+         * Called when the handler did not finish before the timeout that was given at registration expired; the stream
+         * is deregistered.
+         */
+        void timeout();
+
+        /**
+         * Called when reading from the stream (or the handler itself) failed; the stream is deregistered.
+         * @param error  the cause of the failure
+         */
+        void readError(Exception error);
+    }
+
+    private final Loop[] loops;
+    private final long maxParkNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public StreamEventLoop(int threads) {
+        this(threads, DEFAULT_MAX_POLL_INTERVAL);
+    }
+
+    public StreamEventLoop(int threads, Duration maxPollInterval) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("number of threads must be at least 1");
+        }
+        maxParkNanos = Math.max(MIN_PARK_NANOS, maxPollInterval.toNanos());
+        ThreadFactory threadFactory = new DaemonThreadFactory("http3-event-loop");
+        loops = new Loop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new Loop();
+            loops[i].thread = threadFactory.newThread(loops[i]);
+        }
+        for (Loop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * Registers the given stream: from now on, data available on the stream is read by one of the event loop threads
+     * and passed to the handler, until the handler is done or the timeout expires.
+     * @param stream  the stream to read from
+     * @param handler  the handler that receives the data
+     * @param timeout  the maximum time the handler may take to finish, or null for no timeout
+     */
+    public void register(QuicStream stream, ReadHandler handler, Duration timeout) {
+        if (!running) {
+            throw new IllegalStateException("event loop is closed");
+        }
+        Loop loop = loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+        long deadline = timeout != null? System.nanoTime() + timeout.toNanos(): 0;
+        loop.added.add(new Registration(stream.getInputStream(), Objects.requireNonNull(handler), timeout != null, deadline));
+        LockSupport.unpark(loop.thread);
+    }
+
+    /**
+     * Stops the event loop threads; handlers of streams that are still registered receive a timeout.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Loop loop : loops) {
+            LockSupport.unpark(loop.thread);
+        }
+    }
+
+    public int registeredStreams() {
+        int count = 0;
+        for (Loop loop : loops) {
+            count += loop.registered;
+        }
+        return count;
+    }
+
+    private static class Registration {
+        final InputStream input;
+        final ReadHandler handler;
+        final boolean hasDeadline;
+        final long deadline;
+        // Only accessed by the loop thread.
+        long nextPoll;
+        long pollInterval = MIN_PARK_NANOS;
+
+        Registration(InputStream input, ReadHandler handler, boolean hasDeadline, long deadline) {
+            this.input = input;
+            this.handler = handler;
+            this.hasDeadline = hasDeadline;
+            this.deadline = deadline;
+        }
+    }
+
+    private class Loop implements Runnable {
+        final Queue<Registration> added = new ConcurrentLinkedQueue<>();
+        // Streams are polled in round-robin order: a polled registration is moved to the end of the queue.
+        final Queue<Registration> registrations = new ArrayDeque<>();
+        final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+        volatile Thread thread;
+        // Only written by the loop thread.
+        volatile int registered;
+
+        @Override
+        public void run() {
+            long parkNanos = MIN_PARK_NANOS;
+            while (running) {
+                Registration registration;
+                while ((registration = added.poll()) != null) {
+                    registration.nextPoll = System.nanoTime();
+                    registrations.add(registration);
+                    registered++;
+                    parkNanos = MIN_PARK_NANOS;
+                }
+                if (pollStreams(System.nanoTime())) {
+                    parkNanos = MIN_PARK_NANOS;
+                }
+                else if (added.isEmpty()) {
+                    LockSupport.parkNanos(this, parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, maxParkNanos);
+                }
+            }
+            added.forEach(registrations::add);
+            registrations.forEach(r -> r.handler.timeout());
+            registrations.clear();
+            registered = 0;
+        }
+
+        /**
+         * Polls the streams that are due, at most MAX_POLLS_PER_ITERATION of them; streams that are not due or not
+         * polled in this iteration stay registered in their turn.
+         * @return  whether progress was made (or polling was cut short), i.e. whether the loop should not back off
+         */
+        private boolean pollStreams(long now) {
+            boolean progress = false;
+            int polls = 0;
+            for (int pending = registrations.size(); pending > 0 && polls < MAX_POLLS_PER_ITERATION; pending--) {
+                Registration registration = registrations.remove();
+                if (now - registration.nextPoll < 0) {
+                    registrations.add(registration);
+                    continue;
+                }
+                polls++;
+                int available;
+                try {
+                    available = registration.input.available();
+                    if (available > 0) {
+                        progress = true;
+                        registration.pollInterval = MIN_PARK_NANOS;
+                        registration.nextPoll = now;
+                        int read = registration.input.read(readBuffer, 0, Math.min(available, readBuffer.length));
+                        if (read > 0 && registration.handler.dataRead(ByteBuffer.wrap(readBuffer, 0, read).asReadOnlyBuffer())) {
+                            registered--;
+                            continue;
+                        }
+                    }
+                    else {
+                        // Idle streams are polled less often, so the cost of polling is not proportional to the number
+                        // of idle streams times the loop frequency.
+                        registration.nextPoll = now + registration.pollInterval;
+                        registration.pollInterval = Math.min(registration.pollInterval * 2, maxParkNanos);
+                    }
+                }
+                catch (Exception error) {
+                    registered--;
+                    registration.handler.readError(error);
+                    continue;
+                }
+                if (available == 0 && registration.hasDeadline && now - registration.deadline >= 0) {
+                    registered--;
+                    registration.handler.timeout();
+                    continue;
+                }
+                registrations.add(registration);
+            }
+            return progress || polls == MAX_POLLS_PER_ITERATION;
+        }
+    }
+}
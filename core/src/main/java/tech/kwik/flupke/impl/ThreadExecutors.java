@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import tech.kwik.core.concurrent.DaemonThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the default executors, using either (cached) platform threads or virtual threads.
+ */
+public class ThreadExecutors {
+
+    private ThreadExecutors() {
+    }
+
+    /**
+     * Creates an executor that runs each task on its own thread: a virtual thread per task when virtual threads are
+     * requested and supported by the running JVM (Java 21 or later), a cached pool of daemon platform threads otherwise.
+     * @param name  the name (prefix) for the threads
+     * @param virtualThreads  whether to use virtual threads (if supported)
+     * @return  the executor
+     */
+    public static ExecutorService newCachedExecutor(String name, boolean virtualThreads) {
+        if (virtualThreads && VirtualThreads.isSupported()) {
+            return VirtualThreads.newThreadPerTaskExecutor(name);
+        }
+        else {
+            return Executors.newCachedThreadPool(new DaemonThreadFactory(name));
+        }
+    }
+}
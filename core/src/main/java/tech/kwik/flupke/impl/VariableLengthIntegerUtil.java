@@ -18,27 +18,178 @@
  */
 package tech.kwik.flupke.impl;
 
-import tech.kwik.core.generic.VariableLengthInteger;
-
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
 import java.nio.ByteBuffer;
 
 /**
  * Util methods for Variable Length Integer; should ultimately be moved to Kwik library.
+ * None of the methods allocate: values are encoded into (reusable) arrays or buffers provided by the caller, or
+ * written to streams directly.
+ * https://www.rfc-editor.org/rfc/rfc9000.html#name-variable-length-integer-enc
  */
 public class VariableLengthIntegerUtil {
 
+    public static final int MAX_LENGTH = 8;
+    public static final long MAX_VALUE = (1L << 62) - 1;
+    // https://www.rfc-editor.org/rfc/rfc9114.html#name-frame-layout
+    // "All frames have the following format: Type (i), Length (i), Frame Payload (..)"
+    public static final int MAX_FRAME_HEADER_LENGTH = 2 * MAX_LENGTH;
+    /**
+     * Returned by {@link #decode(ByteBuffer)} when the buffer does not contain the complete integer.
+     */
+    public static final long INCOMPLETE = -1;
+
+    /**
+     * Returns the number of bytes needed to encode the given value.
+     */
+    public static int encodedLength(long value) {
+        if (value < 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("value cannot be encoded as variable length integer: " + value);
+        }
+        if (value < 0x40) {
+            return 1;
+        }
+        else if (value < 0x4000) {
+            return 2;
+        }
+        else if (value < 0x40000000) {
+            return 4;
+        }
+        else {
+            return 8;
+        }
+    }
+
+    /**
+     * Returns the length of the variable length integer that starts with the given byte.
+     */
+    public static int encodedLength(byte firstByte) {
+        return 1 << ((firstByte & 0xc0) >> 6);
+    }
+
+    /**
+     * Encodes the given value into the given array.
+     * @return  the number of bytes written
+     */
+    public static int encode(long value, byte[] destination, int offset) {
+        int length = encodedLength(value);
+        for (int i = length - 1; i >= 0; i--) {
+            destination[offset + i] = (byte) value;
+            value >>= 8;
+        }
+        destination[offset] |= (byte) (Integer.numberOfTrailingZeros(length) << 6);
+        return length;
+    }
+
+    /**
+     * Encodes the given value into the given buffer, at its current position.
+     * @return  the number of bytes written
+     */
+    public static int encode(long value, ByteBuffer destination) {
+        int length = encodedLength(value);
+        int position = destination.position();
+        for (int i = length - 1; i >= 0; i--) {
+            destination.put(position + i, (byte) value);
+            value >>= 8;
+        }
+        destination.put(position, (byte) (destination.get(position) | (Integer.numberOfTrailingZeros(length) << 6)));
+        destination.position(position + length);
+        return length;
+    }
+
+    /**
+     * Encodes a frame header (type and payload length) into the given array.
+     * @return  the number of bytes written (at most {@link #MAX_FRAME_HEADER_LENGTH})
+     */
+    public static int encodeFrameHeader(long frameType, long payloadLength, byte[] destination, int offset) {
+        int typeLength = encode(frameType, destination, offset);
+        return typeLength + encode(payloadLength, destination, offset + typeLength);
+    }
+
+    public static int frameHeaderLength(long frameType, long payloadLength) {
+        return encodedLength(frameType) + encodedLength(payloadLength);
+    }
+
+    /**
+     * Decodes a variable length integer from the given buffer. When the buffer does not contain the complete integer,
+     * the buffer position is not changed and {@link #INCOMPLETE} is returned.
+     */
+    public static long decode(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return INCOMPLETE;
+        }
+        int position = buffer.position();
+        int length = encodedLength(buffer.get(position));
+        if (buffer.remaining() < length) {
+            return INCOMPLETE;
+        }
+        long value = buffer.get(position) & 0x3f;
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (buffer.get(position + i) & 0xff);
+        }
+        buffer.position(position + length);
+        return value;
+    }
+
+    /**
+     * Decodes the (complete) variable length integer at the given offset of the array.
+     */
+    public static long decode(byte[] data, int offset) {
+        int length = encodedLength(data[offset]);
+        long value = data[offset] & 0x3f;
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (data[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a variable length integer from the given stream.
+     * @throws EOFException  when the stream ends before the integer is complete
+     */
+    public static long read(InputStream inputStream) throws IOException {
+        int firstByte = inputStream.read();
+        if (firstByte < 0) {
+            throw new EOFException();
+        }
+        return readRemaining(firstByte, inputStream);
+    }
+
+    private static long readRemaining(int firstByte, InputStream inputStream) throws IOException {
+        int length = encodedLength((byte) firstByte);
+        long value = firstByte & 0x3f;
+        for (int i = 1; i < length; i++) {
+            int next = inputStream.read();
+            if (next < 0) {
+                throw new EOFException();
+            }
+            value = (value << 8) | next;
+        }
+        return value;
+    }
+
     public static void write(long value, OutputStream outputStream) throws IOException {
-        ByteBuffer buffer = ByteBuffer.allocate(8);
-        int numberOfBytes = VariableLengthInteger.encode(value, buffer);
-        buffer.flip();
-        for (int i = 0; i < numberOfBytes; i++) {
-            outputStream.write(buffer.get());
+        int length = encodedLength(value);
+        int lengthBits = Integer.numberOfTrailingZeros(length) << 6;
+        for (int i = length - 1; i >= 0; i--) {
+            int b = (int) (value >> (8 * i)) & 0xff;
+            outputStream.write(i == length - 1? b | lengthBits: b);
         }
     }
 
+    /**
+     * Writes a frame header (type and payload length) to the given stream with one write, using the given scratch
+     * array, which must be at least {@link #MAX_FRAME_HEADER_LENGTH} bytes.
+     */
+    public static void writeFrameHeader(long frameType, long payloadLength, OutputStream outputStream, byte[] scratch) throws IOException {
+        int length = encodeFrameHeader(frameType, payloadLength, scratch, 0);
+        outputStream.write(scratch, 0, length);
+    }
+
     /**
      * Reads a variable length integer from the input stream, and pushes it back to the stream so it can be reread.
      * @param inputStream  pushback buffer must be at least 8 bytes!
@@ -46,10 +197,17 @@ public class VariableLengthIntegerUtil {
      * @throws IOException
      */
     public static long peekLong(PushbackInputStream inputStream) throws IOException {
-        Long value = VariableLengthInteger.parseLong(inputStream);
-        ByteBuffer buffer = ByteBuffer.allocate(8);
-        int numberOfBytes = VariableLengthInteger.encode(value, buffer);
-        inputStream.unread(buffer.array(), 0, numberOfBytes);
+        int firstByte = inputStream.read();
+        if (firstByte < 0) {
+            throw new EOFException();
+        }
+        long value = readRemaining(firstByte, inputStream);
+        int length = encodedLength((byte) firstByte);
+        // Unread in reverse order, so the bytes are reread in their original order.
+        for (int i = 0; i < length - 1; i++) {
+            inputStream.unread((int) (value >> (8 * i)) & 0xff);
+        }
+        inputStream.unread(firstByte);
         return value;
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads. This is the implementation for Java versions that do not support virtual threads; the
+ * multi-release jar contains a Java 21 version of this class that does.
+ */
+public class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return  whether virtual threads are supported by the running JVM
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * @param name  the name prefix for the threads
+     * @return  the executor
+     * @throws UnsupportedOperationException  if virtual threads are not supported by the running JVM
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        throw new UnsupportedOperationException("virtual threads require Java 21 or later");
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server;
+
+import java.net.http.HttpHeaders;
+import java.util.Locale;
+
+/**
+ * Content coding negotiation based on the Accept-Encoding request header.
+ * https://www.rfc-editor.org/rfc/rfc9110.html#name-accept-encoding
+ */
+public final class AcceptEncoding {
+
+    private AcceptEncoding() {
+    }
+
+    /**
+     * Determines whether the given content coding is acceptable for the client, i.e. whether it is listed in the
+     * Accept-Encoding request header(s) (or covered by "*") with a non-zero qvalue.
+     * Although the RFC states that any content coding is acceptable when the request has no Accept-Encoding header,
+     * this method returns false in that case, as in practice many clients that do not send the header cannot decode
+     * compressed content.
+     * @param requestHeaders  the request headers
+     * @param coding  the content coding, e.g. "gzip"
+     * @return  whether the content coding is acceptable
+     */
+    public static boolean isAcceptable(HttpHeaders requestHeaders, String coding) {
+        Double codingQValue = null;
+        Double wildcardQValue = null;
+        for (String headerValue: requestHeaders.allValues("accept-encoding")) {
+            for (String element: headerValue.split(",")) {
+                String[] parts = element.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                if (name.equals("x-" + coding)) {
+                    // https://www.rfc-editor.org/rfc/rfc9110.html#name-gzip-coding
+                    // "A recipient SHOULD consider "x-gzip" to be equivalent to "gzip"."
+                    name = coding;
+                }
+                double qValue = qValue(parts);
+                if (name.equals(coding)) {
+                    codingQValue = qValue;
+                }
+                else if (name.equals("*")) {
+                    wildcardQValue = qValue;
+                }
+            }
+        }
+        // https://www.rfc-editor.org/rfc/rfc9110.html#name-accept-encoding
+        // "An asterisk "*" symbol in an Accept-Encoding field matches any available content coding not explicitly
+        //  listed in the field."
+        double qValue = codingQValue != null? codingQValue: wildcardQValue != null? wildcardQValue: 0.0;
+        return qValue > 0.0;
+    }
+
+    private static double qValue(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                }
+                catch (NumberFormatException invalidWeight) {
+                    return 0.0;
+                }
+            }
+        }
+        return 1.0;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Request handler that produces its response asynchronously, e.g. when it has to wait for a backend. Unlike with
+ * {@link HttpRequestHandler}, the response is not finished when the handleRequest method returns, but when the
+ * returned completion stage completes, so the handler does not need to block a thread while waiting.
+ */
+public interface AsyncHttpRequestHandler {
+
+    /**
+     * Handles the request. The request body can be read and the response can be written until the returned stage is
+     * completed; the response is then finished (and a 500 status is sent if no status was set). When the stage
+     * completes exceptionally, the response is sent with status 500, or, if the response was already started, the
+     * stream is reset. Finishing the response is not done by the thread that completes the stage, but by the
+     * connection's executor.
+     * @param request  the request
+     * @param response  the response
+     * @return  a completion stage that completes when the handler is done with the request and response
+     */
+    CompletionStage<Void> handleRequest(HttpServerRequest request, HttpServerResponse response);
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server;
+
+import tech.kwik.flupke.server.impl.CompressingResponse;
+import tech.kwik.flupke.server.impl.DeflaterPool;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * Request handler that compresses the responses of the handler it wraps with gzip, when the client accepts it, the
+ * content type is compressible (text, json, javascript, xml) and the response body is larger than a minimum size.
+ * Responses with a content-encoding set by the wrapped handler are passed unmodified. Response bodies are buffered up
+ * to the minimum size in order to decide whether to compress; the deflaters used for compressing are pooled.
+ */
+public class CompressingRequestHandler implements HttpRequestHandler {
+
+    public static final int DEFAULT_MIN_SIZE = 1024;
+
+    private final HttpRequestHandler delegate;
+    private final int minSize;
+    private final DeflaterPool deflaterPool;
+
+    public CompressingRequestHandler(HttpRequestHandler delegate) {
+        this(delegate, DEFAULT_MIN_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a compressing request handler.
+     * @param delegate  the handler producing the responses
+     * @param minSize  the size above which response bodies are compressed
+     * @param compressionLevel  the compression level (0-9), see {@link Deflater}
+     */
+    public CompressingRequestHandler(HttpRequestHandler delegate, int minSize, int compressionLevel) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minimum size must not be negative");
+        }
+        this.delegate = delegate;
+        this.minSize = minSize;
+        this.deflaterPool = new DeflaterPool(compressionLevel, DeflaterPool.DEFAULT_MAX_POOLED);
+    }
+
+    @Override
+    public void handleRequest(HttpServerRequest request, HttpServerResponse response) throws IOException {
+        boolean gzipAccepted = !request.method().equals("HEAD") && AcceptEncoding.isAcceptable(request.headers(), "gzip");
+        CompressingResponse compressingResponse = new CompressingResponse(response, gzipAccepted, minSize, deflaterPool);
+        try {
+            delegate.handleRequest(request, compressingResponse);
+            compressingResponse.finish();
+        }
+        finally {
+            // When the handler (or finishing the response) failed, the deflater must still be returned to the pool.
+            compressingResponse.release();
+        }
+    }
+}
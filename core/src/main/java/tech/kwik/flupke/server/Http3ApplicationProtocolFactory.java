@@ -22,40 +22,152 @@ import tech.kwik.core.QuicConnection;
 import tech.kwik.core.concurrent.DaemonThreadFactory;
 import tech.kwik.core.server.ApplicationProtocolConnection;
 import tech.kwik.core.server.ApplicationProtocolConnectionFactory;
+import tech.kwik.flupke.impl.StreamEventLoop;
+import tech.kwik.flupke.impl.ThreadExecutors;
+import tech.kwik.flupke.impl.VirtualThreads;
 import tech.kwik.flupke.server.impl.Http3ServerConnectionImpl;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class Http3ApplicationProtocolFactory implements ApplicationProtocolConnectionFactory {
 
     public static final String HTTP3_PROTOCOL_ID = "h3";
+    public static final int DEFAULT_MAX_REQUEST_THREADS = 256;
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS = 1024;
 
+    // Exactly one of the request handlers is set.
     private final HttpRequestHandler httpRequestHandler;
-    private final ExecutorService executorService;
+    private final AsyncHttpRequestHandler asyncRequestHandler;
+    private ExecutorService executorService;
+    private final boolean defaultExecutors;
+    private boolean virtualThreads;
+    private ExecutorService requestExecutor;
+    private int maxRequestThreads = DEFAULT_MAX_REQUEST_THREADS;
+    private int maxQueuedRequests = DEFAULT_MAX_QUEUED_REQUESTS;
+    private Duration overloadRetryAfter;
+    private int maxConcurrentRequestStreams = Integer.MAX_VALUE;
     private Map<String, Http3ServerExtensionFactory> extensions;
     private long maxHeaderSize = 10 * 1024;
     private long maxDataSize = 10 * 1024 * 1024;
+    private long qpackMaxTableCapacity;
+    private int qpackBlockedStreams;
+    private boolean qpackHuffmanEncoding = true;
+    private int eventLoopThreads;
+    private Duration requestHeadersTimeout = Duration.ofSeconds(10);
+    private StreamEventLoop streamEventLoop;
 
     public Http3ApplicationProtocolFactory(HttpRequestHandler requestHandler) {
         this(requestHandler, Map.of());
     }
 
+    /**
+     * Creates a factory that handles requests with a bounded pool of threads (see {@link #setMaxRequestThreads(int)}
+     * and {@link #setMaxQueuedRequests(int)}); requests that arrive when all threads are busy and the queue is full
+     * are rejected. Alternatively, requests can be handled by virtual threads, see {@link #setVirtualThreads(boolean)}.
+     */
     public Http3ApplicationProtocolFactory(HttpRequestHandler requestHandler, Map<String, Http3ServerExtensionFactory> extensions) {
-        this(requestHandler, extensions, Executors.newCachedThreadPool(new DaemonThreadFactory("http3-connection")));
+        this(Objects.requireNonNull(requestHandler), null, extensions, null);
     }
 
+    /**
+     * Creates a factory that uses the given executor for handling requests as well as the other streams of each
+     * connection. Requests the executor refuses (throwing RejectedExecutionException) are rejected.
+     */
     public Http3ApplicationProtocolFactory(HttpRequestHandler requestHandler, Map<String, Http3ServerExtensionFactory> extensions, ExecutorService executorService) {
-        this.httpRequestHandler = Objects.requireNonNull(requestHandler);
+        this(Objects.requireNonNull(requestHandler), null, extensions, Objects.requireNonNull(executorService));
+    }
+
+    private Http3ApplicationProtocolFactory(HttpRequestHandler requestHandler, AsyncHttpRequestHandler asyncRequestHandler,
+                                            Map<String, Http3ServerExtensionFactory> extensions, ExecutorService executorService) {
+        this.httpRequestHandler = requestHandler;
+        this.asyncRequestHandler = asyncRequestHandler;
         this.extensions = Objects.requireNonNull(extensions);
-        this.executorService = Objects.requireNonNull(executorService);
+        this.executorService = executorService;
+        this.defaultExecutors = executorService == null;
+    }
+
+    /**
+     * Creates a factory for a request handler that produces responses asynchronously. Threads are only used for
+     * reading the request headers and calling the handler, not while the handler waits for its response to complete.
+     * Executors are the same as for {@link #Http3ApplicationProtocolFactory(HttpRequestHandler, Map)}.
+     * @param requestHandler  the async request handler
+     * @param extensions  the HTTP/3 extensions to support
+     * @return  the factory
+     */
+    public static Http3ApplicationProtocolFactory withAsyncHandler(AsyncHttpRequestHandler requestHandler, Map<String, Http3ServerExtensionFactory> extensions) {
+        return new Http3ApplicationProtocolFactory(null, Objects.requireNonNull(requestHandler), extensions, null);
+    }
+
+    /**
+     * Creates a factory for a request handler that produces responses asynchronously, using the given executor for
+     * calling the handler as well as for the other streams of each connection.
+     * @param requestHandler  the async request handler
+     * @param extensions  the HTTP/3 extensions to support
+     * @param executorService  the executor
+     * @return  the factory
+     */
+    public static Http3ApplicationProtocolFactory withAsyncHandler(AsyncHttpRequestHandler requestHandler, Map<String, Http3ServerExtensionFactory> extensions,
+                                                                   ExecutorService executorService) {
+        return new Http3ApplicationProtocolFactory(null, Objects.requireNonNull(requestHandler), extensions, Objects.requireNonNull(executorService));
     }
 
     @Override
     public final ApplicationProtocolConnection createConnection(String protocol, QuicConnection quicConnection) {
-        return new Http3ServerConnectionImpl(quicConnection, httpRequestHandler, maxHeaderSize, maxDataSize, executorService, extensions);
+        Http3ServerConnectionImpl connection = asyncRequestHandler != null?
+                new Http3ServerConnectionImpl(quicConnection, asyncRequestHandler, maxHeaderSize, maxDataSize,
+                        qpackMaxTableCapacity, qpackBlockedStreams, qpackHuffmanEncoding, getConnectionExecutor(), extensions):
+                new Http3ServerConnectionImpl(quicConnection, httpRequestHandler, maxHeaderSize, maxDataSize,
+                        qpackMaxTableCapacity, qpackBlockedStreams, qpackHuffmanEncoding, getConnectionExecutor(), extensions);
+        connection.setRequestExecutor(getRequestExecutor(), overloadRetryAfter);
+        if (eventLoopThreads > 0) {
+            connection.setStreamEventLoop(getStreamEventLoop(), requestHeadersTimeout);
+        }
+        return connection;
+    }
+
+    private synchronized ExecutorService getConnectionExecutor() {
+        if (executorService == null) {
+            executorService = ThreadExecutors.newCachedExecutor("http3-connection", virtualThreads);
+        }
+        return executorService;
+    }
+
+    private synchronized ExecutorService getRequestExecutor() {
+        if (requestExecutor == null) {
+            if (defaultExecutors && virtualThreads && VirtualThreads.isSupported()) {
+                // Virtual threads are cheap, so there is no need for pooling and queueing (the number of concurrent
+                // requests per connection is still limited by the maximum number of concurrent request streams).
+                requestExecutor = VirtualThreads.newThreadPerTaskExecutor("http3-request");
+            }
+            else if (defaultExecutors) {
+                // Connection streams (control and QPACK streams) are long-lived and must never be refused, so they
+                // are handled by the (unbounded) connection executor; only request streams are subject to the limits.
+                BlockingQueue<Runnable> queue = maxQueuedRequests > 0? new ArrayBlockingQueue<>(maxQueuedRequests): new SynchronousQueue<>();
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(maxRequestThreads, maxRequestThreads, 60, TimeUnit.SECONDS,
+                        queue, new DaemonThreadFactory("http3-request"));
+                pool.allowCoreThreadTimeOut(true);
+                requestExecutor = pool;
+            }
+            else {
+                requestExecutor = getConnectionExecutor();
+            }
+        }
+        return requestExecutor;
+    }
+
+    private synchronized StreamEventLoop getStreamEventLoop() {
+        if (streamEventLoop == null) {
+            streamEventLoop = new StreamEventLoop(eventLoopThreads);
+        }
+        return streamEventLoop;
     }
 
     @Override
@@ -76,7 +188,7 @@ public class Http3ApplicationProtocolFactory implements ApplicationProtocolConne
 
     @Override
     public int maxConcurrentPeerInitiatedBidirectionalStreams() {
-        return Integer.MAX_VALUE;
+        return maxConcurrentRequestStreams;
     }
 
     @Override
@@ -117,4 +229,176 @@ public class Http3ApplicationProtocolFactory implements ApplicationProtocolConne
         }
         this.maxHeaderSize = maxHeaderSize;
     }
+
+    public long getQpackMaxTableCapacity() {
+        return qpackMaxTableCapacity;
+    }
+
+    /**
+     * Sets the maximum capacity of the QPACK dynamic table, used both for decoding request headers (the value is
+     * announced to the client) and for encoding response headers (if the client allows). When 0 (the default), the
+     * dynamic table is not used.
+     * @param qpackMaxTableCapacity  the maximum capacity in bytes
+     */
+    public void setQpackMaxTableCapacity(long qpackMaxTableCapacity) {
+        if (qpackMaxTableCapacity < 0) {
+            throw new IllegalArgumentException("qpackMaxTableCapacity must be a positive value");
+        }
+        this.qpackMaxTableCapacity = qpackMaxTableCapacity;
+    }
+
+    public int getQpackBlockedStreams() {
+        return qpackBlockedStreams;
+    }
+
+    /**
+     * Sets the maximum number of request streams that may be blocked waiting for QPACK dynamic table updates.
+     * @param qpackBlockedStreams  the maximum number of blocked streams
+     */
+    public void setQpackBlockedStreams(int qpackBlockedStreams) {
+        if (qpackBlockedStreams < 0) {
+            throw new IllegalArgumentException("qpackBlockedStreams must be a positive value");
+        }
+        this.qpackBlockedStreams = qpackBlockedStreams;
+    }
+
+    public boolean isQpackHuffmanEncoding() {
+        return qpackHuffmanEncoding;
+    }
+
+    /**
+     * Sets whether the QPACK encoder uses Huffman encoding for string literals in response headers; when enabled (the
+     * default), Huffman encoding is used for each string literal for which it results in fewer bytes.
+     * @param qpackHuffmanEncoding  whether to use Huffman encoding
+     */
+    public void setQpackHuffmanEncoding(boolean qpackHuffmanEncoding) {
+        this.qpackHuffmanEncoding = qpackHuffmanEncoding;
+    }
+
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    /**
+     * Sets the number of event loop threads that wait for the request headers of incoming requests. When 0 (the
+     * default), each request stream is handed to the executor immediately, occupying a thread until the request
+     * headers are received; otherwise the event loop threads, shared by all connections, wait for the request headers
+     * and the executor is only used once a request's headers are complete, so slow clients do not tie up threads.
+     * Note that this only covers waiting for the request headers: the request body is read by the thread that handles
+     * the request, so a client that is slow in sending the request body still occupies an executor thread.
+     * As Kwik does not notify when a stream becomes readable, the event loop threads poll the streams that are waiting
+     * for request headers; a stream without data is polled at most once per
+     * {@link StreamEventLoop#DEFAULT_MAX_POLL_INTERVAL}. So, the event loop trades a (small) amount of CPU time, which
+     * grows with the number of waiting streams, and a few milliseconds of latency for not having a blocked thread per
+     * stream; it pays off when many clients are slow to send their requests.
+     * Must be set before the first connection is created.
+     * @param eventLoopThreads  the number of event loop threads, or 0 for not using an event loop
+     */
+    public void setEventLoopThreads(int eventLoopThreads) {
+        if (eventLoopThreads < 0) {
+            throw new IllegalArgumentException("eventLoopThreads must be a positive value");
+        }
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
+    public Duration getRequestHeadersTimeout() {
+        return requestHeadersTimeout;
+    }
+
+    /**
+     * Sets the maximum time a client may take for sending the request headers when event loop threads are used; request
+     * streams that have not delivered their headers in time are reset. Default is 10 seconds.
+     * @param requestHeadersTimeout  the timeout
+     */
+    public void setRequestHeadersTimeout(Duration requestHeadersTimeout) {
+        if (requestHeadersTimeout.isNegative() || requestHeadersTimeout.isZero()) {
+            throw new IllegalArgumentException("requestHeadersTimeout must be a positive value");
+        }
+        this.requestHeadersTimeout = requestHeadersTimeout;
+    }
+
+    public int getMaxConcurrentRequestStreams() {
+        return maxConcurrentRequestStreams;
+    }
+
+    /**
+     * Sets the maximum number of request streams a client may have open at the same time on one connection (the QUIC
+     * stream limit announced to the client); default is unlimited.
+     * @param maxConcurrentRequestStreams  the maximum number of concurrent request streams per connection
+     */
+    public void setMaxConcurrentRequestStreams(int maxConcurrentRequestStreams) {
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-bidirectional-streams
+        // "So as to not unnecessarily limit parallelism, at least 100 request streams SHOULD be permitted at a time."
+        if (maxConcurrentRequestStreams < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequestStreams must be at least 1");
+        }
+        this.maxConcurrentRequestStreams = maxConcurrentRequestStreams;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Sets whether connections and requests are handled by virtual threads instead of platform threads. With virtual
+     * threads, each request gets its own (virtual) thread, so the maximum number of request threads and queued
+     * requests do not apply. Virtual threads require Java 21 or later; on older JVMs this setting is ignored. Only
+     * applies when the factory is created without an explicit executor, and must be set before the first connection
+     * is created.
+     * @param virtualThreads  whether to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxRequestThreads() {
+        return maxRequestThreads;
+    }
+
+    /**
+     * Sets the maximum number of threads that handle requests concurrently; only applies when the factory is created
+     * without an explicit executor, and must be set before the first connection is created.
+     * @param maxRequestThreads  the maximum number of request threads
+     */
+    public void setMaxRequestThreads(int maxRequestThreads) {
+        if (maxRequestThreads < 1) {
+            throw new IllegalArgumentException("maxRequestThreads must be at least 1");
+        }
+        this.maxRequestThreads = maxRequestThreads;
+    }
+
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    /**
+     * Sets the maximum number of requests that wait for a request thread; requests arriving when the queue is full
+     * are rejected. Only applies when the factory is created without an explicit executor, and must be set before the
+     * first connection is created.
+     * @param maxQueuedRequests  the maximum number of waiting requests, 0 for rejecting requests immediately when all
+     *                           request threads are busy
+     */
+    public void setMaxQueuedRequests(int maxQueuedRequests) {
+        if (maxQueuedRequests < 0) {
+            throw new IllegalArgumentException("maxQueuedRequests must be a positive value");
+        }
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    public Duration getOverloadRetryAfter() {
+        return overloadRetryAfter;
+    }
+
+    /**
+     * Sets how requests are rejected when the server is overloaded. When null (the default), the request stream is
+     * reset with H3_REQUEST_REJECTED, which tells the client the request was not processed and can safely be retried;
+     * otherwise a 503 (Service Unavailable) response is sent with a Retry-After header of the given duration.
+     * @param overloadRetryAfter  the retry after duration, which is rounded up to whole seconds, or null
+     */
+    public void setOverloadRetryAfter(Duration overloadRetryAfter) {
+        if (overloadRetryAfter != null && overloadRetryAfter.isNegative()) {
+            throw new IllegalArgumentException("overloadRetryAfter must not be negative");
+        }
+        this.overloadRetryAfter = overloadRetryAfter;
+    }
 }
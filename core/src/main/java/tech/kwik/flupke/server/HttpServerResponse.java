@@ -18,8 +18,16 @@
  */
 package tech.kwik.flupke.server;
 
+import tech.kwik.flupke.PreEncodedHeaders;
+
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 public interface HttpServerResponse {
@@ -32,8 +40,116 @@ public interface HttpServerResponse {
 
     void setHeaders(HttpHeaders headers);
 
+    /**
+     * Adds a constant set of headers. Implementations can reuse the encoded form of the headers, which makes this
+     * cheaper than adding the headers one by one when the same headers are sent on many responses.
+     * @param headers  headers created once and reused for many responses
+     */
+    default void addHeaders(PreEncodedHeaders headers) {
+        headers.map().forEach(this::addHeader);
+    }
+
     OutputStream getOutputStream();
 
+    /**
+     * Sends the given file as response body, see {@link #sendFile(Path, long, long)}.
+     * @param file  the file to send
+     * @throws IOException  when reading the file or writing the response fails
+     */
+    default void sendFile(Path file) throws IOException {
+        sendFile(file, 0, Files.size(file));
+    }
+
+    /**
+     * Sends (a region of) the given file as response body and sets the Content-Length header accordingly. If no status
+     * is set, the status is set to 200. As the headers are sent before the file content, headers must be added before
+     * calling this method; the output stream must not be used for writing body data in combination with this method.
+     * @param file  the file to send
+     * @param offset  the position in the file of the first byte to send
+     * @param length  the number of bytes to send
+     * @throws IOException  when reading the file or writing the response fails
+     */
+    default void sendFile(Path file, long offset, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (offset < 0 || length < 0 || offset + length > channel.size()) {
+                throw new IllegalArgumentException("range exceeds file size");
+            }
+            addHeader("content-length", Long.toString(length));
+            if (!isStatusSet()) {
+                setStatus(200);
+            }
+            OutputStream output = getOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                output.write(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * Returns a non-blocking writer for the response body, with default high and low watermarks.
+     * @return  the response writer
+     */
+    default ResponseWriter getResponseWriter() {
+        return getResponseWriter(ResponseWriter.DEFAULT_LOW_WATERMARK, ResponseWriter.DEFAULT_HIGH_WATERMARK);
+    }
+
+    /**
+     * Returns a non-blocking writer for the response body, that becomes unwritable when the amount of queued data
+     * reaches the high watermark and writable again when it has dropped to the low watermark. Must be called only once
+     * per response; the response's output stream must not be used in combination with the writer.
+     * The default implementation returns a writer that writes directly to the response's output stream; it is always
+     * writable, but its write method blocks when the output stream blocks. Implementations that can send data in the
+     * background should override this method.
+     * @param lowWatermark  the number of queued bytes at (or below) which the writer becomes writable again
+     * @param highWatermark  the number of queued bytes at which the writer becomes unwritable
+     * @return  the response writer
+     */
+    default ResponseWriter getResponseWriter(long lowWatermark, long highWatermark) {
+        if (lowWatermark < 0 || highWatermark <= 0 || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("watermarks must be positive and low watermark must be less than high watermark");
+        }
+        return new OutputStreamResponseWriter(getOutputStream());
+    }
+
+    /**
+     * Sends an interim (1xx) response, for example 100 (Continue) to let a client that sent "expect: 100-continue"
+     * proceed with sending the request content, or 103 (Early Hints) to let the client start loading resources before
+     * the final response is available. Can be called multiple times, but only before the final response is started.
+     * Note that 100 (Continue) is sent automatically when the request handler starts reading the content of a request
+     * that expects it.
+     * As interim responses are only informational, the default implementation does nothing; implementations that can
+     * send interim responses should override this method.
+     * @param status  the interim status, in the range 100 - 199, excluding 101 (Switching Protocols)
+     * @param headers  the headers of the interim response, or null for none
+     * @throws IOException  when the interim response cannot be written
+     */
+    default void sendInterim(int status, HttpHeaders headers) throws IOException {
+    }
+
+    /**
+     * Pushes a response for the given path to the client, as if the client had sent a GET request for it (on the same
+     * authority as the request this is the response to), with the given request headers. The pushed response is
+     * produced by the server's request handler. Must be called before the response is completed; a push is refused
+     * when the client did not allow (more) pushes, when the response is written with a response writer or when the
+     * response is not a response to a client request.
+     * @param path  the path of the pushed request, which must start with a "/"
+     * @param headers  the request headers of the pushed request
+     * @return  true if the push was promised to the client, false otherwise
+     */
+    default boolean push(String path, HttpHeaders headers) {
+        return false;
+    }
+
     int status();
 
     boolean isStatusSet();
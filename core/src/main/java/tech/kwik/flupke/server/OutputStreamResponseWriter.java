@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Response writer that writes directly to an output stream, for response implementations that cannot send data in
+ * the background. Nothing is queued, so the writer is always writable, but writing blocks when the output stream
+ * blocks.
+ */
+final class OutputStreamResponseWriter implements ResponseWriter {
+
+    private final OutputStream output;
+    private volatile boolean closed;
+
+    OutputStreamResponseWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public void write(ByteBuffer data) throws IOException {
+        if (closed) {
+            throw new IOException("response writer is closed");
+        }
+        if (data.hasArray()) {
+            output.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+        }
+        else {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            output.write(bytes);
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return true;
+    }
+
+    @Override
+    public void setWritabilityListener(Consumer<Boolean> listener) {
+        // Writability never changes, so the listener is never called.
+    }
+
+    @Override
+    public long queuedBytes() {
+        return 0;
+    }
+
+    @Override
+    public CompletionStage<Void> close() {
+        closed = true;
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking writer for a response body, for producers that stream data (e.g. server-sent events or live data) and
+ * must not be blocked by a client that reads slowly. Written data is queued and sent in the background; when the
+ * amount of queued data reaches the high watermark, the writer becomes unwritable, until the queued data has dropped
+ * to the low watermark. Producers should stop writing while the writer is not writable and resume when notified.
+ * A response writer must not be combined with the response's output stream.
+ */
+public interface ResponseWriter {
+
+    long DEFAULT_LOW_WATERMARK = 16 * 1024;
+    long DEFAULT_HIGH_WATERMARK = 64 * 1024;
+
+    /**
+     * Queues the remaining bytes of the given buffer for sending; never blocks. The data is copied, so the buffer can
+     * be reused when this method returns. Data is accepted even when the writer is not writable, in which case it is
+     * the caller's responsibility to limit the amount of data written.
+     * @param data  the data to write
+     * @throws IOException  when sending previously written data failed, e.g. because the stream was reset
+     */
+    void write(ByteBuffer data) throws IOException;
+
+    /**
+     * @return  whether the amount of queued data is below the high watermark (or, after it has reached the high
+     *          watermark, has dropped to the low watermark again)
+     */
+    boolean isWritable();
+
+    /**
+     * Sets the listener that is called when the writability of this writer changes, with the new writability as
+     * argument. The listener is called from the thread calling write (when the writer becomes unwritable) or from the
+     * thread sending the data (when the writer becomes writable again), so it should not block. Notifications are not
+     * delivered concurrently and a notification is only sent when it differs from the previous one, so the last
+     * notification always reflects the current writability. When sending fails, the writer becomes writable, so that
+     * a producer waiting for it will write again and learn about the failure.
+     * @param listener  the listener
+     */
+    void setWritabilityListener(Consumer<Boolean> listener);
+
+    /**
+     * @return  the number of bytes queued for sending
+     */
+    long queuedBytes();
+
+    /**
+     * Signals that no more data will be written.
+     * @return  a stage that completes when all queued data is sent, or completes exceptionally when sending fails
+     */
+    CompletionStage<Void> close();
+}
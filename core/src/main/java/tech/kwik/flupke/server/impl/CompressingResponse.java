@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server.impl;
+
+import tech.kwik.flupke.PreEncodedHeaders;
+import tech.kwik.flupke.server.HttpServerResponse;
+import tech.kwik.flupke.server.ResponseWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpHeaders;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Response wrapper that compresses the response body with gzip when it is worthwhile. The body is buffered until it
+ * exceeds the minimum size (or the response is finished); at that point the decision whether to compress is made and
+ * the headers are passed to the wrapped response. As a compressed body has a different length, a Content-Length set
+ * by the handler is held back until the decision is made and dropped when the body is compressed.
+ */
+public class CompressingResponse implements HttpServerResponse {
+
+    private static final PreEncodedHeaders GZIP_ENCODING = PreEncodedHeaders.of("content-encoding", "gzip");
+    private static final PreEncodedHeaders VARY_ACCEPT_ENCODING = PreEncodedHeaders.of("vary", "accept-encoding");
+
+    private final HttpServerResponse response;
+    private final boolean gzipAccepted;
+    private final int minSize;
+    private final DeflaterPool deflaterPool;
+    private final OutputStream output = new BufferingOutputStream();
+    private ByteArrayOutputStream buffer;
+    private String contentType;
+    private boolean contentEncodingSet;
+    private String contentLength;
+    // Pre-encoded headers that contain a content-length, held back until it is known whether they can be passed as is.
+    private List<PreEncodedHeaders> heldHeaders;
+    private boolean decided;
+    private OutputStream target;
+
+    /**
+     * Creates a compressing response.
+     * @param response  the response to write to
+     * @param gzipAccepted  whether the client accepts gzip content coding
+     * @param minSize  the size above which the body is compressed
+     * @param deflaterPool  the pool to take deflaters from
+     */
+    public CompressingResponse(HttpServerResponse response, boolean gzipAccepted, int minSize, DeflaterPool deflaterPool) {
+        this.response = response;
+        this.gzipAccepted = gzipAccepted;
+        this.minSize = minSize;
+        this.deflaterPool = deflaterPool;
+    }
+
+    @Override
+    public void setStatus(int status) {
+        response.setStatus(status);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        addHeader(name, List.of(value));
+    }
+
+    @Override
+    public void addHeader(String name, List<String> values) {
+        checkHeadersAllowed();
+        if (name.equalsIgnoreCase("content-length")) {
+            contentLength = values.get(values.size() - 1);
+            return;
+        }
+        inspectHeader(name, values);
+        response.addHeader(name, values);
+    }
+
+    @Override
+    public void setHeaders(HttpHeaders headers) {
+        checkHeadersAllowed();
+        contentLength = headers.firstValue("content-length").orElse(null);
+        headers.map().forEach(this::inspectHeader);
+        response.setHeaders(HttpHeaders.of(headers.map(), (name, value) -> !name.equalsIgnoreCase("content-length")));
+    }
+
+    @Override
+    public void addHeaders(PreEncodedHeaders headers) {
+        checkHeadersAllowed();
+        headers.map().forEach(this::inspectHeader);
+        if (headers.map().containsKey("content-length")) {
+            if (heldHeaders == null) {
+                heldHeaders = new ArrayList<>();
+            }
+            heldHeaders.add(headers);
+        }
+        else {
+            response.addHeaders(headers);
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    @Override
+    public void sendFile(Path file, long offset, long length) throws IOException {
+        if (!decided && !response.isStatusSet()) {
+            // Sending a file implies status 200, which must be known to determine whether the response is compressible.
+            response.setStatus(200);
+        }
+        if (decided || length <= minSize || !isCompressionCandidate()) {
+            // Let the wrapped response send the file in the most efficient way.
+            decide(false);
+            response.sendFile(file, offset, length);
+        }
+        else {
+            HttpServerResponse.super.sendFile(file, offset, length);
+        }
+    }
+
+    @Override
+    public ResponseWriter getResponseWriter(long lowWatermark, long highWatermark) {
+        // The response writer writes directly to the underlying stream, so the body cannot be compressed.
+        try {
+            decide(false);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return response.getResponseWriter(lowWatermark, highWatermark);
+    }
+
+    @Override
+    public void sendInterim(int status, HttpHeaders headers) throws IOException {
+        response.sendInterim(status, headers);
+    }
+
+    @Override
+    public boolean push(String path, HttpHeaders headers) {
+        return response.push(path, headers);
+    }
+
+    @Override
+    public int status() {
+        return response.status();
+    }
+
+    @Override
+    public boolean isStatusSet() {
+        return response.isStatusSet();
+    }
+
+    @Override
+    public long size() {
+        return response.size();
+    }
+
+    /**
+     * Finishes the response: writes any buffered data and, when compressing, the end of the compressed stream. Must be
+     * called when the handler is done with the response.
+     * @throws IOException  when writing to the wrapped response fails
+     */
+    public void finish() throws IOException {
+        if (!decided) {
+            decide(buffer != null && buffer.size() > minSize);
+        }
+        if (target instanceof GzipEncodingOutputStream) {
+            ((GzipEncodingOutputStream) target).finish();
+        }
+    }
+
+    /**
+     * Releases the resources held by this response without finishing it. Must be called when the handler failed; does
+     * nothing when the response is already finished.
+     */
+    public void release() {
+        if (target instanceof GzipEncodingOutputStream) {
+            ((GzipEncodingOutputStream) target).release();
+        }
+    }
+
+    private void checkHeadersAllowed() {
+        if (decided) {
+            throw new IllegalStateException("Cannot set headers after output has started");
+        }
+    }
+
+    private void inspectHeader(String name, List<String> values) {
+        if (name.equalsIgnoreCase("content-type") && !values.isEmpty()) {
+            contentType = values.get(0);
+        }
+        else if (name.equalsIgnoreCase("content-encoding")) {
+            contentEncodingSet = true;
+        }
+    }
+
+    /**
+     * @return  whether the response could be compressed (if large enough and the client accepts it)
+     */
+    private boolean isCompressionCandidate() {
+        return !contentEncodingSet && isCompressible(contentType) && response.isStatusSet() && isCompressibleStatus(response.status());
+    }
+
+    private void decide(boolean largeEnough) throws IOException {
+        if (decided) {
+            return;
+        }
+        decided = true;
+        boolean candidate = isCompressionCandidate();
+        boolean compress = candidate && gzipAccepted && largeEnough;
+        if (candidate) {
+            // https://www.rfc-editor.org/rfc/rfc9110.html#name-vary
+            // "An origin server SHOULD generate a Vary header field on a cacheable response when it wishes that
+            //  response to be selectively reused for subsequent requests."
+            response.addHeaders(VARY_ACCEPT_ENCODING);
+        }
+        if (compress) {
+            response.addHeaders(GZIP_ENCODING);
+            if (heldHeaders != null) {
+                heldHeaders.forEach(headers -> headers.map().forEach((name, values) -> {
+                    if (!name.equals("content-length")) {
+                        response.addHeader(name, values);
+                    }
+                }));
+            }
+        }
+        else {
+            if (contentLength != null) {
+                response.addHeader("content-length", List.of(contentLength));
+            }
+            if (heldHeaders != null) {
+                heldHeaders.forEach(response::addHeaders);
+            }
+        }
+        if (buffer != null && buffer.size() > 0) {
+            target(compress).write(buffer.toByteArray());
+        }
+        else if (compress) {
+            target(true);
+        }
+        buffer = null;
+    }
+
+    private OutputStream target(boolean compress) throws IOException {
+        if (target == null) {
+            target = compress? new GzipEncodingOutputStream(response.getOutputStream(), deflaterPool): response.getOutputStream();
+        }
+        return target;
+    }
+
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String mediaType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        return mediaType.startsWith("text/")
+                || mediaType.equals("application/json") || mediaType.endsWith("+json")
+                || mediaType.equals("application/javascript")
+                || mediaType.equals("application/xml") || mediaType.endsWith("+xml");
+    }
+
+    private static boolean isCompressibleStatus(int status) {
+        // Partial content cannot be compressed as the ranges refer to the (uncompressed) representation; responses
+        // with these status codes do not have content anyway.
+        return status >= 200 && status != 204 && status != 206 && status != 304;
+    }
+
+    private class BufferingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!decided) {
+                if (buffer == null) {
+                    buffer = new ByteArrayOutputStream(Math.min(minSize, 8192));
+                }
+                if (buffer.size() + len <= minSize) {
+                    buffer.write(b, off, len);
+                    return;
+                }
+                decide(true);
+            }
+            target(false).write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!decided) {
+                decide(false);
+            }
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+    }
+}
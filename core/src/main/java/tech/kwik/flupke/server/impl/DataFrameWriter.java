@@ -18,11 +18,15 @@
  */
 package tech.kwik.flupke.server.impl;
 
-import tech.kwik.flupke.impl.DataFrame;
+import tech.kwik.flupke.impl.VariableLengthIntegerUtil;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_DATA;
 
 /**
  * Writes data as DataFrame's to the given output stream.
@@ -30,34 +34,65 @@ import java.nio.ByteBuffer;
  */
 public class DataFrameWriter extends OutputStream {
 
+    static final int TRANSFER_CHUNK_SIZE = 64 * 1024;
+
     private final OutputStream outputStream;
+    private final byte[] frameHeader;
     private long bytesWritten;
 
     public DataFrameWriter(OutputStream outputStream) {
         this.outputStream = outputStream;
+        frameHeader = new byte[VariableLengthIntegerUtil.MAX_FRAME_HEADER_LENGTH];
     }
 
     @Override
     public void write(int b) throws IOException {
-        outputStream.write(new DataFrame(new byte[] { (byte) b }).toBytes());
+        VariableLengthIntegerUtil.writeFrameHeader(FRAME_TYPE_DATA, 1, outputStream, frameHeader);
+        outputStream.write(b);
         bytesWritten += 1;
     }
 
     @Override
     public void write(byte[] b) throws IOException {
-        outputStream.write(new DataFrame(b).toBytes());
-        bytesWritten += b.length;
+        write(b, 0, b.length);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        ByteBuffer data = ByteBuffer.wrap(b);
-        data.position(off);
-        data.limit(len);
-        outputStream.write(new DataFrame(data).toBytes());
+        // Frame header and payload are written separately, to avoid copying the payload into a frame.
+        VariableLengthIntegerUtil.writeFrameHeader(FRAME_TYPE_DATA, len, outputStream, frameHeader);
+        outputStream.write(b, off, len);
         bytesWritten += len;
     }
 
+    /**
+     * Writes the given region of a file as one DATA frame, reading the file in large chunks straight from the channel.
+     * @param channel  the file channel to read from
+     * @param position  the file position to start reading
+     * @param count  the number of bytes to transfer
+     * @throws IOException  when reading the file or writing to the stream fails, or when the file has fewer bytes
+     */
+    public void transferFrom(FileChannel channel, long position, long count) throws IOException {
+        VariableLengthIntegerUtil.writeFrameHeader(FRAME_TYPE_DATA, count, outputStream, frameHeader);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, TRANSFER_CHUNK_SIZE));
+        long remaining = count;
+        while (remaining > 0) {
+            buffer.clear();
+            if (remaining < buffer.capacity()) {
+                buffer.limit((int) remaining);
+            }
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                // The frame header has been sent already, so the frame cannot be completed.
+                throw new EOFException("file is shorter than expected");
+            }
+            outputStream.write(buffer.array(), 0, read);
+            position += read;
+            remaining -= read;
+            bytesWritten += read;
+        }
+    }
+
     @Override
     public void flush() throws IOException {
         outputStream.flush();
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server.impl;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of deflaters that produce raw deflate data (without zlib wrapper, as used by the gzip format). Creating a
+ * deflater is relatively expensive (it allocates native memory and internal buffers), so reusing them saves time and
+ * garbage when many responses are compressed.
+ */
+public class DeflaterPool {
+
+    public static final int DEFAULT_MAX_POOLED = 64;
+
+    private final int level;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    /**
+     * @param level  the compression level of the deflaters
+     * @param maxPooled  the maximum number of idle deflaters kept in the pool
+     */
+    public DeflaterPool(int level, int maxPooled) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level: " + level);
+        }
+        this.level = level;
+        this.maxPooled = maxPooled;
+    }
+
+    public Deflater acquire() {
+        Deflater deflater = deflaters.poll();
+        if (deflater != null) {
+            pooledCount.decrementAndGet();
+            return deflater;
+        }
+        return new Deflater(level, true);
+    }
+
+    /**
+     * Returns the deflater to the pool; the deflater must not be used by the caller anymore.
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (pooledCount.incrementAndGet() <= maxPooled) {
+            deflaters.offer(deflater);
+        }
+        else {
+            pooledCount.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    int pooledCount() {
+        return pooledCount.get();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Output stream that writes data in gzip format (https://www.rfc-editor.org/rfc/rfc1952), using a deflater from a
+ * pool (which GZIPOutputStream does not support). The deflater is returned to the pool when the stream is finished.
+ * Finishing or closing this stream does not close the underlying stream.
+ */
+final class GzipEncodingOutputStream extends DeflaterOutputStream {
+
+    // https://www.rfc-editor.org/rfc/rfc1952#section-2.3
+    // ID1, ID2, CM (deflate), FLG, MTIME (4 bytes), XFL, OS (unknown)
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final DeflaterPool deflaterPool;
+    private final CRC32 crc = new CRC32();
+    private boolean finished;
+
+    GzipEncodingOutputStream(OutputStream out, DeflaterPool deflaterPool) throws IOException {
+        // With sync flush, flushing this stream flushes all compressed data, so streaming responses are not delayed.
+        super(out, deflaterPool.acquire(), 8192, true);
+        this.deflaterPool = deflaterPool;
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("stream is finished");
+        }
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (finished) {
+            // Deflater is already returned to the pool.
+            out.flush();
+        }
+        else {
+            super.flush();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!finished) {
+            finished = true;
+            try {
+                super.finish();
+                long uncompressedSize = def.getBytesRead();
+                out.write(new byte[] {
+                        (byte) crc.getValue(), (byte) (crc.getValue() >> 8), (byte) (crc.getValue() >> 16), (byte) (crc.getValue() >> 24),
+                        (byte) uncompressedSize, (byte) (uncompressedSize >> 8), (byte) (uncompressedSize >> 16), (byte) (uncompressedSize >> 24)
+                });
+            }
+            finally {
+                deflaterPool.release(def);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    /**
+     * Returns the deflater to the pool without finishing the compressed stream, e.g. when the response is aborted.
+     * Does nothing when the stream is already finished.
+     */
+    void release() {
+        if (!finished) {
+            finished = true;
+            deflaterPool.release(def);
+        }
+    }
+}
@@ -25,20 +25,32 @@ import tech.kwik.core.server.ApplicationProtocolConnection;
 import tech.kwik.core.server.ServerConnection;
 import tech.kwik.flupke.HttpError;
 import tech.kwik.flupke.HttpStream;
+import tech.kwik.flupke.PreEncodedHeaders;
 import tech.kwik.flupke.impl.*;
 import tech.kwik.flupke.server.*;
 import tech.kwik.qpack.Encoder;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
 import java.net.InetSocketAddress;
+import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
@@ -53,30 +65,64 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
     public static int DEFAULT_MAX_HEADER_SIZE = 10 * 1024;
     public static int DEFAULT_MAX_DATA_SIZE = 10 * 1024 * 1024;
 
+    // Exactly one of the request handlers is set.
     private final HttpRequestHandler requestHandler;
+    private final AsyncHttpRequestHandler asyncRequestHandler;
     private final InetSocketAddress clientAddress;
     private final long maxHeaderSize;
     private final long maxDataSize;
     private final ExecutorService executor;
     private final Encoder encoder;
     private final Map<String, Http3ServerExtensionFactory> extensionFactories;
-    private final Map<String, Http3ServerExtension> instantiatedExtensions;
-    private final ReentrantLock extensionInstantiationLock;
-    private Map<Long, Consumer<HttpStream>> bidirectionalStreamHandler = new ConcurrentHashMap<>();
+    // Created when the first extension is instantiated, guarded by this.
+    private Map<String, Http3ServerExtension> instantiatedExtensions;
+    // Copied on write, as handlers are registered rarely (if at all) and looked up for each stream.
+    private volatile Map<Long, Consumer<HttpStream>> bidirectionalStreamHandler = Map.of();
+    private volatile ExecutorService requestExecutor;
+    private volatile PreEncodedHeaders retryAfterHeader;
+    private volatile StreamEventLoop streamEventLoop;
+    private volatile Duration requestHeadersTimeout;
+    private final Object pushLock = new Object();
+    // Guarded by pushLock; -1 as long as the client has not sent a MAX_PUSH_ID frame, in which case no push is allowed.
+    private long maxPushId = -1;
+    private long nextPushId;
+    // Guarded by pushLock; the value is null as long as the push stream has not been created yet.
+    private final Map<Long, QuicStream> activePushes = new HashMap<>();
 
     public Http3ServerConnectionImpl(QuicConnection quicConnection, HttpRequestHandler requestHandler, ExecutorService executorService, Map<String, Http3ServerExtensionFactory> extensions) {
         this(quicConnection, requestHandler, DEFAULT_MAX_HEADER_SIZE, DEFAULT_MAX_DATA_SIZE, executorService, extensions);
     }
 
     public Http3ServerConnectionImpl(QuicConnection quicConnection, HttpRequestHandler requestHandler, long maxHeaderSize, long maxDataSize, ExecutorService executorService, Map<String, Http3ServerExtensionFactory> extensions) {
-        super(quicConnection);
+        this(quicConnection, requestHandler, maxHeaderSize, maxDataSize, 0, 0, true, executorService, extensions);
+    }
+
+    public Http3ServerConnectionImpl(QuicConnection quicConnection, HttpRequestHandler requestHandler, long maxHeaderSize, long maxDataSize,
+                                     long qpackMaxTableCapacity, int qpackBlockedStreams, boolean qpackHuffmanEncoding,
+                                     ExecutorService executorService, Map<String, Http3ServerExtensionFactory> extensions) {
+        this(quicConnection, requestHandler, null, maxHeaderSize, maxDataSize,
+                qpackMaxTableCapacity, qpackBlockedStreams, qpackHuffmanEncoding, executorService, extensions);
+    }
+
+    public Http3ServerConnectionImpl(QuicConnection quicConnection, AsyncHttpRequestHandler requestHandler, long maxHeaderSize, long maxDataSize,
+                                     long qpackMaxTableCapacity, int qpackBlockedStreams, boolean qpackHuffmanEncoding,
+                                     ExecutorService executorService, Map<String, Http3ServerExtensionFactory> extensions) {
+        this(quicConnection, null, Objects.requireNonNull(requestHandler), maxHeaderSize, maxDataSize,
+                qpackMaxTableCapacity, qpackBlockedStreams, qpackHuffmanEncoding, executorService, extensions);
+    }
+
+    private Http3ServerConnectionImpl(QuicConnection quicConnection, HttpRequestHandler requestHandler, AsyncHttpRequestHandler asyncRequestHandler,
+                                      long maxHeaderSize, long maxDataSize, long qpackMaxTableCapacity, int qpackBlockedStreams,
+                                      boolean qpackHuffmanEncoding, ExecutorService executorService, Map<String, Http3ServerExtensionFactory> extensions) {
+        super(quicConnection, qpackMaxTableCapacity, qpackBlockedStreams, qpackHuffmanEncoding);
         this.requestHandler = requestHandler;
+        this.asyncRequestHandler = asyncRequestHandler;
         this.maxHeaderSize = maxHeaderSize;
         this.maxDataSize = maxDataSize;
         this.executor = executorService;
+        this.requestExecutor = executorService;
         this.extensionFactories = extensions;
-        this.instantiatedExtensions = new ConcurrentHashMap<>();
-        encoder = Encoder.newBuilder().build();
+        encoder = qpackEncoder;
         clientAddress = ((ServerConnection) quicConnection).getInitialRemoteAddress();
         settingsParameters.put((long) SETTINGS_ENABLE_CONNECT_PROTOCOL, 1L);
         extensionFactories.values().forEach(factory -> {
@@ -85,33 +131,151 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
             });
         });
         startControlStream();
-        extensionInstantiationLock = new ReentrantLock();
+    }
+
+    /**
+     * Lets the given event loop wait for the request headers of each request stream, so that a stream is only handed
+     * to the executor once its HEADERS frame is complete, instead of occupying an executor thread that blocks until
+     * the client has sent its headers. Request streams for which no complete HEADERS frame is received within the
+     * given timeout are reset. The request body is still read by the executor thread that handles the request, as
+     * request handlers read it with a blocking input stream (and the event loop cannot detect the end of a stream).
+     * @param streamEventLoop  the event loop to use, or null for handing streams to the executor immediately
+     * @param requestHeadersTimeout  the maximum time for receiving the request headers, or null for no limit
+     */
+    public void setStreamEventLoop(StreamEventLoop streamEventLoop, Duration requestHeadersTimeout) {
+        this.streamEventLoop = streamEventLoop;
+        this.requestHeadersTimeout = requestHeadersTimeout;
+    }
+
+    /**
+     * Sets the executor that handles request streams, which may differ from the executor that handles the other
+     * (long-lived) streams of the connection. When the request executor rejects a request stream, because it is
+     * overloaded or shut down, the request is rejected without any processing. Streams of extensions (e.g. WebTransport
+     * streams) are not subject to this admission control; these streams, like the sessions started by extended CONNECT
+     * requests, are handled by the connection's executor.
+     * @param requestExecutor  the executor for request streams
+     * @param retryAfter  when not null, rejected requests get a 503 (Service Unavailable) response with a Retry-After
+     *                    header of the given duration; when null, rejected request streams are reset with
+     *                    H3_REQUEST_REJECTED
+     */
+    public void setRequestExecutor(ExecutorService requestExecutor, Duration retryAfter) {
+        this.requestExecutor = Objects.requireNonNull(requestExecutor);
+        // Retry-After is in whole seconds; rounding down could turn a sub-second duration into "retry immediately".
+        long retryAfterSeconds = retryAfter != null? retryAfter.toSeconds() + (retryAfter.getNano() > 0? 1: 0): 0;
+        this.retryAfterHeader = retryAfter != null? PreEncodedHeaders.of("retry-after", Long.toString(retryAfterSeconds)): null;
     }
 
     @Override
     public void acceptPeerInitiatedStream(QuicStream quicStream) {
-        executor.execute(() -> handleIncomingStream(quicStream));
+        StreamEventLoop eventLoop = streamEventLoop;
+        if (quicStream.isUnidirectional()) {
+            executor.execute(() -> handleIncomingStream(quicStream));
+        }
+        else if (eventLoop != null) {
+            eventLoop.register(quicStream, new RequestHeadersCollector(quicStream), requestHeadersTimeout);
+        }
+        else {
+            dispatchRequestStream(quicStream, quicStream);
+        }
+    }
+
+    private void dispatchRequestStream(QuicStream quicStream, QuicStream requestStream) {
+        try {
+            requestExecutor.execute(() -> handleBidirectionalStream(requestStream));
+        }
+        catch (RejectedExecutionException overloaded) {
+            if (bidirectionalStreamHandler.isEmpty()) {
+                rejectRequest(quicStream);
+            }
+            else {
+                // Streams of extensions (e.g. WebTransport streams) are not requests, so they are not subject to
+                // admission control; the connection executor finds out whether the stream is a request.
+                try {
+                    executor.execute(() -> handleBidirectionalStream(requestStream, false));
+                }
+                catch (RejectedExecutionException shutdown) {
+                    rejectRequest(quicStream);
+                }
+            }
+        }
+    }
+
+    private void rejectRequest(QuicStream quicStream) {
+        PreEncodedHeaders retryAfter = retryAfterHeader;
+        if (retryAfter == null) {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-request-cancellation-and-re
+            // "When the server cancels a request without performing any application processing, the request is
+            //  considered "rejected". The server SHOULD abort its response stream with the error code
+            //  H3_REQUEST_REJECTED."
+            abortReading(quicStream, H3_REQUEST_REJECTED);
+            quicStream.resetStream(H3_REQUEST_REJECTED);
+        }
+        else {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-http-message-framing
+            // "When the server does not need to receive the remainder of the request, it MAY abort reading the request
+            //  stream, send a complete response, and cleanly close the sending part of the stream. The error code
+            //  H3_NO_ERROR SHOULD be used when requesting that the client stop sending on the request stream."
+            abortReading(quicStream, H3_NO_ERROR);
+            HeadersFrame headersFrame = new HeadersFrame(HeadersFrame.PSEUDO_HEADER_STATUS, "503");
+            headersFrame.addPreEncodedHeaders(retryAfter);
+            try {
+                OutputStream outputStream = quicStream.getOutputStream();
+                // Without stream id, only the static table is used, so a rejection does not affect the encoder state.
+                outputStream.write(headersFrame.toBytes(encoder, -1));
+                outputStream.close();
+            }
+            catch (IOException e) {
+                // Ignore, there is nothing we can do.
+            }
+        }
     }
 
     @Override
-    public void registerBidirectionalStreamHandler(long frameType, Consumer<HttpStream> streamHandler) {
-        bidirectionalStreamHandler.put(frameType, streamHandler);
+    public synchronized void registerBidirectionalStreamHandler(long frameType, Consumer<HttpStream> streamHandler) {
+        Map<Long, Consumer<HttpStream>> handlers = new HashMap<>(bidirectionalStreamHandler);
+        handlers.put(frameType, streamHandler);
+        bidirectionalStreamHandler = handlers;
     }
 
     @Override
     protected void handleBidirectionalStream(QuicStream quicStream) {
+        handleBidirectionalStream(quicStream, true);
+    }
+
+    /**
+     * @param admitted  whether the stream was admitted by the request executor; when not, only streams of extensions
+     *                  are handled and requests are rejected
+     */
+    private void handleBidirectionalStream(QuicStream quicStream, boolean admitted) {
+        if (bidirectionalStreamHandler.isEmpty() && admitted) {
+            // No need to peek at the frame type.
+            handleStandardRequestResponseStream(quicStream);
+            return;
+        }
         try {
             PushbackInputStream requestStream = new PushbackInputStream(quicStream.getInputStream(), 8);
             long frameType = VariableLengthIntegerUtil.peekLong(requestStream);
-            if (bidirectionalStreamHandler.containsKey(frameType)) {
-                bidirectionalStreamHandler.get(frameType).accept(wrapWith(quicStream, requestStream));
+            Consumer<HttpStream> streamHandler = bidirectionalStreamHandler.get(frameType);
+            if (streamHandler != null) {
+                HttpStream stream = wrapWith(quicStream, requestStream);
+                if (admitted) {
+                    // Extension streams can be long-lived, so they must not occupy the request executor.
+                    runOnConnectionExecutor(() -> streamHandler.accept(stream));
+                }
+                else {
+                    // Already running on the connection executor.
+                    streamHandler.accept(stream);
+                }
             }
-            else {
+            else if (admitted) {
                 handleStandardRequestResponseStream(replaceInputBy(quicStream, requestStream));
             }
+            else {
+                rejectRequest(quicStream);
+            }
         }
         catch (IOException e) {
-            quicStream.abortReading(H3_INTERNAL_ERROR);
+            abortReading(quicStream, H3_INTERNAL_ERROR);
             sendHttpErrorResponse(500, "", quicStream);
         }
     }
@@ -120,15 +284,15 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
         // https://www.rfc-editor.org/rfc/rfc9114.html#name-bidirectional-streams
         // "All client-initiated bidirectional streams are used for HTTP requests and responses."
         try {
-            HeadersFrame headersFrame = readRequestHeadersFrame(quicStream.getInputStream(), maxHeaderSize);
+            HeadersFrame headersFrame = readRequestHeadersFrame(quicStream.getInputStream(), maxHeaderSize, quicStream.getStreamId());
             handleHttpRequest(headersFrame, quicStream, encoder);
         }
         catch (IOException ioError) {
-            quicStream.abortReading(H3_INTERNAL_ERROR);
+            abortReading(quicStream, H3_INTERNAL_ERROR);
             sendHttpErrorResponse(500, "", quicStream);
         }
         catch (HttpError httpError) {
-            quicStream.abortReading(H3_REQUEST_REJECTED);
+            abortReading(quicStream, H3_REQUEST_REJECTED);
             sendHttpErrorResponse(httpError.getStatusCode(), httpError.getMessage(), quicStream);
         }
         catch (StreamError e) {
@@ -155,11 +319,21 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
             HttpStream streamWrapper = new HttpStreamImpl(quicStream) {
                 @Override
                 public OutputStream getOutputStream() {
+                    checkStatus();
+                    return super.getOutputStream();
+                }
+
+                @Override
+                public long write(ByteBuffer[] buffers) throws IOException {
+                    checkStatus();
+                    return super.write(buffers);
+                }
+
+                private void checkStatus() {
                     if (returnedStatusCode.get() != 200) {
                         // If the status code is not 200, we should not write to the output stream
                         throw new IllegalStateException("Cannot get output stream when status code is not 200");
                     }
-                    return super.getOutputStream();
                 }
             };
             http3ServerExtension.handleExtendedConnect(headersFrame.headers(), extensionType, authority, path, statusCallback, streamWrapper);
@@ -173,29 +347,30 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
         }
     }
 
-    private Http3ServerExtension getHttp3ServerExtension(String extensionType) {
-        extensionInstantiationLock.lock();
-        try {
-            if (instantiatedExtensions.get(extensionType) != null) {
-                return instantiatedExtensions.get(extensionType);
-            }
+    private synchronized Http3ServerExtension getHttp3ServerExtension(String extensionType) {
+        if (instantiatedExtensions != null && instantiatedExtensions.get(extensionType) != null) {
+            return instantiatedExtensions.get(extensionType);
+        }
 
-            if (extensionFactories.get(extensionType) != null) {
-                Http3ServerExtension http3ServerExtension = extensionFactories.get(extensionType).createExtension(this);
-                instantiatedExtensions.put(extensionType, http3ServerExtension);
-                return http3ServerExtension;
-            }
-            else {
-                return null;
+        if (extensionFactories.get(extensionType) != null) {
+            Http3ServerExtension http3ServerExtension = extensionFactories.get(extensionType).createExtension(this);
+            if (instantiatedExtensions == null) {
+                instantiatedExtensions = new HashMap<>();
             }
+            instantiatedExtensions.put(extensionType, http3ServerExtension);
+            return http3ServerExtension;
         }
-        finally {
-            extensionInstantiationLock.unlock();
+        else {
+            return null;
         }
     }
 
     HeadersFrame readRequestHeadersFrame(InputStream inputStream, long maxHeadersSize) throws IOException, HttpError, ConnectionError, StreamError {
-        long frameType = VariableLengthInteger.parseLong(inputStream);
+        return readRequestHeadersFrame(inputStream, maxHeadersSize, -1);
+    }
+
+    HeadersFrame readRequestHeadersFrame(InputStream inputStream, long maxHeadersSize, long streamId) throws IOException, HttpError, ConnectionError, StreamError {
+        long frameType = VariableLengthIntegerUtil.read(inputStream);
         // https://www.rfc-editor.org/rfc/rfc9114.html#name-expressing-http-semantics-i
         // "An HTTP message (request or response) consists of:
         //  the header section, including message control data, sent as a single HEADERS frame, (...)"
@@ -207,15 +382,24 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
         if (payloadLength > maxHeadersSize) {
             throw new HttpError("max header size exceeded", 431);
         }
-        HeadersFrame headersFrame = new HeadersFrame().parsePayload(readExact(inputStream, payloadLength), qpackDecoder);
-        String method = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_METHOD);
-        String scheme = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_SCHEME);
-        String path = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_PATH);
+        HeadersFrame headersFrame;
+        try {
+            headersFrame = new HeadersFrame().parsePayload(readExact(inputStream, payloadLength), qpackDecoder, streamId);
+        }
+        catch (QpackException qpackError) {
+            // A field section that cannot be decoded is a connection error of type QPACK_DECOMPRESSION_FAILED, see
+            // https://www.rfc-editor.org/rfc/rfc9204.html#name-error-handling
+            throw new ConnectionError(qpackError.getErrorCode());
+        }
+        HeaderBlock headers = headersFrame.headerBlock();
+        String method = headers.pseudoHeader(HeaderBlock.METHOD);
+        String scheme = headers.pseudoHeader(HeaderBlock.SCHEME);
+        String path = headers.pseudoHeader(HeaderBlock.PATH);
         if (method == null ||
                 (!method.equals("CONNECT") &&
-                        (scheme == null || path == null || !hasValidAuthorityHeader(headersFrame))) ||
+                        (scheme == null || path == null || !hasValidAuthorityHeader(headers))) ||
                 (method.equals("CONNECT") &&
-                        headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_AUTHORITY) == null)) {
+                        headers.pseudoHeader(HeaderBlock.AUTHORITY) == null)) {
             // https://www.rfc-editor.org/rfc/rfc9114.html#name-request-pseudo-header-field
             // "All HTTP/3 requests MUST include exactly one value for the :method, :scheme, and :path pseudo-header \
             //  fields, unless the request is a CONNECT request; see Section 4.4."
@@ -229,16 +413,16 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
         return headersFrame;
     }
 
-    private boolean hasValidAuthorityHeader(HeadersFrame headersFrame) {
+    private boolean hasValidAuthorityHeader(HeaderBlock headers) {
         // https://www.rfc-editor.org/rfc/rfc9114.html#name-request-pseudo-header-field
         // "If the :scheme pseudo-header field identifies a scheme that has a mandatory authority component
         //  (including "http" and "https"), the request MUST contain either an :authority pseudo-header field or a
         //  Host header field."
-        String scheme = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_SCHEME);
+        String scheme = headers.pseudoHeader(HeaderBlock.SCHEME);
         if (scheme.equals("http") || scheme.equals("https")) {
-            String authority = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_AUTHORITY);
+            String authority = headers.pseudoHeader(HeaderBlock.AUTHORITY);
             if (authority == null) {
-                authority = headersFrame.headers().firstValue("host").orElse(null);
+                authority = headers.firstValue("host").orElse(null);
             }
             return authority != null && !authority.isBlank();
         }
@@ -264,7 +448,7 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
         try {
             OutputStream outputStream = quicStream.getOutputStream();
             HeadersFrame headersFrame = new HeadersFrame(HeadersFrame.PSEUDO_HEADER_STATUS, Integer.toString(statusCode));
-            outputStream.write(headersFrame.toBytes(encoder));
+            outputStream.write(headersFrame.toBytes(encoder, quicStream.getStreamId()));
         }
         catch (IOException e) {
         }
@@ -279,12 +463,13 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
     }
 
     void handleHttpRequest(HeadersFrame headersFrame, QuicStream quicStream, Encoder qpackEncoder) throws ConnectionError {
-        String method = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_METHOD);
-        String path = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_PATH);
-        String auth = headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_AUTHORITY);
+        HeaderBlock headers = headersFrame.headerBlock();
+        String method = headers.pseudoHeader(HeaderBlock.METHOD);
+        String path = headers.pseudoHeader(HeaderBlock.PATH);
+        String auth = headers.pseudoHeader(HeaderBlock.AUTHORITY);
 
         boolean isConnect = "CONNECT".equals(method);
-        boolean extendedConnect = isConnect && headersFrame.getPseudoHeader(HeadersFrame.PSEUDO_HEADER_PROTOCOL) != null;
+        boolean extendedConnect = isConnect && headers.pseudoHeader(HeaderBlock.PROTOCOL) != null;
         if (isConnect && !extendedConnect) {
             // https://www.rfc-editor.org/rfc/rfc9110#section-9
             // "An origin server that receives a request method that is unrecognized or not implemented SHOULD respond
@@ -294,33 +479,413 @@ public class Http3ServerConnectionImpl extends Http3ConnectionImpl implements Ht
         }
 
         DataFramesReader dataFramesReader = new DataFramesReader(quicStream.getInputStream(), maxDataSize);
-        HttpServerRequest request = new HttpServerRequestImpl(method, path, auth, headersFrame.headers(), clientAddress, dataFramesReader.getDataFramesStream());
-        HttpServerResponseImpl response = new HttpServerResponseImpl(quicStream, qpackEncoder, isConnect);
+        HttpServerResponseImpl response = new HttpServerResponseImpl(quicStream, qpackEncoder, isConnect, executor);
+        InputStream body = dataFramesReader.getDataFramesStream();
+        if (headers.firstValue("expect").map(value -> value.equalsIgnoreCase("100-continue")).orElse(false)) {
+            body = new ExpectContinueInputStream(body, response);
+        }
+        HttpServerRequest request = new HttpServerRequestImpl(method, path, auth, headers, clientAddress, body);
+        if (!isConnect) {
+            String scheme = headers.pseudoHeader(HeaderBlock.SCHEME);
+            String authority = auth != null? auth: headers.firstValue("host").orElse(null);
+            response.setPushHandler((pushingResponse, pushPath, pushHeaders) ->
+                    push(pushingResponse, scheme, authority, pushPath, pushHeaders));
+        }
+        if (asyncRequestHandler != null) {
+            handleAsyncHttpRequest(headersFrame, quicStream, request, response, dataFramesReader, extendedConnect);
+            return;
+        }
         try {
             requestHandler.handleRequest(request, response);
-            dataFramesReader.checkForConnectionError();
-            boolean noStatus = !response.isStatusSet();
+            finishHttpRequest(headersFrame, quicStream, response, dataFramesReader, extendedConnect);
+        }
+        catch (MaxDataSizeExceededException tooLarge) {
+            abortReading(quicStream, H3_REQUEST_REJECTED);
+            sendHttpErrorResponse(413, "Payload Too Large", response);
+        }
+        catch (IOException e) {
+            // Ignore, there is nothing we can do. Note Kwik will not throw exception when writing to stream
+            // (except when writing to a closed stream)
+        }
+    }
 
-            if (extendedConnect && (noStatus || (response.status() >= 200 && response.status() < 300))) {
-                handleExtendedConnectMethod(quicStream, headersFrame);
+    /**
+     * Lets the async request handler handle the request; the response is finished when the stage returned by the
+     * handler completes, so the calling thread is not blocked while the handler waits for something.
+     */
+    private void handleAsyncHttpRequest(HeadersFrame headersFrame, QuicStream quicStream, HttpServerRequest request,
+                                        HttpServerResponseImpl response, DataFramesReader dataFramesReader, boolean extendedConnect) {
+        CompletionStage<Void> completion;
+        try {
+            completion = asyncRequestHandler.handleRequest(request, response);
+        }
+        catch (RuntimeException handlerError) {
+            completion = CompletableFuture.failedFuture(handlerError);
+        }
+        completion.whenComplete((result, failure) -> {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null? failure.getCause(): failure;
+            // The stage may be completed by any (application) thread; finishing the response (which may block) is done
+            // by the connection's executor.
+            try {
+                executor.execute(() -> completeAsyncHttpRequest(headersFrame, quicStream, response, dataFramesReader, extendedConnect, cause));
             }
-            else {
-                dataFramesReader.close();
-                if (noStatus) {
-                    // no HTTP response status set by request handler => internal server error.
-                    response.setStatus(500);
-                }
+            catch (RejectedExecutionException executorShutdown) {
+                completeAsyncHttpRequest(headersFrame, quicStream, response, dataFramesReader, extendedConnect, cause);
+            }
+        });
+    }
 
-                response.close();
+    private void completeAsyncHttpRequest(HeadersFrame headersFrame, QuicStream quicStream, HttpServerResponseImpl response,
+                                          DataFramesReader dataFramesReader, boolean extendedConnect, Throwable failure) {
+        try {
+            if (failure instanceof MaxDataSizeExceededException) {
+                throw (MaxDataSizeExceededException) failure;
+            }
+            else if (failure != null) {
+                abortHttpRequest(quicStream, response);
+            }
+            else {
+                finishHttpRequest(headersFrame, quicStream, response, dataFramesReader, extendedConnect);
             }
         }
         catch (MaxDataSizeExceededException tooLarge) {
-            quicStream.abortReading(H3_REQUEST_REJECTED);
+            abortReading(quicStream, H3_REQUEST_REJECTED);
             sendHttpErrorResponse(413, "Payload Too Large", response);
         }
         catch (IOException e) {
-            // Ignore, there is nothing we can do. Note Kwik will not throw exception when writing to stream
-            // (except when writing to a closed stream)
+            // Ignore, there is nothing we can do.
+        }
+        catch (ConnectionError e) {
+            connectionError(e.getHttp3ErrorCode());
+        }
+    }
+
+    private void finishHttpRequest(HeadersFrame headersFrame, QuicStream quicStream, HttpServerResponseImpl response,
+                                   DataFramesReader dataFramesReader, boolean extendedConnect) throws IOException, ConnectionError {
+        dataFramesReader.checkForConnectionError();
+        boolean noStatus = !response.isStatusSet();
+
+        if (extendedConnect && (noStatus || (response.status() >= 200 && response.status() < 300))) {
+            // The session started by an extended CONNECT request can be long-lived, so it must not occupy the request
+            // executor.
+            runOnConnectionExecutor(() -> handleExtendedConnectMethod(quicStream, headersFrame));
+        }
+        else {
+            dataFramesReader.close();
+            if (noStatus) {
+                // no HTTP response status set by request handler => internal server error.
+                response.setStatus(500);
+            }
+
+            response.close();
+        }
+    }
+
+    private void runOnConnectionExecutor(Runnable task) {
+        if (requestExecutor == executor) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException shutdown) {
+            task.run();
+        }
+    }
+
+    private void abortHttpRequest(QuicStream quicStream, HttpServerResponseImpl response) throws IOException {
+        abortReading(quicStream, H3_INTERNAL_ERROR);
+        if (!response.isOutputStarted()) {
+            response.setStatus(500);
+            response.close();
+        }
+        else {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-request-cancellation-and-re
+            // "If a stream is canceled after receiving a complete response, the client MAY ignore the cancellation
+            //  and use the response. However, if a stream is cancelled after receiving a partial response, the
+            //  response SHOULD NOT be used."
+            quicStream.resetStream(H3_INTERNAL_ERROR);
+        }
+    }
+
+    @Override
+    protected void handleMaxPushId(long pushId) throws ConnectionError {
+        synchronized (pushLock) {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-max_push_id
+            // "A MAX_PUSH_ID frame cannot reduce the maximum push ID; receipt of a MAX_PUSH_ID frame that contains a
+            //  smaller value than previously received MUST be treated as a connection error of type H3_ID_ERROR."
+            if (pushId < maxPushId) {
+                throw new ConnectionError(H3_ID_ERROR);
+            }
+            maxPushId = pushId;
+        }
+    }
+
+    @Override
+    protected void handleCancelPush(long pushId) throws ConnectionError {
+        QuicStream pushStream;
+        synchronized (pushLock) {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-cancel_push
+            // "If a server receives a CANCEL_PUSH frame for a push ID that has not yet been mentioned by a PUSH_PROMISE
+            //  frame, this MUST be treated as a connection error of type H3_ID_ERROR."
+            if (pushId >= nextPushId) {
+                throw new ConnectionError(H3_ID_ERROR);
+            }
+            pushStream = activePushes.remove(pushId);
+        }
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-cancel_push
+        // "If the push stream has been opened by the server, the server SHOULD abort sending on that stream with an
+        //  error code of H3_REQUEST_CANCELLED."
+        if (pushStream != null) {
+            pushStream.resetStream(H3_REQUEST_CANCELLED);
+        }
+    }
+
+    private boolean push(HttpServerResponseImpl requestResponse, String scheme, String authority, String path, HttpHeaders headers) {
+        long pushId;
+        synchronized (pushLock) {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-server-push
+            // "The push ID space begins at zero and ends at a maximum value set by the MAX_PUSH_ID frame. In particular,
+            //  a server is not able to push until after the client sends a MAX_PUSH_ID frame."
+            if (nextPushId > maxPushId) {
+                return false;
+            }
+            pushId = nextPushId++;
+            activePushes.put(pushId, null);
+        }
+
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-server-push
+        // "Pushed requests MUST be cacheable; see Section 9.2.3 of [HTTP]. Pushed requests MUST be safe and MUST NOT
+        //  include request content or a trailer section."
+        Map<String, String> pseudoHeaders = new HashMap<>();
+        pseudoHeaders.put(HeadersFrame.PSEUDO_HEADER_METHOD, "GET");
+        pseudoHeaders.put(HeadersFrame.PSEUDO_HEADER_SCHEME, scheme != null? scheme: "https");
+        if (authority != null) {
+            pseudoHeaders.put(HeadersFrame.PSEUDO_HEADER_AUTHORITY, authority);
+        }
+        pseudoHeaders.put(HeadersFrame.PSEUDO_HEADER_PATH, path);
+        QuicStream pushStream;
+        try {
+            requestResponse.writePushPromise(new PushPromiseFrame(pushId, headers, pseudoHeaders).toBytes(encoder, -1));
+            pushStream = quicConnection.createStream(false);
+        }
+        catch (IOException e) {
+            removePush(pushId);
+            return true;
+        }
+        synchronized (pushLock) {
+            if (!activePushes.containsKey(pushId)) {
+                // Cancelled in the meantime.
+                pushStream.resetStream(H3_REQUEST_CANCELLED);
+                return true;
+            }
+            activePushes.put(pushId, pushStream);
+        }
+
+        try {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-push-streams
+            // "A push stream is indicated by a stream type of 0x01, followed by the push ID of the promise that it
+            //  fulfills, encoded as a variable-length integer."
+            OutputStream output = pushStream.getOutputStream();
+            VariableLengthIntegerUtil.write(STREAM_TYPE_PUSH_STREAM, output);
+            VariableLengthIntegerUtil.write(pushId, output);
+        }
+        catch (IOException e) {
+            removePush(pushId);
+            return true;
+        }
+        HeaderBlock pushedHeaders = HeaderBlock.of(pseudoHeaders, headers);
+        HttpServerRequest request = new HttpServerRequestImpl("GET", path, authority, pushedHeaders, clientAddress, InputStream.nullInputStream());
+        HttpServerResponseImpl response = new HttpServerResponseImpl(pushStream, encoder, false, executor);
+        try {
+            requestExecutor.execute(() -> handlePushedRequest(pushId, pushStream, request, response));
+        }
+        catch (RejectedExecutionException overloaded) {
+            removePush(pushId);
+            pushStream.resetStream(H3_REQUEST_CANCELLED);
+        }
+        return true;
+    }
+
+    private void handlePushedRequest(long pushId, QuicStream pushStream, HttpServerRequest request, HttpServerResponseImpl response) {
+        CompletionStage<Void> completion;
+        try {
+            if (asyncRequestHandler != null) {
+                completion = asyncRequestHandler.handleRequest(request, response);
+            }
+            else {
+                requestHandler.handleRequest(request, response);
+                completion = CompletableFuture.completedFuture(null);
+            }
+        }
+        catch (IOException | RuntimeException handlerError) {
+            completion = CompletableFuture.failedFuture(handlerError);
+        }
+        completion.whenComplete((result, failure) -> {
+            try {
+                if (failure != null) {
+                    abortPushedResponse(pushStream, response);
+                }
+                else {
+                    if (!response.isStatusSet()) {
+                        response.setStatus(500);
+                    }
+                    response.close();
+                }
+            }
+            catch (IOException e) {
+                // Ignore, there is nothing we can do.
+            }
+            finally {
+                removePush(pushId);
+            }
+        });
+    }
+
+    private void abortPushedResponse(QuicStream pushStream, HttpServerResponseImpl response) throws IOException {
+        if (!response.isOutputStarted()) {
+            response.setStatus(500);
+            response.close();
+        }
+        else {
+            pushStream.resetStream(H3_INTERNAL_ERROR);
+        }
+    }
+
+    private void removePush(long pushId) {
+        synchronized (pushLock) {
+            activePushes.remove(pushId);
+        }
+    }
+
+    /**
+     * Sends a 100 (Continue) response when the request handler starts reading the request content, so a client that
+     * waits for it before sending the content does not have to wait for its timeout; when the handler sends a final
+     * response without reading the content, the client will not send it at all.
+     */
+    private static class ExpectContinueInputStream extends FilterInputStream {
+
+        private final HttpServerResponseImpl response;
+        private boolean continueHandled;
+
+        ExpectContinueInputStream(InputStream body, HttpServerResponseImpl response) {
+            super(body);
+            this.response = response;
+        }
+
+        @Override
+        public int read() throws IOException {
+            sendContinue();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            sendContinue();
+            return super.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            sendContinue();
+            return super.skip(n);
+        }
+
+        private void sendContinue() throws IOException {
+            // https://www.rfc-editor.org/rfc/rfc9110.html#name-expect
+            // "A server MAY omit sending a 100 (Continue) response if it has already received some or all of the
+            //  content for the corresponding request, or if the framing indicates that there is no content."
+            if (!continueHandled) {
+                continueHandled = true;
+                response.sendContinueIfNeeded();
+            }
+        }
+    }
+
+    /**
+     * Collects the start of a request stream on the event loop, until the first frame is complete (or turns out not
+     * to be a HEADERS frame), and then hands the stream to the executor for regular processing, replaying the bytes
+     * collected so far. The collected bytes are fed to a frame decoder to find out when the first frame is complete.
+     */
+    private class RequestHeadersCollector implements StreamEventLoop.ReadHandler, Http3FrameDecoder.Listener {
+
+        private final QuicStream quicStream;
+        private final Http3FrameDecoder frameDecoder;
+        private byte[] buffer = new byte[256];
+        private int length;
+        private boolean firstFrameComplete;
+
+        RequestHeadersCollector(QuicStream quicStream) {
+            this.quicStream = quicStream;
+            frameDecoder = new Http3FrameDecoder(this, maxHeaderSize);
+        }
+
+        @Override
+        public boolean dataRead(ByteBuffer data) {
+            int count = data.remaining();
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+            }
+            data.get(buffer, length, count);
+            length += count;
+            try {
+                frameDecoder.decode(ByteBuffer.wrap(buffer, length - count, count));
+            }
+            catch (ConnectionError | HttpError invalidFrame) {
+                // Regular processing will run into the same error and handle it.
+                firstFrameComplete = true;
+            }
+            if (firstFrameComplete) {
+                dispatch();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void timeout() {
+            // https://www.rfc-editor.org/rfc/rfc9114.html#name-http-message-framing
+            // "H3_REQUEST_INCOMPLETE: The client's stream terminated without containing a fully formed request."
+            abortReading(quicStream, H3_REQUEST_INCOMPLETE);
+            quicStream.resetStream(H3_REQUEST_INCOMPLETE);
+        }
+
+        @Override
+        public void readError(Exception error) {
+            // Regular processing will run into the same error and handle it.
+            dispatch();
+        }
+
+        @Override
+        public void headersFrame(byte[] payload) {
+            firstFrameComplete = true;
+        }
+
+        // Any other first frame means the stream is not a plain request (but for example an extension stream or a
+        // protocol violation); regular processing will handle this.
+        @Override
+        public void dataFrameStart(long payloadLength) {
+            firstFrameComplete = true;
+        }
+
+        @Override
+        public void data(ByteBuffer payload) {
+        }
+
+        @Override
+        public void frame(long frameType, byte[] payload) {
+            firstFrameComplete = true;
+        }
+
+        @Override
+        public void unknownFrame(long frameType, long payloadLength) {
+            firstFrameComplete = true;
+        }
+
+        private void dispatch() {
+            InputStream input = new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), quicStream.getInputStream());
+            dispatchRequestStream(quicStream, replaceInputBy(quicStream, input));
         }
     }
 
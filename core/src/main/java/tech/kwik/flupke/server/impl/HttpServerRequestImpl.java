@@ -18,6 +18,7 @@
  */
 package tech.kwik.flupke.server.impl;
 
+import tech.kwik.flupke.impl.HeaderBlock;
 import tech.kwik.flupke.server.HttpServerRequest;
 
 import java.io.InputStream;
@@ -32,7 +33,8 @@ public class HttpServerRequestImpl implements HttpServerRequest {
     private final String method;
     private final String path;
     private final String auth;
-    private final HttpHeaders headers;
+    private final HeaderBlock headerBlock;
+    private HttpHeaders headers;
     private final InetSocketAddress clientAddress;
     private final Instant requestTime;
     private final InputStream bodyInputStream;
@@ -41,12 +43,26 @@ public class HttpServerRequestImpl implements HttpServerRequest {
         this.method = method;
         this.path = path;
         this.auth = auth;
+        this.headerBlock = null;
         this.headers = headers;
         this.bodyInputStream = bodyInputStream;
         this.clientAddress = clientAddress;
         requestTime = Instant.now();
     }
 
+    /**
+     * Creates a request with the headers from the given header block; the HttpHeaders are only created when requested.
+     */
+    HttpServerRequestImpl(String method, String path, String auth, HeaderBlock headerBlock, InetSocketAddress clientAddress, InputStream bodyInputStream) {
+        this.method = method;
+        this.path = path;
+        this.auth = auth;
+        this.headerBlock = headerBlock;
+        this.bodyInputStream = bodyInputStream;
+        this.clientAddress = clientAddress;
+        requestTime = Instant.now();
+    }
+
     @Override
     public String method() {
         return method;
@@ -59,6 +75,9 @@ public class HttpServerRequestImpl implements HttpServerRequest {
 
     @Override
     public HttpHeaders headers() {
+        if (headers == null) {
+            headers = headerBlock.httpHeaders();
+        }
         return headers;
     }
 
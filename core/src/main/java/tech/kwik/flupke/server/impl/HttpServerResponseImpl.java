@@ -19,28 +19,44 @@
 package tech.kwik.flupke.server.impl;
 
 import tech.kwik.core.QuicStream;
+import tech.kwik.flupke.PreEncodedHeaders;
 import tech.kwik.flupke.impl.HeadersFrame;
 import tech.kwik.flupke.server.HttpServerResponse;
+import tech.kwik.flupke.server.ResponseWriter;
 import tech.kwik.qpack.Encoder;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.http.HttpHeaders;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 final class HttpServerResponseImpl implements HttpServerResponse {
 
+    private static final HttpHeaders NO_HEADERS = HttpHeaders.of(Map.of(), (a, b) -> true);
+
     private final Encoder qpackEncoder;
     private final OutputStream quicOutputStream;
+    private final long streamId;
     private int status = -1;
     private boolean outputStarted;
     private final boolean isConnect;
+    private final Executor executor;
     private DataFrameWriter dataFrameWriter;
     private HttpHeaders httpHeaders;
-    private final Map<String, List<String>> headers;
+    // Created when first used, as many responses do not add headers.
+    private Map<String, List<String>> headers;
+    private List<PreEncodedHeaders> preEncodedHeaders;
+    private QueuedResponseWriter responseWriter;
+    private PushHandler pushHandler;
+    private boolean closed;
+    private boolean continueSent;
 
     /**
      * Creates a new HttpServerResponseImpl.
@@ -49,10 +65,22 @@ final class HttpServerResponseImpl implements HttpServerResponse {
      * @param isConnect     whether this response object is a response to a CONNECT request
      */
     public HttpServerResponseImpl(QuicStream quicStream, Encoder qpackEncoder, boolean isConnect) {
+        this(quicStream, qpackEncoder, isConnect, null);
+    }
+
+    /**
+     * Creates a new HttpServerResponseImpl.
+     * @param quicStream    the QUIC stream to write the response to
+     * @param qpackEncoder  the QPACK encoder to use for encoding headers
+     * @param isConnect     whether this response object is a response to a CONNECT request
+     * @param executor      the executor for sending data written with a response writer
+     */
+    public HttpServerResponseImpl(QuicStream quicStream, Encoder qpackEncoder, boolean isConnect, Executor executor) {
+        this.executor = executor;
         this.qpackEncoder = qpackEncoder;
         this.quicOutputStream = quicStream.getOutputStream();
-        this.httpHeaders = HttpHeaders.of(Map.of(), (a, b) -> true);
-        this.headers = new java.util.HashMap<>();
+        this.streamId = quicStream.getStreamId();
+        this.httpHeaders = NO_HEADERS;
         this.isConnect = isConnect;
     }
 
@@ -91,11 +119,29 @@ final class HttpServerResponseImpl implements HttpServerResponse {
 
     @Override
     public void addHeader(String name, List<String> values) {
+        if (headers == null) {
+            headers = new HashMap<>();
+        }
         headers.putIfAbsent(name, new java.util.ArrayList<>());
         headers.get(name).addAll(values);
     }
 
+    @Override
+    public void addHeaders(PreEncodedHeaders headers) {
+        if (outputStarted) {
+            throw new IllegalStateException("Cannot set headers after getOutputStream has been called");
+        }
+
+        if (preEncodedHeaders == null) {
+            preEncodedHeaders = new ArrayList<>();
+        }
+        preEncodedHeaders.add(headers);
+    }
+
     private HttpHeaders createHttpHeaders() {
+        if (headers == null) {
+            return httpHeaders;
+        }
         Map<String, List<String>> allHeaders = new HashMap<>(headers);
         httpHeaders.map().forEach((key, values) -> {
             allHeaders.putIfAbsent(key, new ArrayList<>());
@@ -113,11 +159,96 @@ final class HttpServerResponseImpl implements HttpServerResponse {
         return dataFrameWriter;
     }
 
+    @Override
+    public void sendFile(Path file, long offset, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (offset < 0 || length < 0 || offset + length > channel.size()) {
+                throw new IllegalArgumentException("range exceeds file size");
+            }
+            addHeader("content-length", Long.toString(length));
+            if (!isStatusSet()) {
+                setStatus(200);
+            }
+            getOutputStream();
+            // Whole region in a single DATA frame, read in large chunks, instead of one frame per (small) write.
+            dataFrameWriter.transferFrom(channel, offset, length);
+        }
+    }
+
+    @Override
+    public ResponseWriter getResponseWriter(long lowWatermark, long highWatermark) {
+        if (responseWriter != null) {
+            throw new IllegalStateException("response writer already created");
+        }
+        if (executor == null) {
+            throw new UnsupportedOperationException("no executor for response writer");
+        }
+        responseWriter = new QueuedResponseWriter(getOutputStream(), executor, lowWatermark, highWatermark);
+        return responseWriter;
+    }
+
+    @Override
+    public void sendInterim(int status, HttpHeaders headers) throws IOException {
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-http-upgrade
+        // "HTTP/3 does not support the HTTP Upgrade mechanism (Section 7.8 of [HTTP]) or the 101 (Switching Protocols)
+        //  informational status code (Section 15.2.2 of [HTTP])."
+        if (status < 100 || status > 199 || status == 101) {
+            throw new IllegalArgumentException("invalid interim status code: " + status);
+        }
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-http-message-framing
+        // "An HTTP response on the same stream as a request consists of: zero or more interim responses (...), one
+        //  final HTTP response"
+        if (outputStarted) {
+            throw new IllegalStateException("Cannot send interim response after final response has been started");
+        }
+        HeadersFrame headersFrame = new HeadersFrame(headers != null? headers: NO_HEADERS, Map.of(HeadersFrame.PSEUDO_HEADER_STATUS, Integer.toString(status)));
+        quicOutputStream.write(headersFrame.toBytes(qpackEncoder, streamId));
+        if (status == 100) {
+            continueSent = true;
+        }
+    }
+
+    /**
+     * Sends a 100 (Continue) interim response, unless it has already been sent or the final response has been started.
+     */
+    void sendContinueIfNeeded() throws IOException {
+        if (!continueSent && !outputStarted) {
+            sendInterim(100, null);
+        }
+    }
+
+    @Override
+    public boolean push(String path, HttpHeaders headers) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("invalid path: " + path);
+        }
+        // When a response writer is used, data frames are written by another thread, which could interleave with the
+        // push promise.
+        if (pushHandler == null || closed || responseWriter != null) {
+            return false;
+        }
+        return pushHandler.push(this, path, headers != null? headers: NO_HEADERS);
+    }
+
+    void setPushHandler(PushHandler pushHandler) {
+        this.pushHandler = pushHandler;
+    }
+
+    void writePushPromise(byte[] pushPromiseFrame) throws IOException {
+        // https://www.rfc-editor.org/rfc/rfc9114.html#name-http-message-framing
+        // "A server can send one or more PUSH_PROMISE frames before, after, or interleaved with the frames of a
+        //  response message."
+        quicOutputStream.write(pushPromiseFrame);
+    }
+
     private void prepareOutputStream() {
         if (!outputStarted) {
             HeadersFrame headersFrame = new HeadersFrame(createHttpHeaders(), Map.of(HeadersFrame.PSEUDO_HEADER_STATUS, Integer.toString(status())));
+            if (preEncodedHeaders != null) {
+                preEncodedHeaders.forEach(headersFrame::addPreEncodedHeaders);
+            }
             try {
-                quicOutputStream.write(headersFrame.toBytes(qpackEncoder));
+                quicOutputStream.write(headersFrame.toBytes(qpackEncoder, streamId));
             }
             catch (IOException e) {
                 // Ignore, there is nothing we can do. Note Kwik will not throw exception when writing to stream.
@@ -127,7 +258,25 @@ final class HttpServerResponseImpl implements HttpServerResponse {
         }
     }
 
+    /**
+     * Completes the response. When the body is written with a response writer, this method does not wait until the
+     * queued data is sent; the stream is closed by the writer's drain task when all data is sent (or not at all when
+     * sending fails, which happens when the stream is reset).
+     * @throws IOException  when writing the end of the response fails
+     */
     public void close() throws IOException {
+        closed = true;
+        if (responseWriter != null) {
+            responseWriter.close().thenRun(() -> {
+                try {
+                    dataFrameWriter.close();
+                }
+                catch (IOException e) {
+                    // Ignore, there is nothing we can do.
+                }
+            });
+            return;
+        }
         prepareOutputStream();
         dataFrameWriter.close();
     }
@@ -145,6 +294,13 @@ final class HttpServerResponseImpl implements HttpServerResponse {
         return status != -1;
     }
 
+    /**
+     * @return  whether the response headers have been written, after which the status can no longer be changed
+     */
+    public boolean isOutputStarted() {
+        return outputStarted;
+    }
+
     @Override
     public long size() {
         if (dataFrameWriter != null) {
@@ -154,4 +310,8 @@ final class HttpServerResponseImpl implements HttpServerResponse {
             return 0;
         }
     }
+
+    interface PushHandler {
+        boolean push(HttpServerResponseImpl response, String path, HttpHeaders headers);
+    }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server.impl;
+
+import tech.kwik.flupke.server.ResponseWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Response writer that queues written data and sends it from a drain task running on the given executor. As Kwik's
+ * stream output stream blocks when flow control credit is exhausted (and does not tell in advance whether a write
+ * would block), it is the drain task that blocks when the client reads slowly, not the producer. Only one drain task
+ * is active at a time; it ends when the queue is empty.
+ */
+final class QueuedResponseWriter implements ResponseWriter {
+
+    private final OutputStream output;
+    private final Executor executor;
+    private final long lowWatermark;
+    private final long highWatermark;
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+    // Guarded by this.
+    private final Queue<ByteBuffer> queue = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean draining;
+    private boolean closed;
+    private IOException failure;
+    private volatile boolean writable = true;
+    private volatile Consumer<Boolean> writabilityListener;
+    // Notifications are sent outside the lock guarding the queue; to prevent a stale notification from overtaking a
+    // more recent one, they are sent under a separate lock and only when the current writability differs from the one
+    // last notified.
+    private final Object notificationLock = new Object();
+    // Guarded by notificationLock.
+    private boolean notifiedWritable = true;
+
+    QueuedResponseWriter(OutputStream output, Executor executor, long lowWatermark, long highWatermark) {
+        if (lowWatermark < 0 || highWatermark <= 0 || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("watermarks must be positive and low watermark must be less than high watermark");
+        }
+        this.output = output;
+        this.executor = executor;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+    }
+
+    @Override
+    public void write(ByteBuffer data) throws IOException {
+        ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+        copy.put(data);
+        copy.flip();
+        boolean becameUnwritable = false;
+        boolean startDrain = false;
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed) {
+                throw new IOException("response writer is closed");
+            }
+            if (!copy.hasRemaining()) {
+                return;
+            }
+            queue.add(copy);
+            queuedBytes += copy.remaining();
+            if (writable && queuedBytes >= highWatermark) {
+                writable = false;
+                becameUnwritable = true;
+            }
+            if (!draining) {
+                draining = true;
+                startDrain = true;
+            }
+        }
+        if (becameUnwritable) {
+            notifyWritabilityChanged();
+        }
+        if (startDrain) {
+            try {
+                executor.execute(this::drain);
+            }
+            catch (RejectedExecutionException e) {
+                IOException error = new IOException("cannot send response data", e);
+                fail(error);
+                throw error;
+            }
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
+    public void setWritabilityListener(Consumer<Boolean> listener) {
+        writabilityListener = listener;
+    }
+
+    @Override
+    public synchronized long queuedBytes() {
+        return queuedBytes;
+    }
+
+    @Override
+    public CompletionStage<Void> close() {
+        boolean done;
+        synchronized (this) {
+            closed = true;
+            done = !draining && failure == null;
+        }
+        if (done) {
+            closeFuture.complete(null);
+        }
+        return closeFuture;
+    }
+
+    private void drain() {
+        while (true) {
+            ByteBuffer next;
+            boolean done = false;
+            synchronized (this) {
+                next = queue.poll();
+                if (next == null) {
+                    draining = false;
+                    done = closed;
+                }
+            }
+            if (next == null) {
+                if (done) {
+                    closeFuture.complete(null);
+                }
+                return;
+            }
+
+            try {
+                output.write(next.array(), next.arrayOffset() + next.position(), next.remaining());
+            }
+            catch (IOException writeError) {
+                fail(writeError);
+                return;
+            }
+
+            boolean becameWritable = false;
+            synchronized (this) {
+                queuedBytes -= next.remaining();
+                if (!writable && queuedBytes <= lowWatermark) {
+                    writable = true;
+                    becameWritable = true;
+                }
+            }
+            if (becameWritable) {
+                notifyWritabilityChanged();
+            }
+        }
+    }
+
+    private void fail(IOException error) {
+        synchronized (this) {
+            failure = error;
+            queue.clear();
+            queuedBytes = 0;
+            draining = false;
+            // Wake up a producer waiting for the writer to become writable, so it writes again and gets the failure.
+            writable = true;
+        }
+        notifyWritabilityChanged();
+        closeFuture.completeExceptionally(error);
+    }
+
+    private void notifyWritabilityChanged() {
+        synchronized (notificationLock) {
+            boolean current = writable;
+            if (current == notifiedWritable) {
+                return;
+            }
+            notifiedWritable = current;
+            Consumer<Boolean> listener = writabilityListener;
+            if (listener != null) {
+                try {
+                    listener.accept(current);
+                }
+                catch (RuntimeException e) {
+                    // Listener must not stop the writer
+                }
+            }
+        }
+    }
+}
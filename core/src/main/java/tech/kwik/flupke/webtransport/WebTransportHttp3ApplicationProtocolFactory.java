@@ -59,6 +59,12 @@ public class WebTransportHttp3ApplicationProtocolFactory extends Http3Applicatio
         webTransportExtensionFactory.setExecutor(executor);
     }
 
+    @Override
+    public void setVirtualThreads(boolean virtualThreads) {
+        super.setVirtualThreads(virtualThreads);
+        webTransportExtensionFactory.setVirtualThreads(virtualThreads);
+    }
+
     @Override
     public int maxConcurrentPeerInitiatedUnidirectionalStreams() {
         return maxConcurrentPeerInitiatedUnidirectionalStreams;
@@ -18,8 +18,12 @@
  */
 package tech.kwik.flupke.webtransport;
 
+import tech.kwik.flupke.impl.ByteBufferStreams;
+
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 // https://www.ietf.org/archive/id/draft-ietf-webtrans-overview-06.html#name-streams
 public interface WebTransportStream {
@@ -47,4 +51,35 @@ public interface WebTransportStream {
      * @return
      */
     InputStream getInputStream();
+
+    /**
+     * Reads data from this WebTransport stream into the given buffer, which may be a direct buffer. Blocks until at
+     * least one byte is available.
+     * @param buffer  the buffer to read into
+     * @return  the number of bytes read, or -1 when a "FIN" has been received and all data has been read
+     * @throws IOException  when reading fails
+     */
+    default int read(ByteBuffer buffer) throws IOException {
+        return ByteBufferStreams.read(getInputStream(), buffer, null);
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffer to this WebTransport stream.
+     * @param buffer  the data to write
+     * @return  the number of bytes written
+     * @throws IOException  when writing fails
+     */
+    default int write(ByteBuffer buffer) throws IOException {
+        return (int) write(new ByteBuffer[] { buffer });
+    }
+
+    /**
+     * Writes all remaining bytes of the given buffers to this WebTransport stream, in order.
+     * @param buffers  the data to write
+     * @return  the number of bytes written
+     * @throws IOException  when writing fails
+     */
+    default long write(ByteBuffer[] buffers) throws IOException {
+        return ByteBufferStreams.write(getOutputStream(), buffers, null);
+    }
 }
@@ -18,8 +18,8 @@
  */
 package tech.kwik.flupke.webtransport.impl;
 
-import tech.kwik.core.generic.VariableLengthInteger;
 import tech.kwik.flupke.HttpStream;
+import tech.kwik.flupke.impl.VariableLengthIntegerUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -51,7 +51,7 @@ public abstract class AbstractSessionFactoryImpl implements SessionFactory {
     protected void handleUnidirectionalStream(HttpStream httpStream) {
         try {
             InputStream inputStream = httpStream.getInputStream();
-            long sessionId = VariableLengthInteger.parseLong(inputStream);
+            long sessionId = VariableLengthIntegerUtil.read(inputStream);
 
             attachStreamToSessionOrQueue(sessionId, httpStream);
         }
@@ -69,9 +69,9 @@ public abstract class AbstractSessionFactoryImpl implements SessionFactory {
     protected void handleBidirectionalStream(HttpStream httpStream) {
         try {
             InputStream inputStream = httpStream.getInputStream();
-            long signalValue = VariableLengthInteger.parseLong(inputStream);
+            long signalValue = VariableLengthIntegerUtil.read(inputStream);
             if (signalValue == 0x41) {
-                long sessionId = VariableLengthInteger.parseLong(inputStream);
+                long sessionId = VariableLengthIntegerUtil.read(inputStream);
                 attachStreamToSessionOrQueue(sessionId, httpStream);
             }
         }
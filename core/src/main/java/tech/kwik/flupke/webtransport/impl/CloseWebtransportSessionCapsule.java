@@ -18,8 +18,8 @@
  */
 package tech.kwik.flupke.webtransport.impl;
 
-import tech.kwik.core.generic.VariableLengthInteger;
 import tech.kwik.flupke.core.Capsule;
+import tech.kwik.flupke.impl.VariableLengthIntegerUtil;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -33,12 +33,21 @@ import static tech.kwik.flupke.webtransport.Constants.CLOSE_WEBTRANSPORT_SESSION
 
 public class CloseWebtransportSessionCapsule implements Capsule {
 
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
     private final int applicationErrorCode;
     private final String applicationErrorMessage;
 
     protected CloseWebtransportSessionCapsule(InputStream inputStream) throws IOException {
-        int capsuleType = VariableLengthInteger.parse(inputStream);
-        int capsuleLength = VariableLengthInteger.parse(inputStream);
+        long capsuleType = VariableLengthIntegerUtil.read(inputStream);
+        long length = VariableLengthIntegerUtil.read(inputStream);
+        // https://www.ietf.org/archive/id/draft-ietf-webtrans-http3-09.html#name-session-termination
+        // "Application Error Message: A UTF-8 encoded error message string provided by the application closing the
+        //  session. The message takes up the remainder of the capsule, and its length MUST NOT exceed 1024 bytes."
+        if (length < 4 || length > 4 + MAX_MESSAGE_LENGTH) {
+            throw new IOException("invalid close webtransport session capsule length: " + length);
+        }
+        int capsuleLength = (int) length;
         byte[] data = new byte[capsuleLength];
         int n = inputStream.readNBytes(data, 0, capsuleLength);
         if (n != capsuleLength) {
@@ -50,7 +59,7 @@ public class CloseWebtransportSessionCapsule implements Capsule {
     }
 
     public CloseWebtransportSessionCapsule(int applicationErrorCode, String errorMessage) {
-        if (errorMessage.getBytes(StandardCharsets.UTF_8).length > 1024) {
+        if (errorMessage.getBytes(StandardCharsets.UTF_8).length > MAX_MESSAGE_LENGTH) {
             throw new IllegalArgumentException("Error message must not be longer than 1024 bytes");
         }
         this.applicationErrorCode = applicationErrorCode;
@@ -74,10 +83,10 @@ public class CloseWebtransportSessionCapsule implements Capsule {
     public int write(OutputStream outputStream) throws IOException {
         byte[] msgBytes = applicationErrorMessage.getBytes(StandardCharsets.UTF_8);
         int payloadLength = 4 + msgBytes.length;
-        int totalLength = VariableLengthInteger.bytesNeeded(CLOSE_WEBTRANSPORT_SESSION) + VariableLengthInteger.bytesNeeded(payloadLength) + payloadLength;
+        int totalLength = VariableLengthIntegerUtil.encodedLength(CLOSE_WEBTRANSPORT_SESSION) + VariableLengthIntegerUtil.encodedLength(payloadLength) + payloadLength;
         ByteBuffer buffer = ByteBuffer.allocate(totalLength);
-        VariableLengthInteger.encode(CLOSE_WEBTRANSPORT_SESSION, buffer);
-        VariableLengthInteger.encode(payloadLength, buffer);
+        VariableLengthIntegerUtil.encode(CLOSE_WEBTRANSPORT_SESSION, buffer);
+        VariableLengthIntegerUtil.encode(payloadLength, buffer);
         buffer.putInt(applicationErrorCode);
         buffer.put(msgBytes);
         // Write to output stream in one operation, to avoid multiple data frames.
@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
@@ -300,6 +301,16 @@ public class SessionImpl implements Session {
             public InputStream getInputStream() {
                 return httpStream.getInputStream();
             }
+
+            @Override
+            public int read(ByteBuffer buffer) throws IOException {
+                return httpStream.read(buffer);
+            }
+
+            @Override
+            public long write(ByteBuffer[] buffers) throws IOException {
+                return httpStream.write(buffers);
+            }
         };
     }
 
@@ -314,6 +325,11 @@ public class SessionImpl implements Session {
             public InputStream getInputStream() {
                 return inputStream.getInputStream();
             }
+
+            @Override
+            public int read(ByteBuffer buffer) throws IOException {
+                return inputStream.read(buffer);
+            }
         };
     }
 
@@ -18,7 +18,7 @@
  */
 package tech.kwik.flupke.webtransport.impl;
 
-import tech.kwik.core.concurrent.DaemonThreadFactory;
+import tech.kwik.flupke.impl.ThreadExecutors;
 import tech.kwik.flupke.server.Http3ServerConnection;
 import tech.kwik.flupke.server.Http3ServerExtension;
 import tech.kwik.flupke.server.Http3ServerExtensionFactory;
@@ -28,7 +28,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 public class WebTransportExtensionFactory implements Http3ServerExtensionFactory {
@@ -39,11 +38,19 @@ public class WebTransportExtensionFactory implements Http3ServerExtensionFactory
     public static final long WT_MAX_SESSIONS = 0x14e9cd29L;
 
     private final Map<String, Consumer<Session>> webTransportHandlers = new HashMap<>();
-    private ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("webtransport"));
+    private ExecutorService executor;
+    private boolean virtualThreads;
 
     @Override
     public Http3ServerExtension createExtension(Http3ServerConnection http3ServerConnection) {
-        return new WebTransportExtension(http3ServerConnection, webTransportHandlers, executor);
+        return new WebTransportExtension(http3ServerConnection, webTransportHandlers, getExecutor());
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = ThreadExecutors.newCachedExecutor("webtransport", virtualThreads);
+        }
+        return executor;
     }
 
     @Override
@@ -64,7 +71,17 @@ public class WebTransportExtensionFactory implements Http3ServerExtensionFactory
         webTransportHandlers.put(path, callback);
     }
 
-    public void setExecutor(ExecutorService executor) {
+    public synchronized void setExecutor(ExecutorService executor) {
         this.executor = Objects.requireNonNull(executor);
     }
+
+    /**
+     * Sets whether the default executor, that runs the session handlers, uses virtual threads instead of platform
+     * threads. Virtual threads require Java 21 or later; on older JVMs this setting is ignored. Has no effect when an
+     * executor is set explicitly, and must be set before the first session is created.
+     * @param virtualThreads  whether to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
 }
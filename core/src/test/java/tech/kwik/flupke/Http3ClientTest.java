@@ -25,6 +25,7 @@ import tech.kwik.flupke.impl.Http3ConnectionFactory;
 import tech.kwik.flupke.test.FieldSetter;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -33,7 +34,9 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -132,6 +135,31 @@ public class Http3ClientTest {
                 .hasMessageContaining("something went wrong during request/response");
     }
 
+    @Test
+    public void metricsListenerIsCalledPeriodically() throws Exception {
+        CountDownLatch reported = new CountDownLatch(2);
+        HttpClient httpClient = new Http3ClientBuilder()
+                .metricsListener(metrics -> reported.countDown(), Duration.ofMillis(10))
+                .build();
+
+        assertThat(reported.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(httpClient).isNotNull();
+    }
+
+    @Test
+    public void clientWithMetricsListenerCanBeGarbageCollected() throws Exception {
+        WeakReference<HttpClient> clientReference = new WeakReference<>(new Http3ClientBuilder()
+                .metricsListener(metrics -> {}, Duration.ofMillis(10))
+                .build());
+
+        for (int i = 0; i < 50 && clientReference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertThat(clientReference.get()).isNull();
+    }
+
     private Http3ClientConnectionImpl createMockHttp3Connection(Http3Client httpClient) throws Exception {
         Http3ConnectionFactory http3ConnectionFactory = mock(Http3ConnectionFactory.class);
         Http3ClientConnectionImpl http3Connection = mock(Http3ClientConnectionImpl.class);
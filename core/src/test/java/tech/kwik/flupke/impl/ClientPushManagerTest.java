@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.kwik.core.QuicStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_ID_ERROR;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_REQUEST_CANCELLED;
+
+
+class ClientPushManagerTest {
+
+    private List<byte[]> sentFrames;
+    private ClientPushManager pushManager;
+
+    @BeforeEach
+    void setUp() {
+        sentFrames = new ArrayList<>();
+        // Runs readers synchronously, for simplicity.
+        pushManager = new ClientPushManager(sentFrames::add, Runnable::run);
+    }
+
+    @Test
+    void enablingPushesSendsMaxPushIdOnce() {
+        // When
+        pushManager.enable();
+        pushManager.enable();
+
+        // Then
+        assertThat(sentFrames).hasSize(1);
+        assertThat(sentFrames.get(0)).isEqualTo(new MaxPushIdFrame(ClientPushManager.MAX_OUTSTANDING_PUSHES - 1).getBytes());
+    }
+
+    @Test
+    void pushPromiseIsConnectionErrorWhenPushesAreNotEnabled() {
+        assertThatThrownBy(() -> pushManager.promised(0, () -> null))
+                .isInstanceOf(ConnectionError.class)
+                .extracting(e -> ((ConnectionError) e).getHttp3ErrorCode())
+                .isEqualTo((long) H3_ID_ERROR);
+    }
+
+    @Test
+    void pushStreamIsPassedToReaderWhenPromiseIsAccepted() throws Exception {
+        // Given
+        pushManager.enable();
+        Consumer<QuicStream> reader = mock(Consumer.class);
+        QuicStream pushStream = mock(QuicStream.class);
+
+        // When
+        pushManager.promised(0, () -> reader);
+        pushManager.streamOpened(0, pushStream);
+
+        // Then
+        verify(reader).accept(pushStream);
+    }
+
+    @Test
+    void pushStreamOpenedBeforePromiseIsPassedToReaderWhenPromiseIsAccepted() throws Exception {
+        // Given
+        pushManager.enable();
+        Consumer<QuicStream> reader = mock(Consumer.class);
+        QuicStream pushStream = mock(QuicStream.class);
+
+        // When
+        pushManager.streamOpened(3, pushStream);
+        pushManager.promised(3, () -> reader);
+
+        // Then
+        verify(reader).accept(pushStream);
+    }
+
+    @Test
+    void refusedPushIsCancelledAndItsStreamAborted() throws Exception {
+        // Given
+        pushManager.enable();
+        QuicStream pushStream = mock(QuicStream.class);
+
+        // When
+        pushManager.promised(0, () -> null);
+        pushManager.streamOpened(0, pushStream);
+
+        // Then
+        assertThat(sentFrames).contains(new CancelPushFrame(0).getBytes());
+        verify(pushStream).abortReading(H3_REQUEST_CANCELLED);
+    }
+
+    @Test
+    void acceptorIsCalledOnlyOnceForSamePushId() throws Exception {
+        // Given
+        pushManager.enable();
+        List<Long> calls = new ArrayList<>();
+
+        // When
+        pushManager.promised(1, () -> { calls.add(1L); return mock(Consumer.class); });
+        pushManager.promised(1, () -> { calls.add(1L); return mock(Consumer.class); });
+
+        // Then
+        assertThat(calls).hasSize(1);
+    }
+
+    @Test
+    void secondPushStreamWithSamePushIdIsConnectionError() throws Exception {
+        // Given
+        pushManager.enable();
+        pushManager.streamOpened(2, mock(QuicStream.class));
+
+        // When / Then
+        assertThatThrownBy(() -> pushManager.streamOpened(2, mock(QuicStream.class)))
+                .isInstanceOf(ConnectionError.class)
+                .extracting(e -> ((ConnectionError) e).getHttp3ErrorCode())
+                .isEqualTo((long) H3_ID_ERROR);
+    }
+
+    @Test
+    void finishedPushAllowsServerToPushAnother() throws Exception {
+        // Given
+        pushManager.enable();
+        pushManager.promised(0, () -> mock(Consumer.class));
+        pushManager.streamOpened(0, mock(QuicStream.class));
+
+        // When
+        pushManager.finished(0);
+
+        // Then
+        assertThat(pushManager.getMaxPushId()).isEqualTo(ClientPushManager.MAX_OUTSTANDING_PUSHES);
+        assertThat(sentFrames.get(sentFrames.size() - 1)).isEqualTo(new MaxPushIdFrame(ClientPushManager.MAX_OUTSTANDING_PUSHES).getBytes());
+    }
+
+    @Test
+    void cancelledPushesDoNotAccumulateWhenServerNeverOpensTheirStreams() throws Exception {
+        // Given
+        pushManager.enable();
+
+        // When
+        for (int pushId = 0; pushId < 1000; pushId++) {
+            pushManager.promised(pushId, () -> null);
+        }
+
+        // Then
+        assertThat(pushManager.getMaxPushId()).isEqualTo(1000 + ClientPushManager.MAX_OUTSTANDING_PUSHES - 1);
+        assertThat(pushManager.getTrackedPushCount()).isEqualTo(0);
+    }
+
+    @Test
+    void pushStreamForCancelledPushIsAbortedAfterOtherPushesAreResolved() throws Exception {
+        // Given
+        pushManager.enable();
+        pushManager.promised(0, () -> null);
+        pushManager.promised(1, () -> mock(Consumer.class));
+        pushManager.finished(1);
+        QuicStream pushStream = mock(QuicStream.class);
+
+        // When
+        pushManager.streamOpened(0, pushStream);
+
+        // Then
+        verify(pushStream).abortReading(H3_REQUEST_CANCELLED);
+    }
+
+    @Test
+    void maxPushIdIsLimitedWhileLowestPushIsUnresolved() throws Exception {
+        // Given
+        pushManager.enable();
+        pushManager.promised(0, () -> mock(Consumer.class));
+
+        // When
+        for (int pushId = 1; pushId < 1000 && pushId <= pushManager.getMaxPushId(); pushId++) {
+            pushManager.promised(pushId, () -> null);
+        }
+
+        // Then
+        assertThat(pushManager.getMaxPushId()).isEqualTo(ClientPushManager.MAX_TRACKED_PUSH_IDS - 1);
+        assertThat(pushManager.getTrackedPushCount()).isEqualTo(ClientPushManager.MAX_TRACKED_PUSH_IDS);
+
+        // When
+        pushManager.finished(0);
+
+        // Then
+        assertThat(pushManager.getMaxPushId()).isEqualTo(ClientPushManager.MAX_TRACKED_PUSH_IDS + ClientPushManager.MAX_OUTSTANDING_PUSHES - 1);
+        assertThat(pushManager.getTrackedPushCount()).isEqualTo(0);
+    }
+}
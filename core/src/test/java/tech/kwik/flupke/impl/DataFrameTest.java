@@ -147,6 +147,36 @@ public class DataFrameTest {
         assertThat(frameBytes1).isEqualTo(frameBytes2);
     }
 
+    @Test
+    void repeatedlyCallingToBytesOnByteArrayPartShouldReturnSameResult() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.wrap("the lazy dog jumps over the quick brown fox".getBytes(), 9, 14);
+        DataFrame dataFrame = new DataFrame(buffer);
+
+        // When
+        byte[] frameBytes1 = dataFrame.toBytes();
+        byte[] frameBytes2 = dataFrame.toBytes();
+
+        // Then
+        assertThat(frameBytes2).isEqualTo(frameBytes1);
+    }
+
+    @Test
+    void writingFrameFromSlicedBufferShouldWriteSlice() throws IOException {
+        // Given
+        ByteBuffer buffer = ByteBuffer.wrap("the lazy dog jumps over the quick brown fox".getBytes());
+        buffer.position(9);
+        ByteBuffer slice = buffer.slice();
+        slice.limit(14);
+
+        // When
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new DataFrame(slice).writeTo(outputStream, new byte[VariableLengthIntegerUtil.MAX_FRAME_HEADER_LENGTH]);
+
+        // Then
+        assertThat(outputStream.toByteArray()).startsWith(0x00, 14).endsWith("dog jumps over".getBytes());
+    }
+
     @Test
     public void testDataFrameLength() {
         // Given
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FieldLineCacheTest {
+
+    @Test
+    void cachedLineIsFoundWithEqualField() {
+        // Given
+        FieldLineCache cache = new FieldLineCache(10, 100);
+        cache.put(":status", "404", new byte[] { (byte) 0xdb });
+
+        // When
+        byte[] line = cache.get(":status", new String("404"));
+
+        // Then
+        assertThat(line).isEqualTo(new byte[] { (byte) 0xdb });
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void lineWithOtherValueIsNotFound() {
+        // Given
+        FieldLineCache cache = new FieldLineCache(10, 100);
+        cache.put("server", "flupke", new byte[5]);
+
+        // When
+        byte[] line = cache.get("server", "kwik");
+
+        // Then
+        assertThat(line).isNull();
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void whenFullLeastRecentlyUsedLineIsEvicted() {
+        // Given
+        FieldLineCache cache = new FieldLineCache(2, 100);
+        cache.put(":status", "200", new byte[1]);
+        cache.put(":status", "404", new byte[1]);
+        cache.get(":status", "200");
+
+        // When
+        cache.put(":status", "500", new byte[1]);
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(":status", "200")).isNotNull();
+        assertThat(cache.get(":status", "404")).isNull();
+    }
+
+    @Test
+    void largeLineIsNotCached() {
+        // Given
+        FieldLineCache cache = new FieldLineCache(10, 100);
+
+        // When
+        cache.put("x-large", "x".repeat(200), new byte[101]);
+
+        // Then
+        assertThat(cache.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeaderBlockTest {
+
+    private static final List<Map.Entry<String, String>> REQUEST_FIELDS = List.of(
+            Map.entry(":method", "GET"),
+            Map.entry(":scheme", "https"),
+            Map.entry(":authority", "www.example.com"),
+            Map.entry(":path", "/index.html"),
+            Map.entry("accept", "text/html"),
+            Map.entry("cookie", "a=1"),
+            Map.entry("cookie", "b=2"));
+
+    @Test
+    void pseudoHeadersCanBeRetrievedByIndexAndName() {
+        // When
+        HeaderBlock headerBlock = HeaderBlock.of(REQUEST_FIELDS);
+
+        // Then
+        assertThat(headerBlock.pseudoHeader(HeaderBlock.METHOD)).isEqualTo("GET");
+        assertThat(headerBlock.pseudoHeader(HeaderBlock.PATH)).isEqualTo("/index.html");
+        assertThat(headerBlock.pseudoHeader(HeaderBlock.STATUS)).isNull();
+        assertThat(headerBlock.pseudoHeader(":authority")).isEqualTo("www.example.com");
+    }
+
+    @Test
+    void pseudoHeadersAreNotPartOfHttpHeaders() {
+        // When
+        HeaderBlock headerBlock = HeaderBlock.of(REQUEST_FIELDS);
+
+        // Then
+        assertThat(headerBlock.fieldCount()).isEqualTo(3);
+        assertThat(headerBlock.httpHeaders().map()).containsOnlyKeys("accept", "cookie");
+    }
+
+    @Test
+    void fieldsWithSameNameAreCombinedInHttpHeaders() {
+        // When
+        HeaderBlock headerBlock = HeaderBlock.of(REQUEST_FIELDS);
+
+        // Then
+        assertThat(headerBlock.httpHeaders().allValues("cookie")).containsExactly("a=1", "b=2");
+        assertThat(headerBlock.firstValue("Cookie")).hasValue("a=1");
+    }
+
+    @Test
+    void httpHeadersAreCreatedOnlyOnce() {
+        // Given
+        HeaderBlock headerBlock = HeaderBlock.of(REQUEST_FIELDS);
+
+        // When
+        var headers = headerBlock.httpHeaders();
+
+        // Then
+        assertThat(headerBlock.httpHeaders()).isSameAs(headers);
+    }
+
+    @Test
+    void forDuplicatePseudoHeaderFirstValueIsUsed() {
+        // When
+        HeaderBlock headerBlock = HeaderBlock.of(List.of(Map.entry(":status", "200"), Map.entry(":status", "404")));
+
+        // Then
+        assertThat(headerBlock.pseudoHeader(HeaderBlock.STATUS)).isEqualTo("200");
+    }
+
+    @Test
+    void unknownPseudoHeaderIsRetained() {
+        // When
+        HeaderBlock headerBlock = HeaderBlock.of(List.of(Map.entry(":method", "GET"), Map.entry(":x-custom", "yes")));
+
+        // Then
+        assertThat(headerBlock.pseudoHeader(":x-custom")).isEqualTo("yes");
+        assertThat(headerBlock.pseudoHeaders()).containsOnlyKeys(":method", ":x-custom");
+    }
+
+    @Test
+    void sizeIsSumOfLengthsOfNamesAndValues() {
+        // When
+        HeaderBlock headerBlock = HeaderBlock.of(List.of(Map.entry(":method", "GET"), Map.entry("accept", "*/*")));
+
+        // Then
+        assertThat(headerBlock.size()).isEqualTo(":methodGETaccept*/*".length());
+    }
+}
@@ -22,15 +22,22 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import tech.kwik.core.ConnectionListener;
+import tech.kwik.core.ConnectionTerminatedEvent;
 import tech.kwik.core.QuicClientConnection;
+import tech.kwik.core.QuicConnection;
 import tech.kwik.core.QuicStream;
+import tech.kwik.core.Statistics;
 import tech.kwik.core.generic.VariableLengthInteger;
 import tech.kwik.flupke.Http3ClientConnection;
 import tech.kwik.flupke.HttpError;
 import tech.kwik.flupke.HttpStream;
+import tech.kwik.flupke.MetricsSnapshot;
+import tech.kwik.flupke.RequestTimings;
 import tech.kwik.flupke.test.ByteUtils;
 import tech.kwik.flupke.test.FieldSetter;
 import tech.kwik.flupke.test.Http3ClientConnectionBuilder;
+import tech.kwik.flupke.test.WriteableByteArrayInputStream;
 import tech.kwik.qpack.Decoder;
 import tech.kwik.qpack.Encoder;
 
@@ -41,6 +48,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
@@ -49,8 +57,13 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -60,6 +73,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static tech.kwik.flupke.impl.Http3ConnectionImpl.*;
 import static tech.kwik.flupke.impl.SettingsFrame.SETTINGS_ENABLE_CONNECT_PROTOCOL;
@@ -146,6 +160,73 @@ public class Http3ClientConnectionImplTest {
     }
     //endregion
 
+    //region interim responses
+    @Test
+    public void interimResponseShouldBeSkipped() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        byte[] responseBytes = new byte[]{
+                0x01, 0x00, // Headers frame (103)
+                0x01, 0x00, // Headers frame (200)
+        };
+        mockQuicConnectionWithStreams(http3Connection, responseBytes, Map.of(":status", "103", "link", "</style.css>; rel=preload"), Map.of(":status", "200"));
+
+        // When
+        HttpResponse<String> httpResponse = http3Connection.send(dummyRequest(), HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertThat(httpResponse.statusCode()).isEqualTo(200);
+        assertThat(httpResponse.headers().map()).doesNotContainKey("link");
+    }
+
+    @Test
+    public void whenExpectingContinueBodyShouldNotBeSentWhenFinalResponseIsReceivedFirst() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        ByteArrayOutputStream requestOutputStream = new ByteArrayOutputStream();
+        QuicStream quicStream = mockQuicConnectionWithStreams(http3Connection, requestOutputStream, new byte[]{ 0x01, 0x00 }, Map.of(":status", "413"));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(new URI("http://localhost"))
+                .expectContinue(true)
+                .POST(HttpRequest.BodyPublishers.ofString("This is the request body."))
+                .build();
+
+        // When
+        HttpResponse<String> httpResponse = http3Connection.send(request, HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertThat(httpResponse.statusCode()).isEqualTo(413);
+        assertThat(new String(requestOutputStream.toByteArray())).doesNotContain("This is the request body.");
+        verify(quicStream).resetStream(H3_NO_ERROR);
+    }
+
+    @Test
+    public void whenExpectingContinueBodyShouldBeSentAfterContinueIsReceived() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        ByteArrayOutputStream requestOutputStream = new ByteArrayOutputStream();
+        byte[] responseBytes = new byte[]{
+                0x01, 0x00, // Headers frame (100)
+                0x01, 0x00, // Headers frame (200)
+        };
+        mockQuicConnectionWithStreams(http3Connection, requestOutputStream, responseBytes, Map.of(":status", "100"), Map.of(":status", "200"));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(new URI("http://localhost"))
+                .expectContinue(true)
+                .POST(HttpRequest.BodyPublishers.ofString("This is the request body."))
+                .build();
+
+        // When
+        HttpResponse<String> httpResponse = http3Connection.send(request, HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertThat(httpResponse.statusCode()).isEqualTo(200);
+        assertThat(requestOutputStream.toByteArray()).endsWith("This is the request body.".getBytes());
+    }
+    //endregion
+
     //region settings frame
     @Test
     public void testServerSettingsFrameIsProcessed() throws IOException {
@@ -195,6 +276,31 @@ public class Http3ClientConnectionImplTest {
                 0      // value
         });
     }
+
+    @Test
+    public void clientSendsConfiguredQpackSettings() throws Exception {
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        http3Connection.setQpackSettings(4096, 16, true);
+        QuicClientConnection quicConnection = mock(QuicClientConnection.class);
+        FieldSetter.setField(http3Connection, Http3ConnectionImpl.class.getDeclaredField("quicConnection"), quicConnection);
+
+        QuicStream quicStreamMock = mock(QuicStream.class);
+        ByteArrayOutputStream controlStreamOutput = new ByteArrayOutputStream();
+        when(quicStreamMock.getOutputStream()).thenReturn(controlStreamOutput);
+        when(quicConnection.createStream(anyBoolean())).thenReturn(quicStreamMock);
+        http3Connection.connect();
+
+        assertThat(controlStreamOutput.toByteArray()).isEqualTo(new byte[] {
+                0x00,  // type: control stream
+                0x04,  // frame type: SETTINGS
+                0x05,  // payload length
+                // frame payload
+                0x01,  // identifier: SETTINGS_QPACK_MAX_TABLE_CAPACITY
+                0x50, 0x00,  // value 4096
+                0x07,  // identifier: SETTINGS_QPACK_BLOCKED_STREAMS
+                16     // value
+        });
+    }
     //endregion
 
     //region response handling
@@ -402,6 +508,28 @@ public class Http3ClientConnectionImplTest {
         verifyClosedWith(quicConnection, H3_FRAME_ERROR);
     }
 
+    @Test
+    void responseHeadersThatCannotBeDecodedShouldLeadToDecompressionFailedConnectionError() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        byte[] responseBytes = new byte[]{
+                0x01, // type Headers Frame
+                0x03, // payload length
+                0x00, 0x00, 0x51 // field section with literal field line (:path) without value
+        };
+        mockQuicConnectionWithStreams(http3Connection, responseBytes);
+        FieldSetter.setField(http3Connection, Http3ConnectionImpl.class.getDeclaredField("qpackDecoder"),
+                new QpackDecoder(0, 0, new ByteArrayOutputStream()));
+
+        // When
+        assertThatThrownBy(() ->
+                http3Connection.send(dummyRequest(), HttpResponse.BodyHandlers.ofString()))
+                .isInstanceOf(IOException.class);
+
+        // Then
+        verifyClosedWith(quicConnection, QpackException.QPACK_DECOMPRESSION_FAILED);
+    }
+
     @Test
     void receivingEmptyResponseShouldLeadToConnectionError() throws Exception {
         // Given
@@ -647,6 +775,276 @@ public class Http3ClientConnectionImplTest {
     }
     //endregion
 
+    //region request cancellation
+    @Test
+    void cancellingResponseFutureShouldCancelRequestStream() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        WriteableByteArrayInputStream responseStream = new WriteableByteArrayInputStream();
+        responseStream.write(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+        });
+        QuicStream quicStream = mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        http3Connection.sendAsync(dummyRequest(), HttpResponse.BodyHandlers.ofString(), result);
+
+        // When
+        result.cancel(true);
+
+        // Then
+        verify(quicStream).abortReading(H3_REQUEST_CANCELLED);
+        verify(quicStream).resetStream(H3_REQUEST_CANCELLED);
+        responseStream.close();
+    }
+
+    @Test
+    void cancellingResponseFutureShouldSignalErrorToBodySubscriber() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        WriteableByteArrayInputStream responseStream = new WriteableByteArrayInputStream();
+        responseStream.write(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+        });
+        mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+
+        CompletableFuture<Throwable> subscriberError = new CompletableFuture<>();
+        HttpResponse.BodySubscriber<String> bodySubscriber = nonRequestingBodySubscriber(subscriberError);
+
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        http3Connection.sendAsync(dummyRequest(), responseInfo -> bodySubscriber, result);
+
+        // When
+        result.cancel(true);
+
+        // Then
+        assertThat(subscriberError.get(1, TimeUnit.SECONDS)).isInstanceOf(IOException.class);
+        responseStream.close();
+    }
+    //endregion
+
+    //region body idle timeout
+    @Test
+    void whenBodySubscriberDoesNotRequestDataResponseBodyShouldBeAbandonedAfterIdleTimeout() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        http3Connection.setBodyIdleTimeout(Duration.ofMillis(50));
+        WriteableByteArrayInputStream responseStream = new WriteableByteArrayInputStream();
+        responseStream.write(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+        });
+        QuicStream quicStream = mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+
+        CompletableFuture<Throwable> subscriberError = new CompletableFuture<>();
+        HttpResponse.BodySubscriber<String> bodySubscriber = nonRequestingBodySubscriber(subscriberError);
+
+        // When
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        http3Connection.sendAsync(dummyRequest(), responseInfo -> bodySubscriber, result);
+
+        // Then
+        assertThat(subscriberError.get(1, TimeUnit.SECONDS)).isInstanceOf(HttpTimeoutException.class);
+        verify(quicStream).abortReading(H3_REQUEST_CANCELLED);
+        assertThat(http3Connection.getAbandonedResponseBodiesCount()).isEqualTo(1);
+        responseStream.close();
+    }
+
+    @Test
+    void whenBodySubscriberHasOutstandingDemandResponseBodyShouldNotBeAbandoned() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        http3Connection.setBodyIdleTimeout(Duration.ofMillis(20));
+        WriteableByteArrayInputStream responseStream = new WriteableByteArrayInputStream();
+        responseStream.write(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+        });
+        QuicStream quicStream = mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+
+        // When
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        http3Connection.sendAsync(dummyRequest(), HttpResponse.BodyHandlers.ofString(), result);
+        Thread.sleep(100);
+        responseStream.write(new byte[] { 0x00, 0x02, 0x6f, 0x6b });  // DATA frame with "ok"
+        responseStream.close();
+
+        // Then
+        assertThat(result.get(1, TimeUnit.SECONDS).body()).isEqualTo("ok");
+        verify(quicStream, never()).abortReading(anyLong());
+        assertThat(http3Connection.getAbandonedResponseBodiesCount()).isEqualTo(0);
+    }
+    //endregion
+
+    //region request timings
+    @Test
+    void sendShouldRecordTimingsOfRequestPhasesAndNotifyListener() throws Exception {
+        // Given
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        InputStream responseStream = new ByteArrayInputStream(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+                0x00, // type Data Frame
+                0x02, // payload length
+                0x6f, 0x6b
+        });
+        mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+        CompletableFuture<RequestTimings> finishedTimings = new CompletableFuture<>();
+        RequestTimingsRecorder timings = new RequestTimingsRecorder(dummyRequest(), (request, t) -> finishedTimings.complete(t));
+
+        // When
+        http3Connection.send(dummyRequest(), HttpResponse.BodyHandlers.ofString(), timings);
+
+        // Then
+        RequestTimings result = finishedTimings.get(1, TimeUnit.SECONDS);
+        assertThat(result.timestamp(RequestTimings.Phase.STREAM_OPENED)).isPresent();
+        assertThat(result.timeToFirstByte()).isPresent();
+        assertThat(result.bodyTime()).isPresent();
+        assertThat(result.totalTime()).isPresent();
+        assertThat(result.timestamp(RequestTimings.Phase.BODY_COMPLETE).get())
+                .isGreaterThanOrEqualTo(result.timestamp(RequestTimings.Phase.RESPONSE_HEADERS_RECEIVED).get());
+    }
+    //endregion
+
+    //region metrics
+    @Test
+    void completedRequestShouldBeReflectedInConnectionMetrics() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        InputStream responseStream = new ByteArrayInputStream(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+                0x00, // type Data Frame
+                0x02, // payload length
+                0x6f, 0x6b
+        });
+        mockQuicConnectionWithStream(http3Connection, responseStream);
+        when(quicConnection.getStats()).thenReturn(mock(Statistics.class));
+        mockDecoderWithStatus200(http3Connection);
+
+        // When
+        http3Connection.send(dummyRequest(), HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        waitUntil(() -> http3Connection.getMetrics().requestCount() == 1);
+        MetricsSnapshot metrics = http3Connection.getMetrics();
+        assertThat(metrics.requestCount()).isEqualTo(1);
+        assertThat(metrics.activeStreams()).isEqualTo(0);
+        assertThat(metrics.queuedStreams()).isEqualTo(0);
+        assertThat(metrics.bytesReceived()).isEqualTo(2);
+    }
+
+    @Test
+    void terminationListenerShouldBeCalledWhenQuicConnectionIsTerminated() {
+        // Given
+        QuicConnection quicConnection = mock(QuicConnection.class);
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl(quicConnection, Executors.newSingleThreadExecutor());
+        ArgumentCaptor<ConnectionListener> listenerCaptor = ArgumentCaptor.forClass(ConnectionListener.class);
+        verify(quicConnection).setConnectionListener(listenerCaptor.capture());
+        Runnable terminationListener = mock(Runnable.class);
+        http3Connection.setTerminationListener(terminationListener);
+
+        // When
+        listenerCaptor.getValue().disconnected(mock(ConnectionTerminatedEvent.class));
+        listenerCaptor.getValue().disconnected(mock(ConnectionTerminatedEvent.class));
+
+        // Then
+        verify(terminationListener, times(1)).run();
+    }
+    //endregion
+
+    //region body memory budget
+    @Test
+    void responseBodyExceedingBufferLimitShouldBeAborted() throws Exception {
+        // Given
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        ResponseBodyMemoryBudget budget = new ResponseBodyMemoryBudget(1000, 5);
+        http3Connection.setBodyMemoryBudget(budget);
+        InputStream responseStream = new ByteArrayInputStream(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+                0x00, // type Data Frame
+                0x04, // payload length
+                0x61, 0x62, 0x63, 0x64,
+                0x00, // type Data Frame
+                0x06, // payload length
+                0x65, 0x66, 0x67, 0x68, 0x69, 0x6a
+        });
+        QuicStream quicStream = mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+
+        assertThatThrownBy(() ->
+                // When
+                http3Connection.send(dummyRequest(), HttpResponse.BodyHandlers.ofString()))
+                // Then
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("memory budget");
+        verify(quicStream).abortReading(H3_REQUEST_CANCELLED);
+        waitUntil(() -> budget.getBufferedBytes() == 0);
+        assertThat(budget.getBufferedBytes()).isEqualTo(0);
+    }
+
+    @Test
+    void streamingBodySubscriberShouldNotBeLimitedByMemoryBudget() throws Exception {
+        // Given
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        ResponseBodyMemoryBudget budget = new ResponseBodyMemoryBudget(5, 5);
+        http3Connection.setBodyMemoryBudget(budget);
+        InputStream responseStream = new ByteArrayInputStream(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+                0x00, // type Data Frame
+                0x0a, // payload length
+                0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a
+        });
+        mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+
+        // When
+        HttpResponse<InputStream> response = http3Connection.send(dummyRequest(), HttpResponse.BodyHandlers.ofInputStream());
+
+        // Then
+        assertThat(new String(response.body().readAllBytes())).isEqualTo("abcdefghij");
+    }
+
+    @Test
+    void whenResponseBodyIsCompleteBufferedBytesShouldBeReleased() throws Exception {
+        // Given
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        ResponseBodyMemoryBudget budget = new ResponseBodyMemoryBudget(1000, 1000);
+        http3Connection.setBodyMemoryBudget(budget);
+        WriteableByteArrayInputStream responseStream = new WriteableByteArrayInputStream();
+        responseStream.write(new byte[] {
+                0x01, // type Headers Frame
+                0x00, // payload length (payload omitted for the test, is covered by the mock decoder)
+                0x00, // type Data Frame
+                0x03, // payload length
+                0x61, 0x62, 0x63
+        });
+        mockQuicConnectionWithStream(http3Connection, responseStream);
+        mockDecoderWithStatus200(http3Connection);
+
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        http3Connection.sendAsync(dummyRequest(), HttpResponse.BodyHandlers.ofString(), result);
+        waitUntil(() -> budget.getBufferedBytes() == 3);
+
+        // When
+        responseStream.close();
+
+        // Then
+        assertThat(result.get(1, TimeUnit.SECONDS).body()).isEqualTo("abc");
+        waitUntil(() -> budget.getBufferedBytes() == 0);
+        assertThat(budget.getBufferedBytes()).isEqualTo(0);
+    }
+    //endregion
+
     //region test private/protected methods
     @Test
     public void readFrameFromClosedStreamShouldReturnNull() throws Exception {
@@ -823,6 +1221,50 @@ public class Http3ClientConnectionImplTest {
         assertThat(new String(Arrays.copyOfRange(data.array(), 0, 11))).isEqualTo("hello world");
     }
 
+    @Test
+    public void httpStreamGatheringWriteShouldSendAllBuffersInOneDataFrame() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        ByteArrayOutputStream requestOutputStream = new ByteArrayOutputStream();
+        mockQuicConnectionWithStreams(http3Connection, requestOutputStream, new byte[]{ 0x01, 0x00 });
+        HttpStream httpStream = http3Connection.sendConnect(HttpRequest.newBuilder().uri(new URI("http://proxy.net:443")).build());
+        requestOutputStream.reset();  // Clear any data written during CONNECT request
+
+        // When
+        ByteBuffer direct = ByteBuffer.allocateDirect(6);
+        direct.put(" world".getBytes(StandardCharsets.UTF_8)).flip();
+        long written = httpStream.write(new ByteBuffer[] { ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)), direct });
+
+        // Then
+        assertThat(written).isEqualTo(11);
+        assertThat(direct.hasRemaining()).isFalse();
+        byte[] sentData = requestOutputStream.toByteArray();
+        assertThat(sentData).hasSize(13);
+        assertThat(sentData[0]).isEqualTo((byte) 0x00); // DataFrame Type
+        assertThat(sentData[1]).isEqualTo((byte) 11);   // Length
+        assertThat(new String(Arrays.copyOfRange(sentData, 2, 13))).isEqualTo("hello world");
+    }
+
+    @Test
+    public void httpStreamShouldReadIntoDirectBuffer() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        //                                       Header Frame  Data Frame       Data Frame  Data Frame
+        byte[] inputData = ByteUtils.hexToBytes("01 00         00 05 68656c6c6f 00 01 20    00 05 776f726c64");
+        mockQuicConnectionWithStreams(http3Connection, inputData);
+        HttpStream httpStream = http3Connection.sendConnect(HttpRequest.newBuilder().uri(new URI("http://proxy.net:443")).build());
+
+        // When
+        ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+        while (httpStream.read(buffer) > 0);
+
+        // Then
+        buffer.flip();
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        assertThat(new String(data)).isEqualTo("hello world");
+    }
+
     @Test
     public void httpStreamShouldCopyByteArrayRangeFromDataFrame() throws Exception {
         // Given
@@ -871,6 +1313,39 @@ public class Http3ClientConnectionImplTest {
         assertThat(data.position()).isEqualTo(11);
         assertThat(new String(Arrays.copyOfRange(data.array(), 0, 11))).isEqualTo("hello world");
     }
+
+    @Test
+    public void httpStreamShouldReturnDataBeforeDataFrameIsComplete() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        //                                       Header Frame  Data Frame of 1 GB, of which only 5 bytes are received
+        byte[] inputData = ByteUtils.hexToBytes("01 00         00 c000000040000000 68656c6c6f");
+        mockQuicConnectionWithStreams(http3Connection, inputData);
+        HttpStream httpStream = http3Connection.sendConnect(HttpRequest.newBuilder().uri(new URI("http://proxy.net:443")).build());
+
+        // When
+        byte[] data = httpStream.getInputStream().readNBytes(5);
+
+        // Then
+        assertThat(new String(data)).isEqualTo("hello");
+    }
+
+    @Test
+    public void httpStreamShouldFailWhenStreamEndsWithinDataFrame() throws Exception {
+        // Given
+        Http3ClientConnection http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        //                                       Header Frame  Data Frame of 10 bytes, of which only 5 bytes are received
+        byte[] inputData = ByteUtils.hexToBytes("01 00         00 0a 68656c6c6f");
+        mockQuicConnectionWithStreams(http3Connection, inputData);
+        HttpStream httpStream = http3Connection.sendConnect(HttpRequest.newBuilder().uri(new URI("http://proxy.net:443")).build());
+
+        // When
+        InputStream inputStream = httpStream.getInputStream();
+        inputStream.readNBytes(5);
+
+        // Then
+        assertThatThrownBy(() -> inputStream.read()).isInstanceOf(IOException.class);
+    }
     //endregion
 
     //region extended CONNECT method
@@ -1100,6 +1575,92 @@ public class Http3ClientConnectionImplTest {
     }
     //endregion
 
+    //region server push
+    @Test
+    public void pushStreamWhenPushIsNotEnabledShouldLeadToConnectionError() throws Exception {
+        // Given
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433);
+        QuicClientConnection quicConnection = mockQuicConnection(http3Connection);
+        QuicStream pushStream = mock(QuicStream.class);
+        when(pushStream.isUnidirectional()).thenReturn(true);
+        when(pushStream.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[] { 0x01, 0x00 }));  // push stream type, push ID 0
+
+        // When
+        http3Connection.registerServerInitiatedStream(pushStream);
+
+        // Then
+        verifyClosedWith(quicConnection, H3_ID_ERROR);
+    }
+
+    @Test
+    public void pushPromiseWhenPushIsNotEnabledShouldLeadToConnectionError() throws Exception {
+        // Given
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433, new NoOpEncoder());
+        byte[] responseBytes = new byte[] {
+                0x05, // type Push Promise Frame
+                0x01, // payload length
+                0x00, // push ID
+                0x01, // type Headers Frame
+                0x00, // payload length
+        };
+        mockQuicConnectionWithStreams(http3Connection, responseBytes);
+
+        // When
+        assertThatThrownBy(
+                () -> http3Connection.send(dummyRequest(), HttpResponse.BodyHandlers.ofString()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("onnection error");
+
+        // Then
+        verifyClosedWith(quicConnection, H3_ID_ERROR);
+    }
+
+    @Test
+    public void acceptedPushShouldBeDeliveredToPushPromiseHandler() throws Exception {
+        // Given
+        Http3ClientConnectionImpl http3Connection = new Http3ClientConnectionImpl("localhost", 4433, new NoOpEncoder());
+        byte[] responseBytes = new byte[] {
+                0x05, // type Push Promise Frame
+                0x01, // payload length
+                0x00, // push ID
+                0x01, // type Headers Frame
+                0x00, // payload length
+        };
+        mockQuicConnectionWithStreams(http3Connection, responseBytes,
+                Map.of(":method", "GET", ":scheme", "https", ":authority", "localhost:443", ":path", "/style.css"),
+                Map.of(":status", "200"),
+                Map.of(":status", "200"));
+        ByteArrayOutputStream controlStreamOutput = new ByteArrayOutputStream();
+        FieldSetter.setField(http3Connection, Http3ConnectionImpl.class.getDeclaredField("controlStreamOutput"), controlStreamOutput);
+        AtomicReference<HttpRequest> pushRequest = new AtomicReference<>();
+        AtomicReference<CompletableFuture<HttpResponse<String>>> pushResponse = new AtomicReference<>();
+        HttpResponse.PushPromiseHandler<String> pushPromiseHandler = (initiatingRequest, pushPromiseRequest, acceptor) -> {
+            pushRequest.set(pushPromiseRequest);
+            pushResponse.set(acceptor.apply(HttpResponse.BodyHandlers.ofString()));
+        };
+        HttpRequest request = HttpRequest.newBuilder().uri(new URI("https://localhost/index.html")).build();
+
+        // When
+        CompletableFuture<HttpResponse<String>> response = new CompletableFuture<>();
+        http3Connection.sendAsync(request, HttpResponse.BodyHandlers.ofString(), pushPromiseHandler, response, RequestTimingsRecorder.disabled());
+        response.get(1, TimeUnit.SECONDS);
+        QuicStream pushStream = mock(QuicStream.class);
+        when(pushStream.isUnidirectional()).thenReturn(true);
+        when(pushStream.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[] {
+                0x01, // push stream type
+                0x00, // push ID
+                0x01, // type Headers Frame
+                0x00, // payload length
+        }));
+        http3Connection.registerServerInitiatedStream(pushStream);
+
+        // Then
+        assertThat(controlStreamOutput.toByteArray()).startsWith(new MaxPushIdFrame(ClientPushManager.MAX_OUTSTANDING_PUSHES - 1).getBytes());
+        assertThat(pushRequest.get().uri()).isEqualTo(new URI("https://localhost:443/style.css"));
+        assertThat(pushResponse.get().get(1, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+    }
+    //endregion
+
     //region helpers
     private HttpRequest dummyRequest() throws URISyntaxException {
         return HttpRequest.newBuilder()
@@ -1201,6 +1762,46 @@ public class Http3ClientConnectionImplTest {
         return http3StreamMock;
     }
 
+    private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private HttpResponse.BodySubscriber<String> nonRequestingBodySubscriber(CompletableFuture<Throwable> subscriberError) {
+        return new HttpResponse.BodySubscriber<>() {
+            @Override
+            public CompletionStage<String> getBody() {
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                // Intentionally not requesting any data
+            }
+
+            @Override
+            public void onNext(List<ByteBuffer> item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriberError.complete(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        };
+    }
+
+    private void mockDecoderWithStatus200(Http3ClientConnection http3Connection) throws Exception {
+        Decoder mockedQPackDecoder = mock(Decoder.class);
+        FieldSetter.setField(http3Connection, Http3ConnectionImpl.class.getDeclaredField("qpackDecoder"), mockedQPackDecoder);
+        when(mockedQPackDecoder.decodeStream(any(InputStream.class))).thenReturn(List.of(entry(":status", "200")));
+    }
+
     private QuicClientConnection mockQuicConnection(Http3ClientConnection http3Connection) throws NoSuchFieldException, IOException {
         QuicClientConnection quicConnection = mock(QuicClientConnection.class);
         FieldSetter.setField(http3Connection, Http3ConnectionImpl.class.getDeclaredField("quicConnection"), quicConnection);
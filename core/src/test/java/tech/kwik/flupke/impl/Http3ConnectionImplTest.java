@@ -77,6 +77,26 @@ public class Http3ConnectionImplTest {
         assertThat(frame).isInstanceOf(UnknownFrame.class);
         assertThat(inputStream.available()).isEqualTo(89);
     }
+
+    @Test
+    public void reservedFrameTypeThatTruncatesToKnownTypeIsIgnored() throws IOException, HttpError {
+        // Given
+        QuicConnection quicConnection = mock(QuicConnection.class);
+        Http3ConnectionImpl connection = new Http3ConnectionImpl(quicConnection);
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[] {
+                // Type: 0x1f * N + 0x21 = 0x800000001, lower 32 bits equal HEADERS frame type
+                (byte) 0xc0, 0x00, 0x00, 0x08, 0x00, 0x00, 0x00, 0x01,
+                0x01, // Length: 1
+                0x00
+        });
+
+        // When
+        Http3Frame frame = connection.readFrame(inputStream, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // Then
+        assertThat(frame).isInstanceOf(UnknownFrame.class);
+        assertThat(inputStream.available()).isEqualTo(0);
+    }
     //endregion
 
     //region register stream type
@@ -150,6 +170,42 @@ public class Http3ConnectionImplTest {
         assertThat(errorCaptor.getValue()).isEqualTo(H3_CLOSED_CRITICAL_STREAM);
     }
 
+    @Test
+    public void reservedFrameTypeThatTruncatesToKnownTypeIsIgnoredOnControlStream() {
+        // Given
+        QuicConnection quicConnection = mock(QuicConnection.class);
+        Http3ConnectionImpl connection = new Http3ConnectionImpl(quicConnection);
+
+        // When
+        connection.processControlStream(new ByteArrayInputStream(new byte[] {
+                0x04, 0x00, // SETTINGS frame
+                // Type: 0x1f * N + 0x21 = 0x800000001, lower 32 bits equal HEADERS frame type
+                (byte) 0xc0, 0x00, 0x00, 0x08, 0x00, 0x00, 0x00, 0x01,
+                0x00 // Length: 0
+        }));
+
+        // Then
+        verify(quicConnection, never()).close(anyLong(), any());
+    }
+
+    @Test
+    public void reservedHttp2FrameTypeOnControlStreamShouldLeadToConnectionError() {
+        // Given
+        QuicConnection quicConnection = mock(QuicConnection.class);
+        Http3ConnectionImpl connection = new Http3ConnectionImpl(quicConnection);
+
+        // When
+        connection.processControlStream(new ByteArrayInputStream(new byte[] {
+                0x04, 0x00, // SETTINGS frame
+                0x08, 0x00  // WINDOW_UPDATE (HTTP/2) frame
+        }));
+
+        // Then
+        ArgumentCaptor<Long> errorCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(quicConnection).close(errorCaptor.capture(), any());
+        assertThat(errorCaptor.getValue()).isEqualTo(H3_FRAME_UNEXPECTED);
+    }
+
     @Test
     public void closingExtensionControlStreamShouldNotLeadToConnectionError() {
         // Given
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.kwik.flupke.HttpError;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static tech.kwik.flupke.test.ByteUtils.hexToBytes;
+
+class Http3FrameDecoderTest {
+
+    private List<String> events;
+    private ByteArrayOutputStream data;
+    private Http3FrameDecoder decoder;
+
+    @BeforeEach
+    void setupDecoder() {
+        events = new ArrayList<>();
+        data = new ByteArrayOutputStream();
+        decoder = new Http3FrameDecoder(new Http3FrameDecoder.Listener() {
+            @Override
+            public void headersFrame(byte[] payload) {
+                events.add("headers:" + payload.length);
+            }
+
+            @Override
+            public void dataFrameStart(long payloadLength) {
+                events.add("data:" + payloadLength);
+            }
+
+            @Override
+            public void data(ByteBuffer payload) {
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                data.writeBytes(bytes);
+            }
+
+            @Override
+            public void frame(long frameType, byte[] payload) {
+                events.add("frame " + frameType + ":" + payload.length);
+            }
+
+            @Override
+            public void unknownFrame(long frameType, long payloadLength) {
+                events.add("unknown " + frameType + ":" + payloadLength);
+            }
+        }, 1000);
+    }
+
+    @Test
+    void framesInOneBufferAreDecoded() throws Exception {
+        // Given
+        byte[] input = hexToBytes("0103 000000" + "0005 6162636465" + "2102 ffff" + "0002 6667");
+
+        // When
+        decoder.decode(ByteBuffer.wrap(input));
+
+        // Then
+        assertThat(events).containsExactly("headers:3", "data:5", "unknown 33:2", "data:2");
+        assertThat(data.toByteArray()).isEqualTo("abcdefg".getBytes());
+        assertThat(decoder.isAtFrameBoundary()).isTrue();
+    }
+
+    @Test
+    void framesSplitInSingleBytesAreDecoded() throws Exception {
+        // Given
+        byte[] input = hexToBytes("0103 000000" + "00400a 30313233343536373839" + "0402 0100");
+
+        // When
+        for (byte b : input) {
+            decoder.decode(ByteBuffer.wrap(new byte[] { b }));
+        }
+
+        // Then
+        assertThat(events).containsExactly("headers:3", "data:10", "frame 4:2");
+        assertThat(data.toByteArray()).isEqualTo("0123456789".getBytes());
+    }
+
+    @Test
+    void dataPayloadIsPassedBeforeFrameIsComplete() throws Exception {
+        // Given
+        decoder.decode(ByteBuffer.wrap(hexToBytes("0005 6162")));
+
+        // Then
+        assertThat(data.toByteArray()).isEqualTo("ab".getBytes());
+        assertThat(decoder.isAtFrameBoundary()).isFalse();
+    }
+
+    @Test
+    void endOfInputWithinFrameIsFrameError() throws Exception {
+        // Given
+        decoder.decode(ByteBuffer.wrap(hexToBytes("0103 0000")));
+
+        // Then
+        assertThatThrownBy(() -> decoder.endOfInput())
+                .isInstanceOf(ConnectionError.class)
+                .extracting("http3ErrorCode").isEqualTo((long) Http3ConnectionImpl.H3_FRAME_ERROR);
+    }
+
+    @Test
+    void endOfInputWithinFrameTypeIsFrameError() throws Exception {
+        // Given
+        decoder.decode(ByteBuffer.wrap(hexToBytes("40")));
+
+        // Then
+        assertThatThrownBy(() -> decoder.endOfInput()).isInstanceOf(ConnectionError.class);
+    }
+
+    @Test
+    void headersFrameExceedingMaxSizeIsRejected() {
+        // Given
+        byte[] input = hexToBytes("0143e9");  // length 1001
+
+        // Then
+        assertThatThrownBy(() -> decoder.decode(ByteBuffer.wrap(input)))
+                .isInstanceOf(HttpError.class);
+    }
+
+    @Test
+    void pushPromiseFrameIsLimitedByMaxHeadersSize() {
+        // Given
+        byte[] input = hexToBytes("0543e9");  // length 1001
+
+        // Then
+        assertThatThrownBy(() -> decoder.decode(ByteBuffer.wrap(input)))
+                .isInstanceOf(HttpError.class);
+    }
+
+    @Test
+    void pushPromiseFrameIsNotLimitedByMaxControlFrameSize() throws Exception {
+        // Given
+        Http3FrameDecoder decoder = new Http3FrameDecoder(new Http3FrameDecoder.Listener() {
+            @Override
+            public void headersFrame(byte[] payload) {
+            }
+
+            @Override
+            public void data(ByteBuffer payload) {
+            }
+
+            @Override
+            public void frame(long frameType, byte[] payload) {
+                events.add("frame " + frameType + ":" + payload.length);
+            }
+        }, 64 * 1024);
+        byte[] input = new byte[5 + 20000];
+        System.arraycopy(hexToBytes("05 80004e20"), 0, input, 0, 5);  // length 20000
+
+        // When
+        decoder.decode(ByteBuffer.wrap(input));
+
+        // Then
+        assertThat(events).containsExactly("frame 5:20000");
+    }
+
+    @Test
+    void reservedHttp2FrameTypeIsUnexpected() {
+        // Given
+        byte[] input = hexToBytes("0600");  // HTTP/2 PING
+
+        // Then
+        assertThatThrownBy(() -> decoder.decode(ByteBuffer.wrap(input)))
+                .isInstanceOf(ConnectionError.class)
+                .extracting("http3ErrorCode").isEqualTo((long) Http3ConnectionImpl.H3_FRAME_UNEXPECTED);
+    }
+
+    @Test
+    void emptyFramesAreDecoded() throws Exception {
+        // Given
+        byte[] input = hexToBytes("0000 0100 2100");
+
+        // When
+        decoder.decode(ByteBuffer.wrap(input));
+
+        // Then
+        assertThat(events).containsExactly("data:0", "headers:0", "unknown 33:0");
+        assertThat(decoder.isAtFrameBoundary()).isTrue();
+    }
+}
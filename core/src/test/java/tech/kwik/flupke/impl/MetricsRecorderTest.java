@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+import tech.kwik.flupke.MetricsSnapshot;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class MetricsRecorderTest {
+
+    @Test
+    void queuedRequestShouldBecomeActiveWhenStreamIsOpened() {
+        // Given
+        MetricsRecorder metrics = new MetricsRecorder("example.com:443", null);
+        metrics.requestQueued();
+        metrics.requestQueued();
+
+        // When
+        metrics.requestDequeued(true);
+
+        // Then
+        MetricsSnapshot snapshot = metrics.snapshot(-1);
+        assertThat(snapshot.queuedStreams()).isEqualTo(1);
+        assertThat(snapshot.activeStreams()).isEqualTo(1);
+    }
+
+    @Test
+    void finishedRequestShouldBeCountedInLatencyHistogram() {
+        // Given
+        MetricsRecorder metrics = new MetricsRecorder("example.com:443", null);
+        metrics.requestQueued();
+        metrics.requestDequeued(true);
+
+        // When
+        metrics.requestFinished(Duration.ofMillis(15).toNanos());
+
+        // Then
+        MetricsSnapshot snapshot = metrics.snapshot(-1);
+        assertThat(snapshot.activeStreams()).isEqualTo(0);
+        assertThat(snapshot.requestCount()).isEqualTo(1);
+        assertThat(snapshot.latencyHistogram().totalCount()).isEqualTo(1);
+        assertThat(snapshot.latencyHistogram().percentile(50)).isEqualTo(Duration.ofMillis(20));
+    }
+
+    @Test
+    void errorsShouldBeCountedPerErrorCode() {
+        // Given
+        MetricsRecorder metrics = new MetricsRecorder("example.com:443", null);
+
+        // When
+        metrics.error(0x010c);
+        metrics.error(0x010c);
+        metrics.error(0x0101);
+
+        // Then
+        assertThat(metrics.snapshot(-1).errorCounts()).containsOnly(entry(0x010cL, 2L), entry(0x0101L, 1L));
+    }
+
+    @Test
+    void abandonedResponseBodiesShouldBeCountedAndForwardedToParent() {
+        // Given
+        MetricsRecorder originMetrics = new MetricsRecorder("example.com:443", null);
+        MetricsRecorder connectionMetrics = new MetricsRecorder("example.com:443", originMetrics);
+
+        // When
+        connectionMetrics.responseBodyAbandoned();
+
+        // Then
+        assertThat(connectionMetrics.snapshot(-1).abandonedResponseBodies()).isEqualTo(1);
+        assertThat(originMetrics.snapshot(-1).abandonedResponseBodies()).isEqualTo(1);
+    }
+
+    @Test
+    void valuesShouldBeForwardedToParent() {
+        // Given
+        MetricsRecorder originMetrics = new MetricsRecorder("example.com:443", null);
+        MetricsRecorder connection1Metrics = new MetricsRecorder("example.com:443", originMetrics);
+        MetricsRecorder connection2Metrics = new MetricsRecorder("example.com:443", originMetrics);
+
+        // When
+        connection1Metrics.bytesReceived(100);
+        connection2Metrics.bytesReceived(50);
+        connection2Metrics.bytesSent(10);
+
+        // Then
+        assertThat(originMetrics.snapshot(-1).bytesReceived()).isEqualTo(150);
+        assertThat(originMetrics.snapshot(-1).bytesSent()).isEqualTo(10);
+        assertThat(connection1Metrics.snapshot(-1).bytesReceived()).isEqualTo(100);
+    }
+}
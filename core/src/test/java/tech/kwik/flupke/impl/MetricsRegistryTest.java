@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+import tech.kwik.flupke.Http3ClientConnection;
+import tech.kwik.flupke.MetricsSnapshot;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MetricsRegistryTest {
+
+    @Test
+    void deregisteredConnectionShouldNotBeReportedAnymore() {
+        // Given
+        MetricsRegistry registry = new MetricsRegistry();
+        Http3ClientConnection connection = mock(Http3ClientConnection.class);
+        when(connection.getMetrics()).thenReturn(new MetricsRecorder("example.com:443", null).snapshot(-1));
+        registry.registerConnection("example.com:443", connection);
+
+        // When
+        registry.deregisterConnection("example.com:443", connection);
+
+        // Then
+        assertThat(registry.connectionMetrics().get("example.com:443")).isEmpty();
+    }
+
+    @Test
+    void metricsOfDeregisteredConnectionShouldRemainPartOfOriginMetrics() {
+        // Given
+        MetricsRegistry registry = new MetricsRegistry();
+        Http3ClientConnection connection = mock(Http3ClientConnection.class);
+        MetricsRecorder recorder = registry.registerConnection("example.com:443", connection);
+        recorder.requestQueued();
+        recorder.requestDequeued(true);
+        recorder.requestFinished(Duration.ofMillis(5).toNanos());
+
+        // When
+        registry.deregisterConnection("example.com:443", connection);
+
+        // Then
+        MetricsSnapshot originMetrics = registry.originMetrics().get("example.com:443");
+        assertThat(originMetrics.requestCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+import tech.kwik.flupke.test.NoOpEncoderDecoderBuilder;
+
+import java.net.ProtocolException;
+import java.net.http.HttpHeaders;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class PushPromiseFrameTest {
+
+    @Test
+    void pushPromiseFrameStartsWithFrameTypeAndContainsPushId() {
+        // Given
+        PushPromiseFrame frame = new PushPromiseFrame(7, HttpHeaders.of(Map.of(), (a, b) -> true),
+                Map.of(":method", "GET", ":scheme", "https", ":authority", "example.com", ":path", "/style.css"));
+
+        // When
+        byte[] bytes = frame.toBytes(new NoOpEncoderDecoderBuilder().encoder(), -1);
+
+        // Then
+        assertThat(bytes[0]).isEqualTo((byte) 0x05);
+        int lengthLength = VariableLengthIntegerUtil.encodedLength(bytes[1]);
+        assertThat(VariableLengthIntegerUtil.decode(bytes, 1)).isEqualTo(bytes.length - 1 - lengthLength);
+        assertThat(bytes[1 + lengthLength]).isEqualTo((byte) 7);
+    }
+
+    @Test
+    void parsedPushPromiseFrameContainsPushIdAndHeaders() throws Exception {
+        // Given
+        NoOpEncoderDecoderBuilder encoderDecoder = new NoOpEncoderDecoderBuilder();
+        PushPromiseFrame frame = new PushPromiseFrame(300, HttpHeaders.of(Map.of("accept", List.of("text/css")), (a, b) -> true),
+                Map.of(":method", "GET", ":scheme", "https", ":authority", "example.com", ":path", "/style.css"));
+        byte[] bytes = frame.toBytes(encoderDecoder.encoder(), -1);
+        int headerLength = 1 + VariableLengthIntegerUtil.encodedLength(bytes[1]);
+
+        // When
+        PushPromiseFrame parsed = new PushPromiseFrame().parsePayload(Arrays.copyOfRange(bytes, headerLength, bytes.length), encoderDecoder.decoder(), -1);
+
+        // Then
+        assertThat(parsed.getPushId()).isEqualTo(300);
+        assertThat(parsed.getPseudoHeader(":path")).isEqualTo("/style.css");
+        assertThat(parsed.headers().firstValue("accept")).hasValue("text/css");
+    }
+
+    @Test
+    void emptyPayloadIsInvalid() {
+        assertThatThrownBy(() -> new PushPromiseFrame().parsePayload(new byte[0], new NoOpEncoderDecoderBuilder().decoder(), -1))
+                .isInstanceOf(ProtocolException.class);
+    }
+
+    @Test
+    void maxPushIdFrameCanBeParsed() throws Exception {
+        // Given
+        byte[] bytes = new MaxPushIdFrame(1000).getBytes();
+
+        // When
+        MaxPushIdFrame parsed = new MaxPushIdFrame().parsePayload(Arrays.copyOfRange(bytes, 2, bytes.length));
+
+        // Then
+        assertThat(bytes).startsWith(0x0d, 0x02);
+        assertThat(parsed.getPushId()).isEqualTo(1000);
+    }
+
+    @Test
+    void cancelPushFrameWithTrailingBytesIsInvalid() {
+        assertThatThrownBy(() -> new CancelPushFrame().parsePayload(new byte[] { 0x01, 0x02 }))
+                .isInstanceOf(ProtocolException.class);
+    }
+}
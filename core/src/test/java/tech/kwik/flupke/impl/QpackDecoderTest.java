@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static tech.kwik.flupke.test.ByteUtils.hexToBytes;
+
+class QpackDecoderTest {
+
+    //region RFC 9204 examples
+    @Test
+    void decodeLiteralFieldLineWithStaticNameReference() throws Exception {
+        // Given (https://www.rfc-editor.org/rfc/rfc9204.html#name-literal-field-line-with-nam)
+        QpackDecoder decoder = new QpackDecoder(0, 0, new ByteArrayOutputStream());
+
+        // When
+        List<Map.Entry<String, String>> fields = decoder.decode(hexToBytes("0000 510b 2f69 6e64 6578 2e68 746d 6c"), 0);
+
+        // Then
+        assertThat(fields).containsExactly(Map.entry(":path", "/index.html"));
+    }
+
+    @Test
+    void decodeFieldSectionReferencingDynamicTable() throws Exception {
+        // Given (https://www.rfc-editor.org/rfc/rfc9204.html#name-dynamic-table)
+        ByteArrayOutputStream decoderStream = new ByteArrayOutputStream();
+        QpackDecoder decoder = new QpackDecoder(220, 0, decoderStream);
+        decoder.processEncoderStream(new ByteArrayInputStream(hexToBytes(
+                "3fbd01 c00f 7777 772e 6578 616d 706c 652e 636f 6d c1 0c2f 7361 6d70 6c65 2f70 6174 68")));
+        decoderStream.reset();
+
+        // When
+        List<Map.Entry<String, String>> fields = decoder.decode(hexToBytes("0381 10 11"), 4);
+
+        // Then
+        assertThat(fields).containsExactly(Map.entry(":authority", "www.example.com"), Map.entry(":path", "/sample/path"));
+        assertThat(decoderStream.toByteArray()).isEqualTo(hexToBytes("84"));  // Section Acknowledgment, stream 4
+    }
+
+    @Test
+    void processingEncoderInstructionsLeadsToInsertCountIncrement() throws Exception {
+        // Given
+        ByteArrayOutputStream decoderStream = new ByteArrayOutputStream();
+        QpackDecoder decoder = new QpackDecoder(220, 0, decoderStream);
+
+        // When (https://www.rfc-editor.org/rfc/rfc9204.html#name-speculative-insert)
+        decoder.processEncoderStream(new ByteArrayInputStream(hexToBytes(
+                "3fbd01 4a63 7573 746f 6d2d 6b65 790c 6375 7374 6f6d 2d76 616c 7565")));
+
+        // Then
+        assertThat(decoder.getInsertCount()).isEqualTo(1);
+        assertThat(decoderStream.toByteArray()).isEqualTo(hexToBytes("01"));  // Insert Count Increment, 1
+    }
+    //endregion
+
+    //region errors
+    @Test
+    void capacityExceedingMaximumIsEncoderStreamError() {
+        // Given
+        QpackDecoder decoder = new QpackDecoder(100, 0, new ByteArrayOutputStream());
+
+        assertThatThrownBy(() ->
+                // When
+                decoder.processEncoderStream(new ByteArrayInputStream(hexToBytes("3fbd01")))  // capacity 220
+        )
+                // Then
+                .isInstanceOf(QpackException.class)
+                .extracting("errorCode").isEqualTo(QpackException.QPACK_ENCODER_STREAM_ERROR);
+    }
+
+    @Test
+    void insertingEntryLargerThanCapacityIsEncoderStreamError() {
+        // Given
+        QpackDecoder decoder = new QpackDecoder(220, 0, new ByteArrayOutputStream());
+
+        assertThatThrownBy(() ->
+                // When: capacity 40, insert custom-key=custom-value (size 54)
+                decoder.processEncoderStream(new ByteArrayInputStream(hexToBytes(
+                        "3f09 4a63 7573 746f 6d2d 6b65 790c 6375 7374 6f6d 2d76 616c 7565")))
+        )
+                // Then
+                .isInstanceOf(QpackException.class)
+                .extracting("errorCode").isEqualTo(QpackException.QPACK_ENCODER_STREAM_ERROR);
+    }
+
+    @Test
+    void blockedStreamWhenNoBlockedStreamsAllowedIsDecompressionFailure() {
+        // Given
+        QpackDecoder decoder = new QpackDecoder(220, 0, new ByteArrayOutputStream());
+
+        assertThatThrownBy(() ->
+                // When
+                decoder.decode(hexToBytes("0381 10 11"), 4)
+        )
+                // Then
+                .isInstanceOf(QpackException.class)
+                .extracting("errorCode").isEqualTo(QpackException.QPACK_DECOMPRESSION_FAILED);
+    }
+
+    @Test
+    void referenceToEntryAboveRequiredInsertCountIsDecompressionFailure() throws Exception {
+        // Given
+        QpackDecoder decoder = new QpackDecoder(220, 0, new ByteArrayOutputStream());
+        decoder.processEncoderStream(new ByteArrayInputStream(hexToBytes(
+                "3fbd01 c00f 7777 772e 6578 616d 706c 652e 636f 6d c1 0c2f 7361 6d70 6c65 2f70 6174 68")));
+
+        assertThatThrownBy(() ->
+                // When: Required Insert Count = 1, Base = 1, referencing post-base index 0 (absolute 1)
+                decoder.decode(hexToBytes("0200 10"), 4)
+        )
+                // Then
+                .isInstanceOf(QpackException.class)
+                .extracting("errorCode").isEqualTo(QpackException.QPACK_DECOMPRESSION_FAILED);
+    }
+
+    @Test
+    void truncatedFieldSectionIsDecompressionFailure() throws Exception {
+        // Given
+        QpackDecoder decoder = new QpackDecoder(220, 0, new ByteArrayOutputStream());
+        decoder.processEncoderStream(new ByteArrayInputStream(hexToBytes(
+                "3fbd01 c00f 7777 772e 6578 616d 706c 652e 636f 6d c1 0c2f 7361 6d70 6c65 2f70 6174 68")));
+
+        assertThatThrownBy(() ->
+                // When: literal field line with static name reference (:path), but without value
+                decoder.decode(hexToBytes("0381 51"), 4)
+        )
+                // Then
+                .isInstanceOf(QpackException.class)
+                .extracting("errorCode").isEqualTo(QpackException.QPACK_DECOMPRESSION_FAILED);
+    }
+    //endregion
+
+    //region blocked streams
+    @Test
+    void blockedStreamIsDecodedWhenInsertsArrive() throws Exception {
+        // Given
+        QpackDecoder decoder = new QpackDecoder(220, 1, new ByteArrayOutputStream());
+        CompletableFuture<List<Map.Entry<String, String>>> result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return decoder.decode(hexToBytes("0381 10 11"), 4);
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(10);
+        assertThat(result).isNotDone();
+
+        // When
+        decoder.processEncoderStream(new ByteArrayInputStream(hexToBytes(
+                "3fbd01 c00f 7777 772e 6578 616d 706c 652e 636f 6d c1 0c2f 7361 6d70 6c65 2f70 6174 68")));
+
+        // Then
+        assertThat(result.get(1, TimeUnit.SECONDS))
+                .containsExactly(Map.entry(":authority", "www.example.com"), Map.entry(":path", "/sample/path"));
+    }
+
+    @Test
+    void cancellingBlockedStreamShouldFailDecodingAndInformEncoder() throws Exception {
+        // Given
+        ByteArrayOutputStream decoderStream = new ByteArrayOutputStream();
+        QpackDecoder decoder = new QpackDecoder(220, 1, decoderStream);
+        CompletableFuture<List<Map.Entry<String, String>>> result = decodeAsync(decoder, hexToBytes("0381 10 11"), 4);
+        Thread.sleep(10);
+        assertThat(result).isNotDone();
+
+        // When
+        decoder.cancelStream(4);
+
+        // Then
+        assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IOException.class)
+                .extracting(Throwable::getCause).isNotInstanceOf(QpackException.class);
+        assertThat(decoderStream.toByteArray()).isEqualTo(hexToBytes("44"));  // Stream Cancellation, stream 4
+    }
+
+    @Test
+    void closingDecoderShouldFailBlockedStream() throws Exception {
+        // Given
+        QpackDecoder decoder = new QpackDecoder(220, 1, new ByteArrayOutputStream());
+        CompletableFuture<List<Map.Entry<String, String>>> result = decodeAsync(decoder, hexToBytes("0381 10 11"), 4);
+        Thread.sleep(10);
+        assertThat(result).isNotDone();
+
+        // When
+        decoder.close();
+
+        // Then
+        assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void withoutDynamicTableNoStreamCancellationIsSent() {
+        // Given
+        ByteArrayOutputStream decoderStream = new ByteArrayOutputStream();
+        QpackDecoder decoder = new QpackDecoder(0, 0, decoderStream);
+
+        // When
+        decoder.cancelStream(4);
+
+        // Then
+        assertThat(decoderStream.toByteArray()).isEmpty();
+    }
+    //endregion
+
+    private CompletableFuture<List<Map.Entry<String, String>>> decodeAsync(QpackDecoder decoder, byte[] fieldSection, long streamId) {
+        CompletableFuture<List<Map.Entry<String, String>>> result = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                result.complete(decoder.decode(fieldSection, streamId));
+            }
+            catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }).start();
+        return result;
+    }
+}
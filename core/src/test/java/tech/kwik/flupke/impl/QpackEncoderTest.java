@@ -0,0 +1,322 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.kwik.flupke.PreEncodedHeaders;
+import tech.kwik.qpack.Decoder;
+import tech.kwik.qpack.Encoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QpackEncoderTest {
+
+    private static final List<Map.Entry<String, String>> REQUEST_HEADERS = List.of(
+            Map.entry(":method", "GET"),
+            Map.entry(":scheme", "https"),
+            Map.entry(":authority", "www.example.com"),
+            Map.entry(":path", "/index.html"),
+            Map.entry("user-agent", "flupke/1.0"),
+            Map.entry("x-request-context", "a4f35c2e-d9b1-4b8e-8a31-1a2b3c4d5e6f"));
+
+    private ByteArrayOutputStream encoderStream;
+    private ByteArrayOutputStream decoderStream;
+
+    @BeforeEach
+    void initStreams() {
+        encoderStream = new ByteArrayOutputStream();
+        decoderStream = new ByteArrayOutputStream();
+    }
+
+    @Test
+    void withoutHuffmanAndWhenPeerDoesNotAllowDynamicTableEncodingIsSameAsStaticEncoder() {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(4096, false, encoderStream);
+        encoder.setPeerSettings(0, 0);
+
+        // When
+        byte[] encoded = toBytes(encoder.compressHeaders(REQUEST_HEADERS, 0));
+
+        // Then
+        assertThat(encoded).isEqualTo(toBytes(Encoder.newBuilder().build().compressHeaders(REQUEST_HEADERS)));
+        assertThat(encoderStream.size()).isEqualTo(0);
+    }
+
+    @Test
+    void stringLiteralsAreHuffmanEncodedOnlyWhenShorter() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(0, true, encoderStream);
+        encoder.setPeerSettings(0, 0);
+        List<Map.Entry<String, String>> headers = List.of(
+                Map.entry("x-readable", "www.example.com"),
+                Map.entry("x-binary", "\u00fe\u00fd\u00fc"));
+
+        // When
+        byte[] encoded = toBytes(encoder.compressHeaders(headers, 0));
+
+        // Then
+        assertThat(encoded[2] & 0x28).isEqualTo(0x28);  // literal field line with literal name, Huffman encoded name
+        assertThat(Arrays.copyOfRange(encoded, encoded.length - 4, encoded.length))
+                .isEqualTo(new byte[] { 0x03, (byte) 0xfe, (byte) 0xfd, (byte) 0xfc });  // value, not Huffman encoded
+        assertThat(new QpackDecoder(0, 0, decoderStream).decode(encoded, 0)).containsExactlyElementsOf(headers);
+    }
+
+    @Test
+    void huffmanEncodedHeadersCanBeDecodedByStaticTableDecoder() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(0, true, encoderStream);
+        encoder.setPeerSettings(0, 0);
+
+        // When
+        byte[] encoded = toBytes(encoder.compressHeaders(REQUEST_HEADERS, 0));
+
+        // Then
+        assertThat(encoded.length).isLessThan(toBytes(Encoder.newBuilder().build().compressHeaders(REQUEST_HEADERS)).length);
+        assertThat(Decoder.newBuilder().build().decodeStream(new ByteArrayInputStream(encoded))).containsExactlyElementsOf(REQUEST_HEADERS);
+    }
+
+    @Test
+    void whenNoBlockedStreamsAllowedFirstSectionDoesNotReferenceDynamicTable() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(4096, encoderStream);
+        encoder.setPeerSettings(4096, 0);
+        QpackDecoder decoder = new QpackDecoder(4096, 0, decoderStream);
+
+        // When
+        byte[] encoded = toBytes(encoder.compressHeaders(REQUEST_HEADERS, 0));
+
+        // Then
+        assertThat(encoded[0]).isEqualTo((byte) 0x00);  // Required Insert Count
+        assertThat(encoder.getInsertCount()).isGreaterThan(0);
+        assertThat(decoder.decode(encoded, 0)).containsExactlyElementsOf(REQUEST_HEADERS);
+    }
+
+    @Test
+    void acknowledgedEntriesAreReferencedInSubsequentSections() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(4096, encoderStream);
+        encoder.setPeerSettings(4096, 0);
+        QpackDecoder decoder = new QpackDecoder(4096, 0, decoderStream);
+        byte[] first = toBytes(encoder.compressHeaders(REQUEST_HEADERS, 0));
+        decoder.decode(first, 0);
+        exchangeInstructions(encoder, decoder);
+
+        // When
+        byte[] second = toBytes(encoder.compressHeaders(REQUEST_HEADERS, 4));
+
+        // Then
+        assertThat(encoder.getKnownReceivedCount()).isEqualTo(encoder.getInsertCount());
+        assertThat(second.length).isLessThan(first.length / 2);
+        assertThat(decoder.decode(second, 4)).containsExactlyElementsOf(REQUEST_HEADERS);
+    }
+
+    @Test
+    void whenBlockedStreamsAllowedNewEntriesAreReferencedImmediately() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(4096, encoderStream);
+        encoder.setPeerSettings(4096, 10);
+        QpackDecoder decoder = new QpackDecoder(4096, 10, decoderStream);
+
+        // When
+        byte[] encoded = toBytes(encoder.compressHeaders(REQUEST_HEADERS, 0));
+        decoder.processEncoderStream(new ByteArrayInputStream(encoderStream.toByteArray()));
+
+        // Then
+        assertThat(encoded[0]).isNotEqualTo((byte) 0x00);
+        assertThat(decoder.decode(encoded, 0)).containsExactlyElementsOf(REQUEST_HEADERS);
+    }
+
+    @Test
+    void sectionAcknowledgementWithoutOutstandingSectionIsDecoderStreamError() {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(4096, encoderStream);
+        encoder.setPeerSettings(4096, 0);
+
+        assertThatThrownBy(() ->
+                // When
+                encoder.processDecoderStream(new ByteArrayInputStream(new byte[] { (byte) 0x84 }))
+        )
+                // Then
+                .isInstanceOf(QpackException.class)
+                .extracting("errorCode").isEqualTo(QpackException.QPACK_DECODER_STREAM_ERROR);
+    }
+
+    @Test
+    void insertCountIncrementBeyondInsertCountIsDecoderStreamError() {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(4096, encoderStream);
+        encoder.setPeerSettings(4096, 0);
+
+        assertThatThrownBy(() ->
+                // When
+                encoder.processDecoderStream(new ByteArrayInputStream(new byte[] { 0x01 }))
+        )
+                // Then
+                .isInstanceOf(QpackException.class)
+                .extracting("errorCode").isEqualTo(QpackException.QPACK_DECODER_STREAM_ERROR);
+    }
+
+    @Test
+    void entriesReferencedByUnacknowledgedSectionsAreNotEvicted() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(256, encoderStream);
+        encoder.setPeerSettings(256, 1);
+        QpackDecoder decoder = new QpackDecoder(256, 1, decoderStream);
+        List<Map.Entry<String, String>> headers = List.of(Map.entry("x-first", "value-1"), Map.entry("x-second", "value-2"));
+        byte[] first = toBytes(encoder.compressHeaders(headers, 0));
+
+        // When
+        List<Map.Entry<String, String>> otherHeaders = List.of(Map.entry("x-third", "value-3"), Map.entry("x-fourth", "value-4"));
+        byte[] second = toBytes(encoder.compressHeaders(otherHeaders, 4));
+        decoder.processEncoderStream(new ByteArrayInputStream(encoderStream.toByteArray()));
+
+        // Then
+        assertThat(decoder.decode(first, 0)).containsExactlyElementsOf(headers);
+        assertThat(decoder.decode(second, 4)).containsExactlyElementsOf(otherHeaders);
+    }
+
+    @Test
+    void unacknowledgedEntriesAreNotEvicted() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(256, encoderStream);
+        encoder.setPeerSettings(256, 0);
+        QpackDecoder decoder = new QpackDecoder(256, 0, decoderStream);
+        List<Map.Entry<String, String>> headers = List.of(
+                Map.entry("x-a", "value-01"), Map.entry("x-b", "value-02"), Map.entry("x-c", "value-03"),
+                Map.entry("x-d", "value-04"), Map.entry("x-e", "value-05"));
+        byte[] first = toBytes(encoder.compressHeaders(headers, 0));
+        assertThat(encoder.getInsertCount()).isEqualTo(5);
+
+        // When
+        List<Map.Entry<String, String>> otherHeaders = List.of(Map.entry("x-f", "value-06"));
+        byte[] second = toBytes(encoder.compressHeaders(otherHeaders, 4));
+
+        // Then
+        assertThat(encoder.getInsertCount()).isEqualTo(5);
+        assertThat(encoder.getKnownReceivedCount()).isEqualTo(0);
+        exchangeInstructions(encoder, decoder);
+        assertThat(decoder.decode(first, 0)).containsExactlyElementsOf(headers);
+        assertThat(decoder.decode(second, 4)).containsExactlyElementsOf(otherHeaders);
+    }
+
+    @Test
+    void encodingManyDifferentFieldsEvictsOldEntries() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(256, encoderStream);
+        encoder.setPeerSettings(256, 0);
+        QpackDecoder decoder = new QpackDecoder(256, 0, decoderStream);
+
+        for (int i = 0; i < 50; i++) {
+            // When
+            List<Map.Entry<String, String>> headers = List.of(Map.entry("x-counter", "value-" + i), Map.entry("accept", "*/*"));
+            byte[] encoded = toBytes(encoder.compressHeaders(headers, 4 * i));
+            // Then
+            assertThat(decoder.decode(encoded, 4 * i)).containsExactlyElementsOf(headers);
+            exchangeInstructions(encoder, decoder);
+        }
+        assertThat(encoder.getInsertCount()).isEqualTo(50);
+    }
+
+    @Test
+    void fieldLinesWithoutDynamicTableReferencesAreServedFromCache() {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(0, true, encoderStream);
+        encoder.setPeerSettings(0, 0);
+        List<Map.Entry<String, String>> headers = List.of(Map.entry(":status", "200"), Map.entry("server", "flupke"));
+        byte[] first = toBytes(encoder.compressHeaders(headers, 0));
+        long hits = encoder.getFieldLineCache().getHits();
+
+        // When
+        byte[] second = toBytes(encoder.compressHeaders(new ArrayList<>(headers), 4));
+
+        // Then
+        assertThat(second).isEqualTo(first);
+        assertThat(encoder.getFieldLineCache().getHits()).isEqualTo(hits + 2);
+    }
+
+    @Test
+    void fieldLinesWithUniqueValuesAreNotCached() {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(0, true, encoderStream);
+        encoder.setPeerSettings(0, 0);
+
+        // When
+        encoder.compressHeaders(List.of(Map.entry(":path", "/index.html"), Map.entry("content-length", "42")), 0);
+
+        // Then
+        assertThat(encoder.getFieldLineCache().size()).isEqualTo(0);
+    }
+
+    @Test
+    void preEncodedHeadersAreAppendedToFieldSection() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(0, false, encoderStream);
+        encoder.setPeerSettings(0, 0);
+        PreEncodedHeaders constantHeaders = PreEncodedHeaders.of("Server", "flupke", "cache-control", "max-age=3600");
+
+        // When
+        byte[] encoded = toBytes(encoder.compressHeaders(List.of(Map.entry(":status", "200")), 0, List.of(constantHeaders)));
+
+        // Then
+        assertThat(Decoder.newBuilder().build().decodeStream(new ByteArrayInputStream(encoded))).containsExactly(
+                Map.entry(":status", "200"), Map.entry("server", "flupke"), Map.entry("cache-control", "max-age=3600"));
+    }
+
+    @Test
+    void preEncodedHeadersCanBeCombinedWithDynamicTableReferences() throws Exception {
+        // Given
+        QpackEncoder encoder = new QpackEncoder(4096, encoderStream);
+        encoder.setPeerSettings(4096, 16);
+        QpackDecoder decoder = new QpackDecoder(4096, 16, decoderStream);
+        PreEncodedHeaders constantHeaders = PreEncodedHeaders.of("server", "flupke", "x-frame-options", "DENY");
+
+        // When
+        byte[] encoded = toBytes(encoder.compressHeaders(REQUEST_HEADERS, 0, List.of(constantHeaders)));
+        exchangeInstructions(encoder, decoder);
+
+        // Then
+        List<Map.Entry<String, String>> expected = new ArrayList<>(REQUEST_HEADERS);
+        expected.addAll(constantHeaders.fields());
+        assertThat(encoded[0]).isNotEqualTo((byte) 0x00);  // Required Insert Count
+        assertThat(decoder.decode(encoded, 0)).containsExactlyElementsOf(expected);
+    }
+
+    private void exchangeInstructions(QpackEncoder encoder, QpackDecoder decoder) throws IOException {
+        decoder.processEncoderStream(new ByteArrayInputStream(encoderStream.toByteArray()));
+        encoderStream.reset();
+        encoder.processDecoderStream(new ByteArrayInputStream(decoderStream.toByteArray()));
+        decoderStream.reset();
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        buffer.flip();
+        return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.limit());
+    }
+}
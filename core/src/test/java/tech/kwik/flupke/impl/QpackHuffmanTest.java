@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static tech.kwik.flupke.test.ByteUtils.hexToBytes;
+
+class QpackHuffmanTest {
+
+    @Test
+    void decodeHuffmanEncodedString() throws Exception {
+        // Given (https://www.rfc-editor.org/rfc/rfc7541.html#appendix-C.4.1)
+        byte[] encoded = hexToBytes("f1e3 c2e5 f23a 6ba0 ab90 f4ff");
+
+        // When
+        String decoded = QpackHuffman.decode(encoded, 0, encoded.length);
+
+        // Then
+        assertThat(decoded).isEqualTo("www.example.com");
+    }
+
+    @Test
+    void decodeStringWithLongCodes() throws Exception {
+        // Given (https://www.rfc-editor.org/rfc/rfc7541.html#appendix-C.6.1)
+        byte[] encoded = hexToBytes("d07a be94 1054 d444 a820 0595 040b 8166 e082 a62d 1bff");
+
+        // When
+        String decoded = QpackHuffman.decode(encoded, 0, encoded.length);
+
+        // Then
+        assertThat(decoded).isEqualTo("Mon, 21 Oct 2013 20:13:21 GMT");
+    }
+
+    @Test
+    void paddingLongerThanSevenBitsIsError() {
+        // Given: "a" (00011) followed by 11 bits of padding
+        byte[] encoded = new byte[] { (byte) 0x1f, (byte) 0xff };
+
+        assertThatThrownBy(() ->
+                // When
+                QpackHuffman.decode(encoded, 0, encoded.length)
+        )
+                // Then
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void paddingNotConsistingOfOnesIsError() {
+        // Given: "a" (00011) followed by 000 padding
+        byte[] encoded = new byte[] { (byte) 0x18 };
+
+        assertThatThrownBy(() ->
+                // When
+                QpackHuffman.decode(encoded, 0, encoded.length)
+        )
+                // Then
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void encodeString() {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        QpackHuffman.encode("www.example.com", output);
+
+        // Then (https://www.rfc-editor.org/rfc/rfc7541.html#appendix-C.4.1)
+        assertThat(output.toByteArray()).isEqualTo(hexToBytes("f1e3 c2e5 f23a 6ba0 ab90 f4ff"));
+        assertThat(QpackHuffman.encodedLength("www.example.com")).isEqualTo(12);
+    }
+
+    @Test
+    void encodeStringWithLongCodes() {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        QpackHuffman.encode("Mon, 21 Oct 2013 20:13:21 GMT", output);
+
+        // Then (https://www.rfc-editor.org/rfc/rfc7541.html#appendix-C.6.1)
+        assertThat(output.toByteArray()).isEqualTo(hexToBytes("d07a be94 1054 d444 a820 0595 040b 8166 e082 a62d 1bff"));
+    }
+
+    @Test
+    void allSymbolsCanBeEncodedAndDecoded() throws Exception {
+        // Given
+        StringBuilder allSymbols = new StringBuilder();
+        for (char c = 0; c < 256; c++) {
+            allSymbols.append(c);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        QpackHuffman.encode(allSymbols, output);
+        byte[] encoded = output.toByteArray();
+
+        // Then
+        assertThat(encoded).hasSize(QpackHuffman.encodedLength(allSymbols));
+        assertThat(QpackHuffman.decode(encoded, 0, encoded.length)).isEqualTo(allSymbols.toString());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+import tech.kwik.flupke.RequestTimings;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTimingsRecorderTest {
+
+    @Test
+    void disabledRecorderShouldNotRecordAnything() {
+        // Given
+        RequestTimingsRecorder timings = RequestTimingsRecorder.create(request(), null);
+
+        // When
+        timings.record(RequestTimings.Phase.CONNECTED);
+
+        // Then
+        assertThat(timings).isSameAs(RequestTimingsRecorder.disabled());
+        assertThat(timings.timestamp(RequestTimings.Phase.CONNECTED)).isEmpty();
+    }
+
+    @Test
+    void onlyFirstOccurrenceOfPhaseShouldBeRecorded() throws Exception {
+        // Given
+        RequestTimingsRecorder timings = RequestTimingsRecorder.create(request(), (r, t) -> {});
+        timings.record(RequestTimings.Phase.CONNECTED);
+        long first = timings.timestamp(RequestTimings.Phase.CONNECTED).get();
+
+        // When
+        Thread.sleep(1);
+        timings.record(RequestTimings.Phase.CONNECTED);
+
+        // Then
+        assertThat(timings.timestamp(RequestTimings.Phase.CONNECTED)).hasValue(first);
+    }
+
+    @Test
+    void durationShouldBeEmptyWhenPhaseIsNotReached() {
+        // Given
+        RequestTimingsRecorder timings = RequestTimingsRecorder.create(request(), (r, t) -> {});
+
+        // When
+        timings.record(RequestTimings.Phase.DISPATCHED);
+
+        // Then
+        assertThat(timings.between(RequestTimings.Phase.QUEUED, RequestTimings.Phase.DISPATCHED)).isPresent();
+        assertThat(timings.handshakeTime()).isEmpty();
+    }
+
+    @Test
+    void listenerShouldBeNotifiedOnlyOnce() {
+        // Given
+        AtomicInteger notifications = new AtomicInteger();
+        RequestTimingsRecorder timings = RequestTimingsRecorder.create(request(), (r, t) -> notifications.incrementAndGet());
+
+        // When
+        timings.finish();
+        timings.finish();
+
+        // Then
+        assertThat(notifications.get()).isEqualTo(1);
+    }
+
+    private HttpRequest request() {
+        return HttpRequest.newBuilder().uri(URI.create("https://example.com")).build();
+    }
+}
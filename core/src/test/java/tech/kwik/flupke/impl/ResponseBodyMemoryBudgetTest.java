@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseBodyMemoryBudgetTest {
+
+    @Test
+    void reservationShouldFailWhenBudgetIsExceeded() {
+        // Given
+        ResponseBodyMemoryBudget budget = new ResponseBodyMemoryBudget(100, 80);
+        budget.tryReserve(0, 60);
+
+        // When
+        boolean reserved = budget.tryReserve(0, 50);
+
+        // Then
+        assertThat(reserved).isFalse();
+        assertThat(budget.getBufferedBytes()).isEqualTo(60);
+    }
+
+    @Test
+    void reservationShouldFailWhenPerResponseLimitIsExceeded() {
+        // Given
+        ResponseBodyMemoryBudget budget = new ResponseBodyMemoryBudget(100, 80);
+
+        // When
+        boolean reserved = budget.tryReserve(70, 20);
+
+        // Then
+        assertThat(reserved).isFalse();
+    }
+
+    @Test
+    void releasedBytesCanBeReservedAgain() {
+        // Given
+        ResponseBodyMemoryBudget budget = new ResponseBodyMemoryBudget(100, 100);
+        budget.tryReserve(0, 100);
+
+        // When
+        budget.release(100);
+
+        // Then
+        assertThat(budget.getBufferedBytes()).isEqualTo(0);
+        assertThat(budget.tryReserve(0, 100)).isTrue();
+    }
+
+    @Test
+    void unlimitedBudgetShouldNotOverflow() {
+        // Given
+        ResponseBodyMemoryBudget budget = ResponseBodyMemoryBudget.unlimited();
+        budget.tryReserve(0, 1000);
+
+        // When
+        boolean reserved = budget.tryReserve(1000, 1000);
+
+        // Then
+        assertThat(reserved).isTrue();
+        assertThat(budget.getBufferedBytes()).isEqualTo(2000);
+    }
+}
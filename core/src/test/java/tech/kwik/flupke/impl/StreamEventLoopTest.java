@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tech.kwik.core.QuicStream;
+import tech.kwik.flupke.test.QuicStreamBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamEventLoopTest {
+
+    private StreamEventLoop eventLoop = new StreamEventLoop(1);
+
+    @AfterEach
+    void tearDown() {
+        eventLoop.close();
+    }
+
+    @Test
+    void availableDataShouldBePassedToHandler() throws Exception {
+        // Given
+        QuicStream stream = new QuicStreamBuilder().withInputData(new byte[] { 1, 2, 3, 4 }).build();
+        RecordingHandler handler = new RecordingHandler(4);
+
+        // When
+        eventLoop.register(stream, handler, null);
+
+        // Then
+        assertThat(handler.done.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.data.toByteArray()).isEqualTo(new byte[] { 1, 2, 3, 4 });
+        assertThat(handler.timedOut).isFalse();
+    }
+
+    @Test
+    void whenHandlerIsNotDoneBeforeTimeoutItShouldBeNotified() throws Exception {
+        // Given
+        QuicStream stream = new QuicStreamBuilder().withInputData(new byte[] { 1, 2 }).build();
+        RecordingHandler handler = new RecordingHandler(100);
+
+        // When
+        eventLoop.register(stream, handler, Duration.ofMillis(50));
+
+        // Then
+        assertThat(handler.done.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.timedOut).isTrue();
+        assertThat(handler.data.toByteArray()).isEqualTo(new byte[] { 1, 2 });
+        assertThat(eventLoop.registeredStreams()).isEqualTo(0);
+    }
+
+    @Test
+    void whenReadingFailsHandlerShouldBeNotified() throws Exception {
+        // Given
+        InputStream input = mock(InputStream.class);
+        when(input.available()).thenThrow(new IOException("stream reset"));
+        QuicStream stream = mock(QuicStream.class);
+        when(stream.getInputStream()).thenReturn(input);
+        RecordingHandler handler = new RecordingHandler(1);
+
+        // When
+        eventLoop.register(stream, handler, null);
+
+        // Then
+        assertThat(handler.done.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.error.get()).hasMessage("stream reset");
+    }
+
+    @Test
+    void idleStreamShouldBePolledAtMostOncePerMaxPollInterval() throws Exception {
+        // Given
+        AtomicInteger idlePolls = new AtomicInteger();
+        QuicStream idleStream = streamWithInput(new InputStream() {
+            @Override
+            public int read() {
+                return -1;
+            }
+
+            @Override
+            public int available() {
+                idlePolls.incrementAndGet();
+                return 0;
+            }
+        });
+        QuicStream busyStream = streamWithInput(new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int available() {
+                return 1;
+            }
+        });
+        eventLoop.register(busyStream, new RecordingHandler(Integer.MAX_VALUE), null);
+
+        // When
+        eventLoop.register(idleStream, new RecordingHandler(1), null);
+        Thread.sleep(200);
+
+        // Then
+        // Without per-stream backoff, the busy stream would keep the loop (and thus polling the idle stream) going at full speed.
+        assertThat(idlePolls.get()).isLessThan(200);
+    }
+
+    @Test
+    void whenClosedRegisteredHandlersShouldTimeOut() throws Exception {
+        // Given
+        QuicStream stream = new QuicStreamBuilder().withInputData(new byte[0]).build();
+        RecordingHandler handler = new RecordingHandler(1);
+        eventLoop.register(stream, handler, null);
+
+        // When
+        eventLoop.close();
+
+        // Then
+        assertThat(handler.done.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.timedOut).isTrue();
+    }
+
+    private static QuicStream streamWithInput(InputStream input) {
+        QuicStream stream = mock(QuicStream.class);
+        when(stream.getInputStream()).thenReturn(input);
+        return stream;
+    }
+
+    private static class RecordingHandler implements StreamEventLoop.ReadHandler {
+        final int expected;
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        volatile boolean timedOut;
+
+        RecordingHandler(int expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public boolean dataRead(ByteBuffer buffer) {
+            while (buffer.hasRemaining()) {
+                data.write(buffer.get());
+            }
+            if (data.size() >= expected) {
+                done.countDown();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void timeout() {
+            timedOut = true;
+            done.countDown();
+        }
+
+        @Override
+        public void readError(Exception error) {
+            this.error.set(error);
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThreadExecutorsTest {
+
+    @Test
+    void platformThreadsExecutorUsesNamedDaemonThreads() throws Exception {
+        // Given
+        ExecutorService executor = ThreadExecutors.newCachedExecutor("test", false);
+
+        // When
+        Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(thread.isDaemon()).isTrue();
+        assertThat(thread.getName()).startsWith("test");
+        executor.shutdown();
+    }
+
+    @Test
+    void whenVirtualThreadsAreRequestedExecutorRunsTasks() throws Exception {
+        // Given
+        ExecutorService executor = ThreadExecutors.newCachedExecutor("test", true);
+
+        // When
+        Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+
+        // Then
+        // On JVMs not supporting virtual threads, platform threads are used instead
+        assertThat(thread.isDaemon()).isTrue();
+        assertThat(thread.getName()).startsWith("test");
+        executor.shutdown();
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void onJava21ExecutorUsesVirtualThreads() throws Exception {
+        // Given
+        ExecutorService executor = ThreadExecutors.newCachedExecutor("test", true);
+
+        // When
+        Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+
+        // Then
+        // Thread.isVirtual() does not exist in Java 11, which the tests are compiled for.
+        assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+        assertThat(thread.getName()).startsWith("test");
+        executor.shutdown();
+    }
+}
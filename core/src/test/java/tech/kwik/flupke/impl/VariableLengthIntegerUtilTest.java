@@ -22,10 +22,14 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class VariableLengthIntegerUtilTest {
 
@@ -62,4 +66,99 @@ public class VariableLengthIntegerUtilTest {
         assertThat(stream.read()).isEqualTo(0x3e);
         assertThat(stream.read()).isEqualTo(0x7d);
     }
+
+    @Test
+    public void encodedValuesShouldDecodeToSameValue() {
+        long[] values = { 0, 63, 64, 16383, 16384, 1073741823, 1073741824, VariableLengthIntegerUtil.MAX_VALUE };
+        byte[] data = new byte[8];
+        for (long value : values) {
+            // When
+            int length = VariableLengthIntegerUtil.encode(value, data, 0);
+
+            // Then
+            assertThat(length).isEqualTo(VariableLengthIntegerUtil.encodedLength(value));
+            assertThat(VariableLengthIntegerUtil.decode(ByteBuffer.wrap(data, 0, length))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    public void encodingShouldMatchRfcExample() {
+        // https://www.rfc-editor.org/rfc/rfc9000.html#name-sample-variable-length-inte
+        byte[] data = new byte[8];
+
+        // When
+        int length = VariableLengthIntegerUtil.encode(151288809941952652L, data, 0);
+
+        // Then
+        assertThat(length).isEqualTo(8);
+        assertThat(data).isEqualTo(new byte[] { (byte) 0xc2, (byte) 0x19, (byte) 0x7c, (byte) 0x5e, (byte) 0xff, (byte) 0x14, (byte) 0xe8, (byte) 0x8c });
+    }
+
+    @Test
+    public void decodingIncompleteIntegerShouldNotConsumeBytes() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { (byte) 0x9d, (byte) 0x7f, (byte) 0x3e });
+
+        // When
+        long value = VariableLengthIntegerUtil.decode(buffer);
+
+        // Then
+        assertThat(value).isEqualTo(VariableLengthIntegerUtil.INCOMPLETE);
+        assertThat(buffer.position()).isEqualTo(0);
+    }
+
+    @Test
+    public void frameHeaderShouldContainTypeAndLength() {
+        // Given
+        byte[] data = new byte[VariableLengthIntegerUtil.MAX_FRAME_HEADER_LENGTH];
+
+        // When
+        int length = VariableLengthIntegerUtil.encodeFrameHeader(0x01, 300, data, 0);
+
+        // Then
+        assertThat(length).isEqualTo(3);
+        assertThat(Arrays.copyOf(data, length)).isEqualTo(new byte[] { 0x01, 0x41, 0x2c });
+    }
+
+    @Test
+    public void peekShouldPushBackNonMinimalEncodingUnchanged() throws IOException {
+        // Given
+        byte[] data = new byte[] { 0x40, 0x25 };  // 37 encoded in two bytes
+        PushbackInputStream stream = new PushbackInputStream(new ByteArrayInputStream(data), 8);
+
+        // When
+        long value = VariableLengthIntegerUtil.peekLong(stream);
+
+        // Then
+        assertThat(value).isEqualTo(37);
+        assertThat(stream.readAllBytes()).isEqualTo(data);
+    }
+
+    @Test
+    public void encodingIntoBufferShouldWriteAtPositionAndAdvanceIt() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        buffer.put((byte) 0x01);
+
+        // When
+        int length = VariableLengthIntegerUtil.encode(494878333L, buffer);
+
+        // Then
+        assertThat(length).isEqualTo(4);
+        assertThat(buffer.position()).isEqualTo(5);
+        assertThat(Arrays.copyOf(buffer.array(), 5)).isEqualTo(new byte[] { 0x01, (byte) 0x9d, (byte) 0x7f, (byte) 0x3e, (byte) 0x7d });
+    }
+
+    @Test
+    public void readShouldThrowWhenStreamEndsBeforeIntegerIsComplete() throws IOException {
+        // Given
+        ByteArrayInputStream stream = new ByteArrayInputStream(new byte[] { 0x25, (byte) 0x9d, (byte) 0x7f });
+
+        // When
+        long value = VariableLengthIntegerUtil.read(stream);
+
+        // Then
+        assertThat(value).isEqualTo(37);
+        assertThatThrownBy(() -> VariableLengthIntegerUtil.read(stream)).isInstanceOf(EOFException.class);
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AcceptEncodingTest {
+
+    @Test
+    void codingListedInHeaderIsAcceptable() {
+        assertThat(AcceptEncoding.isAcceptable(headers("gzip, deflate, br"), "gzip")).isTrue();
+    }
+
+    @Test
+    void codingWithZeroQValueIsNotAcceptable() {
+        assertThat(AcceptEncoding.isAcceptable(headers("br;q=1.0, gzip;q=0"), "gzip")).isFalse();
+    }
+
+    @Test
+    void wildcardMatchesCodingNotListed() {
+        assertThat(AcceptEncoding.isAcceptable(headers("br, *;q=0.5"), "gzip")).isTrue();
+    }
+
+    @Test
+    void explicitCodingOverridesWildcard() {
+        assertThat(AcceptEncoding.isAcceptable(headers("*, gzip;q=0"), "gzip")).isFalse();
+    }
+
+    @Test
+    void xGzipIsEquivalentToGzip() {
+        assertThat(AcceptEncoding.isAcceptable(headers("x-gzip"), "gzip")).isTrue();
+    }
+
+    @Test
+    void withoutAcceptEncodingHeaderNoCodingIsAcceptable() {
+        assertThat(AcceptEncoding.isAcceptable(HttpHeaders.of(Map.of(), (n, v) -> true), "gzip")).isFalse();
+    }
+
+    private HttpHeaders headers(String acceptEncoding) {
+        return HttpHeaders.of(Map.of("Accept-Encoding", List.of(acceptEncoding)), (n, v) -> true);
+    }
+}
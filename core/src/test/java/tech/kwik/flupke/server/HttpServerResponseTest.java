@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HttpServerResponseTest {
+
+    @Test
+    void defaultResponseWriterWritesToOutputStream() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HttpServerResponse response = mock(HttpServerResponse.class, CALLS_REAL_METHODS);
+        when(response.getOutputStream()).thenReturn(output);
+        ResponseWriter writer = response.getResponseWriter();
+
+        // When
+        writer.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+
+        // Then
+        assertThat(output.toByteArray()).containsExactly(1, 2, 3);
+        assertThat(writer.isWritable()).isTrue();
+        assertThat(writer.close().toCompletableFuture()).isCompleted();
+    }
+
+    @Test
+    void defaultSendInterimDoesNothing() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HttpServerResponse response = mock(HttpServerResponse.class, CALLS_REAL_METHODS);
+        when(response.getOutputStream()).thenReturn(output);
+
+        // When
+        response.sendInterim(103, null);
+
+        // Then
+        assertThat(output.size()).isEqualTo(0);
+    }
+}
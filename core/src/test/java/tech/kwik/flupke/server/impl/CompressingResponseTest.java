@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import tech.kwik.flupke.PreEncodedHeaders;
+import tech.kwik.flupke.server.HttpServerResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CompressingResponseTest {
+
+    private static final String TEXT = "All work and no play makes Jack a dull boy. ".repeat(100);
+
+    private HttpServerResponse wrappedResponse;
+    private ByteArrayOutputStream output;
+    private DeflaterPool deflaterPool;
+
+    @BeforeEach
+    void initWrappedResponse() {
+        wrappedResponse = mock(HttpServerResponse.class);
+        output = new ByteArrayOutputStream();
+        when(wrappedResponse.getOutputStream()).thenReturn(output);
+        when(wrappedResponse.isStatusSet()).thenReturn(true);
+        when(wrappedResponse.status()).thenReturn(200);
+        deflaterPool = new DeflaterPool(6, 4);
+    }
+
+    @Test
+    void largeTextResponseIsCompressed() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeader("Content-Type", "text/plain; charset=utf-8");
+        response.getOutputStream().write(TEXT.getBytes());
+        response.finish();
+
+        // Then
+        assertThat(addedHeaders()).containsEntry("content-encoding", List.of("gzip"));
+        assertThat(addedHeaders()).containsEntry("vary", List.of("accept-encoding"));
+        assertThat(output.size()).isLessThan(TEXT.length());
+        assertThat(new String(gunzip(output.toByteArray()))).isEqualTo(TEXT);
+    }
+
+    @Test
+    void responseSmallerThanMinimumSizeIsNotCompressed() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeader("content-type", "application/json");
+        response.getOutputStream().write("{ \"answer\": 42 }".getBytes());
+        response.finish();
+
+        // Then
+        assertThat(addedHeaders()).doesNotContainKey("content-encoding");
+        assertThat(output.toString()).isEqualTo("{ \"answer\": 42 }");
+    }
+
+    @Test
+    void responseWithIncompressibleContentTypeIsNotCompressed() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeader("content-type", "image/png");
+        response.getOutputStream().write(TEXT.getBytes());
+        response.finish();
+
+        // Then
+        assertThat(addedHeaders()).doesNotContainKeys("content-encoding", "vary");
+        assertThat(output.toString()).isEqualTo(TEXT);
+    }
+
+    @Test
+    void responseIsNotCompressedWhenClientDoesNotAcceptGzip() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, false, 1024, deflaterPool);
+
+        // When
+        response.addHeader("content-type", "text/html");
+        response.getOutputStream().write(TEXT.getBytes());
+        response.finish();
+
+        // Then
+        assertThat(addedHeaders()).doesNotContainKey("content-encoding");
+        assertThat(addedHeaders()).containsEntry("vary", List.of("accept-encoding"));
+        assertThat(output.toString()).isEqualTo(TEXT);
+    }
+
+    @Test
+    void contentLengthIsDroppedWhenCompressing() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeaders(PreEncodedHeaders.of("content-type", "text/plain", "content-length", Integer.toString(TEXT.length())));
+        response.getOutputStream().write(TEXT.getBytes());
+        response.finish();
+
+        // Then
+        assertThat(addedHeaders()).doesNotContainKey("content-length");
+        assertThat(addedHeaders()).containsEntry("content-type", List.of("text/plain"));
+        assertThat(new String(gunzip(output.toByteArray()))).isEqualTo(TEXT);
+    }
+
+    @Test
+    void contentLengthIsPassedWhenNotCompressing() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeader("content-type", "text/plain");
+        response.addHeader("content-length", "5");
+        response.getOutputStream().write("Hello".getBytes());
+        response.finish();
+
+        // Then
+        assertThat(addedHeaders()).containsEntry("content-length", List.of("5"));
+    }
+
+    @Test
+    void responseWithContentEncodingIsPassedUnmodified() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeader("content-type", "text/plain");
+        response.addHeader("content-encoding", "br");
+        response.getOutputStream().write(TEXT.getBytes());
+        response.finish();
+
+        // Then
+        assertThat(addedHeaders()).containsEntry("content-encoding", List.of("br"));
+        assertThat(output.toString()).isEqualTo(TEXT);
+    }
+
+    @Test
+    void deflaterIsReturnedToPoolAndReused() throws Exception {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream responseOutput = new ByteArrayOutputStream();
+            when(wrappedResponse.getOutputStream()).thenReturn(responseOutput);
+            CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+            // When
+            response.addHeader("content-type", "text/plain");
+            response.getOutputStream().write(TEXT.getBytes());
+            response.finish();
+
+            // Then
+            assertThat(new String(gunzip(responseOutput.toByteArray()))).isEqualTo(TEXT);
+        }
+        assertThat(deflaterPool.pooledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void whenResponseIsReleasedWithoutFinishingDeflaterIsReturnedToPool() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+        response.addHeader("content-type", "text/plain");
+        response.getOutputStream().write(TEXT.getBytes());
+
+        // When
+        response.release();
+
+        // Then
+        assertThat(deflaterPool.pooledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void releasingFinishedResponseDoesNotReturnDeflaterTwice() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+        response.addHeader("content-type", "text/plain");
+        response.getOutputStream().write(TEXT.getBytes());
+        response.finish();
+
+        // When
+        response.release();
+
+        // Then
+        assertThat(deflaterPool.pooledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void emptyResponseDoesNotStartOutput() throws Exception {
+        // Given
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeader("content-type", "text/plain");
+        response.finish();
+
+        // Then
+        verify(wrappedResponse, never()).getOutputStream();
+    }
+
+    @Test
+    void fileSentWithoutExplicitStatusIsCompressed() throws Exception {
+        // Given
+        int[] status = { 0 };
+        when(wrappedResponse.isStatusSet()).thenAnswer(invocation -> status[0] != 0);
+        when(wrappedResponse.status()).thenAnswer(invocation -> status[0]);
+        doAnswer(invocation -> status[0] = invocation.getArgument(0)).when(wrappedResponse).setStatus(anyInt());
+        Path file = Files.createTempFile("compressing", ".txt");
+        Files.write(file, TEXT.getBytes());
+        CompressingResponse response = new CompressingResponse(wrappedResponse, true, 1024, deflaterPool);
+
+        // When
+        response.addHeader("content-type", "text/plain");
+        response.sendFile(file);
+        response.finish();
+        Files.delete(file);
+
+        // Then
+        verify(wrappedResponse).setStatus(200);
+        assertThat(addedHeaders()).containsEntry("content-encoding", List.of("gzip"));
+        assertThat(addedHeaders()).containsEntry("vary", List.of("accept-encoding"));
+        assertThat(new String(gunzip(output.toByteArray()))).isEqualTo(TEXT);
+    }
+
+    private Map<String, List<String>> addedHeaders() {
+        Map<String, List<String>> headers = new HashMap<>();
+        ArgumentCaptor<PreEncodedHeaders> preEncoded = ArgumentCaptor.forClass(PreEncodedHeaders.class);
+        verify(wrappedResponse, atLeast(0)).addHeaders(preEncoded.capture());
+        preEncoded.getAllValues().forEach(h -> headers.putAll(h.map()));
+        ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<String>> values = ArgumentCaptor.forClass(List.class);
+        verify(wrappedResponse, atLeast(0)).addHeader(names.capture(), values.capture());
+        for (int i = 0; i < names.getAllValues().size(); i++) {
+            headers.put(names.getAllValues().get(i).toLowerCase(), values.getAllValues().get(i));
+        }
+        return headers;
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        return new GZIPInputStream(new ByteArrayInputStream(data)).readAllBytes();
+    }
+}
@@ -31,6 +31,7 @@ import tech.kwik.flupke.impl.ConnectionError;
 import tech.kwik.flupke.impl.DataFrame;
 import tech.kwik.flupke.impl.HeadersFrame;
 import tech.kwik.flupke.impl.SettingsFrame;
+import tech.kwik.flupke.impl.StreamEventLoop;
 import tech.kwik.flupke.server.*;
 import tech.kwik.flupke.test.CapturingEncoder;
 import tech.kwik.flupke.test.FieldSetter;
@@ -46,10 +47,16 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpHeaders;
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
@@ -63,6 +70,11 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 import static tech.kwik.flupke.impl.Http3ConnectionImpl.FRAME_TYPE_DATA;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_ID_ERROR;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_INTERNAL_ERROR;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_NO_ERROR;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_REQUEST_INCOMPLETE;
+import static tech.kwik.flupke.impl.Http3ConnectionImpl.H3_REQUEST_REJECTED;
 
 
 public class Http3ServerConnectionImplTest {
@@ -520,6 +532,113 @@ public class Http3ServerConnectionImplTest {
         // Then
         verify(quicStream).abortReading(anyLong());
     }
+
+    @Test
+    void whenRequestExecutorIsOverloadedRequestStreamIsRejected() throws Exception {
+        // Given
+        HttpRequestHandler handler = mock(HttpRequestHandler.class);
+        Http3ServerConnectionImpl http3Connection = new HttpConnectionBuilder().withHandler(handler).buildServerConnection();
+        ExecutorService overloadedExecutor = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(overloadedExecutor).execute(any(Runnable.class));
+        http3Connection.setRequestExecutor(overloadedExecutor, null);
+        QuicStream requestResponseStream = new QuicStreamBuilder().withInputData(fakeHeadersFrameData()).build();
+
+        // When
+        http3Connection.acceptPeerInitiatedStream(requestResponseStream);
+
+        // Then
+        verify(requestResponseStream).abortReading(H3_REQUEST_REJECTED);
+        verify(requestResponseStream).resetStream(H3_REQUEST_REJECTED);
+        verifyNoInteractions(handler);
+    }
+
+    @Test
+    void whenRequestExecutorIsOverloadedAndRetryAfterIsSetResponse503IsSent() throws Exception {
+        // Given
+        Http3ServerConnectionImpl http3Connection = new HttpConnectionBuilder().buildServerConnection();
+        setEncoder(http3Connection, noOpEncoderDecoderBuilder.encoder());
+        ExecutorService overloadedExecutor = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(overloadedExecutor).execute(any(Runnable.class));
+        http3Connection.setRequestExecutor(overloadedExecutor, Duration.ofSeconds(30));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QuicStream requestResponseStream = new QuicStreamBuilder()
+                .withInputData(fakeHeadersFrameData())
+                .withOutputStream(output)
+                .build();
+
+        // When
+        http3Connection.acceptPeerInitiatedStream(requestResponseStream);
+
+        // Then
+        verify(requestResponseStream).abortReading(H3_NO_ERROR);
+        verify(requestResponseStream, never()).resetStream(anyLong());
+        HeadersFrame responseHeadersFrame = new HeadersFrame().parsePayload(output.toByteArray(), noOpEncoderDecoderBuilder.decoder());
+        assertThat(responseHeadersFrame.getPseudoHeader(":status")).isEqualTo("503");
+        assertThat(responseHeadersFrame.headers().firstValue("retry-after")).hasValue("30");
+    }
+
+    @Test
+    void subSecondRetryAfterIsRoundedUp() throws Exception {
+        // Given
+        Http3ServerConnectionImpl http3Connection = new HttpConnectionBuilder().buildServerConnection();
+        setEncoder(http3Connection, noOpEncoderDecoderBuilder.encoder());
+        ExecutorService overloadedExecutor = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(overloadedExecutor).execute(any(Runnable.class));
+        http3Connection.setRequestExecutor(overloadedExecutor, Duration.ofMillis(500));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QuicStream requestResponseStream = new QuicStreamBuilder()
+                .withInputData(fakeHeadersFrameData())
+                .withOutputStream(output)
+                .build();
+
+        // When
+        http3Connection.acceptPeerInitiatedStream(requestResponseStream);
+
+        // Then
+        HeadersFrame responseHeadersFrame = new HeadersFrame().parsePayload(output.toByteArray(), noOpEncoderDecoderBuilder.decoder());
+        assertThat(responseHeadersFrame.headers().firstValue("retry-after")).hasValue("1");
+    }
+
+    @Test
+    void whenRequestExecutorIsOverloadedExtensionStreamIsStillHandled() throws Exception {
+        // Given
+        HttpRequestHandler requestHandler = mock(HttpRequestHandler.class);
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), requestHandler, executor, emptyMap());
+        Consumer<HttpStream> streamHandler = mock(Consumer.class);
+        http3Connection.registerBidirectionalStreamHandler(0x41, streamHandler);
+        ExecutorService overloadedExecutor = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(overloadedExecutor).execute(any(Runnable.class));
+        http3Connection.setRequestExecutor(overloadedExecutor, null);
+        QuicStream extensionStream = new QuicStreamBuilder().withInputData(new byte[] { 0x40, 0x41, 0x00 }).build();
+
+        // When
+        http3Connection.acceptPeerInitiatedStream(extensionStream);
+        awaitExecutor();
+
+        // Then
+        verify(streamHandler).accept(any(HttpStream.class));
+        verify(extensionStream, never()).resetStream(anyLong());
+    }
+
+    @Test
+    void whenRequestExecutorIsOverloadedAndExtensionsAreRegisteredRequestIsStillRejected() throws Exception {
+        // Given
+        HttpRequestHandler requestHandler = mock(HttpRequestHandler.class);
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), requestHandler, executor, emptyMap());
+        http3Connection.registerBidirectionalStreamHandler(0x41, mock(Consumer.class));
+        ExecutorService overloadedExecutor = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(overloadedExecutor).execute(any(Runnable.class));
+        http3Connection.setRequestExecutor(overloadedExecutor, null);
+        QuicStream requestResponseStream = new QuicStreamBuilder().withInputData(fakeHeadersFrameData()).build();
+
+        // When
+        http3Connection.acceptPeerInitiatedStream(requestResponseStream);
+        awaitExecutor();
+
+        // Then
+        verify(requestResponseStream).resetStream(H3_REQUEST_REJECTED);
+        verifyNoInteractions(requestHandler);
+    }
     //endregion
 
     //region CONNECT method
@@ -848,6 +967,332 @@ public class Http3ServerConnectionImplTest {
     }
     //endregion
 
+    //region event loop
+    @Test
+    void withEventLoopRequestIsHandledWhenHeadersAreComplete() throws Exception {
+        // Given
+        AtomicReference<String> bodyContent = new AtomicReference<>("");
+        HttpRequestHandler handler = (request, response) -> {
+            bodyContent.set(new String(request.body().readAllBytes()));
+            response.setStatus(200);
+        };
+        Http3ServerConnectionImpl http3Connection = new HttpConnectionBuilder()
+                .withHeaders(Map.of(":method", "POST", ":scheme", "https", ":authority", "example.com", ":path", "/index.html"))
+                .withHandler(handler)
+                .buildServerConnection();
+        StreamEventLoop eventLoop = new StreamEventLoop(1);
+        http3Connection.setStreamEventLoop(eventLoop, Duration.ofSeconds(5));
+
+        ByteBuffer requestData = ByteBuffer.allocate(10);
+        requestData.put(fakeHeadersFrameData());
+        requestData.put(new byte[] { FRAME_TYPE_DATA, 0x04, 0x62, 0x6f, 0x64, 0x79 });
+        QuicStream requestResponseStream = new QuicStreamBuilder().withInputData(requestData.array()).build();
+        when(requestResponseStream.isBidirectional()).thenReturn(true);
+
+        // When
+        http3Connection.acceptPeerInitiatedStream(requestResponseStream);
+
+        // Then
+        verify(requestResponseStream, timeout(1000)).getOutputStream();
+        assertThat(bodyContent.get()).isEqualTo("body");
+        eventLoop.close();
+    }
+
+    @Test
+    void withEventLoopIncompleteRequestHeadersShouldLeadToStreamResetAfterTimeout() throws Exception {
+        // Given
+        HttpRequestHandler handler = mock(HttpRequestHandler.class);
+        Http3ServerConnectionImpl http3Connection = new HttpConnectionBuilder()
+                .withHandler(handler)
+                .buildServerConnection();
+        StreamEventLoop eventLoop = new StreamEventLoop(1);
+        http3Connection.setStreamEventLoop(eventLoop, Duration.ofMillis(50));
+
+        QuicStream requestResponseStream = new QuicStreamBuilder().withInputData(new byte[] { 0x01, 0x10, 0x00 }).build();
+        when(requestResponseStream.isBidirectional()).thenReturn(true);
+
+        // When
+        http3Connection.acceptPeerInitiatedStream(requestResponseStream);
+
+        // Then
+        verify(requestResponseStream, timeout(1000)).resetStream(H3_REQUEST_INCOMPLETE);
+        verify(requestResponseStream).abortReading(H3_REQUEST_INCOMPLETE);
+        verifyNoInteractions(handler);
+        eventLoop.close();
+    }
+    //endregion
+
+    //region async request handling
+    @Test
+    void responseOfAsyncHandlerIsOnlyFinishedWhenStageCompletes() throws Exception {
+        // Given
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        AsyncHttpRequestHandler handler = (request, response) -> {
+            response.setStatus(201);
+            return completion;
+        };
+        Http3ServerConnectionImpl http3Connection = createAsyncConnection(handler);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QuicStream stream = new QuicStreamBuilder().withOutputStream(output).build();
+
+        // When
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), stream, noOpEncoderDecoderBuilder.encoder());
+        int bytesWrittenBeforeCompletion = output.size();
+        completion.complete(null);
+        awaitExecutor();
+
+        // Then
+        assertThat(bytesWrittenBeforeCompletion).isEqualTo(0);
+        HeadersFrame responseHeadersFrame = new HeadersFrame().parsePayload(output.toByteArray(), noOpEncoderDecoderBuilder.decoder());
+        assertThat(responseHeadersFrame.getPseudoHeader(":status")).isEqualTo("201");
+    }
+
+    @Test
+    void whenAsyncHandlerFailsBeforeResponseIsStartedStatus500IsSent() throws Exception {
+        // Given
+        AsyncHttpRequestHandler handler = (request, response) -> {
+            response.setStatus(200);
+            return CompletableFuture.failedFuture(new IllegalStateException("backend failure"));
+        };
+        Http3ServerConnectionImpl http3Connection = createAsyncConnection(handler);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QuicStream stream = new QuicStreamBuilder().withOutputStream(output).build();
+
+        // When
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), stream, noOpEncoderDecoderBuilder.encoder());
+        awaitExecutor();
+
+        // Then
+        HeadersFrame responseHeadersFrame = new HeadersFrame().parsePayload(output.toByteArray(), noOpEncoderDecoderBuilder.decoder());
+        assertThat(responseHeadersFrame.getPseudoHeader(":status")).isEqualTo("500");
+        verify(stream, never()).resetStream(anyLong());
+    }
+
+    @Test
+    void whenAsyncHandlerFailsWithIOExceptionStatus500IsSent() throws Exception {
+        // Given
+        AsyncHttpRequestHandler handler = (request, response) ->
+                CompletableFuture.failedFuture(new IOException("backend connection refused"));
+        Http3ServerConnectionImpl http3Connection = createAsyncConnection(handler);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QuicStream stream = new QuicStreamBuilder().withOutputStream(output).build();
+
+        // When
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), stream, noOpEncoderDecoderBuilder.encoder());
+        awaitExecutor();
+
+        // Then
+        HeadersFrame responseHeadersFrame = new HeadersFrame().parsePayload(output.toByteArray(), noOpEncoderDecoderBuilder.decoder());
+        assertThat(responseHeadersFrame.getPseudoHeader(":status")).isEqualTo("500");
+    }
+
+    @Test
+    void responseOfAsyncHandlerIsFinishedOnConnectionExecutor() throws Exception {
+        // Given
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        AsyncHttpRequestHandler handler = (request, response) -> {
+            response.setStatus(200);
+            return completion;
+        };
+        Http3ServerConnectionImpl http3Connection = createAsyncConnection(handler);
+        AtomicReference<Thread> closingThread = new AtomicReference<>();
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closingThread.set(Thread.currentThread());
+            }
+        };
+        QuicStream stream = new QuicStreamBuilder().withOutputStream(output).build();
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), stream, noOpEncoderDecoderBuilder.encoder());
+
+        // When
+        completion.complete(null);
+        awaitExecutor();
+
+        // Then
+        assertThat(closingThread.get()).isNotNull().isNotEqualTo(Thread.currentThread());
+    }
+
+    @Test
+    void whenAsyncHandlerFailsAfterResponseIsStartedStreamIsReset() throws Exception {
+        // Given
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        AsyncHttpRequestHandler handler = (request, response) -> {
+            response.setStatus(200);
+            try {
+                response.getOutputStream().write("partial".getBytes());
+            }
+            catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return completion;
+        };
+        Http3ServerConnectionImpl http3Connection = createAsyncConnection(handler);
+        QuicStream stream = new QuicStreamBuilder().build();
+
+        // When
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), stream, noOpEncoderDecoderBuilder.encoder());
+        completion.completeExceptionally(new IllegalStateException("backend failure"));
+        awaitExecutor();
+
+        // Then
+        verify(stream).resetStream(H3_INTERNAL_ERROR);
+    }
+    //endregion
+
+    //region interim responses
+    @Test
+    void continueIsSentWhenHandlerReadsContentOfRequestThatExpectsIt() throws Exception {
+        // Given
+        HttpRequestHandler handler = (request, response) -> {
+            request.body().readAllBytes();
+            response.setStatus(200);
+        };
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), handler, executor, emptyMap());
+        Encoder encoder = mock(Encoder.class);
+        when(encoder.compressHeaders(any())).thenReturn(ByteBuffer.allocate(0));
+        HeadersFrame requestHeaders = new HeadersFrame(HttpHeaders.of(Map.of("expect", List.of("100-continue")), (a, b) -> true),
+                Map.of(":method", "POST", ":authority", "www.example.com:443", ":path", "/upload"));
+        QuicStream stream = new QuicStreamBuilder().withInputData(new byte[] { 0x00, 0x02, 0x68, 0x69 }).build();
+
+        // When
+        http3Connection.handleHttpRequest(requestHeaders, stream, encoder);
+
+        // Then
+        ArgumentCaptor<List<Map.Entry<String, String>>> headersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(encoder, times(2)).compressHeaders(headersCaptor.capture());
+        assertThat(headersCaptor.getAllValues().get(0)).contains(Map.entry(":status", "100"));
+        assertThat(headersCaptor.getAllValues().get(1)).contains(Map.entry(":status", "200"));
+    }
+
+    @Test
+    void continueIsNotSentWhenHandlerDoesNotReadContent() throws Exception {
+        // Given
+        HttpRequestHandler handler = (request, response) -> {
+            response.setStatus(413);
+        };
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), handler, executor, emptyMap());
+        Encoder encoder = mock(Encoder.class);
+        when(encoder.compressHeaders(any())).thenReturn(ByteBuffer.allocate(0));
+        HeadersFrame requestHeaders = new HeadersFrame(HttpHeaders.of(Map.of("expect", List.of("100-continue")), (a, b) -> true),
+                Map.of(":method", "POST", ":authority", "www.example.com:443", ":path", "/upload"));
+
+        // When
+        http3Connection.handleHttpRequest(requestHeaders, new QuicStreamBuilder().build(), encoder);
+
+        // Then
+        ArgumentCaptor<List<Map.Entry<String, String>>> headersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(encoder, times(1)).compressHeaders(headersCaptor.capture());
+        assertThat(headersCaptor.getValue()).contains(Map.entry(":status", "413"));
+    }
+    //endregion
+
+    //region server push
+    @Test
+    void pushIsRefusedWhenClientDidNotSendMaxPushId() throws Exception {
+        // Given
+        AtomicBoolean pushed = new AtomicBoolean(true);
+        HttpRequestHandler handler = (request, response) -> {
+            pushed.set(response.push("/style.css", null));
+            response.setStatus(200);
+        };
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), handler, executor, emptyMap());
+        QuicStream stream = new QuicStreamBuilder().build();
+
+        // When
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), stream, noOpEncoderDecoderBuilder.encoder());
+
+        // Then
+        assertThat(pushed.get()).isFalse();
+    }
+
+    @Test
+    void pushSendsPushPromiseOnRequestStreamAndPushedResponseOnPushStream() throws Exception {
+        // Given
+        ServerConnection quicConnection = mock(ServerConnection.class);
+        ByteArrayOutputStream pushStreamOutput = new ByteArrayOutputStream();
+        QuicStream controlStream = new QuicStreamBuilder().build();
+        QuicStream pushStream = new QuicStreamBuilder().withOutputStream(pushStreamOutput).build();
+        when(quicConnection.createStream(false)).thenReturn(controlStream, pushStream);
+        AtomicBoolean pushed = new AtomicBoolean();
+        AtomicReference<HttpServerRequest> pushedRequest = new AtomicReference<>();
+        HttpRequestHandler handler = (request, response) -> {
+            if (request.path().equals("/index.html")) {
+                pushed.set(response.push("/style.css", HttpHeaders.of(Map.of("accept", List.of("text/css")), (a, b) -> true)));
+            }
+            else {
+                pushedRequest.set(request);
+            }
+            response.setStatus(200);
+        };
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(quicConnection, handler, executor, emptyMap());
+        setEncoder(http3Connection, noOpEncoderDecoderBuilder.encoder());
+        http3Connection.handleMaxPushId(0);
+        ByteArrayOutputStream requestStreamOutput = new ByteArrayOutputStream();
+        QuicStream requestStream = new QuicStreamBuilder().withOutputStream(requestStreamOutput).build();
+
+        // When
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), requestStream, noOpEncoderDecoderBuilder.encoder());
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(pushed.get()).isTrue();
+        assertThat(requestStreamOutput.toByteArray()).startsWith(0x05);  // PUSH_PROMISE frame type
+        assertThat(pushStreamOutput.toByteArray()).startsWith(0x01, 0x00, 0x01);  // push stream type, push ID 0, HEADERS frame
+        assertThat(pushedRequest.get().method()).isEqualTo("GET");
+        assertThat(pushedRequest.get().path()).isEqualTo("/style.css");
+        assertThat(pushedRequest.get().headers().firstValue("accept")).hasValue("text/css");
+    }
+
+    @Test
+    void secondPushIsRefusedWhenMaxPushIdIsReached() throws Exception {
+        // Given
+        List<Boolean> results = new ArrayList<>();
+        HttpRequestHandler handler = (request, response) -> {
+            if (request.path().equals("/index.html")) {
+                results.add(response.push("/style.css", null));
+                results.add(response.push("/script.js", null));
+            }
+            response.setStatus(200);
+        };
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), handler, executor, emptyMap());
+        http3Connection.handleMaxPushId(0);
+
+        // When
+        http3Connection.handleHttpRequest(createHeadersFrame("GET", new URI("https://www.example.com/index.html")), new QuicStreamBuilder().build(), noOpEncoderDecoderBuilder.encoder());
+
+        // Then
+        assertThat(results).containsExactly(true, false);
+    }
+
+    @Test
+    void decreasingMaxPushIdIsConnectionError() throws Exception {
+        // Given
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), mock(HttpRequestHandler.class), executor, emptyMap());
+        http3Connection.handleMaxPushId(5);
+
+        // When / Then
+        assertThatThrownBy(() -> http3Connection.handleMaxPushId(4))
+                .isInstanceOf(ConnectionError.class)
+                .extracting(e -> ((ConnectionError) e).getHttp3ErrorCode())
+                .isEqualTo((long) H3_ID_ERROR);
+    }
+
+    @Test
+    void cancellingPushThatWasNotPromisedIsConnectionError() throws Exception {
+        // Given
+        Http3ServerConnectionImpl http3Connection = new Http3ServerConnectionImpl(createMockQuicConnection(), mock(HttpRequestHandler.class), executor, emptyMap());
+        http3Connection.handleMaxPushId(5);
+
+        // When / Then
+        assertThatThrownBy(() -> http3Connection.handleCancelPush(0))
+                .isInstanceOf(ConnectionError.class)
+                .extracting(e -> ((ConnectionError) e).getHttp3ErrorCode())
+                .isEqualTo((long) H3_ID_ERROR);
+    }
+    //endregion
+
     //region helper methods
     private byte[] fakeHeadersFrameData() {
         return new byte[] {
@@ -884,6 +1329,16 @@ public class Http3ServerConnectionImplTest {
         return connection;
     }
 
+    private void awaitExecutor() throws Exception {
+        // The executor is single threaded, so when this task is done, all previously submitted tasks are done too.
+        executor.submit(() -> {}).get(1, TimeUnit.SECONDS);
+    }
+
+    private Http3ServerConnectionImpl createAsyncConnection(AsyncHttpRequestHandler handler) throws Exception {
+        return new Http3ServerConnectionImpl(createMockQuicConnection(), handler, Http3ServerConnectionImpl.DEFAULT_MAX_HEADER_SIZE,
+                Http3ServerConnectionImpl.DEFAULT_MAX_DATA_SIZE, 0, 0, true, executor, emptyMap());
+    }
+
     private void setEncoder(Http3ServerConnectionImpl http3Connection, Encoder encoder) {
         FieldSetter.setField(http3Connection, "encoder", encoder);
     }
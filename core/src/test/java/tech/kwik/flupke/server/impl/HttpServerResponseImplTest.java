@@ -19,20 +19,31 @@
 package tech.kwik.flupke.server.impl;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import tech.kwik.core.QuicStream;
+import tech.kwik.flupke.PreEncodedHeaders;
 import tech.kwik.flupke.test.CapturingEncoder;
 import tech.kwik.flupke.test.NoOpEncoderDecoderBuilder;
 import tech.kwik.flupke.test.QuicStreamBuilder;
 import tech.kwik.qpack.Encoder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class HttpServerResponseImplTest {
@@ -230,5 +241,183 @@ class HttpServerResponseImplTest {
         assertThat(encoder.getCapturedHeaders().values())
                 .containsAnyOf("cookie1=value1,cookie2=value2", "cookie2=value2,cookie1=value1");
     }
+
+    @Test
+    void preEncodedHeadersShouldBeAddedToHeadersFrame() {
+        // Given
+        QuicStream quicStream = new QuicStreamBuilder().build();
+        CapturingEncoder encoder = new CapturingEncoder();
+        HttpServerResponseImpl response = new HttpServerResponseImpl(quicStream, encoder, false);
+        response.setStatus(200);
+
+        // When
+        response.addHeader("content-length", "42");
+        response.addHeaders(PreEncodedHeaders.of("Server", "flupke", "cache-control", "no-cache"));
+        response.getOutputStream();
+
+        // Then
+        assertThat(encoder.getCapturedHeaders())
+                .containsEntry("content-length", "42")
+                .containsEntry("server", "flupke")
+                .containsEntry("cache-control", "no-cache");
+    }
+
+    @Test
+    void callingAddHeadersAfterGetOutputStreamShouldThrow() {
+        // Given
+        QuicStream quicStream = new QuicStreamBuilder().build();
+        HttpServerResponseImpl response = new HttpServerResponseImpl(quicStream, new CapturingEncoder(), false);
+        response.setStatus(200);
+
+        // When
+        response.getOutputStream();
+
+        // Then
+        assertThatThrownBy(() ->
+                response.addHeaders(PreEncodedHeaders.of("server", "flupke"))
+        ).isInstanceOf(IllegalStateException.class);
+    }
+    // endregion
+
+    // region send file
+    @Test
+    void sendFileWritesContentInSingleDataFrameAndSetsContentLength() throws Exception {
+        // Given
+        Path file = Files.createTempFile("flupke", ".txt");
+        Files.write(file, "Hello World!".getBytes());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QuicStream quicStream = new QuicStreamBuilder().withOutputStream(output).build();
+        CapturingEncoder encoder = new CapturingEncoder();
+        HttpServerResponseImpl response = new HttpServerResponseImpl(quicStream, encoder, false);
+
+        // When
+        response.sendFile(file);
+
+        // Then
+        assertThat(encoder.getCapturedHeaders())
+                .containsEntry(":status", "200")
+                .containsEntry("content-length", "12");
+        byte[] written = output.toByteArray();
+        assertThat(Arrays.copyOfRange(written, written.length - 14, written.length))
+                .startsWith(0x00, 12)
+                .endsWith("Hello World!".getBytes());
+        assertThat(response.size()).isEqualTo(12);
+    }
+
+    @Test
+    void sendFileWithRangeOnlySendsRequestedRegion() throws Exception {
+        // Given
+        Path file = Files.createTempFile("flupke", ".txt");
+        Files.write(file, "Hello World!".getBytes());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QuicStream quicStream = new QuicStreamBuilder().withOutputStream(output).build();
+        CapturingEncoder encoder = new CapturingEncoder();
+        HttpServerResponseImpl response = new HttpServerResponseImpl(quicStream, encoder, false);
+        response.setStatus(206);
+
+        // When
+        response.sendFile(file, 6, 5);
+
+        // Then
+        assertThat(encoder.getCapturedHeaders())
+                .containsEntry(":status", "206")
+                .containsEntry("content-length", "5");
+        byte[] written = output.toByteArray();
+        assertThat(Arrays.copyOfRange(written, written.length - 7, written.length))
+                .containsExactly(0x00, 5, 'W', 'o', 'r', 'l', 'd');
+    }
+
+    @Test
+    void sendFileWithRangeBeyondEndOfFileShouldThrow() throws Exception {
+        // Given
+        Path file = Files.createTempFile("flupke", ".txt");
+        Files.write(file, "Hello World!".getBytes());
+        HttpServerResponseImpl response = new HttpServerResponseImpl(new QuicStreamBuilder().build(), new CapturingEncoder(), false);
+
+        assertThatThrownBy(
+                // When
+                () -> response.sendFile(file, 6, 10))
+                // Then
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+    // endregion
+
+    // region interim responses
+    @Test
+    void interimResponseIsWrittenBeforeFinalResponse() throws Exception {
+        // Given
+        Encoder encoder = mock(Encoder.class);
+        when(encoder.compressHeaders(anyList())).thenReturn(ByteBuffer.allocate(0));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HttpServerResponseImpl response = new HttpServerResponseImpl(new QuicStreamBuilder().withOutputStream(output).build(), encoder, false);
+
+        // When
+        response.sendInterim(103, HttpHeaders.of(Map.of("link", List.of("</style.css>; rel=preload")), (a, b) -> true));
+        response.setStatus(200);
+        response.close();
+
+        // Then
+        ArgumentCaptor<List<Map.Entry<String, String>>> headersCaptor = ArgumentCaptor.forClass(List.class);
+        verify(encoder, times(2)).compressHeaders(headersCaptor.capture());
+        assertThat(headersCaptor.getAllValues().get(0))
+                .contains(Map.entry(":status", "103"), Map.entry("link", "</style.css>; rel=preload"));
+        assertThat(headersCaptor.getAllValues().get(1)).contains(Map.entry(":status", "200"));
+    }
+
+    @Test
+    void switchingProtocolsIsNotAValidInterimStatus() {
+        HttpServerResponseImpl response = new HttpServerResponseImpl(mock(QuicStream.class), mock(Encoder.class), false);
+
+        assertThatThrownBy(
+                // When
+                () -> response.sendInterim(101, null))
+                // Then
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void interimResponseAfterFinalResponseIsStartedShouldThrow() {
+        // Given
+        HttpServerResponseImpl response = new HttpServerResponseImpl(new QuicStreamBuilder().build(), new NoOpEncoderDecoderBuilder().encoder(), false);
+        response.setStatus(200);
+        response.getOutputStream();
+
+        assertThatThrownBy(
+                // When
+                () -> response.sendInterim(103, null))
+                // Then
+                .isInstanceOf(IllegalStateException.class);
+    }
+    // endregion
+
+    // region response writer
+    @Test
+    void closeDoesNotWaitUntilDataQueuedInResponseWriterIsSent() throws Exception {
+        // Given
+        List<Runnable> tasks = new ArrayList<>();
+        ClosableOutputStream output = new ClosableOutputStream();
+        QuicStream quicStream = new QuicStreamBuilder().withOutputStream(output).build();
+        HttpServerResponseImpl response = new HttpServerResponseImpl(quicStream, new CapturingEncoder(), false, tasks::add);
+        response.setStatus(200);
+        response.getResponseWriter().write(ByteBuffer.allocate(100));
+
+        // When
+        response.close();
+        boolean closedBeforeSending = output.closed;
+        tasks.forEach(Runnable::run);
+
+        // Then
+        assertThat(closedBeforeSending).isFalse();
+        assertThat(output.closed).isTrue();
+    }
+
+    private static class ClosableOutputStream extends ByteArrayOutputStream {
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
     // endregion
 }
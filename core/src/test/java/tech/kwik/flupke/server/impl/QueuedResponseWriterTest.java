@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.server.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueuedResponseWriterTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Test
+    void writerBecomesUnwritableAtHighWatermark() throws Exception {
+        // Given
+        QueuedResponseWriter writer = new QueuedResponseWriter(new ByteArrayOutputStream(), tasks::add, 1000, 3000);
+        List<Boolean> notifications = new ArrayList<>();
+        writer.setWritabilityListener(notifications::add);
+
+        // When
+        writer.write(ByteBuffer.allocate(2000));
+        boolean writableBelowHighWatermark = writer.isWritable();
+        writer.write(ByteBuffer.allocate(1000));
+
+        // Then
+        assertThat(writableBelowHighWatermark).isTrue();
+        assertThat(writer.isWritable()).isFalse();
+        assertThat(writer.queuedBytes()).isEqualTo(3000);
+        assertThat(notifications).containsExactly(false);
+    }
+
+    @Test
+    void writerBecomesWritableAgainWhenQueuedDataDropsToLowWatermark() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QueuedResponseWriter writer = new QueuedResponseWriter(output, tasks::add, 1000, 3000);
+        List<Boolean> notifications = new ArrayList<>();
+        writer.setWritabilityListener(notifications::add);
+        writer.write(ByteBuffer.allocate(3000));
+
+        // When
+        runTasks();
+
+        // Then
+        assertThat(writer.isWritable()).isTrue();
+        assertThat(writer.queuedBytes()).isEqualTo(0);
+        assertThat(output.size()).isEqualTo(3000);
+        assertThat(notifications).containsExactly(false, true);
+    }
+
+    @Test
+    void writabilityNotificationsAreDeliveredInOrder() throws Exception {
+        // Given
+        QueuedResponseWriter writer = new QueuedResponseWriter(new ByteArrayOutputStream(), tasks::add, 1000, 3000);
+        List<Boolean> notifications = new CopyOnWriteArrayList<>();
+        CountDownLatch unwritableNotificationStarted = new CountDownLatch(1);
+        CountDownLatch releaseListener = new CountDownLatch(1);
+        writer.setWritabilityListener(writable -> {
+            if (!writable) {
+                unwritableNotificationStarted.countDown();
+                try {
+                    releaseListener.await(1, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            notifications.add(writable);
+        });
+        writer.write(ByteBuffer.allocate(2000));
+        Thread producer = new Thread(() -> {
+            try {
+                writer.write(ByteBuffer.allocate(1000));
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+        unwritableNotificationStarted.await(1, TimeUnit.SECONDS);
+
+        // When
+        Thread sender = new Thread(this::runTasks);
+        sender.start();
+        sender.join(200);
+        releaseListener.countDown();
+        producer.join(1000);
+        sender.join(1000);
+
+        // Then
+        assertThat(writer.isWritable()).isTrue();
+        assertThat(notifications).containsExactly(false, true);
+    }
+
+    @Test
+    void writeDoesNotBlockWhenOutputBlocks() throws Exception {
+        // Given
+        CountDownLatch clientReads = new CountDownLatch(1);
+        OutputStream slowOutput = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    clientReads.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        QueuedResponseWriter writer = new QueuedResponseWriter(slowOutput, Executors.newSingleThreadExecutor(), 1000, 3000);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            writer.write(ByteBuffer.allocate(1000));
+        }
+
+        // Then
+        assertThat(writer.isWritable()).isFalse();
+        clientReads.countDown();
+        writer.close().toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertThat(writer.isWritable()).isTrue();
+    }
+
+    @Test
+    void writtenDataIsCopied() throws Exception {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        QueuedResponseWriter writer = new QueuedResponseWriter(output, tasks::add, 1000, 3000);
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+
+        // When
+        writer.write(buffer);
+        buffer.clear();
+        buffer.put(new byte[] { 7, 7, 7 });
+        runTasks();
+
+        // Then
+        assertThat(output.toByteArray()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void closeCompletesWhenAllQueuedDataIsSent() throws Exception {
+        // Given
+        QueuedResponseWriter writer = new QueuedResponseWriter(new ByteArrayOutputStream(), tasks::add, 1000, 3000);
+        writer.write(ByteBuffer.allocate(100));
+
+        // When
+        CompletableFuture<Void> closed = writer.close().toCompletableFuture();
+        boolean doneBeforeSending = closed.isDone();
+        runTasks();
+
+        // Then
+        assertThat(doneBeforeSending).isFalse();
+        assertThat(closed).isCompleted();
+    }
+
+    @Test
+    void whenSendingFailsWriteAndCloseFail() throws Exception {
+        // Given
+        OutputStream failingOutput = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("stream reset");
+            }
+        };
+        QueuedResponseWriter writer = new QueuedResponseWriter(failingOutput, tasks::add, 1000, 3000);
+        writer.write(ByteBuffer.allocate(100));
+
+        // When
+        runTasks();
+
+        // Then
+        assertThatThrownBy(() -> writer.write(ByteBuffer.allocate(100))).isInstanceOf(IOException.class);
+        assertThat(writer.close().toCompletableFuture()).isCompletedExceptionally();
+    }
+
+    @Test
+    void whenSendingFailsWhileUnwritableListenerIsNotified() throws Exception {
+        // Given
+        OutputStream failingOutput = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("stream reset");
+            }
+        };
+        QueuedResponseWriter writer = new QueuedResponseWriter(failingOutput, tasks::add, 1000, 3000);
+        List<Boolean> notifications = new ArrayList<>();
+        writer.setWritabilityListener(notifications::add);
+        writer.write(ByteBuffer.allocate(3000));
+
+        // When
+        runTasks();
+
+        // Then
+        assertThat(notifications).containsExactly(false, true);
+        assertThat(writer.isWritable()).isTrue();
+        assertThatThrownBy(() -> writer.write(ByteBuffer.allocate(100))).isInstanceOf(IOException.class);
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+}
@@ -27,6 +27,7 @@ import tech.kwik.flupke.server.HttpServerResponse;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -79,10 +80,11 @@ public class HttpBinRequestHandler implements HttpRequestHandler {
 
     private void indexRequest(HttpServerRequest httpServerRequest, HttpServerResponse httpServerResponse) {
         httpServerResponse.setStatus(200);
+        httpServerResponse.addHeader("content-type", "text/html; charset=utf-8");
         try {
             String title = "httpbin powered by Flupke";
             String message = "Welcome to httpbin powered by Flupke!";
-            OutputStreamWriter writer = new OutputStreamWriter(httpServerResponse.getOutputStream());
+            OutputStreamWriter writer = new OutputStreamWriter(httpServerResponse.getOutputStream(), StandardCharsets.UTF_8);
             writer.write("<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"UTF-8\"><title>" + title + "</title>" +
                     "<style>body { font-family: Arial, sans-serif; background: #f7f7f7; margin: 40px; } h1 { color: #333; }" +
                     "table { border-collapse: collapse; width: 600px; background: #fff; box-shadow: 0 2px 8px rgba(0,0,0,0.05); }" +
@@ -107,6 +109,7 @@ public class HttpBinRequestHandler implements HttpRequestHandler {
 
     private void getHeadersRequest(HttpServerRequest request, HttpServerResponse response) {
         response.setStatus(200);
+        response.addHeader("content-type", "application/json");
 
         JSONObject jsonOuput = new JSONObject()
                 .put("headers", new JSONObject(request.headers().map()));
@@ -145,7 +148,7 @@ public class HttpBinRequestHandler implements HttpRequestHandler {
 
     private void postForMd5(HttpServerRequest httpServerRequest, HttpServerResponse httpServerResponse) {
         httpServerResponse.setStatus(200);
-        // TODO: httpServerResponse.setHeader("Content-Type", "application/json");
+        httpServerResponse.addHeader("content-type", "application/json");
 
         try {
             MessageDigest md5 = MessageDigest.getInstance("MD5");
@@ -180,6 +183,7 @@ public class HttpBinRequestHandler implements HttpRequestHandler {
             int numBytes = Integer.parseInt(num);
             try {
                 httpServerResponse.setStatus(200);
+                httpServerResponse.addHeader("content-type", "application/octet-stream");
                 int bufferSize = 8192;
                 for (int bytesSent = 0; bytesSent < numBytes; ) {
                     int bytesToSend = Math.min(bufferSize, numBytes - bytesSent);
@@ -22,6 +22,7 @@ import tech.kwik.core.QuicConnection;
 import tech.kwik.core.log.SysOutLogger;
 import tech.kwik.core.server.ServerConnectionConfig;
 import tech.kwik.core.server.ServerConnector;
+import tech.kwik.flupke.server.CompressingRequestHandler;
 import tech.kwik.flupke.server.Http3ApplicationProtocolFactory;
 import tech.kwik.flupke.server.HttpRequestHandler;
 
@@ -88,7 +89,7 @@ public class HttpBinServer {
                 .build();
 
 
-        HttpRequestHandler httpbinRequestHandler = new HttpBinRequestHandler();
+        HttpRequestHandler httpbinRequestHandler = new CompressingRequestHandler(new HttpBinRequestHandler());
         Http3ApplicationProtocolFactory http3ApplicationProtocolFactory = new Http3ApplicationProtocolFactory(httpbinRequestHandler);
         http3ApplicationProtocolFactory.setMaxDataSize(10 * 1024 * 1024 * 1024L);
         serverConnector.registerApplicationProtocol("h3", http3ApplicationProtocolFactory);
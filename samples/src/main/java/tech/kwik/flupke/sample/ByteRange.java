@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.sample;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A (satisfiable) byte range of a representation, as requested with a Range header.
+ * https://www.rfc-editor.org/rfc/rfc9110.html#name-byte-ranges
+ */
+public class ByteRange {
+
+    /**
+     * Maximum number of ranges that is served; requests with more ranges are served with the complete representation.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private final long first;
+    private final long last;
+
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    public long first() {
+        return first;
+    }
+
+    public long last() {
+        return last;
+    }
+
+    public long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * @return  the value of the Content-Range header for this range
+     */
+    public String contentRange(long size) {
+        return "bytes " + first + "-" + last + "/" + size;
+    }
+
+    /**
+     * Parses the value of a Range header.
+     * @param rangeHeader  the header value
+     * @param size  the size of the representation
+     * @return  the satisfiable ranges, which is an empty list when none of the ranges is satisfiable; or an empty
+     *          optional when the header should be ignored (because it is invalid, not in bytes or has too many ranges)
+     */
+    public static Optional<List<ByteRange>> parse(String rangeHeader, long size) {
+        // https://www.rfc-editor.org/rfc/rfc9110.html#name-range
+        // "A server MUST ignore a Range header field received with a request method that is unrecognized or for which
+        //  range handling is not defined." and "A server that supports range requests MAY ignore or reject a Range
+        //  header field that contains an invalid ranges-specifier, a ranges-specifier with more than two overlapping
+        //  ranges, or a set of many small ranges that are not listed in ascending order, ..."
+        String value = rangeHeader.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return Optional.empty();
+        }
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return Optional.empty();
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec: specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return Optional.empty();
+            }
+            try {
+                String firstPos = spec.substring(0, dash).trim();
+                String lastPos = spec.substring(dash + 1).trim();
+                if (firstPos.isEmpty()) {
+                    // https://www.rfc-editor.org/rfc/rfc9110.html#name-byte-ranges
+                    // "A client can request the last N bytes (N > 0) of the selected representation using a
+                    //  suffix-range."
+                    long suffixLength = Long.parseLong(lastPos);
+                    if (suffixLength < 0) {
+                        return Optional.empty();
+                    }
+                    if (suffixLength > 0 && size > 0) {
+                        ranges.add(new ByteRange(Math.max(0, size - suffixLength), size - 1));
+                    }
+                }
+                else {
+                    long first = Long.parseLong(firstPos);
+                    long last = lastPos.isEmpty()? Long.MAX_VALUE: Long.parseLong(lastPos);
+                    if (first < 0 || last < first) {
+                        // "A byte-range-spec is invalid if the last-pos value is present and less than the first-pos."
+                        return Optional.empty();
+                    }
+                    // "If the selected representation is shorter than the specified last-pos, the byte range is
+                    //  interpreted as the remainder of the representation"; a first-pos at or beyond the end of the
+                    // representation makes the range unsatisfiable, also when the last-pos is absent.
+                    if (first < size) {
+                        ranges.add(new ByteRange(first, Math.min(last, size - 1)));
+                    }
+                }
+            }
+            catch (NumberFormatException invalid) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(ranges);
+    }
+}
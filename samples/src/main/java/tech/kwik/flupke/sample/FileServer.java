@@ -20,20 +20,31 @@ package tech.kwik.flupke.sample;
 
 import tech.kwik.core.KwikVersion;
 import tech.kwik.flupke.FlupkeVersion;
+import tech.kwik.flupke.PreEncodedHeaders;
+import tech.kwik.flupke.server.AcceptEncoding;
 import tech.kwik.flupke.server.HttpRequestHandler;
 import tech.kwik.flupke.server.HttpServerRequest;
 import tech.kwik.flupke.server.HttpServerResponse;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.http.HttpHeaders;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -43,18 +54,48 @@ import java.util.regex.Pattern;
  * And when a given request path is a number followed by 'K' or 'M', and is not found in the www directory,
  * it will respond with a file of the specified size.
  * Each request is logged in the standard Apache Access Log format to standard out.
+ * Small files are cached in memory (see {@link StaticContentCache}) and served with ETag and Last-Modified headers;
+ * conditional requests for cached files get a 304 (Not Modified) response when the client's copy is up-to-date.
+ * Range requests (single and multiple ranges, with If-Range) are supported for all files.
+ * When the client accepts gzip, text files are served gzip-compressed: from a precompressed file (the file name with
+ * ".gz" appended) when present, otherwise with a compressed variant that is created and cached by the
+ * {@link StaticContentCache}.
  */
 public class FileServer implements HttpRequestHandler {
 
     private static final int MAX_DOWNLOAD_SIZE = 100 * 1024 * 1024;
+    private static final PreEncodedHeaders ACCEPT_RANGES = PreEncodedHeaders.of("accept-ranges", "bytes");
+    private static final String MULTIPART_BOUNDARY = "flupke-byteranges-boundary";
+    private static final PreEncodedHeaders VARY_ACCEPT_ENCODING = PreEncodedHeaders.of("vary", "accept-encoding");
+    private static final PreEncodedHeaders GZIP_ENCODING = PreEncodedHeaders.of("content-encoding", "gzip");
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("html", "htm", "css", "js", "mjs", "json", "txt", "xml", "svg", "csv", "md");
     private final DateTimeFormatter requestLogTimeFormatter;
     private final File wwwDir;
+    private final StaticContentCache cache;
 
     public FileServer(File wwwDir) {
+        this(wwwDir, createCache(wwwDir));
+    }
+
+    /**
+     * Creates a file server that uses the given cache, or does not cache at all when the cache is null.
+     */
+    public FileServer(File wwwDir, StaticContentCache cache) {
         this.wwwDir = wwwDir;
+        this.cache = cache;
         requestLogTimeFormatter = DateTimeFormatter.ofPattern("d/MMM/yyyy:HH:mm:ss Z").withZone(ZoneId.systemDefault());
     }
 
+    private static StaticContentCache createCache(File wwwDir) {
+        try {
+            return new StaticContentCache(wwwDir, StaticContentCache.DEFAULT_MAX_FILE_SIZE, StaticContentCache.DEFAULT_MAX_TOTAL_SIZE);
+        }
+        catch (IOException e) {
+            System.err.println("Cannot watch www dir, caching disabled: " + e);
+            return null;
+        }
+    }
+
     @Override
     public void handleRequest(HttpServerRequest request, HttpServerResponse response) throws IOException {
         response.setHeaders(HttpHeaders.of(Map.of(
@@ -76,11 +117,43 @@ public class FileServer implements HttpRequestHandler {
             if (path.isBlank() || path.equals("/")) {
                 path = "index.html";
             }
+            boolean compressible = isCompressible(path);
+            if (compressible) {
+                // https://www.rfc-editor.org/rfc/rfc9110.html#name-vary
+                response.addHeaders(VARY_ACCEPT_ENCODING);
+            }
+            // Ranges are always served from the identity (uncompressed) representation.
+            boolean gzip = compressible && request.headers().firstValue("range").isEmpty()
+                    && AcceptEncoding.isAcceptable(request.headers(), "gzip");
+            Optional<StaticContentCache.Entry> cached = lookupCache(path, gzip);
+            if (cached.isPresent()) {
+                serveCached(cached.get(), request, response);
+                log(request, response);
+                return;
+            }
+            File precompressed = gzip? getFileInWwwDir(path + ".gz"): null;
+            if (precompressed != null && isReadableFile(precompressed)) {
+                cached = cache != null? cache.load(precompressedKey(path), precompressed, "gzip"): Optional.empty();
+                if (cached.isPresent()) {
+                    serveCached(cached.get(), request, response);
+                }
+                else {
+                    response.addHeaders(GZIP_ENCODING);
+                    response.setStatus(200);
+                    response.sendFile(precompressed.toPath());
+                }
+                log(request, response);
+                return;
+            }
             File fileInWwwDir = getFileInWwwDir(path);
-            if (fileInWwwDir != null && fileInWwwDir.exists() && fileInWwwDir.isFile() && fileInWwwDir.canRead()) {
-                response.setStatus(200);
-                try (FileInputStream fileIn = new FileInputStream(fileInWwwDir); OutputStream out = response.getOutputStream()) {
-                    fileIn.transferTo(out);
+            if (fileInWwwDir != null && isReadableFile(fileInWwwDir)) {
+                cached = cache != null? cache.load(path, fileInWwwDir): Optional.empty();
+                if (cached.isPresent()) {
+                    StaticContentCache.Entry entry = cached.get();
+                    serveCached(gzip? cache.gzipVariant(path, entry).orElse(entry): entry, request, response);
+                }
+                else {
+                    serveFile(fileInWwwDir, request, response);
                 }
             }
             else {
@@ -108,6 +181,161 @@ public class FileServer implements HttpRequestHandler {
         log(request, response);
     }
 
+    private Optional<StaticContentCache.Entry> lookupCache(String path, boolean gzip) {
+        if (cache == null) {
+            return Optional.empty();
+        }
+        if (gzip) {
+            Optional<StaticContentCache.Entry> precompressed = cache.get(precompressedKey(path));
+            if (precompressed.isPresent()) {
+                return precompressed;
+            }
+        }
+        Optional<StaticContentCache.Entry> entry = cache.get(path);
+        if (gzip && entry.isPresent()) {
+            return Optional.of(cache.gzipVariant(path, entry.get()).orElse(entry.get()));
+        }
+        return entry;
+    }
+
+    /**
+     * @return  the cache key for the precompressed variant of the given path, which cannot collide with a request path
+     *          (as request paths never contain a space)
+     */
+    private static String precompressedKey(String path) {
+        return "gzip " + path;
+    }
+
+    private static boolean isCompressible(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 && COMPRESSIBLE_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isReadableFile(File file) {
+        return file.exists() && file.isFile() && file.canRead();
+    }
+
+    private void serveCached(StaticContentCache.Entry entry, HttpServerRequest request, HttpServerResponse response) throws IOException {
+        response.addHeaders(entry.validatorHeaders());
+        if (entry.isNotModified(request.headers().firstValue("if-none-match"), request.headers().firstValue("if-modified-since"))) {
+            // https://www.rfc-editor.org/rfc/rfc9110.html#name-304-not-modified
+            // "A 304 response is terminated by the end of the header section; it cannot contain content or trailers."
+            response.setStatus(304);
+            return;
+        }
+        response.addHeaders(ACCEPT_RANGES);
+        byte[] content = entry.content();
+        Optional<List<ByteRange>> ranges = requestedRanges(request, content.length, entry::matchesIfRange);
+        if (ranges.isPresent()) {
+            sendRanges(ranges.get(), content.length, response, (out, offset, length) -> out.write(content, (int) offset, (int) length));
+        }
+        else {
+            response.setStatus(200);
+            response.addHeaders(entry.contentHeaders());
+            response.getOutputStream().write(content);
+        }
+    }
+
+    private void serveFile(File file, HttpServerRequest request, HttpServerResponse response) throws IOException {
+        long size = file.length();
+        long lastModifiedSeconds = file.lastModified() / 1000;
+        response.addHeaders(ACCEPT_RANGES);
+        // Without ETag (that is only computed for cached files), an If-Range can only match on the modification date.
+        Optional<List<ByteRange>> ranges = requestedRanges(request, size, ifRange -> StaticContentCache.Entry.matchesDate(ifRange.trim(), lastModifiedSeconds));
+        if (ranges.isEmpty()) {
+            response.setStatus(200);
+            response.sendFile(file.toPath());
+        }
+        else if (ranges.get().size() == 1) {
+            ByteRange range = ranges.get().get(0);
+            response.setStatus(206);
+            response.addHeader("content-range", range.contentRange(size));
+            response.sendFile(file.toPath(), range.first(), range.length());
+        }
+        else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                sendRanges(ranges.get(), size, response, (out, offset, length) -> transfer(channel, offset, length, out));
+            }
+        }
+    }
+
+    /**
+     * Determines the ranges to send, based on the Range and If-Range request headers.
+     * @return  the ranges (empty list when not satisfiable), or empty when the complete content should be sent
+     */
+    private Optional<List<ByteRange>> requestedRanges(HttpServerRequest request, long size, Predicate<String> ifRangeMatches) {
+        Optional<String> range = request.headers().firstValue("range");
+        if (range.isEmpty()) {
+            return Optional.empty();
+        }
+        // https://www.rfc-editor.org/rfc/rfc9110.html#name-if-range
+        // "Otherwise, the recipient SHOULD process the Range header field as requested. If the validator does not
+        //  match, the recipient MUST ignore the Range header field."
+        Optional<String> ifRange = request.headers().firstValue("if-range");
+        if (ifRange.isPresent() && !ifRangeMatches.test(ifRange.get())) {
+            return Optional.empty();
+        }
+        return ByteRange.parse(range.get(), size);
+    }
+
+    private void sendRanges(List<ByteRange> ranges, long size, HttpServerResponse response, RegionWriter regionWriter) throws IOException {
+        if (ranges.isEmpty()) {
+            // https://www.rfc-editor.org/rfc/rfc9110.html#name-416-range-not-satisfiable
+            // "When this status code is generated in response to a byte-range request, the sender SHOULD generate a
+            //  Content-Range header field specifying the current length of the selected representation"
+            response.setStatus(416);
+            response.addHeader("content-range", "bytes */" + size);
+            return;
+        }
+        response.setStatus(206);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.addHeader("content-range", range.contentRange(size));
+            response.addHeader("content-length", Long.toString(range.length()));
+            regionWriter.write(response.getOutputStream(), range.first(), range.length());
+            return;
+        }
+
+        // https://www.rfc-editor.org/rfc/rfc9110.html#name-media-type-multipart-byteran
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (ByteRange range: ranges) {
+            byte[] partHeader = ("--" + MULTIPART_BOUNDARY + "\r\n" + "Content-Range: " + range.contentRange(size) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.length() + 2;
+        }
+        byte[] end = ("--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+        response.addHeader("content-type", "multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+        response.addHeader("content-length", Long.toString(contentLength));
+        OutputStream out = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            out.write(partHeaders.get(i));
+            regionWriter.write(out, ranges.get(i).first(), ranges.get(i).length());
+            out.write(new byte[] { '\r', '\n' });
+        }
+        out.write(end);
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 64 * 1024));
+        long end = position + count;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("file is shorter than expected");
+            }
+            out.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    private interface RegionWriter {
+        void write(OutputStream out, long offset, long length) throws IOException;
+    }
+
     private void transferFileOfSize(long size, OutputStream outputStream) throws IOException {
         long remaining = size;
         int blockSize = 1000;
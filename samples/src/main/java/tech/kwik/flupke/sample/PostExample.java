@@ -82,7 +82,7 @@ public class PostExample {
             } else {
                 System.out.println(httpResponse.body());
             }
-            System.out.println("Connection statistics: " + ((Http3Client) client).getConnectionStatistics());
+            System.out.println("Connection metrics: " + ((Http3Client) client).getConnectionMetrics());
         }
         catch (Exception e) {
             System.out.println("PostExample: " + e);
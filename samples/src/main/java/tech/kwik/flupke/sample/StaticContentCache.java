@@ -0,0 +1,392 @@
+/*
+ * Copyright © 2025 Peter Doornbosch
+ *
+ * This file is part of Flupke, a HTTP3 client Java library
+ *
+ * Flupke is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * Flupke is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package tech.kwik.flupke.sample;
+
+import tech.kwik.flupke.PreEncodedHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Bounded (LRU) in-memory cache for small static files, holding the content together with everything needed to serve
+ * it: a strong ETag (derived from the content), the last modified time and pre-encoded response headers. Entries are
+ * invalidated by a WatchService that watches the www directory (and its subdirectories), so cache hits do not touch
+ * the file system at all.
+ * For compressible files, a gzip-compressed variant is created when first requested and cached with the entry; the
+ * compressed variants count towards the memory bound of the cache.
+ */
+public class StaticContentCache {
+
+    public static final int DEFAULT_MAX_FILE_SIZE = 256 * 1024;
+    public static final long DEFAULT_MAX_TOTAL_SIZE = 32 * 1024 * 1024;
+
+    private final Path rootDir;
+    private final int maxFileSize;
+    private final long maxTotalSize;
+    private final WatchService watchService;
+    // Guarded by this; in access order, so the first entry is the least recently used.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+    // Incremented on every invalidation, so a file that changes while being loaded is not cached with stale content.
+    private long generation;
+
+    /**
+     * Creates a cache for the files in the given directory.
+     * @param rootDir  the directory to watch
+     * @param maxFileSize  the maximum size of a file to be cached
+     * @param maxTotalSize  the maximum total size of all cached files
+     * @throws IOException  when the directory cannot be watched
+     */
+    public StaticContentCache(File rootDir, int maxFileSize, long maxTotalSize) throws IOException {
+        this.rootDir = rootDir.getCanonicalFile().toPath();
+        this.maxFileSize = maxFileSize;
+        this.maxTotalSize = maxTotalSize;
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(this.rootDir);
+        Thread watcher = new Thread(this::processWatchEvents, "static-content-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Returns the cached entry for the given request path, without accessing the file system.
+     */
+    public synchronized Optional<Entry> get(String requestPath) {
+        return Optional.ofNullable(entries.get(requestPath));
+    }
+
+    /**
+     * Loads the given file and caches it under the given request path, if it is small enough.
+     * @param requestPath  the request path that maps to the file
+     * @param file  the (canonical) file to load
+     * @return  the cache entry, or empty if the file is too large to be cached
+     * @throws IOException  when reading the file fails
+     */
+    public Optional<Entry> load(String requestPath, File file) throws IOException {
+        return load(requestPath, file, null);
+    }
+
+    /**
+     * Loads the given file, that has the given content coding (e.g. a precompressed file), and caches it under the
+     * given request path, if it is small enough.
+     * @param requestPath  the request path (or other key) that maps to the file
+     * @param file  the (canonical) file to load
+     * @param contentEncoding  the content coding of the file, or null when the file is not encoded
+     * @return  the cache entry, or empty if the file is too large to be cached
+     * @throws IOException  when reading the file fails
+     */
+    public Optional<Entry> load(String requestPath, File file, String contentEncoding) throws IOException {
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        if (file.length() > maxFileSize) {
+            return Optional.empty();
+        }
+        long lastModified = file.lastModified();
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length > maxFileSize) {
+            return Optional.empty();
+        }
+        Entry entry = new Entry(file.toPath(), content, lastModified, contentEncoding);
+        synchronized (this) {
+            if (generation == startGeneration) {
+                Entry previous = entries.put(requestPath, entry);
+                if (previous != null) {
+                    totalSize -= previous.memorySize();
+                }
+                totalSize += content.length;
+                evictWhileTooLarge();
+            }
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Returns the gzip-compressed variant of the given entry, compressing the content when this was not done before.
+     * @param requestPath  the request path under which the entry is cached
+     * @param entry  the (uncompressed) entry
+     * @return  the compressed variant, or empty when compressing does not make the content smaller
+     */
+    public Optional<Entry> gzipVariant(String requestPath, Entry entry) {
+        long startGeneration;
+        synchronized (this) {
+            if (entry.gzipAttempted) {
+                return Optional.ofNullable(entry.gzipVariant);
+            }
+            startGeneration = generation;
+        }
+        // Compress outside the lock; concurrent requests for the same entry may compress it more than once.
+        byte[] compressed = gzip(entry.content);
+        Entry variant = compressed.length < entry.content.length?
+                new Entry(entry.file, compressed, entry.lastModifiedSeconds * 1000, "gzip"): null;
+        synchronized (this) {
+            if (generation == startGeneration && entries.get(requestPath) == entry && !entry.gzipAttempted) {
+                entry.gzipAttempted = true;
+                entry.gzipVariant = variant;
+                if (variant != null) {
+                    totalSize += variant.content.length;
+                    evictWhileTooLarge();
+                }
+            }
+        }
+        return Optional.ofNullable(variant);
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(compressed)) {
+            gzipOutput.write(content);
+        }
+        catch (IOException e) {
+            // Cannot happen when writing to memory.
+            throw new IllegalStateException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictWhileTooLarge() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (totalSize > maxTotalSize && iterator.hasNext()) {
+            totalSize -= iterator.next().memorySize();
+            iterator.remove();
+        }
+    }
+
+    private synchronized void invalidate(Path changed) {
+        generation++;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            // A changed directory (e.g. renamed or deleted) invalidates all files in it; a changed precompressed file
+            // also invalidates the file it is a variant of, as the latter might be served with an obsolete variant.
+            if (changed == null || entry.file.startsWith(changed) || changed.toString().equals(entry.file + ".gz")) {
+                totalSize -= entry.memorySize();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void registerTree(Path dir) throws IOException {
+        try (Stream<Path> dirs = Files.walk(dir)) {
+            for (Path subDir: (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                subDir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private void processWatchEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event: key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    // Events were lost, so any file may have changed.
+                    invalidate(null);
+                    continue;
+                }
+                Path changed = dir.resolve((Path) event.context());
+                invalidate(changed);
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                    try {
+                        registerTree(changed);
+                    }
+                    catch (IOException e) {
+                        // Directory may already be gone again; its files will not be cached anyway.
+                    }
+                }
+            }
+            if (!key.reset()) {
+                // Directory is no longer accessible.
+                invalidate(dir);
+            }
+        }
+    }
+
+    public static class Entry {
+
+        private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+        private final Path file;
+        private final byte[] content;
+        private final long lastModifiedSeconds;
+        private final String etag;
+        private final PreEncodedHeaders validatorHeaders;
+        private final PreEncodedHeaders contentHeaders;
+        // Guarded by the cache.
+        private boolean gzipAttempted;
+        private Entry gzipVariant;
+
+        Entry(Path file, byte[] content, long lastModified, String contentEncoding) {
+            this.file = file;
+            this.content = content;
+            // HTTP dates have a resolution of seconds.
+            this.lastModifiedSeconds = lastModified / 1000;
+            this.etag = "\"" + contentHash(content) + "\"";
+            String lastModifiedDate = HTTP_DATE_FORMAT.format(Instant.ofEpochSecond(lastModifiedSeconds));
+            validatorHeaders = PreEncodedHeaders.of("etag", etag, "last-modified", lastModifiedDate);
+            contentHeaders = contentEncoding == null?
+                    PreEncodedHeaders.of("content-length", Integer.toString(content.length)):
+                    PreEncodedHeaders.of("content-length", Integer.toString(content.length), "content-encoding", contentEncoding);
+        }
+
+        /**
+         * @return  the file content; the returned array is shared and must not be modified
+         */
+        public byte[] content() {
+            return content;
+        }
+
+        public String etag() {
+            return etag;
+        }
+
+        /**
+         * @return  the ETag and Last-Modified headers, to be sent with both 200 and 304 responses
+         */
+        public PreEncodedHeaders validatorHeaders() {
+            return validatorHeaders;
+        }
+
+        /**
+         * @return  the Content-Length header, and the Content-Encoding header when the content is encoded
+         */
+        public PreEncodedHeaders contentHeaders() {
+            return contentHeaders;
+        }
+
+        /**
+         * Evaluates the conditional request headers (If-None-Match and If-Modified-Since).
+         * @return  true if the client's copy is up-to-date, i.e. the response should be 304 (Not Modified)
+         */
+        public boolean isNotModified(Optional<String> ifNoneMatch, Optional<String> ifModifiedSince) {
+            // https://www.rfc-editor.org/rfc/rfc9110.html#name-if-modified-since
+            // "A recipient MUST ignore If-Modified-Since if the request contains an If-None-Match header field; the
+            //  condition in If-None-Match is considered to be a more accurate replacement for the condition in
+            //  If-Modified-Since, and the two are only combined for the sake of interoperating with older
+            //  intermediaries that might not implement If-None-Match."
+            if (ifNoneMatch.isPresent()) {
+                return matchesAny(ifNoneMatch.get());
+            }
+            if (ifModifiedSince.isPresent()) {
+                try {
+                    long since = Instant.from(HTTP_DATE_FORMAT.parse(ifModifiedSince.get().trim())).getEpochSecond();
+                    return lastModifiedSeconds <= since;
+                }
+                catch (RuntimeException invalidDate) {
+                    // https://www.rfc-editor.org/rfc/rfc9110.html#name-if-modified-since
+                    // "A recipient MUST ignore the If-Modified-Since header field if the received field value is not a
+                    //  valid HTTP-date, ..."
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Evaluates an If-Range header value against this entry.
+         * @return  true if the range request can be served, false if the complete content must be sent
+         */
+        public boolean matchesIfRange(String ifRange) {
+            // https://www.rfc-editor.org/rfc/rfc9110.html#name-if-range
+            // "A recipient of an If-Range header field MUST use the strong comparison function when comparing entity
+            //  tags"
+            String value = ifRange.trim();
+            if (value.startsWith("\"") || value.startsWith("W/")) {
+                return value.equals(etag);
+            }
+            return matchesDate(value, lastModifiedSeconds);
+        }
+
+        /**
+         * @return  whether the given HTTP-date denotes the given time (in seconds since the epoch)
+         */
+        static boolean matchesDate(String httpDate, long epochSeconds) {
+            try {
+                return Instant.from(HTTP_DATE_FORMAT.parse(httpDate)).getEpochSecond() == epochSeconds;
+            }
+            catch (RuntimeException invalidDate) {
+                return false;
+            }
+        }
+
+        private long memorySize() {
+            return content.length + (gzipVariant != null? gzipVariant.content.length: 0);
+        }
+
+        private boolean matchesAny(String ifNoneMatch) {
+            // https://www.rfc-editor.org/rfc/rfc9110.html#name-if-none-match
+            // "A recipient MUST use the weak comparison function when comparing entity tags for If-None-Match"
+            for (String tag: ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String contentHash(byte[] content) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+                StringBuilder hex = new StringBuilder();
+                for (int i = 0; i < 16; i++) {
+                    hex.append(String.format("%02x", digest[i]));
+                }
+                return hex.toString();
+            }
+            catch (NoSuchAlgorithmException e) {
+                // Every Java platform is required to support SHA-256.
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
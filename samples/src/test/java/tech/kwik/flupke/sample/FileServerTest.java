@@ -24,13 +24,23 @@ import tech.kwik.flupke.server.HttpServerRequest;
 import tech.kwik.flupke.server.HttpServerResponse;
 import tech.kwik.flupke.server.impl.HttpServerRequestImpl;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Inet4Address;
 import java.net.InetSocketAddress;
+import java.net.http.HttpHeaders;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -53,6 +63,8 @@ public class FileServerTest {
         HttpServerResponse response = mock(HttpServerResponse.class);
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         when(response.getOutputStream()).thenReturn(byteArrayOutputStream);
+        doCallRealMethod().when(response).sendFile(any());
+        doCallRealMethod().when(response).sendFile(any(), anyLong(), anyLong());
 
         // When
         fileServer.handleRequest(createGetRequest("file"), response);
@@ -76,7 +88,274 @@ public class FileServerTest {
         verify(response).setStatus(intThat(arg -> arg == 404));
     }
 
-    private HttpServerRequest createGetRequest(String filename) throws IOException {
-        return new HttpServerRequestImpl("GET", filename, null, null, new InetSocketAddress(Inet4Address.getByAddress(new byte[] { 10, 0, 0, 58 }), 443), mock(InputStream.class));
+    @Test
+    public void smallFileIsCachedAfterFirstRequest() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        StaticContentCache cache = createCache();
+        FileServer fileServer = new FileServer(wwwDir, cache);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file"), createResponse(new ByteArrayOutputStream()));
+
+        // Then
+        assertThat(cache.get("file")).isPresent();
+        assertThat(cache.get("file").get().content()).isEqualTo("Hello World!".getBytes());
+    }
+
+    @Test
+    public void requestWithMatchingEtagGetsNotModifiedResponse() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        StaticContentCache cache = createCache();
+        FileServer fileServer = new FileServer(wwwDir, cache);
+        fileServer.handleRequest(createGetRequest("file"), createResponse(new ByteArrayOutputStream()));
+        String etag = cache.get("file").get().etag();
+
+        // When
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+        fileServer.handleRequest(createGetRequest("file", "if-none-match", etag), response);
+
+        // Then
+        verify(response).setStatus(304);
+        assertThat(byteArrayOutputStream.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestWithDifferentEtagGetsFullResponse() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        FileServer fileServer = new FileServer(wwwDir, createCache());
+        fileServer.handleRequest(createGetRequest("file"), createResponse(new ByteArrayOutputStream()));
+
+        // When
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+        fileServer.handleRequest(createGetRequest("file", "if-none-match", "\"outdated\""), response);
+
+        // Then
+        verify(response).setStatus(200);
+        assertThat(byteArrayOutputStream.toString()).isEqualTo("Hello World!");
+    }
+
+    @Test
+    public void requestWithIfModifiedSinceAfterLastModificationGetsNotModifiedResponse() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        FileServer fileServer = new FileServer(wwwDir, createCache());
+        fileServer.handleRequest(createGetRequest("file"), createResponse(new ByteArrayOutputStream()));
+
+        // When
+        HttpServerResponse response = createResponse(new ByteArrayOutputStream());
+        String tomorrow = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusDays(1));
+        fileServer.handleRequest(createGetRequest("file", "if-modified-since", tomorrow), response);
+
+        // Then
+        verify(response).setStatus(304);
+    }
+
+    @Test
+    public void modifiedFileIsRemovedFromCache() throws Exception {
+        // Given
+        Path file = new File(wwwDir, "file").toPath();
+        Files.write(file, "Hello World!".getBytes());
+        StaticContentCache cache = createCache();
+        FileServer fileServer = new FileServer(wwwDir, cache);
+        fileServer.handleRequest(createGetRequest("file"), createResponse(new ByteArrayOutputStream()));
+
+        // When
+        Files.write(file, "Hello Again!".getBytes());
+
+        // Then
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cache.get("file").isPresent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.get("file")).isEmpty();
+    }
+
+    @Test
+    public void requestWithSingleRangeGetsPartialContent() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file", "range", "bytes=6-10"), response);
+
+        // Then
+        verify(response).setStatus(206);
+        verify(response).addHeader("content-range", "bytes 6-10/12");
+        assertThat(byteArrayOutputStream.toString()).isEqualTo("World");
+    }
+
+    @Test
+    public void requestWithSuffixRangeGetsLastBytes() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file", "range", "bytes=-6"), response);
+
+        // Then
+        verify(response).setStatus(206);
+        verify(response).addHeader("content-range", "bytes 6-11/12");
+        assertThat(byteArrayOutputStream.toString()).isEqualTo("World!");
+    }
+
+    @Test
+    public void requestWithMultipleRangesGetsMultipartResponse() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file", "range", "bytes=0-4, 6-10"), response);
+
+        // Then
+        verify(response).setStatus(206);
+        verify(response).addHeader(eq("content-type"), startsWith("multipart/byteranges; boundary="));
+        verify(response).addHeader("content-length", Integer.toString(byteArrayOutputStream.size()));
+        assertThat(byteArrayOutputStream.toString())
+                .contains("Content-Range: bytes 0-4/12\r\n\r\nHello\r\n")
+                .contains("Content-Range: bytes 6-10/12\r\n\r\nWorld\r\n")
+                .endsWith("--\r\n");
+    }
+
+    @Test
+    public void requestWithUnsatisfiableRangeGetsRangeNotSatisfiable() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file", "range", "bytes=100-200"), response);
+
+        // Then
+        verify(response).setStatus(416);
+        verify(response).addHeader("content-range", "bytes */12");
+        assertThat(byteArrayOutputStream.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestWithOpenEndedRangeStartingAtEndOfFileGetsRangeNotSatisfiable() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file", "range", "bytes=12-"), response);
+
+        // Then
+        verify(response).setStatus(416);
+        verify(response).addHeader("content-range", "bytes */12");
+        assertThat(byteArrayOutputStream.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestWithNonMatchingIfRangeGetsFullResponse() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file", "range", "bytes=6-10", "if-range", "\"outdated\""), response);
+
+        // Then
+        verify(response).setStatus(200);
+        assertThat(byteArrayOutputStream.toString()).isEqualTo("Hello World!");
+    }
+
+    @Test
+    public void multipleRangesOfUncachedFileAreReadFromFile() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file").toPath(), "Hello World!".getBytes());
+        FileServer fileServer = new FileServer(wwwDir, new StaticContentCache(wwwDir, 0, 0));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file", "range", "bytes=0-0,-1"), response);
+
+        // Then
+        verify(response).setStatus(206);
+        assertThat(byteArrayOutputStream.toString())
+                .contains("Content-Range: bytes 0-0/12\r\n\r\nH\r\n")
+                .contains("Content-Range: bytes 11-11/12\r\n\r\n!\r\n");
+    }
+
+    @Test
+    public void textFileIsServedCompressedWhenClientAcceptsGzip() throws IOException {
+        // Given
+        String text = "All work and no play makes Jack a dull boy. ".repeat(100);
+        Files.write(new File(wwwDir, "file.txt").toPath(), text.getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file.txt", "accept-encoding", "gzip, br"), response);
+
+        // Then
+        verify(response).setStatus(200);
+        assertThat(byteArrayOutputStream.size()).isLessThan(text.length());
+        assertThat(new String(new GZIPInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray())).readAllBytes())).isEqualTo(text);
+    }
+
+    @Test
+    public void precompressedFileIsServedWhenClientAcceptsGzip() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file.txt").toPath(), "Hello World!".getBytes());
+        Files.write(new File(wwwDir, "file.txt.gz").toPath(), "precompressed".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file.txt", "accept-encoding", "gzip"), response);
+
+        // Then
+        verify(response).setStatus(200);
+        assertThat(byteArrayOutputStream.toString()).isEqualTo("precompressed");
+    }
+
+    @Test
+    public void textFileIsNotCompressedWhenClientDoesNotAcceptGzip() throws IOException {
+        // Given
+        Files.write(new File(wwwDir, "file.txt").toPath(), "Hello World!".getBytes());
+        Files.write(new File(wwwDir, "file.txt.gz").toPath(), "precompressed".getBytes());
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        HttpServerResponse response = createResponse(byteArrayOutputStream);
+
+        // When
+        fileServer.handleRequest(createGetRequest("file.txt", "accept-encoding", "gzip;q=0"), response);
+
+        // Then
+        assertThat(byteArrayOutputStream.toString()).isEqualTo("Hello World!");
+    }
+
+    private StaticContentCache createCache() throws IOException {
+        return new StaticContentCache(wwwDir, StaticContentCache.DEFAULT_MAX_FILE_SIZE, StaticContentCache.DEFAULT_MAX_TOTAL_SIZE);
+    }
+
+    private HttpServerResponse createResponse(ByteArrayOutputStream output) {
+        HttpServerResponse response = mock(HttpServerResponse.class);
+        when(response.getOutputStream()).thenReturn(output);
+        return response;
+    }
+
+    private HttpServerRequest createGetRequest(String filename, String... headerNamesAndValues) throws IOException {
+        Map<String, List<String>> headers = new HashMap<>();
+        for (int i = 0; i < headerNamesAndValues.length; i += 2) {
+            headers.put(headerNamesAndValues[i], List.of(headerNamesAndValues[i + 1]));
+        }
+        return new HttpServerRequestImpl("GET", filename, null, HttpHeaders.of(headers, (k, v) -> true),
+                new InetSocketAddress(Inet4Address.getByAddress(new byte[] { 10, 0, 0, 58 }), 443), mock(InputStream.class));
     }
 }
\ No newline at end of file